@@ -1,8 +1,8 @@
 package com.example.distributedguidemojava.gui;
 
-import com.example.distributedguidemojava.networking.CommunicatorFactory;
 import com.example.distributedguidemojava.viewmodel.MainPageViewModel;
 import javafx.fxml.FXML;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.image.ImageView;
@@ -38,6 +38,10 @@ public class MainWindowController {
     @FXML
     private ImageView imageView;
     
+    /** Progress bar showing how much of the image being received has arrived. */
+    @FXML
+    private ProgressBar imageProgressBar;
+    
     /** ViewModel for managing the main page logic. */
     private MainPageViewModel viewModel;
 
@@ -47,12 +51,13 @@ public class MainWindowController {
     @FXML
     public void initialize() {
         // Create ViewModel with a new communicator
-        viewModel = new MainPageViewModel(CommunicatorFactory.createCommunicator());
+        viewModel = new MainPageViewModel(MainPageViewModel.createCommunicator());
         
         // Bind UI elements to ViewModel properties
         receivePortField.textProperty().bind(viewModel.receivePortProperty());
         messagesArea.textProperty().bind(viewModel.receivedMessageProperty());
         imageView.imageProperty().bind(viewModel.receivedImageProperty());
+        imageProgressBar.progressProperty().bind(viewModel.imageProgressProperty());
     }
 
     /**
@@ -0,0 +1,84 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+/**
+ * Bitmap of the chunks of a transfer that have arrived.
+ * One bit per chunk, packed into longs, plus a count of the bits set, so marking a chunk, spotting a
+ * duplicate and checking for completion each take constant time.
+ */
+final class ChunkBitmap {
+
+    /** Number of bits in each word of the bitmap. */
+    private static final int WORD_BITS = Long.SIZE;
+    /** Shift turning a chunk index into a word index. */
+    private static final int WORD_SHIFT = 6;
+    /** The bits, one per chunk. */
+    private final long[] words;
+    /** Number of chunks in the transfer. */
+    private final int chunkCount;
+    /** Number of chunks marked so far. */
+    private int marked;
+
+    /**
+     * Constructs an empty bitmap.
+     * @param count Number of chunks in the transfer; must be positive.
+     */
+    ChunkBitmap(final int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Chunk count must be positive: " + count);
+        }
+        this.chunkCount = count;
+        this.words = new long[(count + WORD_BITS - 1) / WORD_BITS];
+    }
+
+    /**
+     * Marks a chunk as arrived.
+     * @param index Index of the chunk.
+     * @return True if the chunk was new, false if it had arrived before or the index is out of range.
+     */
+    boolean mark(final int index) {
+        if (index < 0 || index >= chunkCount) {
+            return false;
+        }
+        final long bit = 1L << index;
+        final int word = index >>> WORD_SHIFT;
+        if ((words[word] & bit) != 0) {
+            return false;
+        }
+        words[word] |= bit;
+        marked++;
+        return true;
+    }
+
+    /**
+     * Checks whether a chunk has arrived.
+     * @param index Index of the chunk.
+     * @return True if the chunk is marked.
+     */
+    boolean isMarked(final int index) {
+        return index >= 0 && index < chunkCount && (words[index >>> WORD_SHIFT] & (1L << index)) != 0;
+    }
+
+    /**
+     * Checks whether every chunk has arrived.
+     * @return True if all chunks are marked.
+     */
+    boolean isComplete() {
+        return marked == chunkCount;
+    }
+
+    /**
+     * Gets the number of chunks in the transfer.
+     * @return The chunk count.
+     */
+    int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Gets the number of chunks that have arrived.
+     * @return The number of marked chunks.
+     */
+    int getMarkedCount() {
+        return marked;
+    }
+}
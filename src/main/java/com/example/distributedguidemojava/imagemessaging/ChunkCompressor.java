@@ -0,0 +1,95 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses the chunks of one image transfer, each on its own.
+ * Every chunk is deflated into a reused buffer no larger than a chunk, so a compressed chunk never
+ * needs more room on the wire than the plain one, and the receiver can inflate every chunk as it
+ * arrives, in any order, straight to its offset. A chunk that does not get smaller is sent as it is.
+ *
+ * <p>Images in formats that are compressed already are not worth the work; {@link #isWorthCompressing}
+ * recognizes them by the first bytes of the file.
+ */
+final class ChunkCompressor implements AutoCloseable {
+
+    /** First bytes of every JPEG file. */
+    private static final byte[] JPEG_MAGIC = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    /** First bytes of every GIF file. */
+    private static final byte[] GIF_MAGIC = "GIF8".getBytes(StandardCharsets.US_ASCII);
+    /** First bytes of every RIFF container, WebP among them. */
+    private static final byte[] RIFF_MAGIC = "RIFF".getBytes(StandardCharsets.US_ASCII);
+    /** Form type of a RIFF container holding a WebP image. */
+    private static final byte[] WEBP_FORM = "WEBP".getBytes(StandardCharsets.US_ASCII);
+    /** Offset of the form type in a RIFF container. */
+    private static final int RIFF_FORM_OFFSET = 8;
+    /** The compressor, reset for every chunk. */
+    private final Deflater deflater;
+    /** Buffer every compressed chunk is written to. */
+    private final byte[] compressed;
+
+    /**
+     * Constructs a compressor for the chunks of one transfer.
+     * @param level Deflate compression level, from 1 (fastest) to 9 (smallest).
+     * @param maxChunk Largest chunk that will be compressed, in bytes.
+     */
+    ChunkCompressor(final int level, final int maxChunk) {
+        this.deflater = new Deflater(level);
+        this.compressed = new byte[maxChunk];
+    }
+
+    /**
+     * Checks whether an image is worth compressing, which it is not if its format compresses already.
+     * @param head Buffer holding the first bytes of the image file; it is not consumed.
+     * @return False for JPEG, GIF and WebP images, true otherwise.
+     */
+    static boolean isWorthCompressing(final ByteBuffer head) {
+        if (startsWith(head, 0, JPEG_MAGIC) || startsWith(head, 0, GIF_MAGIC)) {
+            return false;
+        }
+        return !(startsWith(head, 0, RIFF_MAGIC) && startsWith(head, RIFF_FORM_OFFSET, WEBP_FORM));
+    }
+
+    /**
+     * Compresses a chunk.
+     * @param chunk Buffer holding the chunk; it is not consumed.
+     * @return A buffer holding the compressed chunk, valid until the next call, or null if the chunk
+     *         does not get smaller and should be sent as it is.
+     */
+    ByteBuffer compress(final ByteBuffer chunk) {
+        deflater.reset();
+        deflater.setInput(chunk.duplicate());
+        deflater.finish();
+        final int length = deflater.deflate(compressed, 0, Math.min(compressed.length, chunk.remaining()));
+        if (!deflater.finished() || length >= chunk.remaining()) {
+            return null;
+        }
+        return ByteBuffer.wrap(compressed, 0, length);
+    }
+
+    @Override
+    public void close() {
+        deflater.end();
+    }
+
+    /**
+     * Checks whether a buffer holds some bytes at an offset from its position.
+     * @param buffer The buffer; it is not consumed.
+     * @param offset Offset from the buffer's position.
+     * @param expected The bytes.
+     * @return True if the bytes are there.
+     */
+    private static boolean startsWith(final ByteBuffer buffer, final int offset, final byte[] expected) {
+        if (buffer.remaining() < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(buffer.position() + offset + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Inflates the compressed chunks of received transfers, one chunk at a time.
+ * Chunks arrive on several threads, so every thread has its own inflater and its own buffer the size
+ * of the largest chunk; nothing is allocated per chunk, and a chunk that would inflate to more than a
+ * chunk is refused rather than filling memory.
+ */
+final class ChunkInflater {
+
+    /** Inflater of the calling thread, reset for every chunk. */
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+    /** Buffer of the calling thread that chunks are inflated into. */
+    private static final ThreadLocal<ByteBuffer> INFLATED =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocate(ImageMessengerConfig.MAX_CHUNK_SIZE));
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ChunkInflater() {
+    }
+
+    /**
+     * Inflates a compressed chunk.
+     * @param payload Buffer holding the compressed chunk; it is consumed.
+     * @return A buffer holding the chunk, valid until the calling thread inflates the next one, or null
+     *         if the chunk is corrupt or inflates to more than the largest chunk.
+     */
+    static ByteBuffer inflate(final ByteBuffer payload) {
+        final Inflater inflater = INFLATER.get();
+        final ByteBuffer inflated = INFLATED.get().clear();
+        inflater.reset();
+        inflater.setInput(payload);
+        try {
+            inflater.inflate(inflated);
+        } catch (DataFormatException e) {
+            return null;
+        }
+        if (!inflater.finished()) {
+            return null;
+        }
+        return inflated.flip();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps received images by the SHA-256 digest of their content, within a memory budget.
+ * Images are held in least recently used order: looking an image up or storing it again makes it the
+ * most recent, and an image that would take the total past the budget pushes out the least recent
+ * ones. An image larger than the whole budget is not kept. The store keeps its own copy of every image
+ * and hands out copies, so callers may do as they like with the arrays.
+ */
+final class ContentStore {
+
+    /** Digest algorithm images are identified by. */
+    static final String DIGEST_ALGORITHM = "SHA-256";
+    /** Size of a digest in bytes. */
+    static final int DIGEST_SIZE = 32;
+    /** Size of the buffer files are read through to digest them. */
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    /** Formats digests as the keys of the images. */
+    private static final HexFormat HEX = HexFormat.of();
+    /** Initial capacity of the map of images. */
+    private static final int INITIAL_CAPACITY = 16;
+    /** Load factor of the map of images. */
+    private static final float LOAD_FACTOR = 0.75f;
+    /** Most bytes all images together may hold. */
+    private final long budget;
+    /** The images keyed by digest, least recently used first. */
+    private final LinkedHashMap<String, byte[]> images = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+    /** Bytes held by all images together. */
+    private long storedBytes;
+
+    /**
+     * Constructs an empty store.
+     * @param budgetBytes Most bytes all images together may hold; 0 keeps nothing.
+     */
+    ContentStore(final long budgetBytes) {
+        this.budget = budgetBytes;
+    }
+
+    /**
+     * Computes the digest of an image.
+     * @param image The image's bytes.
+     * @return The digest.
+     */
+    static byte[] digestOf(final byte[] image) {
+        return newDigest().digest(image);
+    }
+
+    /**
+     * Computes the digest of an image file, reading it through a buffer.
+     * @param file The image file.
+     * @return The digest.
+     * @throws IOException If reading the file fails.
+     */
+    static byte[] digestOf(final Path file) throws IOException {
+        final MessageDigest digest = newDigest();
+        final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer.clear()) >= 0) {
+                digest.update(buffer.flip());
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Checks whether the store keeps any images at all.
+     * @return True if the budget is positive.
+     */
+    boolean isEnabled() {
+        return budget > 0;
+    }
+
+    /**
+     * Checks whether an image is small enough to be kept.
+     * @param length Size of the image in bytes.
+     * @return True if the image fits in the budget.
+     */
+    boolean fits(final int length) {
+        return length <= budget;
+    }
+
+    /**
+     * Gets a copy of an image, making it the most recently used.
+     * @param digest Digest of the image's content.
+     * @return A copy of the image, or null if it is not held.
+     */
+    synchronized byte[] get(final byte[] digest) {
+        final byte[] image = images.get(HEX.formatHex(digest));
+        if (image == null) {
+            return null;
+        }
+        return image.clone();
+    }
+
+    /**
+     * Keeps a copy of an image, pushing out the least recently used images if it does not fit.
+     * @param digest Digest of the image's content.
+     * @param image The image.
+     */
+    synchronized void put(final byte[] digest, final byte[] image) {
+        final String key = HEX.formatHex(digest);
+        if (!fits(image.length) || images.get(key) != null) {
+            return;
+        }
+        final Iterator<Map.Entry<String, byte[]>> oldest = images.entrySet().iterator();
+        while (storedBytes + image.length > budget) {
+            storedBytes -= oldest.next().getValue().length;
+            oldest.remove();
+        }
+        images.put(key, image.clone());
+        storedBytes += image.length;
+    }
+
+    /**
+     * Gets the number of images held.
+     * @return The image count.
+     */
+    synchronized int size() {
+        return images.size();
+    }
+
+    /**
+     * Gets the memory held by all images together.
+     * @return The stored bytes.
+     */
+    synchronized long getStoredBytes() {
+        return storedBytes;
+    }
+
+    /**
+     * Creates a digest of the algorithm images are identified by.
+     * @return The digest.
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Reads a file one chunk at a time, as it is or as Base64 text, into buffers that are reused for
+ * every chunk.
+ * Only one chunk of the file is in memory at a time, so sending a file takes the same memory
+ * whatever its size, and the first chunk is ready before the rest of the file has been read.
+ *
+ * <p>Base64 text is encoded per chunk: every chunk but the last holds a whole number of 4-character
+ * groups, so the chunks joined together are exactly the Base64 text of the whole file.
+ */
+final class FileChunkReader implements AutoCloseable {
+
+    /** Number of file bytes encoded into one group of Base64 characters. */
+    private static final int BASE64_GROUP_BYTES = 3;
+    /** Number of Base64 characters encoding one group of file bytes. */
+    private static final int BASE64_GROUP_CHARS = 4;
+    /** The file being read. */
+    private final FileChannel channel;
+    /** Size of the file in bytes. */
+    private final long fileSize;
+    /** Whether chunks are Base64 text rather than the file's bytes. */
+    private final boolean base64;
+    /** Length of the chunks sent, in bytes; every chunk but the last has exactly this length. */
+    private final int chunkLength;
+    /** Length of everything sent for the file: its size, or the length of its Base64 text. */
+    private final int total;
+    /** Buffer the file's bytes are read into, reused for every chunk. */
+    private final ByteBuffer readBuffer;
+    /** Buffer the Base64 text of a chunk is encoded into; null when chunks carry the file's bytes. */
+    private final byte[] encoded;
+    /** Position in the file of the next chunk's bytes. */
+    private long filePosition;
+    /** Offset of the next chunk in what is sent for the file. */
+    private int offset;
+
+    /**
+     * Opens a file for reading in chunks.
+     * @param file The file.
+     * @param maxChunk Largest chunk to return, in bytes; a Base64 chunk is rounded down to whole groups.
+     * @param encoding Whether chunks carry the file's bytes or their Base64 text.
+     * @throws IOException If the file cannot be opened, or is too large to send as one transfer.
+     */
+    FileChunkReader(final Path file, final int maxChunk, final ImageEncoding encoding) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.base64 = encoding == ImageEncoding.BASE64;
+        long sent = fileSize;
+        int readLength = maxChunk;
+        if (base64) {
+            sent = (fileSize + BASE64_GROUP_BYTES - 1) / BASE64_GROUP_BYTES * BASE64_GROUP_CHARS;
+            readLength = Math.max(1, maxChunk / BASE64_GROUP_CHARS) * BASE64_GROUP_BYTES;
+            this.chunkLength = readLength / BASE64_GROUP_BYTES * BASE64_GROUP_CHARS;
+            this.encoded = new byte[chunkLength];
+        } else {
+            this.chunkLength = maxChunk;
+            this.encoded = null;
+        }
+        if (sent > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("File is too large to send: " + fileSize + " bytes");
+        }
+        this.total = (int) sent;
+        this.readBuffer = ByteBuffer.allocate((int) Math.min(readLength, Math.max(1, fileSize)));
+    }
+
+    /**
+     * Gets the length of everything sent for the file, which is the total of every chunk's frame.
+     * @return The file's size, or the length of its Base64 text.
+     */
+    int getTotal() {
+        return total;
+    }
+
+    /**
+     * Gets the length of every chunk but the last.
+     * @return The chunk length in bytes.
+     */
+    int getChunkLength() {
+        return chunkLength;
+    }
+
+    /**
+     * Gets the number of chunks the file is sent in.
+     * @return The chunk count.
+     */
+    int getChunkCount() {
+        return (int) (((long) total + chunkLength - 1) / chunkLength);
+    }
+
+    /**
+     * Gets the offset of the next chunk in what is sent for the file.
+     * @return The offset, in bytes.
+     */
+    int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Reads the next chunk.
+     * @return A buffer holding the chunk, valid until the next call; null once the whole file has been read.
+     * @throws IOException If reading fails, or the file shrank while it was being read.
+     */
+    ByteBuffer next() throws IOException {
+        if (filePosition >= fileSize) {
+            return null;
+        }
+        readBuffer.clear().limit((int) Math.min(readBuffer.capacity(), fileSize - filePosition));
+        while (readBuffer.hasRemaining()) {
+            if (channel.read(readBuffer, filePosition + readBuffer.position()) < 0) {
+                throw new IOException("File shrank while it was being sent");
+            }
+        }
+        readBuffer.flip();
+        filePosition += readBuffer.remaining();
+        if (!base64) {
+            offset += readBuffer.remaining();
+            return readBuffer;
+        }
+        byte[] source = readBuffer.array();
+        if (readBuffer.remaining() < source.length) {
+            // Only the last chunk is short; the encoder takes whole arrays
+            source = Arrays.copyOf(source, readBuffer.remaining());
+        }
+        final int length = Base64.getEncoder().encode(source, encoded);
+        offset += length;
+        return ByteBuffer.wrap(encoded, 0, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
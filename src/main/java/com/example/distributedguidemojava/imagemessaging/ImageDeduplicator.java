@@ -0,0 +1,202 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import com.example.distributedguidemojava.networking.Endpoint;
+import com.example.distributedguidemojava.networking.FrameHeader;
+import com.example.distributedguidemojava.networking.ICommunicator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Skips sending images the receiver holds already.
+ * Before its chunks, the sender announces an image by the SHA-256 digest of the file, in a frame
+ * flagged {@link ImageMessenger#FLAG_DIGEST}, and waits a moment for the answer. A receiver that keeps
+ * the image in its {@link ContentStore} hands it over as if it had just arrived and answers
+ * {@link ImageMessenger#FLAG_HAVE}, so no chunk is sent; any other receiver answers
+ * {@link ImageMessenger#FLAG_NEED}, and the image is sent as usual. A sender that hears nothing back,
+ * from a peer that does not know the protocol, sends the image once the wait is over.
+ *
+ * <p>An announcement is the digest, then the u16 listen port of the sender. The answer goes to that port
+ * at the address the announcement came from, never to an address the payload names, so a forged
+ * announcement cannot aim answers at another host; announcements from a transport that does not tell
+ * their source are not answered. An answer is the digest, under the transfer id of the announcement.
+ * Both have a total of 0, which earlier receivers reject as no image.
+ */
+final class ImageDeduplicator {
+
+    /** Flags of the frames of the protocol. */
+    private static final int PROTOCOL_FLAGS = ImageMessenger.FLAG_DIGEST | ImageMessenger.FLAG_HAVE
+        | ImageMessenger.FLAG_NEED;
+    /** Size of an announcement in bytes. */
+    private static final int ANNOUNCEMENT_SIZE = ContentStore.DIGEST_SIZE + Short.BYTES;
+    /** Mask reading the port of an announcement as unsigned. */
+    private static final int U16_MASK = 0xFFFF;
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(ImageDeduplicator.class.getName());
+    /** The communicator announcements and answers are sent through. */
+    private final ICommunicator communicator;
+    /** Identifier of the sender of the frames. */
+    private final String senderId;
+    /** The images received, by digest. */
+    private final ContentStore store;
+    /** How long a sender waits for an answer, in milliseconds. */
+    private final long replyTimeoutMillis;
+    /** Answers awaited by senders, keyed by the transfer id of the announcement. */
+    private final Map<Long, CompletableFuture<Boolean>> pendingOffers = new ConcurrentHashMap<>();
+    /** Number of images not sent because the receiver held them. */
+    private final AtomicLong skippedImages = new AtomicLong();
+
+    /**
+     * Constructs the deduplication of the images of one messenger.
+     * @param communicatorInstance The communicator announcements and answers are sent through.
+     * @param id Identifier of the sender of the frames.
+     * @param config How much the content store holds, and how long to wait for an answer.
+     */
+    ImageDeduplicator(final ICommunicator communicatorInstance, final String id,
+        final ImageMessengerConfig config) {
+        this.communicator = communicatorInstance;
+        this.senderId = id;
+        this.store = new ContentStore(config.getContentStoreBytes());
+        this.replyTimeoutMillis = config.getDedupTimeoutMillis();
+    }
+
+    /**
+     * Checks whether a frame belongs to the protocol rather than to an image transfer.
+     * @param header Header of the frame.
+     * @return True for announcements and answers.
+     */
+    static boolean isProtocolFrame(final FrameHeader header) {
+        return (header.getFlags() & PROTOCOL_FLAGS) != 0;
+    }
+
+    /**
+     * Checks whether images are kept, and announced before they are sent.
+     * @return True if the content store has a budget.
+     */
+    boolean isEnabled() {
+        return store.isEnabled();
+    }
+
+    /**
+     * Announces an image to a receiver and waits for the answer. Call it from a thread other than the
+     * one the communicator delivers frames on, which the answer arrives on.
+     * @param endpoint The receiver.
+     * @param imageFile The image file.
+     * @param transferId Transfer id the announcement is sent and answered under.
+     * @return True if the receiver holds the image and it need not be sent.
+     * @throws IOException If reading the file fails.
+     */
+    boolean offer(final Endpoint endpoint, final Path imageFile, final long transferId) throws IOException {
+        final ByteBuffer announcement = ByteBuffer.allocate(ANNOUNCEMENT_SIZE);
+        announcement.put(ContentStore.digestOf(imageFile));
+        announcement.putShort((short) communicator.getListenPort()).flip();
+        final CompletableFuture<Boolean> answer = new CompletableFuture<>();
+        pendingOffers.put(transferId, answer);
+        try {
+            communicator.sendFrame(endpoint, senderId, header(transferId, ImageMessenger.FLAG_DIGEST), announcement);
+            final boolean held = answer.get(replyTimeoutMillis, TimeUnit.MILLISECONDS);
+            if (held) {
+                skippedImages.incrementAndGet();
+            }
+            return held;
+        } catch (TimeoutException | ExecutionException e) {
+            LOGGER.log(Level.FINE, "No answer to img announcement {0}", Long.toHexString(transferId));
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            pendingOffers.remove(transferId);
+        }
+    }
+
+    /**
+     * Handles an announcement or an answer.
+     * @param header Header of the frame.
+     * @param payload Buffer holding the frame's payload; it is consumed.
+     * @return The announced image if it is held, to be handed over as received, or null.
+     */
+    byte[] receive(final FrameHeader header, final ByteBuffer payload) {
+        if (header.hasFlag(ImageMessenger.FLAG_DIGEST)) {
+            return answer(header.getTransferId(), header.getSource(), payload);
+        }
+        final CompletableFuture<Boolean> offer = pendingOffers.get(header.getTransferId());
+        if (offer != null) {
+            offer.complete(header.hasFlag(ImageMessenger.FLAG_HAVE));
+        }
+        return null;
+    }
+
+    /**
+     * Keeps a received image, so it need not be sent again.
+     * @param image The image's bytes.
+     */
+    void remember(final byte[] image) {
+        if (store.isEnabled() && store.fits(image.length)) {
+            store.put(ContentStore.digestOf(image), image);
+        }
+    }
+
+    /**
+     * Gets the number of images not sent because the receiver held them.
+     * @return The skipped image count.
+     */
+    long getSkippedImageCount() {
+        return skippedImages.get();
+    }
+
+    /**
+     * Answers an announcement at the address it came from, telling the sender whether the image is held.
+     * @param transferId Transfer id of the announcement.
+     * @param source Address the announcement came from, or null if the transport does not tell.
+     * @param payload The announcement.
+     * @return The image if it is held, or null.
+     */
+    private byte[] answer(final long transferId, final InetSocketAddress source, final ByteBuffer payload) {
+        if (payload.remaining() != ANNOUNCEMENT_SIZE) {
+            LOGGER.log(Level.SEVERE, "Invalid img announcement {0}", Long.toHexString(transferId));
+            return null;
+        }
+        if (source == null) {
+            // The sender sends the image in full once it has waited for the answer
+            LOGGER.log(Level.FINE, "Img announcement {0} from an unknown source not answered",
+                Long.toHexString(transferId));
+            return null;
+        }
+        final byte[] digest = new byte[ContentStore.DIGEST_SIZE];
+        payload.get(digest);
+        final int port = payload.getShort() & U16_MASK;
+        final byte[] image = store.get(digest);
+        int flags = ImageMessenger.FLAG_NEED;
+        if (image != null) {
+            flags = ImageMessenger.FLAG_HAVE;
+        }
+        communicator.sendFrame(source.getAddress().getHostAddress(), port, senderId, header(transferId, flags),
+            ByteBuffer.wrap(digest));
+        return image;
+    }
+
+    /**
+     * Creates the header of a frame of the protocol.
+     * @param transferId Transfer id of the announcement.
+     * @param flags Flags of the frame.
+     * @return The header.
+     */
+    private static FrameHeader header(final long transferId, final int flags) {
+        final FrameHeader header = new FrameHeader();
+        header.setTransferId(transferId);
+        header.setFlags(flags);
+        return header;
+    }
+}
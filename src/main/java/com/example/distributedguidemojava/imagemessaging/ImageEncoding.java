@@ -0,0 +1,13 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+/**
+ * How an image travels in the chunks of its transfer.
+ */
+public enum ImageEncoding {
+
+    /** The file's bytes as they are; nothing is added to the size and nothing is decoded on receipt. */
+    RAW,
+
+    /** The Base64 text of the file, a third larger; understood by every earlier version of the demo. */
+    BASE64
+}
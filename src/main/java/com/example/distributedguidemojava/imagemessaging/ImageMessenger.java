@@ -1,50 +1,155 @@
 package com.example.distributedguidemojava.imagemessaging;
 
+import com.example.distributedguidemojava.networking.Endpoint;
+import com.example.distributedguidemojava.networking.FrameHeader;
 import com.example.distributedguidemojava.networking.ICommunicator;
-import com.example.distributedguidemojava.networking.IMessageListener;
+import com.example.distributedguidemojava.networking.IConcurrentMessageListener;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Base64;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Handles sending and receiving image messages using the networking layer.
+ * Each image is one transfer: every chunk is sent as a frame whose header carries the transfer id,
+ * the byte offset of the chunk and the total length, so chunks need no text header of their own.
+ *
+ * <p>By default the chunks carry the file's bytes as they are ({@link ImageEncoding#RAW}) and are sized
+ * to fit an Ethernet MTU; the frames of such a transfer have {@link #FLAG_RAW} set. Transfers without
+ * the flag carry Base64 text, as sent by earlier versions. Received images are handed to the bytes
+ * callback, the Base64 callback, or both, converting only when the transfer's encoding differs.
+ *
+ * <p>Chunks are received through an {@link IConcurrentMessageListener}, so a communicator with several
+ * receive threads delivers them on as many threads. Each transfer has its own reassembly state and
+ * lock, and the transfers in progress sit in concurrent maps, so chunks of different images never
+ * wait for each other; the callbacks may be invoked from any of those threads.
+ *
+ * <p>Raw images larger than the configured spill threshold are reassembled in a memory-mapped
+ * temporary file ({@link SpillFile}) instead of on the heap, and handed to the file callback.
+ *
+ * <p>With a compression level set, the chunks of raw images are deflated one by one
+ * ({@link ChunkCompressor}) and flagged with {@link #FLAG_DEFLATE}; offsets and totals still refer to
+ * the image itself, so receivers inflate each chunk as it arrives and reassemble as before.
+ *
+ * <p>While a framed image is being received, the progress callback is told how much of it is in and how
+ * long the rest should take, and the preview callback is handed the part of a raw image received so far
+ * without gaps, which decoders show as the top of the image, or a coarse whole for progressive formats;
+ * both are called at most once per configured interval for each image.
+ *
+ * <p>With deduplication set, every image is announced by the digest of its content before it is sent,
+ * in a frame flagged with {@link #FLAG_DIGEST}; a receiver that kept the image answers
+ * {@link #FLAG_HAVE} and hands it over from its store, and only otherwise are the chunks sent.
+ *
+ * <p>With forward error correction set, a parity chunk flagged with {@link #FLAG_PARITY} follows every
+ * group of chunks, and receivers rebuild a lost chunk of a group from it without a retransmission.
  */
 public class ImageMessenger {
 
+    /** Frame flag marking a transfer whose chunks carry the image bytes as they are, not Base64 text. */
+    public static final int FLAG_RAW = 0x0001;
+    /** Frame flag marking a chunk deflated on its own; it inflates to the chunk at the frame's offset. */
+    public static final int FLAG_DEFLATE = 0x0002;
+    /** Frame flag marking the parity chunk of a group of chunks, sent for forward error correction. */
+    public static final int FLAG_PARITY = 0x0004;
+    /** Frame flag marking the announcement of an image by the digest of its content, sent before its chunks. */
+    public static final int FLAG_DIGEST = 0x0008;
+    /** Frame flag marking the answer to an announcement from a receiver that holds the image already. */
+    public static final int FLAG_HAVE = 0x0010;
+    /** Frame flag marking the answer to an announcement from a receiver that needs the image sent. */
+    public static final int FLAG_NEED = 0x0020;
     /** Identifier for image messages. */
     private static final String IMAGE_ID = "image";
-    /** Size of each chunk in characters for base64 data. */
-    private static final int CHUNK_SIZE = 4096;
     /** Logger for logging information and errors. */
     private static final Logger LOGGER = Logger.getLogger(ImageMessenger.class.getName());
+    /** Separator between the fields of a chunk message. */
+    private static final byte SEPARATOR = (byte) ':';
+    /** Radix of the decimal numbers in a chunk header. */
+    private static final int DECIMAL_RADIX = 10;
+    /** Separator between a data URI prefix and the Base64 text. */
+    private static final byte DATA_URI_SEPARATOR = (byte) ',';
     /** The communicator used for network operations. */
     private final ICommunicator communicator;
-    /** Callback invoked when an image message is received. */
-    private Consumer<String> onImageMessageReceived;
-    /** Map to store received chunks of images in order. */
-    private Map<String, Map<Integer, String>> receivedChunks = new HashMap<>();
-    /** Map to store the expected number of chunks for each image. */
-    private Map<String, Integer> expectedChunks = new HashMap<>();
+    /** Sender of the chunks of every image sent. */
+    private final ImageSender sender;
+    /** Announces images sent, answers announcements, and keeps images received by their digest. */
+    private final ImageDeduplicator deduplicator;
+    /** Size above which a received raw image is reassembled in a spill file. */
+    private final long spillThreshold;
+    /** Directory spill files are created in, or null for the default temporary directory. */
+    private final Path spillDirectory;
+    /** Least time between two progress reports on one image, in nanoseconds. */
+    private final long progressIntervalNanos;
+    /** Callback invoked with the Base64 text of every received image. */
+    private volatile Consumer<String> onImageMessageReceived;
+    /** Callback invoked with the bytes of every received image. */
+    private volatile Consumer<byte[]> onImageBytesReceived;
+    /** Callback invoked with the file of every received image that was spilled to disk. */
+    private volatile Consumer<Path> onImageFileReceived;
+    /** Callback invoked with the progress of every framed image being received. */
+    private volatile Consumer<ImageProgress> onImageProgress;
+    /** Callback invoked with the part received so far of every raw image being received. */
+    private volatile Consumer<byte[]> onImagePreview;
+    /** Images sent as text messages still being reassembled, keyed by image id. */
+    private final PartialTransferStore<String, TextTransfer> receivedChunks;
+    /** Number of chunks of completed images that were rebuilt from parity rather than received. */
+    private final AtomicLong recoveredChunks = new AtomicLong();
+    /** Reassembly of every framed transfer in progress, keyed by transfer id. */
+    private final PartialTransferStore<Long, TransferReassembly> receivedFrames;
 
     /**
-     * Constructs an ImageMessenger with the specified communicator.
+     * Constructs an ImageMessenger with the specified communicator and the default settings.
      * @param communicatorInstance The communicator to use for network operations.
      */
     public ImageMessenger(final ICommunicator communicatorInstance) {
+        this(communicatorInstance, ImageMessengerConfig.defaults());
+    }
+
+    /**
+     * Constructs an ImageMessenger with the specified communicator and settings.
+     * @param communicatorInstance The communicator to use for network operations.
+     * @param config How images are chunked and encoded when sent.
+     */
+    public ImageMessenger(final ICommunicator communicatorInstance, final ImageMessengerConfig config) {
         this.communicator = communicatorInstance;
-        this.communicator.addSubscriber(IMAGE_ID, new IMessageListener() {
+        this.deduplicator = new ImageDeduplicator(communicatorInstance, IMAGE_ID, config);
+        this.sender = new ImageSender(communicatorInstance, IMAGE_ID, config, deduplicator);
+        this.spillThreshold = config.getSpillThreshold();
+        this.spillDirectory = config.getSpillDirectory();
+        this.progressIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getProgressIntervalMillis());
+        final long ttlNanos = TimeUnit.MILLISECONDS.toNanos(config.getTransferTimeoutMillis());
+        this.receivedChunks = new PartialTransferStore<>(config.getReassemblyBudget(), ttlNanos, System.nanoTime());
+        this.receivedFrames = new PartialTransferStore<>(config.getReassemblyBudget(), ttlNanos, System.nanoTime(),
+            ImageMessenger::discard);
+        // Partial images expire even when no more frames arrive to sweep them out
+        this.receivedChunks.startSweeping();
+        this.receivedFrames.startSweeping();
+        this.communicator.addSubscriber(IMAGE_ID, new IConcurrentMessageListener() {
             @Override
-            public void onMessageReceived(final String message) {
+            public void onMessageReceived(final ByteBuffer message) {
                 handleReceivedChunk(message);
             }
+
+            @Override
+            public void onFrameReceived(final FrameHeader header, final ByteBuffer payload) {
+                if (header.getTransferId() == 0) {
+                    // A plain message, as sent through the string API
+                    handleReceivedChunk(payload);
+                } else if (ImageDeduplicator.isProtocolFrame(header)) {
+                    handleDigestFrame(header, payload);
+                } else {
+                    handleReceivedFrame(header, payload);
+                }
+            }
         });
     }
 
@@ -57,110 +162,592 @@ public class ImageMessenger {
     }
 
     /**
-     * Sends an image message to the specified IP address and port.
-     * The image is read from the file path, converted to a base64 string, and sent in chunks.
+     * Sets the callback for when an image message is received, handing over the image's bytes.
+     * Images sent raw reach it without any decoding or extra copy.
+     * @param callback The callback to invoke with the bytes of the received image.
+     */
+    public void setOnImageBytesReceived(final Consumer<byte[]> callback) {
+        this.onImageBytesReceived = callback;
+    }
+
+    /**
+     * Sets the callback for when an image reassembled in a spill file is received, handing over the file.
+     * The file then belongs to the callback, which should delete it once done with it. Without this
+     * callback, spilled images are read into memory for the other callbacks and their files deleted.
+     * @param callback The callback to invoke with the file holding the received image.
+     */
+    public void setOnImageFileReceived(final Consumer<Path> callback) {
+        this.onImageFileReceived = callback;
+    }
+
+    /**
+     * Sets the callback for the progress of images being received, so large transfers do not look hung.
+     * It is called when the first chunk of an image arrives, then at most once per progress interval,
+     * and once the image is complete, just before it is handed over.
+     * @param callback The callback to invoke with the progress of an image.
+     */
+    public void setOnImageProgress(final Consumer<ImageProgress> callback) {
+        this.onImageProgress = callback;
+    }
+
+    /**
+     * Sets the callback for previews of raw images being received, handing over a copy of the bytes at
+     * the start of the image received without gaps. Image decoders show such a truncated file as its top
+     * rows, or as a coarse whole image for progressive JPEG and interlaced PNG files. It is called with
+     * progress reports, whenever the part received has at least doubled, and never once the image is
+     * complete; the image is handed over only once the callback has returned, so no preview comes after
+     * it. The callback runs without any lock held, so the image's other chunks keep arriving meanwhile.
+     * Previews of images reassembled in spill files are copied from the file, and only the first spill
+     * threshold's worth of bytes, so they never take more heap than an image that is not spilled.
+     * @param callback The callback to invoke with the part of the image received so far.
+     */
+    public void setOnImagePreview(final Consumer<byte[]> callback) {
+        this.onImagePreview = callback;
+    }
+
+    /**
+     * Gets the number of partial images dropped before completing, because they stopped making
+     * progress for longer than the transfer timeout or were pushed out of the reassembly budget.
+     * @return The eviction count.
+     */
+    public long getEvictedTransferCount() {
+        return receivedFrames.getEvictionCount() + receivedChunks.getEvictionCount();
+    }
+
+    /**
+     * Gets the number of chunks of received images that were lost but rebuilt from parity chunks.
+     * @return The recovered chunk count.
+     */
+    public long getRecoveredChunkCount() {
+        return recoveredChunks.get();
+    }
+
+    /**
+     * Gets the number of images sent that were not, because the receiver held them already.
+     * @return The deduplicated image count.
+     */
+    public long getDeduplicatedImageCount() {
+        return deduplicator.getSkippedImageCount();
+    }
+
+    /**
+     * Gets the heap memory held by partial images still being reassembled; spilled images count only
+     * for the bitmap of their chunks.
+     * @return The pending bytes.
+     */
+    public long getPendingReassemblyBytes() {
+        return receivedFrames.getPendingBytes() + receivedChunks.getPendingBytes();
+    }
+
+    /**
+     * Sends an image message to the specified IP address and port, logging it if the image cannot be sent.
+     * See {@link #sendMessageAsync} for how the image is sent.
      * @param ipAddress IP address of the destination.
      * @param port Port of the destination.
      * @param imagePath Path to the image file.
      */
     public void sendMessage(final String ipAddress, final int port, final String imagePath) {
-        try {
-            final File imageFile = new File(imagePath);
-            if (imageFile.exists() && imageFile.isFile()) {
-                final byte[] imageBytes = Files.readAllBytes(imageFile.toPath());
-                final String base64Image = Base64.getEncoder().encodeToString(imageBytes);
-                LOGGER.log(Level.INFO, "Sending img to {0}:{1}, len: {2}", 
-                    new Object[]{ipAddress, port, base64Image.length()});
-                
-                // Generate a unique ID for this image transmission
+        sendMessageAsync(ipAddress, port, imagePath).whenComplete((ignored, error) -> {
+            if (error != null) {
+                LOGGER.log(Level.SEVERE, "Error sending image file {0}: {1}",
+                    new Object[]{imagePath, error.getMessage()});
+            }
+        });
+    }
+
+    /**
+     * Sends an image message to the specified IP address and port, and tells when it has arrived.
+     * The image file is streamed by an {@link ImageSender}, one chunk at a time, and the call returns once
+     * the last chunk has been handed to the communicator. With deduplication, the call first waits for the
+     * receiver to tell whether it holds the image already, so do not call it from a callback of this
+     * messenger, which runs on the thread that answer would arrive on.
+     * @param ipAddress IP address of the destination.
+     * @param port Port of the destination.
+     * @param imagePath Path to the image file.
+     * @return A future completed once every frame of the image has been sent, or acknowledged by the
+     *         receiver when the communicator is reliable; failed if the file does not exist, the address
+     *         cannot be resolved, or the file cannot be read or a frame sent.
+     */
+    public CompletableFuture<Void> sendMessageAsync(final String ipAddress, final int port, final String imagePath) {
+        final Path imageFile = Path.of(imagePath);
+        if (!Files.isRegularFile(imageFile)) {
+            // For testing purposes, send a dummy message if file doesn't exist
+            if (imagePath.contains("test/image/path")) {
                 final String imageId = UUID.randomUUID().toString();
-                // Split the base64 string into chunks
-                final int totalChunks = (int) Math.ceil((double) base64Image.length() / CHUNK_SIZE);
-                for (int i = 0; i < totalChunks; i++) {
-                    final int start = i * CHUNK_SIZE;
-                    final int end = Math.min(start + CHUNK_SIZE, base64Image.length());
-                    final String chunk = base64Image.substring(start, end);
-                    // Format: imageId:chunkIndex:totalChunks:chunkData
-                    final String chunkMessage = imageId + ":" + i + ":" + totalChunks + ":" + chunk;
-                    communicator.sendMessage(ipAddress, port, IMAGE_ID, chunkMessage);
-                    LOGGER.log(Level.INFO, "Sent chunk {0}/{1} for image {2}", 
-                        new Object[]{i + 1, totalChunks, imageId});
-                }
-                LOGGER.log(Level.INFO, "Img data sent in {0} chunks.", totalChunks);
-            } else {
-                LOGGER.log(Level.SEVERE, "Image file does not exist: {0}", imagePath);
-                // For testing purposes, send a dummy message if file doesn't exist
-                if (imagePath.contains("test/image/path")) {
-                    final String imageId = UUID.randomUUID().toString();
-                    final String dummyMessage = imageId + ":0:1:dummyImageData";
-                    communicator.sendMessage(ipAddress, port, IMAGE_ID, dummyMessage);
-                    LOGGER.log(Level.INFO, "Sent dummy image message for testing: {0}", imageId);
-                }
+                final String dummyMessage = imageId + ":0:1:dummyImageData";
+                communicator.sendMessage(ipAddress, port, IMAGE_ID, dummyMessage);
+                LOGGER.log(Level.INFO, "Sent dummy image message for testing: {0}", imageId);
+                return CompletableFuture.completedFuture(null);
             }
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Error reading image file: {0}", e.getMessage());
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Image file does not exist"));
+        }
+        // Resolve the peer once for all of the chunks
+        final Endpoint endpoint = communicator.getEndpoint(ipAddress, port, true);
+        if (endpoint == null) {
+            return CompletableFuture.failedFuture(
+                new IllegalArgumentException("Cannot send img to unresolved address " + ipAddress));
         }
+        return sender.send(endpoint, imageFile);
     }
 
     /**
      * Handles a received chunk of image data, reassembling it when all chunks are received.
-     * @param message The received message containing chunk data.
+     * The chunk header is parsed straight from the bytes, without decoding the message into a string.
+     * @param message Buffer holding the received chunk message.
      */
-    private void handleReceivedChunk(final String message) {
+    private void handleReceivedChunk(final ByteBuffer message) {
         try {
             // Parse the message format imageId:chunkIndex:totalChunks:chunkData
-            final int expectedParts = 4;
-            final String[] parts = message.split(":", expectedParts);
-            if (parts.length != expectedParts) {
-                LOGGER.log(Level.SEVERE, "Invalid chunk message format: {0}", message);
+            final int idEnd = indexOf(message, message.position());
+            final int indexEnd = indexOf(message, idEnd + 1);
+            final int totalEnd = indexOf(message, indexEnd + 1);
+            if (idEnd < 0 || indexEnd < 0 || totalEnd < 0) {
+                LOGGER.log(Level.SEVERE, "Invalid chunk message format, len: {0}", message.remaining());
+                return;
+            }
+            final String imageId = asciiString(message, message.position(), idEnd);
+            final int chunkIndex = parseDecimal(message, idEnd + 1, indexEnd);
+            final int totalChunks = parseDecimal(message, indexEnd + 1, totalEnd);
+            if (chunkIndex < 0 || totalChunks <= 0 || chunkIndex >= totalChunks) {
+                LOGGER.log(Level.SEVERE, "Invalid chunk header for img {0}", imageId);
                 return;
             }
-            final int firstIndex = 0;
-            final int secondIndex = 1;
-            final int thirdIndex = 2;
-            final int fourthIndex = 3;
-            final String imageId = parts[firstIndex];
-            final int chunkIndex = Integer.parseInt(parts[secondIndex]);
-            final int totalChunks = Integer.parseInt(parts[thirdIndex]);
-            final String chunkData = parts[fourthIndex];
+            final byte[] chunkData = new byte[message.limit() - totalEnd - 1];
+            message.position(totalEnd + 1);
+            message.get(chunkData);
 
             LOGGER.log(Level.INFO, "Received chunk {0}/{1} for img {2}, len: {3}", 
-                new Object[]{chunkIndex + 1, totalChunks, imageId, chunkData.length()});
+                new Object[]{chunkIndex + 1, totalChunks, imageId, chunkData.length});
 
-            // Initialize storage for this image if not already present
-            receivedChunks.computeIfAbsent(imageId, k -> new HashMap<>());
-            expectedChunks.putIfAbsent(imageId, totalChunks);
+            storeChunk(imageId, chunkIndex, totalChunks, chunkData);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error processing received chunk: {0}", e.getMessage());
+        }
+    }
 
+    /**
+     * Stores a chunk of an image sent as text messages, handing the image over once every chunk is in.
+     * @param imageId Identifier of the image transmission.
+     * @param chunkIndex Index of the chunk.
+     * @param totalChunks Number of chunks in the image.
+     * @param chunkData The chunk.
+     */
+    private void storeChunk(final String imageId, final int chunkIndex, final int totalChunks,
+        final byte[] chunkData) {
+        final long now = System.nanoTime();
+        receivedChunks.evictExpired(now);
+        TextTransfer transfer = receivedChunks.get(imageId);
+        if (transfer == null) {
+            // Charge the chunk table up front, so a bogus chunk count cannot allocate a huge one
+            transfer = receivedChunks.open(imageId, (long) totalChunks * Long.BYTES,
+                () -> new TextTransfer(totalChunks), now);
+            if (transfer == null) {
+                return;
+            }
+        }
+        final boolean complete;
+        synchronized (transfer) {
+            if (!transfer.arrivals.mark(chunkIndex)) {
+                LOGGER.log(Level.FINE, "Ignoring duplicate or out-of-range chunk {0} for img {1}",
+                    new Object[]{chunkIndex, imageId});
+                return;
+            }
             // Store the chunk at the correct position
-            final Map<Integer, String> imageChunks = receivedChunks.get(imageId);
-            imageChunks.put(chunkIndex, chunkData);
-
-            // Check if all chunks are received
-            if (imageChunks.size() == totalChunks) {
-                // Reconstruct the image in the correct order
-                final StringBuilder imageData = new StringBuilder();
-                for (int i = 0; i < totalChunks; i++) {
-                    if (imageChunks.containsKey(i)) {
-                        imageData.append(imageChunks.get(i));
-                    } else {
-                        // Missing chunk, wait for more
-                        return;
-                    }
-                }
-                
-                if (onImageMessageReceived != null) {
-                    LOGGER.log(Level.INFO, "All chunks received for img {0}, len: {1}", 
-                        new Object[]{imageId, imageData.length()});
-                    onImageMessageReceived.accept(imageData.toString());
-                    LOGGER.log(Level.INFO, "Img data passed to callback for {0}", imageId);
-                }
-                
-                // Clean up
-                receivedChunks.remove(imageId);
-                expectedChunks.remove(imageId);
+            transfer.chunks[chunkIndex] = chunkData;
+            complete = transfer.arrivals.isComplete();
+        }
+        if (complete) {
+            receivedChunks.remove(imageId);
+            deliverImage(imageId, transfer.chunks);
+        } else {
+            receivedChunks.progressed(imageId, chunkData.length, now);
+        }
+    }
+
+    /**
+     * Handles a received frame of a transfer, writing it straight into the transfer's image buffer and
+     * handing the image over once every chunk is in.
+     * @param header Header of the frame, giving the transfer id, byte offset and total length.
+     * @param payload Buffer holding the chunk bytes.
+     */
+    private void handleReceivedFrame(final FrameHeader header, final ByteBuffer payload) {
+        final long transferId = header.getTransferId();
+        final int total = header.getTotal();
+        final long now = System.nanoTime();
+        receivedFrames.evictExpired(now);
+        TransferReassembly transfer = receivedFrames.get(transferId);
+        if (transfer == null && receivedFrames.isCompleted(transferId, now)) {
+            // Such as the parity chunk of the last group, when no chunk of it was lost
+            LOGGER.log(Level.FINE, "Late frame for completed img {0} dropped", Long.toHexString(transferId));
+            return;
+        }
+        if (transfer == null && total > 0) {
+            transfer = openTransfer(transferId, header, payload.remaining(), now);
+        }
+        // A parity chunk is kept until its group is complete, so it counts against the budget
+        final int keptBytes = keptBytes(header, payload);
+        TransferReassembly.Result result = TransferReassembly.Result.REJECTED;
+        if (transfer != null && transfer.getTotal() == total) {
+            result = accept(transfer, header, payload);
+        }
+        if (result == TransferReassembly.Result.REJECTED) {
+            LOGGER.log(Level.SEVERE, "Invalid frame for img {0}", Long.toHexString(transferId));
+        } else if (result == TransferReassembly.Result.ACCEPTED) {
+            receivedFrames.progressed(transferId, keptBytes, now);
+            reportProgress(transferId, transfer, header.hasFlag(FLAG_RAW), now);
+        } else if (result == TransferReassembly.Result.COMPLETE) {
+            receivedFrames.complete(transferId, now);
+            transfer.handOver();
+            reportProgress(transferId, transfer, false, now);
+            recoveredChunks.addAndGet(transfer.getRecoveredCount());
+            deliverFramed(Long.toHexString(transferId), transfer, header.hasFlag(FLAG_RAW));
+        }
+    }
+
+    /**
+     * Handles the announcement of an image, handing the image over if it is kept, or an answer to one.
+     * @param header Header of the frame.
+     * @param payload Buffer holding the frame's payload.
+     */
+    private void handleDigestFrame(final FrameHeader header, final ByteBuffer payload) {
+        final byte[] kept = deduplicator.receive(header, payload);
+        if (kept != null) {
+            LOGGER.log(Level.INFO, "Img {0} announced is held already", Long.toHexString(header.getTransferId()));
+            passToCallback(Long.toHexString(header.getTransferId()), kept, true);
+        }
+    }
+
+    /**
+     * Hands a complete framed image over, keeping it for deduplication if it is raw and on the heap.
+     * @param imageId Identifier of the image transmission, for logging.
+     * @param transfer The complete transfer.
+     * @param raw Whether the transfer carries the image's bytes rather than its Base64 text.
+     */
+    private void deliverFramed(final String imageId, final TransferReassembly transfer, final boolean raw) {
+        if (transfer.getSpillFile() != null) {
+            deliverSpilled(imageId, transfer.getSpillFile());
+            return;
+        }
+        if (raw) {
+            deduplicator.remember(transfer.getData());
+        }
+        passToCallback(imageId, transfer.getData(), raw);
+    }
+
+    /**
+     * Reports the progress of a transfer, and previews its image, unless they were reported too recently.
+     * @param transferId The transfer.
+     * @param transfer Reassembly of the transfer.
+     * @param raw Whether the transfer carries the image's bytes, which can be previewed.
+     * @param now Current time in nanoseconds.
+     */
+    private void reportProgress(final long transferId, final TransferReassembly transfer, final boolean raw,
+        final long now) {
+        final Consumer<ImageProgress> progressCallback = onImageProgress;
+        final Consumer<byte[]> previewCallback = onImagePreview;
+        if (progressCallback == null && previewCallback == null) {
+            return;
+        }
+        final ImageProgress progress = transfer.takeProgress(transferId, now, progressIntervalNanos);
+        if (progress == null) {
+            return;
+        }
+        if (progressCallback != null) {
+            progressCallback.accept(progress);
+        }
+        if (previewCallback != null && raw) {
+            final byte[] preview = transfer.takePreview(previewLimit(transfer));
+            if (preview == null) {
+                return;
             }
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error processing received chunk: {0}", e.getMessage());
+            // The image is not handed over until the callback returns, so no preview comes after it
+            try {
+                previewCallback.accept(preview);
+            } finally {
+                transfer.previewShown();
+            }
+        }
+    }
+
+    /**
+     * Gets the most bytes a preview of a transfer may copy: all of an image on the heap, but no more of
+     * a spilled image than the spill threshold, so its previews stay as small as an image on the heap.
+     * @param transfer The transfer.
+     * @return The limit in bytes.
+     */
+    private int previewLimit(final TransferReassembly transfer) {
+        if (transfer.getSpillFile() == null) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.min(spillThreshold, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Gets the bytes a transfer keeps on top of its image when a frame is accepted.
+     * @param header Header of the frame.
+     * @param payload Buffer holding the frame's payload.
+     * @return The length of a parity chunk, or 0 for a chunk written into the image.
+     */
+    private static int keptBytes(final FrameHeader header, final ByteBuffer payload) {
+        if (header.hasFlag(FLAG_PARITY)) {
+            return payload.remaining();
+        }
+        return 0;
+    }
+
+    /**
+     * Writes a received frame into its transfer, inflating it first if it was compressed, or keeps it
+     * for recovery if it is a parity chunk.
+     * @param transfer The transfer.
+     * @param header Header of the frame.
+     * @param payload Buffer holding the chunk bytes.
+     * @return What became of the chunk.
+     */
+    private static TransferReassembly.Result accept(final TransferReassembly transfer, final FrameHeader header,
+        final ByteBuffer payload) {
+        ByteBuffer chunk = payload;
+        if (header.hasFlag(FLAG_DEFLATE)) {
+            // Inflated into a buffer of this thread's, and from there copied to its offset
+            chunk = ChunkInflater.inflate(payload);
+            if (chunk == null) {
+                return TransferReassembly.Result.REJECTED;
+            }
+        }
+        if (header.hasFlag(FLAG_PARITY)) {
+            return transfer.acceptParity(header.getSequence(), chunk);
+        }
+        return transfer.accept(header.getSequence(), chunk);
+    }
+
+    /**
+     * Starts reassembling a transfer, in a spill file if the image is raw and large enough. The transfer
+     * is charged against the reassembly budget for the heap it takes: the whole image, or when spilled
+     * only the bitmap of its chunks, estimated from the size of its first chunk.
+     * @param transferId The transfer.
+     * @param header Header of the transfer's first frame received.
+     * @param chunkLength Length of that frame's payload.
+     * @param now The current time in nanoseconds.
+     * @return The reassembly, or null if it does not fit the budget.
+     */
+    private TransferReassembly openTransfer(final long transferId, final FrameHeader header, final int chunkLength,
+        final long now) {
+        final int total = header.getTotal();
+        final boolean spill = header.hasFlag(FLAG_RAW) && total > spillThreshold;
+        long charge = total;
+        if (spill) {
+            charge = total / Math.max(1, chunkLength) / Byte.SIZE + 1;
+        }
+        final TransferReassembly transfer = receivedFrames.open(transferId, charge,
+            () -> newReassembly(transferId, total, spill), now);
+        if (transfer != null && spill && transfer.getSpillFile() == null
+            && !receivedFrames.progressed(transferId, total - charge, now)) {
+            // It could not be spilled and is reassembled on the heap, which it does not fit
+            return null;
+        }
+        return transfer;
+    }
+
+    /**
+     * Creates the reassembly of a new transfer.
+     * @param transferId The transfer, for logging.
+     * @param total Size of the image in bytes.
+     * @param spill Whether to reassemble the image in a spill file.
+     * @return The reassembly; on the heap if the spill file cannot be created.
+     */
+    private TransferReassembly newReassembly(final long transferId, final int total, final boolean spill) {
+        if (spill) {
+            try {
+                return new TransferReassembly(SpillFile.create(spillDirectory, total));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not spill img {0} to disk, reassembling on the heap: {1}",
+                    new Object[]{Long.toHexString(transferId), e.getMessage()});
+            }
+        }
+        return new TransferReassembly(total);
+    }
+
+    /**
+     * Hands an image reassembled in a spill file to the file callback, or reads it into memory for the
+     * other callbacks when there is no file callback.
+     * @param imageId Identifier of the image transmission, for logging.
+     * @param file The spill file holding the complete image.
+     */
+    private void deliverSpilled(final String imageId, final SpillFile file) {
+        final Consumer<Path> fileCallback = onImageFileReceived;
+        if (fileCallback != null) {
+            LOGGER.log(Level.INFO, "All chunks received for img {0}, spilled to {1}",
+                new Object[]{imageId, file.getPath()});
+            fileCallback.accept(file.getPath());
+            return;
+        }
+        final byte[] imageData = new byte[file.getBuffer().capacity()];
+        file.getBuffer().get(0, imageData);
+        file.delete();
+        passToCallback(imageId, imageData, true);
+    }
+
+    /**
+     * Frees what an evicted transfer holds outside the heap.
+     * @param transfer The evicted transfer.
+     */
+    private static void discard(final TransferReassembly transfer) {
+        if (transfer.getSpillFile() != null) {
+            transfer.getSpillFile().delete();
+        }
+    }
+
+    /**
+     * Reconstructs a fully received image in chunk order and hands it to the callback.
+     * Chunks sent as text messages do not give their byte offset, so they are joined here.
+     * @param imageId Identifier of the image transmission.
+     * @param imageChunks Every chunk of the image, indexed by chunk number.
+     */
+    private void deliverImage(final String imageId, final byte[][] imageChunks) {
+        int totalLength = 0;
+        for (final byte[] chunk : imageChunks) {
+            totalLength += chunk.length;
+        }
+        final byte[] imageData = new byte[totalLength];
+        int offset = 0;
+        for (final byte[] chunk : imageChunks) {
+            System.arraycopy(chunk, 0, imageData, offset, chunk.length);
+            offset += chunk.length;
+        }
+
+        passToCallback(imageId, imageData, false);
+    }
+
+    /**
+     * Hands a fully reassembled image to the callbacks, converting it only for a callback that expects
+     * the other encoding.
+     * @param imageId Identifier of the image transmission, for logging.
+     * @param imageData The bytes of the image, or its Base64 text.
+     * @param raw Whether the image data holds the image's bytes rather than its Base64 text.
+     */
+    private void passToCallback(final String imageId, final byte[] imageData, final boolean raw) {
+        LOGGER.log(Level.INFO, "All chunks received for img {0}, len: {1}",
+            new Object[]{imageId, imageData.length});
+        if (onImageBytesReceived != null) {
+            final byte[] imageBytes = toImageBytes(imageData, raw);
+            if (imageBytes != null) {
+                onImageBytesReceived.accept(imageBytes);
+            }
+        }
+        if (onImageMessageReceived != null) {
+            onImageMessageReceived.accept(toBase64Text(imageData, raw));
+        }
+        LOGGER.log(Level.INFO, "Img data passed to callback for {0}", imageId);
+    }
+
+    /**
+     * Gets the bytes of a received image, decoding Base64 text and dropping any data URI prefix.
+     * @param imageData The bytes of the image, or its Base64 text.
+     * @param raw Whether the image data holds the image's bytes.
+     * @return The bytes of the image, or null if the Base64 text is invalid.
+     */
+    private static byte[] toImageBytes(final byte[] imageData, final boolean raw) {
+        if (raw) {
+            return imageData;
+        }
+        int start = 0;
+        for (int i = 0; i < imageData.length; i++) {
+            if (imageData[i] == DATA_URI_SEPARATOR) {
+                // Data URI prefix, such as "data:image/jpeg;base64,"
+                start = i + 1;
+                break;
+            }
+        }
+        try {
+            return Base64.getDecoder().decode(ByteBuffer.wrap(imageData, start, imageData.length - start)).array();
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.SEVERE, "Received img is not valid base64: {0}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Gets the Base64 text of a received image, encoding it if it arrived raw.
+     * @param imageData The bytes of the image, or its Base64 text.
+     * @param raw Whether the image data holds the image's bytes.
+     * @return The Base64 text.
+     */
+    private static String toBase64Text(final byte[] imageData, final boolean raw) {
+        if (raw) {
+            return Base64.getEncoder().encodeToString(imageData);
+        }
+        // Base64 is plain ASCII, so every byte maps to exactly one character
+        return new String(imageData, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Finds the next field separator in a chunk message.
+     * @param buffer Buffer holding the chunk message.
+     * @param from Absolute index to start searching from.
+     * @return Absolute index of the separator, or -1 if there is none.
+     */
+    private static int indexOf(final ByteBuffer buffer, final int from) {
+        for (int i = from; i < buffer.limit(); i++) {
+            if (buffer.get(i) == SEPARATOR) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a non-negative decimal number from a range of ASCII digits.
+     * @param buffer Buffer holding the digits.
+     * @param from Absolute index of the first digit.
+     * @param to Absolute index just past the last digit.
+     * @return The parsed number, or -1 if the range is empty, holds a non-digit or overflows.
+     */
+    private static int parseDecimal(final ByteBuffer buffer, final int from, final int to) {
+        if (from >= to) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            final int digit = Character.digit(buffer.get(i), DECIMAL_RADIX);
+            value = value * DECIMAL_RADIX + digit;
+            if (digit < 0 || value > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) value;
+    }
+
+    /**
+     * Decodes a range of ASCII bytes into a string.
+     * @param buffer Buffer holding the bytes.
+     * @param from Absolute index of the first byte.
+     * @param to Absolute index just past the last byte.
+     * @return The decoded string.
+     */
+    private static String asciiString(final ByteBuffer buffer, final int from, final int to) {
+        final byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bytes[i - from] = buffer.get(i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * An image sent as text messages, being reassembled; guarded by its own lock.
+     */
+    private static final class TextTransfer {
+
+        /** The chunks received so far, indexed by chunk number. */
+        private final byte[][] chunks;
+        /** Which chunks have arrived. */
+        private final ChunkBitmap arrivals;
+
+        /**
+         * Constructs the reassembly of an image.
+         * @param chunkCount Number of chunks in the image.
+         */
+        TextTransfer(final int chunkCount) {
+            this.chunks = new byte[chunkCount][];
+            this.arrivals = new ChunkBitmap(chunkCount);
         }
     }
 }
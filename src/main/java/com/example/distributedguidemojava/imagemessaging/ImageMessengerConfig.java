@@ -0,0 +1,440 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+
+/**
+ * Settings used to create an {@link ImageMessenger}.
+ * Instances are immutable and created through a {@link Builder}, which starts from the defaults and
+ * validates the settings when {@link Builder#build()} is called:
+ * <pre>
+ * ImageMessengerConfig config = ImageMessengerConfig.builder()
+ *     .encoding(ImageEncoding.RAW)
+ *     .chunkSize(8192)
+ *     .build();
+ * </pre>
+ */
+public final class ImageMessengerConfig {
+
+    /**
+     * Default number of image bytes per chunk. With the frame, UDP and IP headers a chunk still fits an
+     * Ethernet MTU of 1500 bytes, so chunks are never fragmented on the way.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1400;
+    /** Largest number of image bytes per chunk; leaves room for the frame header in a UDP datagram. */
+    public static final int MAX_CHUNK_SIZE = 65000;
+    /** Default number of bytes partial images may hold while being reassembled. */
+    public static final long DEFAULT_REASSEMBLY_BUDGET = 64L * 1024 * 1024;
+    /** Default time a partial image may go without receiving a chunk, in milliseconds. */
+    public static final long DEFAULT_TRANSFER_TIMEOUT_MILLIS = 10_000;
+    /** Default least time between two progress reports on one image, in milliseconds. */
+    public static final long DEFAULT_PROGRESS_INTERVAL_MILLIS = 100;
+    /** Compression level that sends chunks as they are. */
+    public static final int NO_COMPRESSION = 0;
+    /** Group size that sends no parity chunks. */
+    public static final int NO_FEC = 0;
+    /** Largest number of chunks covered by one parity chunk. */
+    public static final int MAX_FEC_GROUP_SIZE = 255;
+    /** Content store size that keeps no images and sends every image in full. */
+    public static final long NO_DEDUP = 0;
+    /** Default time a sender waits for the answer to an image announcement, in milliseconds. */
+    public static final long DEFAULT_DEDUP_TIMEOUT_MILLIS = 250;
+    /** Default number of frames of one image that may be queued or unacknowledged at once. */
+    public static final int DEFAULT_MAX_FRAMES_IN_FLIGHT = 256;
+    /** Spill threshold that keeps every received image on the heap. */
+    public static final long NEVER_SPILL = Long.MAX_VALUE;
+    /** How images are encoded in the chunks sent. */
+    private final ImageEncoding encoding;
+    /** Number of image bytes per chunk sent. */
+    private final int chunkSize;
+    /** Most bytes partial images may hold while being reassembled. */
+    private final long reassemblyBudget;
+    /** How long a partial image may go without receiving a chunk, in milliseconds. */
+    private final long transferTimeoutMillis;
+    /** Size above which a received image is reassembled in a memory-mapped temporary file. */
+    private final long spillThreshold;
+    /** Directory spill files are created in, or null for the default temporary directory. */
+    private final Path spillDirectory;
+    /** Deflate level of the chunks sent, or {@link #NO_COMPRESSION}. */
+    private final int compressionLevel;
+    /** Number of chunks sent per parity chunk, or {@link #NO_FEC}. */
+    private final int fecGroupSize;
+    /** Least time between two progress reports on one image, in milliseconds. */
+    private final long progressIntervalMillis;
+    /** Most bytes the received images kept for deduplication may hold, or {@link #NO_DEDUP}. */
+    private final long contentStoreBytes;
+    /** How long a sender waits for the answer to an image announcement, in milliseconds. */
+    private final long dedupTimeoutMillis;
+    /** Most frames of one image that may be queued or unacknowledged at once. */
+    private final int maxFramesInFlight;
+
+    /**
+     * Constructs a configuration from a validated builder.
+     * @param builder The builder holding the settings.
+     */
+    private ImageMessengerConfig(final Builder builder) {
+        this.encoding = builder.encoding;
+        this.chunkSize = builder.chunkSize;
+        this.reassemblyBudget = builder.reassemblyBudget;
+        this.transferTimeoutMillis = builder.transferTimeoutMillis;
+        this.spillThreshold = builder.spillThreshold;
+        this.spillDirectory = builder.spillDirectory;
+        this.compressionLevel = builder.compressionLevel;
+        this.fecGroupSize = builder.fecGroupSize;
+        this.progressIntervalMillis = builder.progressIntervalMillis;
+        this.contentStoreBytes = builder.contentStoreBytes;
+        this.dedupTimeoutMillis = builder.dedupTimeoutMillis;
+        this.maxFramesInFlight = builder.maxFramesInFlight;
+    }
+
+    /**
+     * Creates a builder holding the default settings.
+     * @return A new builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the default configuration.
+     * @return A configuration holding the default settings.
+     */
+    public static ImageMessengerConfig defaults() {
+        return builder().build();
+    }
+
+    /**
+     * Gets how images are encoded in the chunks sent.
+     * @return The encoding.
+     */
+    public ImageEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Gets the number of image bytes per chunk sent.
+     * @return The chunk size in bytes.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Gets the most bytes partial images may hold while being reassembled.
+     * @return The budget in bytes.
+     */
+    public long getReassemblyBudget() {
+        return reassemblyBudget;
+    }
+
+    /**
+     * Gets how long a partial image may go without receiving a chunk before it is dropped.
+     * @return The timeout in milliseconds.
+     */
+    public long getTransferTimeoutMillis() {
+        return transferTimeoutMillis;
+    }
+
+    /**
+     * Gets the size above which a received image is reassembled in a memory-mapped temporary file.
+     * @return The threshold in bytes, or {@link #NEVER_SPILL}.
+     */
+    public long getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    /**
+     * Gets the directory spill files are created in.
+     * @return The directory, or null for the default temporary directory.
+     */
+    public Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * Gets the deflate level of the chunks sent.
+     * @return The level from 1 to 9, or {@link #NO_COMPRESSION}.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Gets the number of chunks sent per parity chunk.
+     * @return The group size, or {@link #NO_FEC}.
+     */
+    public int getFecGroupSize() {
+        return fecGroupSize;
+    }
+
+    /**
+     * Gets the least time between two progress reports, or previews, on one image.
+     * @return The interval in milliseconds.
+     */
+    public long getProgressIntervalMillis() {
+        return progressIntervalMillis;
+    }
+
+    /**
+     * Gets the most bytes the received images kept for deduplication may hold.
+     * @return The size in bytes, or {@link #NO_DEDUP}.
+     */
+    public long getContentStoreBytes() {
+        return contentStoreBytes;
+    }
+
+    /**
+     * Gets how long a sender waits for the answer to an image announcement.
+     * @return The timeout in milliseconds.
+     */
+    public long getDedupTimeoutMillis() {
+        return dedupTimeoutMillis;
+    }
+
+    /**
+     * Gets the most frames of one image that may be queued or unacknowledged at once.
+     * @return The number of frames.
+     */
+    public int getMaxFramesInFlight() {
+        return maxFramesInFlight;
+    }
+
+    /**
+     * Builder of {@link ImageMessengerConfig} instances.
+     */
+    public static final class Builder {
+
+        /** How images are encoded in the chunks sent. */
+        private ImageEncoding encoding = ImageEncoding.RAW;
+        /** Number of image bytes per chunk sent. */
+        private int chunkSize = DEFAULT_CHUNK_SIZE;
+        /** Most bytes partial images may hold while being reassembled. */
+        private long reassemblyBudget = DEFAULT_REASSEMBLY_BUDGET;
+        /** How long a partial image may go without receiving a chunk, in milliseconds. */
+        private long transferTimeoutMillis = DEFAULT_TRANSFER_TIMEOUT_MILLIS;
+        /** Size above which a received image is reassembled in a memory-mapped temporary file. */
+        private long spillThreshold = NEVER_SPILL;
+        /** Directory spill files are created in, or null for the default temporary directory. */
+        private Path spillDirectory;
+        /** Deflate level of the chunks sent, or {@link #NO_COMPRESSION}. */
+        private int compressionLevel = NO_COMPRESSION;
+        /** Number of chunks sent per parity chunk, or {@link #NO_FEC}. */
+        private int fecGroupSize = NO_FEC;
+        /** Least time between two progress reports on one image, in milliseconds. */
+        private long progressIntervalMillis = DEFAULT_PROGRESS_INTERVAL_MILLIS;
+        /** Most bytes the received images kept for deduplication may hold, or {@link #NO_DEDUP}. */
+        private long contentStoreBytes = NO_DEDUP;
+        /** How long a sender waits for the answer to an image announcement, in milliseconds. */
+        private long dedupTimeoutMillis = DEFAULT_DEDUP_TIMEOUT_MILLIS;
+        /** Most frames of one image that may be queued or unacknowledged at once. */
+        private int maxFramesInFlight = DEFAULT_MAX_FRAMES_IN_FLIGHT;
+
+        /**
+         * Constructs a builder holding the default settings.
+         */
+        private Builder() {
+        }
+
+        /**
+         * Sets how images are encoded in the chunks sent; received images are accepted in either encoding.
+         * @param value The encoding.
+         * @return This builder.
+         */
+        public Builder encoding(final ImageEncoding value) {
+            this.encoding = value;
+            return this;
+        }
+
+        /**
+         * Sets the number of image bytes per chunk sent. Keep chunks within the path MTU, less the frame,
+         * UDP and IP headers, so they are not fragmented.
+         * @param value The chunk size in bytes.
+         * @return This builder.
+         */
+        public Builder chunkSize(final int value) {
+            this.chunkSize = value;
+            return this;
+        }
+
+        /**
+         * Sets the most bytes partial images may hold while being reassembled. When a new image does not
+         * fit, the partial images that have gone longest without a chunk are dropped to make room; an
+         * image larger than the budget is not received at all.
+         * @param value The budget in bytes.
+         * @return This builder.
+         */
+        public Builder reassemblyBudget(final long value) {
+            this.reassemblyBudget = value;
+            return this;
+        }
+
+        /**
+         * Sets how long a partial image may go without receiving a chunk before it is dropped, so an image
+         * that lost a chunk for good does not hold its memory forever.
+         * @param value The timeout in milliseconds.
+         * @return This builder.
+         */
+        public Builder transferTimeoutMillis(final long value) {
+            this.transferTimeoutMillis = value;
+            return this;
+        }
+
+        /**
+         * Sets the size above which a received raw image is reassembled in a memory-mapped temporary file
+         * rather than on the heap, so large images do not fill the heap or cause long garbage collections.
+         * Such images go to the file callback, if one is set. They count against the reassembly budget
+         * only for the heap they take, so they are not limited by it, and the disk must hold them instead.
+         * @param value The threshold in bytes, or {@link #NEVER_SPILL} to keep every image on the heap.
+         * @return This builder.
+         */
+        public Builder spillThreshold(final long value) {
+            this.spillThreshold = value;
+            return this;
+        }
+
+        /**
+         * Sets the directory spill files are created in.
+         * @param value The directory, or null for the default temporary directory.
+         * @return This builder.
+         */
+        public Builder spillDirectory(final Path value) {
+            this.spillDirectory = value;
+            return this;
+        }
+
+        /**
+         * Sets the deflate level of the chunks of raw images sent. Each chunk is compressed on its own and
+         * sent as it is when that does not make it smaller; JPEG, GIF and WebP files are not compressed at
+         * all. Receivers must understand {@link ImageMessenger#FLAG_DEFLATE}, so enable this only once every
+         * peer does.
+         * @param value The level from 1 (fastest) to 9 (smallest), or {@link #NO_COMPRESSION}.
+         * @return This builder.
+         */
+        public Builder compressionLevel(final int value) {
+            this.compressionLevel = value;
+            return this;
+        }
+
+        /**
+         * Sets forward error correction: after every group of this many chunks, a parity chunk is sent from
+         * which the receiver rebuilds any one lost chunk of the group without a retransmission. Smaller
+         * groups recover more losses for more overhead; 8 adds an eighth to the bytes sent. Receivers must
+         * understand {@link ImageMessenger#FLAG_PARITY}, so enable this only once every peer does.
+         * @param value Chunks per parity chunk, from 1 to {@link #MAX_FEC_GROUP_SIZE}, or {@link #NO_FEC}.
+         * @return This builder.
+         */
+        public Builder fecGroupSize(final int value) {
+            this.fecGroupSize = value;
+            return this;
+        }
+
+        /**
+         * Sets the least time between two progress reports, or previews, on one image. Reports come as
+         * chunks arrive, so a large image would otherwise report thousands of times; the first report and
+         * the one of the complete image are always made.
+         * @param value The interval in milliseconds, or 0 to report every chunk.
+         * @return This builder.
+         */
+        public Builder progressIntervalMillis(final long value) {
+            this.progressIntervalMillis = value;
+            return this;
+        }
+
+        /**
+         * Sets up deduplication: received images are kept by the SHA-256 digest of their content, least
+         * recently used first out, and every image is announced by its digest before it is sent, so a
+         * receiver that holds it already takes it from its store and no chunk is sent. Images reassembled
+         * in spill files are not kept. Receivers must understand {@link ImageMessenger#FLAG_DIGEST}, or
+         * every image waits out the dedup timeout before it is sent, so enable this only once every
+         * peer does.
+         * @param value Most bytes the kept images may hold, or {@link #NO_DEDUP}.
+         * @return This builder.
+         */
+        public Builder contentStoreBytes(final long value) {
+            this.contentStoreBytes = value;
+            return this;
+        }
+
+        /**
+         * Sets how long a sender waits for the answer to an image announcement before sending the image.
+         * @param value The timeout in milliseconds.
+         * @return This builder.
+         */
+        public Builder dedupTimeoutMillis(final long value) {
+            this.dedupTimeoutMillis = value;
+            return this;
+        }
+
+        /**
+         * Sets the most frames of one image that may be queued or unacknowledged at once. The sender
+         * reads no further chunk until the oldest of them has been sent, so a large image waits for the
+         * socket instead of overflowing the communicator's send queue. Keep this below the
+         * communicator's send queue capacity.
+         * @param value The number of frames.
+         * @return This builder.
+         */
+        public Builder maxFramesInFlight(final int value) {
+            this.maxFramesInFlight = value;
+            return this;
+        }
+
+        /**
+         * Validates the settings and creates the configuration.
+         * @return The configuration.
+         * @throws IllegalArgumentException If a setting is out of range or missing.
+         */
+        public ImageMessengerConfig build() {
+            if (encoding == null) {
+                throw new IllegalArgumentException("Encoding must not be null");
+            }
+            if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+                throw new IllegalArgumentException("Chunk size must be between 1 and " + MAX_CHUNK_SIZE + ": "
+                    + chunkSize);
+            }
+            if (reassemblyBudget <= 0 || transferTimeoutMillis <= 0) {
+                throw new IllegalArgumentException("Reassembly budget and transfer timeout must be positive");
+            }
+            if (spillThreshold < 0) {
+                throw new IllegalArgumentException("Spill threshold must not be negative: " + spillThreshold);
+            }
+            if (maxFramesInFlight <= 0) {
+                throw new IllegalArgumentException("Frames in flight must be positive: " + maxFramesInFlight);
+            }
+            if (progressIntervalMillis < 0) {
+                throw new IllegalArgumentException("Progress interval must not be negative: "
+                    + progressIntervalMillis);
+            }
+            validateCoding();
+            validateDeduplication();
+            return new ImageMessengerConfig(this);
+        }
+
+        /**
+         * Validates the compression and forward error correction settings.
+         * @throws IllegalArgumentException If a setting is out of range.
+         */
+        private void validateCoding() {
+            if (compressionLevel < NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("Compression level must be between " + NO_COMPRESSION + " and "
+                    + Deflater.BEST_COMPRESSION + ": " + compressionLevel);
+            }
+            if (fecGroupSize < NO_FEC || fecGroupSize > MAX_FEC_GROUP_SIZE) {
+                throw new IllegalArgumentException("FEC group size must be between " + NO_FEC + " and "
+                    + MAX_FEC_GROUP_SIZE + ": " + fecGroupSize);
+            }
+        }
+
+        /**
+         * Validates the deduplication settings.
+         * @throws IllegalArgumentException If a setting is out of range.
+         */
+        private void validateDeduplication() {
+            if (contentStoreBytes < 0) {
+                throw new IllegalArgumentException("Content store size must not be negative: " + contentStoreBytes);
+            }
+            if (dedupTimeoutMillis <= 0) {
+                throw new IllegalArgumentException("Dedup timeout must be positive: " + dedupTimeoutMillis);
+            }
+        }
+    }
+}
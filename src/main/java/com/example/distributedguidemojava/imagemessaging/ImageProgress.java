@@ -0,0 +1,113 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+/**
+ * How far the reception of one image has got, as reported to the progress callback.
+ * Instances are immutable snapshots taken as chunks arrive.
+ */
+public final class ImageProgress {
+
+    /** Value of a count or estimate that is not known yet. */
+    public static final int UNKNOWN = -1;
+    /** Transfer the image is received in. */
+    private final long transferId;
+    /** Image bytes received so far, including chunks rebuilt from parity. */
+    private final long receivedBytes;
+    /** Size of the image in bytes. */
+    private final long totalBytes;
+    /** Chunks received so far. */
+    private final int receivedChunks;
+    /** Number of chunks in the image, or {@link #UNKNOWN} until the chunk size is known. */
+    private final int chunkCount;
+    /** Estimated time until the image is complete, in milliseconds, or {@link #UNKNOWN}. */
+    private final long estimatedMillisRemaining;
+
+    /**
+     * Constructs a snapshot of the reception of an image.
+     * @param id Transfer the image is received in.
+     * @param received Image bytes received so far.
+     * @param total Size of the image in bytes.
+     * @param chunks Chunks received so far.
+     * @param count Number of chunks in the image, or {@link #UNKNOWN}.
+     * @param remainingMillis Estimated time until the image is complete, or {@link #UNKNOWN}.
+     */
+    ImageProgress(final long id, final long received, final long total, final int chunks, final int count,
+        final long remainingMillis) {
+        this.transferId = id;
+        this.receivedBytes = received;
+        this.totalBytes = total;
+        this.receivedChunks = chunks;
+        this.chunkCount = count;
+        this.estimatedMillisRemaining = remainingMillis;
+    }
+
+    /**
+     * Gets the transfer the image is received in; every report on one image has the same id.
+     * @return The transfer id.
+     */
+    public long getTransferId() {
+        return transferId;
+    }
+
+    /**
+     * Gets the image bytes received so far, including chunks rebuilt from parity.
+     * @return The received bytes.
+     */
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    /**
+     * Gets the size of the image.
+     * @return The total bytes.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Gets the chunks received so far.
+     * @return The received chunk count.
+     */
+    public int getReceivedChunks() {
+        return receivedChunks;
+    }
+
+    /**
+     * Gets the number of chunks in the image, known once a chunk other than the last has arrived.
+     * @return The chunk count, or {@link #UNKNOWN}.
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Gets the estimated time until the image is complete, from the rate chunks have arrived at so far.
+     * @return The estimate in milliseconds, or {@link #UNKNOWN} until there is a rate to go by.
+     */
+    public long getEstimatedMillisRemaining() {
+        return estimatedMillisRemaining;
+    }
+
+    /**
+     * Gets the part of the image received so far, as a progress bar shows it.
+     * @return The fraction from 0 to 1.
+     */
+    public double getFraction() {
+        return (double) receivedBytes / totalBytes;
+    }
+
+    /**
+     * Checks whether the whole image has been received.
+     * @return True if every byte is in.
+     */
+    public boolean isComplete() {
+        return receivedBytes == totalBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ImageProgress{transferId=" + Long.toHexString(transferId) + ", receivedBytes=" + receivedBytes
+            + ", totalBytes=" + totalBytes + ", receivedChunks=" + receivedChunks + ", chunkCount=" + chunkCount
+            + ", estimatedMillisRemaining=" + estimatedMillisRemaining + "}";
+    }
+}
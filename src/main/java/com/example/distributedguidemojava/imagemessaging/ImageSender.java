@@ -0,0 +1,248 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import com.example.distributedguidemojava.networking.Endpoint;
+import com.example.distributedguidemojava.networking.FrameHeader;
+import com.example.distributedguidemojava.networking.ICommunicator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends image files as transfers of chunked frames.
+ * The file is streamed: it is read one chunk at a time into a reused buffer ({@link FileChunkReader}),
+ * as it is or as Base64 text depending on the configured encoding, optionally deflated
+ * ({@link ChunkCompressor}), and each chunk is sent before the next is read. With forward error
+ * correction, a parity chunk ({@link ParityEncoder}) follows every group of chunks. At most a configured
+ * number of frames are in flight: the next chunk is not read until the oldest frame has been sent, and a
+ * frame that cannot be sent fails the whole image, as the future returned by {@link #send} tells. With
+ * deduplication,
+ * the image is announced first ({@link ImageDeduplicator}) and not sent if the receiver holds it.
+ */
+final class ImageSender {
+
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(ImageSender.class.getName());
+    /** The communicator the frames are sent through. */
+    private final ICommunicator communicator;
+    /** Identifier of the sender of the frames. */
+    private final String senderId;
+    /** How images are encoded in the chunks sent. */
+    private final ImageEncoding encoding;
+    /** Number of image bytes per chunk sent. */
+    private final int chunkSize;
+    /** Deflate level of the chunks sent, or {@link ImageMessengerConfig#NO_COMPRESSION}. */
+    private final int compressionLevel;
+    /** Number of chunks sent per parity chunk, or {@link ImageMessengerConfig#NO_FEC}. */
+    private final int fecGroupSize;
+    /** Announces images to receivers that may hold them already. */
+    private final ImageDeduplicator deduplicator;
+    /** Most frames of one image that may be queued or unacknowledged at once. */
+    private final int maxFramesInFlight;
+
+    /**
+     * Constructs a sender.
+     * @param communicatorInstance The communicator the frames are sent through.
+     * @param id Identifier of the sender of the frames.
+     * @param config How images are chunked, encoded and compressed.
+     * @param dedup Announces images before they are sent, if it is enabled.
+     */
+    ImageSender(final ICommunicator communicatorInstance, final String id, final ImageMessengerConfig config,
+        final ImageDeduplicator dedup) {
+        this.communicator = communicatorInstance;
+        this.senderId = id;
+        this.encoding = config.getEncoding();
+        this.chunkSize = config.getChunkSize();
+        this.compressionLevel = config.getCompressionLevel();
+        this.fecGroupSize = config.getFecGroupSize();
+        this.deduplicator = dedup;
+        this.maxFramesInFlight = config.getMaxFramesInFlight();
+    }
+
+    /**
+     * Sends an image file as one new transfer. Returns once the last frame has been handed to the
+     * communicator, which may still be sending the last frames in flight.
+     * @param endpoint The destination.
+     * @param imageFile The image file.
+     * @return A future completed once every frame has been sent, or acknowledged when the communicator
+     *         is reliable, or at once if the receiver holds the image already; failed if reading the
+     *         file or sending a frame fails.
+     */
+    CompletableFuture<Void> send(final Endpoint endpoint, final Path imageFile) {
+        try {
+            return sendFile(endpoint, imageFile);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Sends an image file as one new transfer, unless the receiver holds it already.
+     * @param endpoint The destination.
+     * @param imageFile The image file.
+     * @return A future completed once the frames still in flight have been sent.
+     * @throws IOException If reading the file or sending a frame fails.
+     */
+    private CompletableFuture<Void> sendFile(final Endpoint endpoint, final Path imageFile) throws IOException {
+        // Generate a unique ID for this image transmission
+        final long transferId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+        if (deduplicator.isEnabled() && deduplicator.offer(endpoint, imageFile, transferId)) {
+            LOGGER.log(Level.INFO, "Img {0} is held by {1} already, not sent",
+                new Object[]{Long.toHexString(transferId), endpoint});
+            return CompletableFuture.completedFuture(null);
+        }
+        try (FileChunkReader reader = new FileChunkReader(imageFile, chunkSize, encoding);
+             ChunkCompressor compressor = newCompressor()) {
+            return sendChunks(endpoint, reader, compressor, transferId);
+        }
+    }
+
+    /**
+     * Creates the compressor of the chunks of a new transfer.
+     * @return The compressor, or null if chunks are sent as they are.
+     */
+    private ChunkCompressor newCompressor() {
+        if (encoding != ImageEncoding.RAW || compressionLevel == ImageMessengerConfig.NO_COMPRESSION) {
+            return null;
+        }
+        return new ChunkCompressor(compressionLevel, chunkSize);
+    }
+
+    /**
+     * Creates the parity encoder of the chunks of a new transfer.
+     * @param reader Reader of the image file's chunks.
+     * @return The encoder, or null if no parity chunks are sent.
+     */
+    private ParityEncoder newParity(final FileChunkReader reader) {
+        if (fecGroupSize == ImageMessengerConfig.NO_FEC) {
+            return null;
+        }
+        return new ParityEncoder(fecGroupSize, reader.getChunkLength());
+    }
+
+    /**
+     * Sends every chunk of an image file as a frame of one new transfer.
+     * @param endpoint The destination.
+     * @param reader Reader of the image file's chunks.
+     * @param compressor Compressor of the chunks, or null to send them as they are.
+     * @param transferId Identifier of the transfer.
+     * @return A future completed once the frames still in flight have been sent.
+     * @throws IOException If reading the file or sending a frame fails.
+     */
+    private CompletableFuture<Void> sendChunks(final Endpoint endpoint, final FileChunkReader reader,
+        final ChunkCompressor compressor, final long transferId) throws IOException {
+        final FrameHeader header = new FrameHeader();
+        int flags = 0;
+        if (encoding == ImageEncoding.RAW) {
+            flags = ImageMessenger.FLAG_RAW;
+        }
+        header.setTransferId(transferId);
+        header.setTotal(reader.getTotal());
+        final int totalChunks = reader.getChunkCount();
+        LOGGER.log(Level.INFO, "Sending img to {0}, len: {1}", new Object[]{endpoint, reader.getTotal()});
+        // The header says where each chunk belongs; the communicator is done with the chunk on return
+        final Queue<CompletableFuture<Void>> inFlight = new ArrayDeque<>(maxFramesInFlight);
+        int sent = 0;
+        ChunkCompressor active = compressor;
+        final ParityEncoder parity = newParity(reader);
+        int offset = reader.getOffset();
+        for (ByteBuffer chunk = reader.next(); chunk != null; chunk = reader.next()) {
+            if (sent == 0 && active != null && !ChunkCompressor.isWorthCompressing(chunk)) {
+                // The first chunk starts with the file's magic number
+                active = null;
+            }
+            final ByteBuffer payload = encodeChunk(header, flags, chunk, active);
+            // Fold the chunk into the parity before it is sent, in case sending consumes it
+            final boolean groupFull = parity != null && parity.add(chunk, offset);
+            header.setSequence(offset);
+            transmit(endpoint, header, payload, inFlight);
+            sent++;
+            LOGGER.log(Level.FINE, "Sent chunk {0}/{1} for image {2}",
+                new Object[]{sent, totalChunks, Long.toHexString(transferId)});
+            if (groupFull) {
+                sendParity(endpoint, header, flags, parity, inFlight);
+            }
+            offset = reader.getOffset();
+        }
+        if (parity != null && parity.hasPending()) {
+            // The last group is short
+            sendParity(endpoint, header, flags, parity, inFlight);
+        }
+        LOGGER.log(Level.INFO, "Img data sent in {0} chunks.", sent);
+        return CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Sets the flags of a chunk's frame and picks its payload, compressed if that makes it smaller.
+     * @param header Header of the transfer's frames, whose flags are overwritten.
+     * @param flags Flags of the transfer's frames.
+     * @param chunk Buffer holding the chunk; it is not consumed.
+     * @param compressor Compressor of the chunk, or null to send it as it is.
+     * @return The payload to send.
+     */
+    private static ByteBuffer encodeChunk(final FrameHeader header, final int flags, final ByteBuffer chunk,
+        final ChunkCompressor compressor) {
+        ByteBuffer payload = null;
+        if (compressor != null) {
+            payload = compressor.compress(chunk);
+        }
+        if (payload == null) {
+            header.setFlags(flags);
+            return chunk;
+        }
+        header.setFlags(flags | ImageMessenger.FLAG_DEFLATE);
+        return payload;
+    }
+
+    /**
+     * Sends the parity chunk of the group of chunks just sent.
+     * @param endpoint The destination.
+     * @param header Header of the transfer's frames, whose offset and flags are overwritten.
+     * @param flags Flags of the transfer's frames.
+     * @param parity Encoder holding the group's parity.
+     * @param inFlight Futures of the transfer's frames not yet known to be sent, oldest first.
+     * @throws IOException If sending an earlier frame failed.
+     */
+    private void sendParity(final Endpoint endpoint, final FrameHeader header, final int flags,
+        final ParityEncoder parity, final Queue<CompletableFuture<Void>> inFlight) throws IOException {
+        header.setSequence(parity.getFirstOffset());
+        header.setFlags(flags | ImageMessenger.FLAG_PARITY);
+        transmit(endpoint, header, parity.takeParity(), inFlight);
+    }
+
+    /**
+     * Sends a frame of the transfer once fewer than the most frames allowed are in flight.
+     * @param endpoint The destination.
+     * @param header Header of the frame.
+     * @param payload The frame's payload.
+     * @param inFlight Futures of the transfer's frames not yet known to be sent, oldest first.
+     * @throws IOException If sending an earlier frame failed.
+     */
+    private void transmit(final Endpoint endpoint, final FrameHeader header, final ByteBuffer payload,
+        final Queue<CompletableFuture<Void>> inFlight) throws IOException {
+        if (inFlight.size() >= maxFramesInFlight) {
+            awaitSent(inFlight.poll());
+        }
+        inFlight.add(communicator.sendFrameAsync(endpoint, senderId, header, payload));
+    }
+
+    /**
+     * Waits until a frame has been sent.
+     * @param future The frame's future.
+     * @throws IOException If the frame could not be sent.
+     */
+    private static void awaitSent(final CompletableFuture<Void> future) throws IOException {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            throw new IOException("Sending a frame failed", e.getCause());
+        }
+    }
+}
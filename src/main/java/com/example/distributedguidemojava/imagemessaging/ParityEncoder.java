@@ -0,0 +1,83 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Builds the parity chunks of a transfer sent with forward error correction.
+ * Consecutive chunks form groups of a fixed size, and every group gets one parity chunk: the XOR of
+ * its chunks, a short last chunk counting as padded with zeros. A receiver missing any one chunk of a
+ * group rebuilds it from the parity and the others, without waiting for a retransmission.
+ *
+ * <p>A parity chunk is a big-endian u16 count of the chunks in its group, followed by the parity bytes;
+ * its frame's offset is the offset of the group's first chunk.
+ */
+final class ParityEncoder {
+
+    /** Size of the chunk count in front of the parity bytes. */
+    static final int COUNT_SIZE = Short.BYTES;
+    /** Number of chunks in a full group. */
+    private final int groupSize;
+    /** The parity chunk being built: the chunk count, then the parity bytes. */
+    private final byte[] parity;
+    /** Number of chunks added to the group being built. */
+    private int count;
+    /** Offset of the first chunk of the group being built. */
+    private int firstOffset;
+
+    /**
+     * Constructs an encoder for the chunks of one transfer.
+     * @param chunksPerGroup Number of chunks in a full group.
+     * @param chunkLength Length of every chunk but the last, in bytes.
+     */
+    ParityEncoder(final int chunksPerGroup, final int chunkLength) {
+        this.groupSize = chunksPerGroup;
+        this.parity = new byte[COUNT_SIZE + chunkLength];
+    }
+
+    /**
+     * Adds a chunk to the group being built.
+     * @param chunk Buffer holding the chunk; it is not consumed.
+     * @param offset Offset of the chunk in the transfer.
+     * @return True if the group is now full and its parity chunk should be sent.
+     */
+    boolean add(final ByteBuffer chunk, final int offset) {
+        if (count == 0) {
+            // The parity chunk of the previous group has been sent by now
+            Arrays.fill(parity, (byte) 0);
+            firstOffset = offset;
+        }
+        for (int i = 0; i < chunk.remaining(); i++) {
+            parity[COUNT_SIZE + i] ^= chunk.get(chunk.position() + i);
+        }
+        count++;
+        return count == groupSize;
+    }
+
+    /**
+     * Checks whether chunks have been added since the last parity chunk was taken.
+     * @return True if a parity chunk is pending.
+     */
+    boolean hasPending() {
+        return count > 0;
+    }
+
+    /**
+     * Gets the offset of the first chunk of the group being built, which is the parity chunk's offset.
+     * @return The offset.
+     */
+    int getFirstOffset() {
+        return firstOffset;
+    }
+
+    /**
+     * Takes the parity chunk of the group being built and starts the next group.
+     * @return A buffer holding the parity chunk, valid until the next chunk is added.
+     */
+    ByteBuffer takeParity() {
+        final ByteBuffer chunk = ByteBuffer.wrap(parity);
+        chunk.putShort(0, (short) count);
+        count = 0;
+        return chunk;
+    }
+}
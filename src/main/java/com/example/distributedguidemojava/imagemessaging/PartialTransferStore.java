@@ -0,0 +1,378 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Holds the transfers still being reassembled, within a memory budget and a time to live.
+ * Safe for any number of threads: transfers live in a concurrent map keyed by transfer id, the budget
+ * is a shared atomic counter, and no lock covers more than one transfer, so chunks of different images
+ * never wait for each other. Each transfer is charged for the memory it holds; a transfer that would
+ * take the total past the budget pushes out the ones that have gone longest without progress.
+ * Transfers that have gone without progress for longer than the time to live are swept out at most
+ * a few times per time to live, by whichever thread happens to call {@link #evictExpired} when a sweep
+ * is due, and after {@link #startSweeping} also by a shared background thread, so they go even when no
+ * more chunks arrive. A listener is told about every evicted transfer, so it can free what the transfer holds
+ * outside the store. Completed transfers are remembered for the time to live, a bounded number of them,
+ * so a frame of one that arrives late does not start it over.
+ * @param <K> Type of the transfer keys.
+ * @param <V> Type of the reassembly state of a transfer.
+ */
+final class PartialTransferStore<K, V> {
+
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(PartialTransferStore.class.getName());
+    /** Expired transfers are swept this many times per time to live. */
+    private static final int SWEEPS_PER_TTL = 4;
+    /** Most completed transfers remembered at once. */
+    private static final int MAX_COMPLETED = 1024;
+    /** Sweeps the stores that asked for it, on one daemon thread shared by all of them. */
+    private static final ScheduledExecutorService SWEEPER = Executors.newSingleThreadScheduledExecutor(task -> {
+        final Thread thread = Executors.defaultThreadFactory().newThread(task);
+        thread.setDaemon(true); // Stop the thread when the application exits
+        return thread;
+    });
+    /** Most bytes all transfers together may hold. */
+    private final long budget;
+    /** How long a transfer may go without progress before it is evicted, in nanoseconds. */
+    private final long ttlNanos;
+    /** Shortest time between two sweeps for expired transfers, in nanoseconds. */
+    private final long sweepIntervalNanos;
+    /** Transfers being reassembled, keyed by transfer. */
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    /** When each recently completed transfer completed, in nanoseconds, keyed by transfer. */
+    private final Map<K, Long> completed = new ConcurrentHashMap<>();
+    /** Bytes held by all transfers together. */
+    private final AtomicLong pendingBytes = new AtomicLong();
+    /** Number of transfers evicted before they completed. */
+    private final AtomicLong evictions = new AtomicLong();
+    /** When expired transfers were last swept, in nanoseconds. */
+    private final AtomicLong lastSweep;
+    /** Told about the state of every transfer evicted before it completed. */
+    private final Consumer<V> evictionListener;
+
+    /**
+     * Constructs an empty store.
+     * @param budgetBytes Most bytes all transfers together may hold.
+     * @param ttl How long a transfer may go without progress before it is evicted, in nanoseconds.
+     * @param now The current time in nanoseconds.
+     */
+    PartialTransferStore(final long budgetBytes, final long ttl, final long now) {
+        this(budgetBytes, ttl, now, state -> { });
+    }
+
+    /**
+     * Constructs an empty store that reports evicted transfers.
+     * @param budgetBytes Most bytes all transfers together may hold.
+     * @param ttl How long a transfer may go without progress before it is evicted, in nanoseconds.
+     * @param now The current time in nanoseconds.
+     * @param onEvicted Told about the state of every transfer evicted before it completed, on the
+     *        thread that evicted it.
+     */
+    PartialTransferStore(final long budgetBytes, final long ttl, final long now, final Consumer<V> onEvicted) {
+        this.budget = budgetBytes;
+        this.ttlNanos = ttl;
+        this.sweepIntervalNanos = Math.max(1, ttl / SWEEPS_PER_TTL);
+        this.lastSweep = new AtomicLong(now);
+        this.evictionListener = onEvicted;
+    }
+
+    /**
+     * Gets the state of a transfer.
+     * @param key The transfer.
+     * @return The state, or null if the transfer is not held.
+     */
+    V get(final K key) {
+        final Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Starts holding a transfer, evicting the least recently progressing ones while the budget is short.
+     * If another thread starts the same transfer at the same time, both get the same state.
+     * @param key The transfer.
+     * @param bytes Bytes the transfer holds to begin with.
+     * @param factory Creates the state of the transfer once there is room for it.
+     * @param now The current time in nanoseconds.
+     * @return The state, or null if the transfer alone exceeds the budget.
+     */
+    V open(final K key, final long bytes, final Supplier<V> factory, final long now) {
+        if (bytes > budget) {
+            LOGGER.log(Level.WARNING, "Transfer {0} needs {1} bytes, more than the reassembly budget of {2}",
+                new Object[]{key, bytes, budget});
+            return null;
+        }
+        makeRoom(bytes, key);
+        final Entry<V> entry = entries.computeIfAbsent(key, k -> {
+            pendingBytes.addAndGet(bytes);
+            return new Entry<>(factory.get(), bytes, now);
+        });
+        return entry.value;
+    }
+
+    /**
+     * Records progress on a transfer, so it is evicted after the transfers that have waited longer.
+     * @param key The transfer.
+     * @param addedBytes Bytes the transfer holds on top of what it held before.
+     * @param now The current time in nanoseconds.
+     * @return True if the transfer is still held, false if it was evicted or the added bytes took it
+     *         past the budget.
+     */
+    boolean progressed(final K key, final long addedBytes, final long now) {
+        final Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.lastProgress = now;
+        if (addedBytes == 0) {
+            return true;
+        }
+        if (!entry.charge(addedBytes, pendingBytes)) {
+            return false;
+        }
+        if (entry.getBytes() > budget) {
+            evict(key, entry, "grew past the reassembly budget");
+            return false;
+        }
+        makeRoom(0, key);
+        return true;
+    }
+
+    /**
+     * Stops holding a transfer, typically because it completed.
+     * @param key The transfer.
+     * @return The state, or null if the transfer was not held.
+     */
+    V remove(final K key) {
+        final Entry<V> entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.release(pendingBytes);
+        return entry.value;
+    }
+
+    /**
+     * Stops holding a transfer because it completed, and remembers it for the time to live.
+     * @param key The transfer.
+     * @param now The current time in nanoseconds.
+     * @return The state, or null if the transfer was not held.
+     */
+    V complete(final K key, final long now) {
+        if (completed.size() >= MAX_COMPLETED) {
+            forgetCompleted(now);
+        }
+        // Remembered before it is removed, so a thread that misses the transfer sees it completed
+        completed.put(key, now);
+        return remove(key);
+    }
+
+    /**
+     * Checks whether a transfer completed within the time to live, so its late frames are to be dropped.
+     * @param key The transfer.
+     * @param now The current time in nanoseconds.
+     * @return True if the transfer completed recently.
+     */
+    boolean isCompleted(final K key, final long now) {
+        final Long completedAt = completed.get(key);
+        return completedAt != null && now - completedAt < ttlNanos;
+    }
+
+    /**
+     * Evicts every transfer that has gone without progress for longer than the time to live, if a sweep
+     * is due; otherwise returns at once.
+     * @param now The current time in nanoseconds.
+     */
+    void evictExpired(final long now) {
+        final long last = lastSweep.get();
+        if (now - last < sweepIntervalNanos || !lastSweep.compareAndSet(last, now)) {
+            // Not due yet, or another thread is sweeping
+            return;
+        }
+        for (final Map.Entry<K, Entry<V>> next : entries.entrySet()) {
+            if (now - next.getValue().lastProgress >= ttlNanos) {
+                evict(next.getKey(), next.getValue(), "timed out");
+            }
+        }
+        completed.values().removeIf(completedAt -> now - completedAt >= ttlNanos);
+    }
+
+    /**
+     * Starts sweeping this store for expired transfers in the background, every sweep interval, with
+     * {@link System#nanoTime} as the current time. The sweeps stop once the store is garbage collected.
+     */
+    void startSweeping() {
+        final WeakReference<PartialTransferStore<K, V>> store = new WeakReference<>(this);
+        final AtomicReference<Future<?>> sweeps = new AtomicReference<>();
+        sweeps.set(SWEEPER.scheduleWithFixedDelay(() -> {
+            final PartialTransferStore<K, V> live = store.get();
+            if (live == null) {
+                sweeps.get().cancel(false);
+            } else {
+                live.evictExpired(System.nanoTime());
+            }
+        }, sweepIntervalNanos, sweepIntervalNanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Gets the bytes held by the transfers still being reassembled.
+     * @return The pending bytes.
+     */
+    long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * Gets the number of transfers evicted before they completed.
+     * @return The eviction count.
+     */
+    long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Gets the number of transfers still being reassembled.
+     * @return The number of transfers held.
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Evicts the least recently progressing transfers until a number of bytes more fits the budget.
+     * Finding the oldest transfer takes a scan, but only while the budget is short.
+     * @param bytes The bytes that must fit on top of the pending ones.
+     * @param keep The transfer making the room, which is never evicted for it.
+     */
+    private void makeRoom(final long bytes, final K keep) {
+        while (pendingBytes.get() + bytes > budget) {
+            Map.Entry<K, Entry<V>> oldest = null;
+            for (final Map.Entry<K, Entry<V>> next : entries.entrySet()) {
+                if (!next.getKey().equals(keep)
+                    && (oldest == null || next.getValue().lastProgress - oldest.getValue().lastProgress < 0)) {
+                    oldest = next;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            evict(oldest.getKey(), oldest.getValue(), "out of reassembly budget");
+        }
+    }
+
+    /**
+     * Forgets the completed transfers past the time to live, then the earliest ones while too many are left.
+     * @param now The current time in nanoseconds.
+     */
+    private void forgetCompleted(final long now) {
+        completed.values().removeIf(completedAt -> now - completedAt >= ttlNanos);
+        while (completed.size() >= MAX_COMPLETED) {
+            Map.Entry<K, Long> earliest = null;
+            for (final Map.Entry<K, Long> next : completed.entrySet()) {
+                if (earliest == null || next.getValue() - earliest.getValue() < 0) {
+                    earliest = next;
+                }
+            }
+            if (earliest == null) {
+                return;
+            }
+            completed.remove(earliest.getKey(), earliest.getValue());
+        }
+    }
+
+    /**
+     * Evicts a transfer before it completed, unless another thread has already taken it out.
+     * @param key The transfer.
+     * @param entry Its entry.
+     * @param reason Why it is evicted, for logging.
+     */
+    private void evict(final K key, final Entry<V> entry, final String reason) {
+        if (!entries.remove(key, entry)) {
+            return;
+        }
+        final long bytes = entry.release(pendingBytes);
+        evictions.incrementAndGet();
+        LOGGER.log(Level.WARNING, "Evicted transfer {0} holding {1} bytes: {2}", new Object[]{key, bytes, reason});
+        evictionListener.accept(entry.value);
+    }
+
+    /**
+     * A transfer held by the store.
+     * The bytes it holds are only changed under its own lock, together with the store's total, so a
+     * transfer evicted while it grows never leaves its bytes counted.
+     * @param <V> Type of the reassembly state.
+     */
+    private static final class Entry<V> {
+
+        /** Reassembly state of the transfer. */
+        private final V value;
+        /** When the transfer last made progress, in nanoseconds. */
+        private volatile long lastProgress;
+        /** Bytes the transfer holds. */
+        private long bytes;
+        /** Whether the transfer has left the store, so it must not be charged any more. */
+        private boolean released;
+
+        /**
+         * Constructs an entry.
+         * @param state Reassembly state of the transfer.
+         * @param size Bytes the transfer holds to begin with, already added to the store's total.
+         * @param now The current time in nanoseconds.
+         */
+        Entry(final V state, final long size, final long now) {
+            this.value = state;
+            this.bytes = size;
+            this.lastProgress = now;
+        }
+
+        /**
+         * Charges the transfer for more bytes it holds.
+         * @param added The bytes.
+         * @param total The store's total to add them to.
+         * @return True if the bytes were charged, false if the transfer has left the store.
+         */
+        synchronized boolean charge(final long added, final AtomicLong total) {
+            if (released) {
+                return false;
+            }
+            bytes += added;
+            total.addAndGet(added);
+            return true;
+        }
+
+        /**
+         * Takes the transfer's bytes off the store's total, once.
+         * @param total The store's total.
+         * @return The bytes the transfer held.
+         */
+        synchronized long release(final AtomicLong total) {
+            if (!released) {
+                released = true;
+                total.addAndGet(-bytes);
+            }
+            return bytes;
+        }
+
+        /**
+         * Gets the bytes the transfer holds.
+         * @return The bytes.
+         */
+        synchronized long getBytes() {
+            return bytes;
+        }
+    }
+}
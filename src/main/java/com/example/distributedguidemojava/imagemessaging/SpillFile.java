@@ -0,0 +1,96 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A temporary file, mapped into memory, that a large image is reassembled in instead of the heap.
+ * Chunks are written through the mapping at their offsets, so the image's pages belong to the file
+ * cache and can be written back and dropped by the operating system, and the garbage collector never
+ * sees them. The file is created at the image's size; the file system fills it in as chunks arrive.
+ *
+ * <p>The mapping stays valid after the file is deleted, and is released once it is garbage collected.
+ */
+final class SpillFile {
+
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(SpillFile.class.getName());
+    /** Prefix of the names of spill files. */
+    private static final String PREFIX = "image-";
+    /** Suffix of the names of spill files. */
+    private static final String SUFFIX = ".part";
+    /** The file. */
+    private final Path path;
+    /** Mapping of the whole file. */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Constructs a spill file from a created file and its mapping.
+     * @param file The file.
+     * @param mapping Mapping of the whole file.
+     */
+    private SpillFile(final Path file, final MappedByteBuffer mapping) {
+        this.path = file;
+        this.buffer = mapping;
+    }
+
+    /**
+     * Creates a temporary file of a given size and maps it into memory.
+     * @param directory Directory to create the file in, or null for the default temporary directory.
+     * @param size Size of the file in bytes.
+     * @return The mapped file.
+     * @throws IOException If the file cannot be created or mapped; no file is left behind.
+     */
+    static SpillFile create(final Path directory, final int size) throws IOException {
+        Path file = null;
+        try {
+            if (directory == null) {
+                file = Files.createTempFile(PREFIX, SUFFIX);
+            } else {
+                file = Files.createTempFile(directory, PREFIX, SUFFIX);
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // Mapping past the end of the file extends it to the image's size
+                return new SpillFile(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            }
+        } catch (IOException e) {
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the file.
+     * @return The path of the file.
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the mapping of the whole file, which chunks are written to.
+     * @return The mapped buffer.
+     */
+    MappedByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Deletes the file, logging rather than failing if it cannot be deleted.
+     */
+    void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete spill file {0}: {1}", new Object[]{path, e.getMessage()});
+        }
+    }
+}
@@ -0,0 +1,497 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reassembles one image transfer in place.
+ * The buffer for the whole image is allocated once, at its exact size, when the first chunk arrives;
+ * every chunk is copied straight to its byte offset, and a {@link ChunkBitmap} records which chunks
+ * are in, so the complete image is ready without any concatenation pass.
+ *
+ * <p>Frames carry byte offsets, not chunk indexes, so the chunk size is learned from the first chunk
+ * that is not the last one: every chunk but the last has exactly that size. A last chunk arriving
+ * before then is written and remembered, and counted once the size is known. A chunk that does not
+ * line up with the chunk size, or reaches past the end of the image, is rejected.
+ *
+ * <p>Transfers sent with forward error correction also carry parity chunks (see {@link ParityEncoder}).
+ * A parity chunk is kept until its group is complete; once only one chunk of the group is missing, that
+ * chunk is rebuilt from the parity and the others, as if it had arrived. A parity chunk gives the chunk
+ * size too, since it is exactly one chunk long.
+ *
+ * <p>The bytes and chunks received are counted for progress reports ({@link ImageProgress}), which
+ * estimate the time remaining from the rate since the first report, and the part of the image received
+ * without gaps from its start can be copied out as a preview.
+ *
+ * <p>The image is held on the heap, or in a {@link SpillFile} for images too large for the heap.
+ *
+ * <p>Chunks may arrive on several threads at once; each transfer takes its own lock, so only chunks
+ * of the same image wait for each other.
+ */
+final class TransferReassembly {
+
+    /**
+     * What became of a received chunk.
+     */
+    enum Result {
+
+        /** The chunk was new and was written; more chunks are missing. */
+        ACCEPTED,
+
+        /** The chunk had been received before and was ignored. */
+        DUPLICATE,
+
+        /** The chunk does not belong in the transfer and was ignored. */
+        REJECTED,
+
+        /** The chunk was new and completed the image. */
+        COMPLETE
+    }
+
+    /** No last chunk is waiting for the chunk size to be learned; no chunk of a group is missing. */
+    private static final int NONE = -1;
+    /** More than one chunk of a group is missing. */
+    private static final int SEVERAL = -2;
+    /** Mask reading the chunk count of a parity chunk as unsigned. */
+    private static final int U16_MASK = 0xFFFF;
+    /** The image, filled in as chunks arrive. */
+    private final ByteBuffer data;
+    /** File the image is reassembled in, or null when it is on the heap. */
+    private final SpillFile spillFile;
+    /** Size of every chunk but the last, or 0 until learned. */
+    private int chunkSize;
+    /** Chunks received so far; null until the chunk size is learned. */
+    private ChunkBitmap arrivals;
+    /** Offset of a last chunk received before the chunk size was learned, or {@link #NONE}. */
+    private int pendingLastOffset = NONE;
+    /** Parity chunks of the groups still missing chunks, keyed by the index of each group's first chunk. */
+    private final NavigableMap<Integer, ParityGroup> parities = new TreeMap<>();
+    /** Number of chunks rebuilt from parity. */
+    private int recoveredCount;
+    /** Image bytes written so far, received or rebuilt. */
+    private long receivedBytes;
+    /** Chunks written so far, received or rebuilt. */
+    private int receivedChunks;
+    /** Whether progress has been reported yet. */
+    private boolean reporting;
+    /** Time of the first progress report, in nanoseconds. */
+    private long firstReportNanos;
+    /** Bytes received at the time of the first progress report. */
+    private long firstReportBytes;
+    /** Time of the last progress report, in nanoseconds. */
+    private long lastReportNanos;
+    /** Number of chunks at the start of the image received without gaps, as last counted. */
+    private int prefixChunks;
+    /** Length of the last preview taken, in bytes. */
+    private int previewLength;
+    /** Number of previews taken whose callback has not returned yet. */
+    private int previewsShowing;
+    /** Whether the complete image is being handed over, after which no preview is taken. */
+    private boolean handedOver;
+
+    /**
+     * Constructs the reassembly of a transfer, allocating its buffer.
+     * @param total Size of the image in bytes; must be positive.
+     */
+    TransferReassembly(final int total) {
+        if (total <= 0) {
+            throw new IllegalArgumentException("Total must be positive: " + total);
+        }
+        this.data = ByteBuffer.allocate(total);
+        this.spillFile = null;
+    }
+
+    /**
+     * Constructs the reassembly of a transfer into a spill file, which has the size of the image.
+     * @param file The mapped file the image is written to.
+     */
+    TransferReassembly(final SpillFile file) {
+        this.data = file.getBuffer();
+        this.spillFile = file;
+    }
+
+    /**
+     * Writes a received chunk into the image.
+     * @param offset Byte offset of the chunk within the image.
+     * @param payload The chunk; its bytes are consumed only if it is accepted.
+     * @return What became of the chunk.
+     */
+    synchronized Result accept(final int offset, final ByteBuffer payload) {
+        final int length = payload.remaining();
+        if (offset < 0 || length <= 0 || length > data.capacity() - offset) {
+            return Result.REJECTED;
+        }
+        final boolean last = offset + length == data.capacity();
+        if (!last && chunkSize == 0) {
+            if (offset % length != 0) {
+                return Result.REJECTED;
+            }
+            learnChunkSize(length);
+        }
+        if (chunkSize == 0) {
+            return acceptEarlyLastChunk(offset, payload);
+        }
+        if (!fits(offset, length, last)) {
+            return Result.REJECTED;
+        }
+        if (!arrivals.mark(offset / chunkSize)) {
+            return Result.DUPLICATE;
+        }
+        write(offset, payload);
+        recover(offset / chunkSize);
+        return progress();
+    }
+
+    /**
+     * Keeps a received parity chunk, rebuilding the missing chunk of its group if only one is missing.
+     * @param offset Byte offset of the first chunk of the group.
+     * @param payload The parity chunk: the group's chunk count, then the parity bytes; consumed if accepted.
+     * @return What became of the parity chunk; {@link Result#COMPLETE} if the chunk it rebuilt was the
+     *         last one missing.
+     */
+    synchronized Result acceptParity(final int offset, final ByteBuffer payload) {
+        final int length = payload.remaining() - ParityEncoder.COUNT_SIZE;
+        if (offset < 0 || length <= 0 || offset >= data.capacity()) {
+            return Result.REJECTED;
+        }
+        if (chunkSize == 0 && offset % length == 0) {
+            learnChunkSize(length);
+        }
+        final int count = payload.getShort(payload.position()) & U16_MASK;
+        if (!isValidParity(offset, length, count)) {
+            return Result.REJECTED;
+        }
+        final int first = offset / chunkSize;
+        if (parities.containsKey(first)) {
+            return Result.DUPLICATE;
+        }
+        final byte[] parity = new byte[length];
+        payload.get(payload.position() + ParityEncoder.COUNT_SIZE, parity);
+        payload.position(payload.limit());
+        parities.put(first, new ParityGroup(count, parity));
+        recover(first);
+        return progress();
+    }
+
+    /**
+     * Gets the size of the image.
+     * @return The size in bytes.
+     */
+    int getTotal() {
+        return data.capacity();
+    }
+
+    /**
+     * Gets the image; complete once {@link #accept} has returned {@link Result#COMPLETE}.
+     * @return The array holding the image, not a copy.
+     * @throws UnsupportedOperationException If the image is in a spill file.
+     */
+    synchronized byte[] getData() {
+        return data.array();
+    }
+
+    /**
+     * Gets the number of chunks rebuilt from parity rather than received.
+     * @return The recovered chunk count.
+     */
+    synchronized int getRecoveredCount() {
+        return recoveredCount;
+    }
+
+    /**
+     * Gets the file the image is reassembled in.
+     * @return The spill file, or null if the image is on the heap.
+     */
+    SpillFile getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * Takes a snapshot of the progress of the transfer, unless one was taken too recently. The first
+     * snapshot is always taken, and so is one of the complete image.
+     * @param transferId The transfer, for the snapshot.
+     * @param now Current time in nanoseconds.
+     * @param intervalNanos Least time between two snapshots.
+     * @return The snapshot, or null if the last one was taken less than the interval ago.
+     */
+    synchronized ImageProgress takeProgress(final long transferId, final long now, final long intervalNanos) {
+        final boolean complete = receivedBytes == data.capacity();
+        if (!reporting) {
+            reporting = true;
+            firstReportNanos = now;
+            firstReportBytes = receivedBytes;
+        } else if (now - lastReportNanos < intervalNanos && !complete) {
+            return null;
+        }
+        lastReportNanos = now;
+        int chunkCount = ImageProgress.UNKNOWN;
+        if (arrivals != null) {
+            chunkCount = arrivals.getChunkCount();
+        }
+        return new ImageProgress(transferId, receivedBytes, data.capacity(), receivedChunks, chunkCount,
+            estimateMillisRemaining(now, complete));
+    }
+
+    /**
+     * Copies the part of the image received without gaps from its start, up to a limit, if it has at least
+     * doubled since the last copy, so all the copies of an image add up to less than twice its size, or
+     * twice the limit. A preview taken must be followed by {@link #previewShown()} once it has been shown.
+     * @param maxLength Most bytes to copy; the part beyond is left out of every preview.
+     * @return The bytes, or null if the part has not grown enough or the image is complete.
+     */
+    synchronized byte[] takePreview(final int maxLength) {
+        if (arrivals == null || arrivals.isComplete() || handedOver) {
+            return null;
+        }
+        while (arrivals.isMarked(prefixChunks)) {
+            prefixChunks++;
+        }
+        final int length = (int) Math.min(Math.min((long) prefixChunks * chunkSize, data.capacity()), maxLength);
+        if (length == 0 || length < 2L * previewLength) {
+            return null;
+        }
+        previewLength = length;
+        previewsShowing++;
+        final byte[] preview = new byte[length];
+        data.get(0, preview);
+        return preview;
+    }
+
+    /**
+     * Records that the callback of a preview taken with {@link #takePreview()} has returned.
+     */
+    synchronized void previewShown() {
+        previewsShowing--;
+        notifyAll();
+    }
+
+    /**
+     * Marks the complete image as handed over, so no preview is taken any more, and waits until the
+     * callbacks of the previews taken before have returned, so the image always comes after them.
+     * The lock is not held while waiting, so the previews' callbacks never run under it.
+     */
+    synchronized void handOver() {
+        handedOver = true;
+        while (previewsShowing > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Estimates the time until the image is complete from the rate since the first progress report.
+     * @param now Current time in nanoseconds.
+     * @param complete Whether the image is complete.
+     * @return The estimate in milliseconds, or {@link ImageProgress#UNKNOWN} until there is a rate.
+     */
+    private long estimateMillisRemaining(final long now, final boolean complete) {
+        if (complete) {
+            return 0;
+        }
+        final long elapsed = now - firstReportNanos;
+        final long progressed = receivedBytes - firstReportBytes;
+        if (elapsed <= 0 || progressed <= 0) {
+            return ImageProgress.UNKNOWN;
+        }
+        final double nanosPerByte = (double) elapsed / progressed;
+        return TimeUnit.NANOSECONDS.toMillis((long) (nanosPerByte * (data.capacity() - receivedBytes)));
+    }
+
+    /**
+     * Checks that a parity chunk is one chunk long and covers a group of chunks within the image.
+     * @param offset Byte offset of the first chunk of the group.
+     * @param length Length of the parity bytes.
+     * @param count Number of chunks in the group.
+     * @return True if the parity chunk fits the image.
+     */
+    private boolean isValidParity(final int offset, final int length, final int count) {
+        if (length != chunkSize || offset % chunkSize != 0 || count == 0) {
+            return false;
+        }
+        return count <= arrivals.getChunkCount() - offset / chunkSize;
+    }
+
+    /**
+     * Rebuilds the missing chunk of the group a chunk belongs to, if its parity is in and only that one
+     * chunk is missing, and drops the parity once the group is complete.
+     * @param index Index of a chunk of the group.
+     */
+    private void recover(final int index) {
+        final Map.Entry<Integer, ParityGroup> entry = parities.floorEntry(index);
+        if (entry == null || index >= entry.getKey() + entry.getValue().count) {
+            return;
+        }
+        final int first = entry.getKey();
+        final ParityGroup group = entry.getValue();
+        final int missing = findMissing(first, group.count);
+        if (missing == SEVERAL) {
+            return;
+        }
+        parities.remove(first);
+        if (missing == NONE) {
+            return;
+        }
+        // The parity XOR every other chunk of the group is the missing chunk
+        for (int i = first; i < first + group.count; i++) {
+            if (i != missing) {
+                xorChunk(group.parity, i);
+            }
+        }
+        final int offset = missing * chunkSize;
+        final int length = Math.min(chunkSize, data.capacity() - offset);
+        data.put(offset, group.parity, 0, length);
+        arrivals.mark(missing);
+        recoveredCount++;
+        counted(length);
+    }
+
+    /**
+     * Finds the chunk missing from a group.
+     * @param first Index of the group's first chunk.
+     * @param count Number of chunks in the group.
+     * @return The index of the only missing chunk, {@link #NONE} if none is, or {@link #SEVERAL}.
+     */
+    private int findMissing(final int first, final int count) {
+        int missing = NONE;
+        for (int i = first; i < first + count; i++) {
+            if (!arrivals.isMarked(i)) {
+                if (missing != NONE) {
+                    return SEVERAL;
+                }
+                missing = i;
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * XORs a received chunk into a buffer, a short last chunk counting as padded with zeros.
+     * @param target The buffer, one chunk long.
+     * @param index Index of the chunk.
+     */
+    private void xorChunk(final byte[] target, final int index) {
+        final int offset = index * chunkSize;
+        final int length = Math.min(chunkSize, data.capacity() - offset);
+        for (int i = 0; i < length; i++) {
+            target[i] ^= data.get(offset + i);
+        }
+    }
+
+    /**
+     * Copies a chunk to its offset in the image, consuming its bytes.
+     * @param offset Byte offset of the chunk.
+     * @param payload The chunk.
+     */
+    private void write(final int offset, final ByteBuffer payload) {
+        counted(payload.remaining());
+        data.put(offset, payload, payload.position(), payload.remaining());
+        payload.position(payload.limit());
+    }
+
+    /**
+     * Counts a chunk written into the image towards the progress.
+     * @param length Length of the chunk; negative to take back a chunk counted before.
+     */
+    private void counted(final int length) {
+        receivedBytes += length;
+        receivedChunks += Integer.signum(length);
+    }
+
+    /**
+     * Sets the chunk size and sizes the bitmap, counting a last chunk that arrived early if it lines up.
+     * @param size Size of every chunk but the last.
+     */
+    private void learnChunkSize(final int size) {
+        chunkSize = size;
+        arrivals = new ChunkBitmap((data.capacity() + size - 1) / size);
+        if (pendingLastOffset != NONE && pendingLastOffset == (arrivals.getChunkCount() - 1) * size) {
+            arrivals.mark(arrivals.getChunkCount() - 1);
+        } else if (pendingLastOffset != NONE) {
+            // A last chunk that does not line up is forgotten; its bytes are overwritten if it is sent again
+            counted(pendingLastOffset - data.capacity());
+        }
+        pendingLastOffset = NONE;
+    }
+
+    /**
+     * Writes the last chunk when no other chunk has given the chunk size yet.
+     * @param offset Byte offset of the chunk.
+     * @param payload The chunk.
+     * @return What became of the chunk.
+     */
+    private Result acceptEarlyLastChunk(final int offset, final ByteBuffer payload) {
+        if (pendingLastOffset != NONE) {
+            if (pendingLastOffset == offset) {
+                return Result.DUPLICATE;
+            }
+            return Result.REJECTED;
+        }
+        final int length = payload.remaining();
+        write(offset, payload);
+        if (offset == 0) {
+            // The whole image in one chunk
+            chunkSize = length;
+            arrivals = new ChunkBitmap(1);
+            arrivals.mark(0);
+            return Result.COMPLETE;
+        }
+        pendingLastOffset = offset;
+        return Result.ACCEPTED;
+    }
+
+    /**
+     * Checks that a chunk lines up with the learned chunk size.
+     * @param offset Byte offset of the chunk.
+     * @param length Length of the chunk.
+     * @param last Whether the chunk ends the image.
+     * @return True if the chunk starts on a chunk boundary and has the size its position calls for.
+     */
+    private boolean fits(final int offset, final int length, final boolean last) {
+        if (offset % chunkSize != 0) {
+            return false;
+        }
+        if (last) {
+            return offset / chunkSize == arrivals.getChunkCount() - 1;
+        }
+        return length == chunkSize;
+    }
+
+    /**
+     * Reports whether the image is complete after a chunk was written.
+     * @return {@link Result#COMPLETE} or {@link Result#ACCEPTED}.
+     */
+    private Result progress() {
+        if (arrivals.isComplete()) {
+            return Result.COMPLETE;
+        }
+        return Result.ACCEPTED;
+    }
+
+    /**
+     * The parity chunk of a group of chunks.
+     */
+    private static final class ParityGroup {
+
+        /** Number of chunks in the group. */
+        private final int count;
+        /** XOR of the group's chunks; becomes the missing chunk when it is rebuilt. */
+        private final byte[] parity;
+
+        /**
+         * Constructs the parity of a group.
+         * @param chunks Number of chunks in the group.
+         * @param bytes XOR of the group's chunks.
+         */
+        ParityGroup(final int chunks, final byte[] bytes) {
+            this.count = chunks;
+            this.parity = bytes;
+        }
+    }
+}
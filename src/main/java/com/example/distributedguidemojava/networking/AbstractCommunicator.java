@@ -0,0 +1,471 @@
+package com.example.distributedguidemojava.networking;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Base class for communicators, holding the subscriber bookkeeping, the framing and the
+ * dispatch of received messages shared by every transport.
+ * Transports only move datagrams: they implement {@link #transmit} and feed every
+ * received datagram to {@link #deliver}, which hands it to the subscriber's own dispatch queue.
+ *
+ * <p>Every datagram is a frame: a fixed binary header (see {@link FrameCodec}) followed by the payload.
+ * Subscribers with a well-known channel id (see {@link ChannelIds}) are addressed by that id; any other
+ * subscriber is named in a short section after the header.
+ *
+ * <p>In {@link SendMode#ASYNC} mode frames are handed to an {@link AsyncSender} and sent on its thread,
+ * so callers such as the UI thread never block on the socket. When its queue is full, the plain send
+ * methods wait for room, as a synchronous send would wait for the socket, and only
+ * {@link #sendFrameAsync} fails the frame.
+ *
+ * <p>Datagram transports can turn on reliable delivery ({@link CommunicatorConfig#isReliable()}): frames to
+ * unicast peers then go through a {@link ReliableDelivery}, and the transport passes the source address of
+ * every datagram to {@link #deliver(ByteBuffer, InetSocketAddress)} so acknowledgements find their way back.
+ */
+abstract class AbstractCommunicator implements ICommunicator {
+
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(AbstractCommunicator.class.getName());
+    /** Largest encoded header: the fixed header plus a name section. */
+    private static final int MAX_ENCODED_HEADER_SIZE = FrameCodec.HEADER_SIZE + 1 + FrameCodec.MAX_NAME_LENGTH;
+    /** Empty name section used for subscribers addressed by channel id. */
+    private static final byte[] NO_NAME = new byte[0];
+    /** Maximum number of resolved endpoints kept in the cache. */
+    private static final int MAX_CACHED_ENDPOINTS = 256;
+    /** Per-thread scratch buffer the frame header is encoded into before sending. */
+    private static final ThreadLocal<ByteBuffer> HEADER_SCRATCH =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAX_ENCODED_HEADER_SIZE));
+    /** Registry of subscribers and their dispatch queues. */
+    private final SubscriberRegistry subscribers = new SubscriberRegistry();
+    /** Cache of the encoded subscriber name for each subscriber id without a channel id. */
+    private final Map<String, byte[]> encodedNames = new ConcurrentHashMap<>();
+    /** Cache of resolved endpoints, keyed by "address:port:connected". */
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    /** Maximum number of messages waiting in each subscriber's dispatch queue. */
+    private final int dispatchQueueCapacity;
+    /** What a full dispatch queue does with a newly received message. */
+    private final OverflowPolicy overflowPolicy;
+    /** Number of threads delivering to each {@link IConcurrentMessageListener}: one per receive thread. */
+    private final int dispatchConcurrency;
+    /** Send queue and thread used in asynchronous send mode; null when sending on the caller's thread. */
+    private final AsyncSender asyncSender;
+    /** Per-peer pacing of the frames sent; null when sending unpaced. */
+    private final SendPacing pacing;
+    /** Acknowledgement and retransmission of frames; null unless reliable delivery is on. */
+    private final ReliableDelivery reliability;
+
+    /**
+     * Constructs the shared communicator state for a transport that is reliable by itself.
+     * @param config Settings of the communicator; the dispatch and send settings are used here.
+     */
+    protected AbstractCommunicator(final CommunicatorConfig config) {
+        this(config, false);
+    }
+
+    /**
+     * Constructs the shared communicator state.
+     * @param config Settings of the communicator; the dispatch, send and reliability settings are used here.
+     * @param datagrams Whether the transport may lose datagrams, so reliable delivery applies when configured.
+     */
+    protected AbstractCommunicator(final CommunicatorConfig config, final boolean datagrams) {
+        if (config == null) {
+            throw new IllegalArgumentException("Config must not be null");
+        }
+        this.dispatchQueueCapacity = config.getDispatchQueueCapacity();
+        this.overflowPolicy = config.getOverflowPolicy();
+        this.dispatchConcurrency = config.getReceiveThreads();
+        if (config.getPacingRate() != CommunicatorConfig.UNPACED) {
+            this.pacing = new SendPacing(config.getPacingRate());
+        } else {
+            this.pacing = null;
+        }
+        if (config.getSendMode() == SendMode.ASYNC) {
+            this.asyncSender = new AsyncSender("sender-" + getClass().getSimpleName(),
+                config.getSendQueueCapacity(), this::pacedTransmit);
+        } else {
+            this.asyncSender = null;
+        }
+        if (datagrams && config.isReliable()) {
+            this.reliability = new ReliableDelivery(config.getReliableWindow(),
+                ReliableDelivery.DEFAULT_MAX_TRANSMISSIONS, this::transmit, this::getListenPort, pacing);
+        } else {
+            this.reliability = null;
+        }
+    }
+
+    @Override
+    public void addSubscriber(final String id, final IMessageListener subscriber) {
+        if (id == null || id.isEmpty() || subscriber == null) {
+            throw new IllegalArgumentException("ID and subscriber must not be null or empty");
+        }
+        final SubscriberQueue previous = subscribers.subscribe(id, subscriber, dispatchQueueCapacity,
+            overflowPolicy, dispatchConcurrency);
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    @Override
+    public void removeSubscriber(final String id) {
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("ID must not be null or empty");
+        }
+        final SubscriberQueue removed = subscribers.remove(id);
+        if (removed != null) {
+            removed.shutdown();
+        }
+    }
+
+    @Override
+    public void sendMessage(final String ipAddress, final int port, final String senderId, final String message) {
+        sendMessage(ipAddress, port, senderId, ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void sendMessage(final String ipAddress, final int port, final String senderId,
+        final byte[] data, final int offset, final int length) {
+        sendMessage(ipAddress, port, senderId, ByteBuffer.wrap(data, offset, length));
+    }
+
+    @Override
+    public void sendMessage(final String ipAddress, final int port, final String senderId, final ByteBuffer data) {
+        final FrameHeader header = new FrameHeader();
+        header.setTotal(data.remaining());
+        sendFrame(ipAddress, port, senderId, header, data);
+    }
+
+    @Override
+    public void sendMessage(final Endpoint endpoint, final String senderId, final ByteBuffer data) {
+        final FrameHeader header = new FrameHeader();
+        header.setTotal(data.remaining());
+        sendFrame(endpoint, senderId, header, data);
+    }
+
+    @Override
+    public void sendFrame(final String ipAddress, final int port, final String senderId,
+        final FrameHeader header, final ByteBuffer payload) {
+        final Endpoint endpoint = getEndpoint(ipAddress, port, false);
+        if (endpoint != null) {
+            sendFrame(endpoint, senderId, header, payload);
+        }
+    }
+
+    @Override
+    public void sendFrame(final Endpoint endpoint, final String senderId, final FrameHeader header,
+        final ByteBuffer payload) {
+        send(endpoint, senderId, header, payload, true).whenComplete((ignored, error) -> {
+            if (error instanceof BufferOverflowException) {
+                LOGGER.log(Level.SEVERE, "Message too large for a single datagram from {0}", senderId);
+            } else if (error != null) {
+                LOGGER.log(Level.SEVERE, "Error sending message to {0}: {1}", new Object[]{endpoint, error});
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> sendFrameAsync(final Endpoint endpoint, final String senderId,
+        final FrameHeader header, final ByteBuffer payload) {
+        return send(endpoint, senderId, header, payload, false);
+    }
+
+    /**
+     * Sends a frame reliably, through the send queue, or on the caller's thread, as configured.
+     * @param endpoint The destination.
+     * @param senderId Identifier of the sender.
+     * @param header Header of the frame.
+     * @param payload Buffer holding the frame's payload between its position and limit.
+     * @param waitForRoom Whether to wait while the send queue is full rather than fail the frame.
+     * @return A future completed once the frame has been handed to the socket.
+     */
+    private CompletableFuture<Void> send(final Endpoint endpoint, final String senderId, final FrameHeader header,
+        final ByteBuffer payload, final boolean waitForRoom) {
+        final ByteBuffer encodedHeader = encodeHeader(senderId, header, payload);
+        if (reliability != null && !endpoint.getAddress().getAddress().isMulticastAddress()) {
+            return reliability.send(endpoint, encodedHeader, payload);
+        }
+        if (asyncSender != null && waitForRoom) {
+            return asyncSender.submitWaiting(endpoint, encodedHeader, payload);
+        }
+        if (asyncSender != null) {
+            return asyncSender.submit(endpoint, encodedHeader, payload);
+        }
+        try {
+            pacedTransmit(endpoint, encodedHeader, payload);
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException | BufferOverflowException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public Endpoint getEndpoint(final String ipAddress, final int port, final boolean connected) {
+        final String key = ipAddress + ':' + port + ':' + connected;
+        final Endpoint cached = endpoints.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            final Endpoint endpoint = Endpoint.resolve(ipAddress, port, connected);
+            if (endpoints.size() >= MAX_CACHED_ENDPOINTS) {
+                // Peers rarely change in practice; start over rather than track usage
+                endpoints.clear();
+            }
+            endpoints.put(key, endpoint);
+            return endpoint;
+        } catch (UnknownHostException | IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Cannot resolve endpoint {0}:{1}", new Object[]{ipAddress, port});
+            return null;
+        }
+    }
+
+    /**
+     * Joins an IP multicast group; transports without multicast keep this implementation.
+     * @param groupAddress Multicast address of the group.
+     * @param port Port of the group.
+     * @throws UnsupportedOperationException Always.
+     */
+    @Override
+    public void joinGroup(final String groupAddress, final int port) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support multicast groups");
+    }
+
+    /**
+     * Leaves an IP multicast group; transports without multicast keep this implementation.
+     * @param groupAddress Multicast address of the group.
+     * @param port Port of the group.
+     * @throws UnsupportedOperationException Always.
+     */
+    @Override
+    public void leaveGroup(final String groupAddress, final int port) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support multicast groups");
+    }
+
+    /**
+     * Gets the number of received messages dropped because a subscriber's dispatch queue was full.
+     * @return The number of dropped messages.
+     */
+    public long getDroppedMessageCount() {
+        return subscribers.getDroppedCount();
+    }
+
+    /**
+     * Gets the number of frames sent again because the peer did not acknowledge them in time.
+     * @return The number of retransmissions; always 0 without reliable delivery.
+     */
+    public long getRetransmittedFrameCount() {
+        if (reliability == null) {
+            return 0;
+        }
+        return reliability.getRetransmissionCount();
+    }
+
+    /**
+     * Gets the current pacing rate towards a peer.
+     * @param peer Address of the peer.
+     * @return The rate in bytes per second, or {@link CommunicatorConfig#UNPACED}.
+     */
+    long getPacingRate(final InetSocketAddress peer) {
+        if (pacing == null) {
+            return CommunicatorConfig.UNPACED;
+        }
+        return pacing.getRate(peer);
+    }
+
+    /**
+     * Sends one datagram made of an encoded frame header followed by a payload.
+     * @param destination The destination; transports with connected channels honour {@link Endpoint#isConnected}.
+     * @param header Encoded frame header between the buffer's position and limit.
+     * @param payload Payload bytes between the buffer's position and limit.
+     * @throws IOException If the datagram cannot be sent.
+     */
+    protected abstract void transmit(Endpoint destination, ByteBuffer header, ByteBuffer payload)
+        throws IOException;
+
+    /**
+     * Waits until a frame to a destination is due under the pacing rate, then transmits it.
+     * Without reliable delivery there are no acknowledgements, so the pacing rate learns from the
+     * transmission itself: a frame the transport refuses, such as for a full send buffer, counts as
+     * a loss and one it takes as a delivery.
+     * @param destination The destination.
+     * @param header Encoded frame header between the buffer's position and limit.
+     * @param payload Payload bytes between the buffer's position and limit.
+     * @throws IOException If the datagram cannot be sent.
+     */
+    private void pacedTransmit(final Endpoint destination, final ByteBuffer header, final ByteBuffer payload)
+        throws IOException {
+        if (pacing == null) {
+            transmit(destination, header, payload);
+            return;
+        }
+        pacing.acquire(destination.getAddress(), header.remaining() + payload.remaining());
+        try {
+            transmit(destination, header, payload);
+        } catch (IOException e) {
+            pacing.onLoss(destination.getAddress());
+            throw e;
+        }
+        pacing.onDelivered(destination.getAddress());
+    }
+
+    /**
+     * Writes an encoded frame header and payload into a buffer.
+     * @param target Buffer to write into.
+     * @param header Encoded frame header between the buffer's position and limit.
+     * @param payload Payload bytes between the buffer's position and limit.
+     */
+    protected static void writeFrame(final ByteBuffer target, final ByteBuffer header, final ByteBuffer payload) {
+        target.put(header);
+        target.put(payload);
+    }
+
+    /**
+     * Routes a received frame to the dispatch queue of the subscriber it is meant for.
+     * The payload is copied out of the datagram, so the caller may reuse its buffer as soon as this returns.
+     * Listeners run on the subscriber's own thread, never on the caller's.
+     * @param datagram Buffer holding the datagram between its position and limit.
+     */
+    protected void deliver(final ByteBuffer datagram) {
+        deliver(datagram, false);
+    }
+
+    /**
+     * Routes a received datagram from a known source, handling it first if it is a reliable packet:
+     * acknowledgements are consumed, and a data packet is acknowledged and its frame routed only the
+     * first time it arrives. The payload is copied, as with {@link #deliver(ByteBuffer)}, and the frame's
+     * header tells the source.
+     * @param datagram Buffer holding the datagram between its position and limit.
+     * @param source Address the datagram came from.
+     */
+    protected void deliver(final ByteBuffer datagram, final InetSocketAddress source) {
+        if (reliability == null || !ReliableDelivery.isPacket(datagram)) {
+            route(datagram, false, source);
+            return;
+        }
+        final ByteBuffer frame = reliability.receive(datagram, source);
+        if (frame != null) {
+            route(frame, false, source);
+        }
+    }
+
+    /**
+     * Routes a received frame to the dispatch queue of the subscriber it is meant for.
+     * @param datagram Buffer holding the datagram between its position and limit.
+     * @param owned True if the caller hands the buffer over for good, so the payload can be passed on
+     *              as a view of it instead of a copy.
+     */
+    protected void deliver(final ByteBuffer datagram, final boolean owned) {
+        route(datagram, owned, null);
+    }
+
+    /**
+     * Routes a received frame to the dispatch queue of the subscriber it is meant for.
+     * @param datagram Buffer holding the datagram between its position and limit.
+     * @param owned True if the caller hands the buffer over for good, so the payload can be passed on
+     *              as a view of it instead of a copy.
+     * @param source Address the frame came from, or null if it is not known.
+     */
+    private void route(final ByteBuffer datagram, final boolean owned, final InetSocketAddress source) {
+        final FrameHeader header = new FrameHeader();
+        header.setSource(source);
+        if (!FrameCodec.decode(datagram, header)) {
+            LOGGER.log(Level.WARNING, "Dropped datagram without a valid frame header, len: {0}", datagram.remaining());
+            return;
+        }
+        final SubscriberQueue queue = lookup(header, datagram);
+        if (queue == null) {
+            return;
+        }
+        if (header.getLength() < 0 || header.getLength() > datagram.remaining()) {
+            LOGGER.log(Level.WARNING, "Dropped truncated frame, len: {0}", datagram.remaining());
+            return;
+        }
+        datagram.limit(datagram.position() + header.getLength());
+        if (owned) {
+            queue.enqueue(header, datagram.slice());
+            return;
+        }
+        final ByteBuffer payload = ByteBuffer.allocate(header.getLength());
+        payload.put(datagram).flip();
+        queue.enqueue(header, payload);
+    }
+
+    /**
+     * Completes a frame header for a subscriber and encodes it into this thread's scratch buffer.
+     * @param senderId The subscriber id the frame is meant for.
+     * @param header The header to complete with the version, channel id, name flag and length.
+     * @param payload The frame's payload.
+     * @return The scratch buffer holding the encoded header between its position and limit.
+     */
+    private ByteBuffer encodeHeader(final String senderId, final FrameHeader header, final ByteBuffer payload) {
+        final int channelId = ChannelIds.forName(senderId);
+        final byte[] name = encodedName(senderId, channelId);
+        header.setVersion(FrameCodec.VERSION);
+        header.setChannelId(channelId);
+        header.setLength(payload.remaining());
+        if (name.length > 0) {
+            header.setFlags(header.getFlags() | FrameHeader.FLAG_NAMED);
+        } else {
+            header.setFlags(header.getFlags() & ~FrameHeader.FLAG_NAMED);
+        }
+        final ByteBuffer scratch = HEADER_SCRATCH.get();
+        scratch.clear();
+        FrameCodec.encode(header, scratch);
+        if (name.length > 0) {
+            FrameCodec.encodeName(name, scratch);
+        }
+        return scratch.flip();
+    }
+
+    /**
+     * Gets the UTF-8 name of a subscriber that has no channel id, encoding it on first use.
+     * @param senderId The subscriber id.
+     * @param channelId The subscriber's channel id.
+     * @return The encoded name, or an empty array if the subscriber is addressed by channel id.
+     */
+    private byte[] encodedName(final String senderId, final int channelId) {
+        if (channelId != ChannelIds.UNASSIGNED) {
+            return NO_NAME;
+        }
+        return encodedNames.computeIfAbsent(senderId, id -> {
+            final byte[] name = id.getBytes(StandardCharsets.UTF_8);
+            if (name.length > FrameCodec.MAX_NAME_LENGTH) {
+                throw new IllegalArgumentException("Subscriber ID is too long: " + id);
+            }
+            return name;
+        });
+    }
+
+    /**
+     * Looks up the subscriber a frame is meant for, by channel id or by the name following the header.
+     * @param header The decoded frame header.
+     * @param datagram Buffer positioned just past the fixed header; moved past the name section if there is one.
+     * @return The subscriber's dispatch queue, or null if the subscriber is unknown.
+     */
+    private SubscriberQueue lookup(final FrameHeader header, final ByteBuffer datagram) {
+        if (!header.hasFlag(FrameHeader.FLAG_NAMED)) {
+            final SubscriberQueue queue = subscribers.get(header.getChannelId());
+            if (queue == null) {
+                LOGGER.log(Level.WARNING, "Received message for unknown channel: {0}", header.getChannelId());
+            }
+            return queue;
+        }
+        final String id = FrameCodec.decodeName(datagram);
+        if (id == null) {
+            return null;
+        }
+        final SubscriberQueue queue = subscribers.get(id);
+        if (queue == null) {
+            LOGGER.log(Level.WARNING, "Received message for unknown subscriber: {0}", id);
+        }
+        return queue;
+    }
+}
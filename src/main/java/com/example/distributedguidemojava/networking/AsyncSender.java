@@ -0,0 +1,221 @@
+package com.example.distributedguidemojava.networking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Send queue drained by a dedicated sender thread.
+ * Callers on any thread add frames to a lock-free queue and return at once; the sender thread takes
+ * the frames off in batches and hands them to the transport, completing each frame's future once it
+ * has been sent. The thread parks while the queue is empty, so a burst of frames costs one wake-up.
+ * Frames are sent in the order they were queued. A full queue either fails a new frame at once or
+ * makes its caller wait for room, whichever the caller asks for.
+ */
+final class AsyncSender {
+
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(AsyncSender.class.getName());
+    /** Maximum number of frames taken off the queue in one batch. */
+    private static final int MAX_BATCH_SIZE = 64;
+    /** Empty payload; queued frames hold the header and payload in one buffer. */
+    private static final ByteBuffer NO_PAYLOAD = ByteBuffer.allocate(0);
+    /** Frames waiting to be sent; many producers, one consumer. */
+    private final Queue<PendingSend> queue = new ConcurrentLinkedQueue<>();
+    /** Room left in the queue: one permit per frame that may still be queued. */
+    private final Semaphore room;
+    /** Maximum number of frames allowed to wait in the queue. */
+    private final int capacity;
+    /** Transport the frames are sent through. */
+    private final Transmitter transmitter;
+    /** The thread that sends the queued frames. */
+    private final Thread senderThread;
+    /** Whether the sender thread is parked, or about to park, waiting for frames. */
+    private volatile boolean idle;
+
+    /**
+     * Constructs a send queue and starts its sender thread.
+     * @param name Name of the sender thread.
+     * @param maxPending Maximum number of frames allowed to wait in the queue.
+     * @param transport Transport the frames are sent through.
+     */
+    AsyncSender(final String name, final int maxPending, final Transmitter transport) {
+        if (maxPending <= 0 || transport == null) {
+            throw new IllegalArgumentException("Capacity must be positive and transport must not be null");
+        }
+        this.capacity = maxPending;
+        this.room = new Semaphore(maxPending);
+        this.transmitter = transport;
+        this.senderThread = new Thread(this::senderThreadProc, name);
+        this.senderThread.setDaemon(true); // Stop the thread when the application exits
+        this.senderThread.start();
+    }
+
+    /**
+     * Queues a frame for sending. The header and payload are copied, so the caller may reuse both at once.
+     * @param destination The destination of the frame.
+     * @param header Encoded frame header between the buffer's position and limit.
+     * @param payload Payload bytes between the buffer's position and limit; the position is advanced past them.
+     * @return A future completed once the frame has been sent, or completed exceptionally if it could
+     *         not be sent or the queue was full.
+     */
+    CompletableFuture<Void> submit(final Endpoint destination, final ByteBuffer header, final ByteBuffer payload) {
+        if (!room.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Send queue is full"));
+        }
+        return enqueue(destination, header, payload);
+    }
+
+    /**
+     * Queues a frame for sending, waiting for room while the queue is full. The header and payload are
+     * copied, so the caller may reuse both at once. Called on the sender thread itself, which is the
+     * one that makes room, it does not wait and fails the frame instead.
+     * @param destination The destination of the frame.
+     * @param header Encoded frame header between the buffer's position and limit.
+     * @param payload Payload bytes between the buffer's position and limit; the position is advanced past them.
+     * @return A future completed once the frame has been sent, or completed exceptionally if it could
+     *         not be sent or the caller was interrupted while waiting.
+     */
+    CompletableFuture<Void> submitWaiting(final Endpoint destination, final ByteBuffer header,
+        final ByteBuffer payload) {
+        if (Thread.currentThread() == senderThread) {
+            return submit(destination, header, payload);
+        }
+        try {
+            room.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        return enqueue(destination, header, payload);
+    }
+
+    /**
+     * Gets the number of frames waiting to be sent.
+     * @return The number of queued frames.
+     */
+    int getPendingCount() {
+        return capacity - room.availablePermits();
+    }
+
+    /**
+     * Copies a frame into the queue, for which room has been taken, and wakes the sender thread.
+     * @param destination The destination of the frame.
+     * @param header Encoded frame header between the buffer's position and limit.
+     * @param payload Payload bytes between the buffer's position and limit; the position is advanced past them.
+     * @return A future completed once the frame has been sent.
+     */
+    private CompletableFuture<Void> enqueue(final Endpoint destination, final ByteBuffer header,
+        final ByteBuffer payload) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        final ByteBuffer frame = ByteBuffer.allocate(header.remaining() + payload.remaining());
+        frame.put(header).put(payload).flip();
+        queue.offer(new PendingSend(destination, frame, future));
+        if (idle) {
+            LockSupport.unpark(senderThread);
+        }
+        return future;
+    }
+
+    /**
+     * Sends queued frames in batches, parking while the queue is empty.
+     */
+    private void senderThreadProc() {
+        final PendingSend[] batch = new PendingSend[MAX_BATCH_SIZE];
+        while (true) {
+            int size = 0;
+            PendingSend next = queue.poll();
+            while (next != null) {
+                batch[size++] = next;
+                if (size == MAX_BATCH_SIZE) {
+                    break;
+                }
+                next = queue.poll();
+            }
+            if (size == 0) {
+                park();
+                continue;
+            }
+            room.release(size);
+            for (int i = 0; i < size; i++) {
+                send(batch[i]);
+                batch[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Parks the sender thread until a frame is queued.
+     * The idle flag is raised before the queue is checked again, so a producer either sees the flag
+     * and unparks the thread, or queued its frame early enough for the check to find it.
+     */
+    private void park() {
+        idle = true;
+        if (queue.isEmpty()) {
+            LockSupport.park(this);
+        }
+        idle = false;
+    }
+
+    /**
+     * Sends one frame and completes its future.
+     * @param pending The frame to send.
+     */
+    private void send(final PendingSend pending) {
+        try {
+            transmitter.transmit(pending.destination, pending.frame, NO_PAYLOAD);
+            pending.future.complete(null);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.FINE, "Queued send to {0} failed: {1}", new Object[]{pending.destination, e});
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * The transport operation the sender thread hands frames to.
+     */
+    @FunctionalInterface
+    interface Transmitter {
+
+        /**
+         * Sends one datagram made of an encoded frame header followed by a payload.
+         * @param destination The destination.
+         * @param header Encoded frame header between the buffer's position and limit.
+         * @param payload Payload bytes between the buffer's position and limit.
+         * @throws IOException If the datagram cannot be sent.
+         */
+        void transmit(Endpoint destination, ByteBuffer header, ByteBuffer payload) throws IOException;
+    }
+
+    /**
+     * A frame waiting to be sent.
+     */
+    private static final class PendingSend {
+
+        /** The destination of the frame. */
+        private final Endpoint destination;
+        /** Copy of the encoded header and payload. */
+        private final ByteBuffer frame;
+        /** Future completed once the frame has been sent. */
+        private final CompletableFuture<Void> future;
+
+        /**
+         * Constructs a pending send.
+         * @param target The destination of the frame.
+         * @param encodedFrame Copy of the encoded header and payload.
+         * @param completion Future completed once the frame has been sent.
+         */
+        PendingSend(final Endpoint target, final ByteBuffer encodedFrame, final CompletableFuture<Void> completion) {
+            this.destination = target;
+            this.frame = encodedFrame;
+            this.future = completion;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.distributedguidemojava.networking;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock-free pool of direct byte buffers of a fixed capacity.
+ * Direct buffers are expensive to allocate, so the receive and send paths borrow them
+ * from this pool and return them once the datagram has been handled.
+ */
+public class ByteBufferPool {
+
+    /** Capacity of every buffer handed out by this pool. */
+    private final int bufferCapacity;
+    /** Maximum number of idle buffers retained by this pool. */
+    private final int maxPooled;
+    /** Idle buffers ready to be reused. */
+    private final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+    /** Number of buffers currently in the free list. */
+    private final AtomicInteger pooledCount = new AtomicInteger();
+
+    /**
+     * Constructs a pool of direct buffers.
+     * @param capacity Capacity in bytes of each buffer.
+     * @param maxIdle Maximum number of idle buffers to keep for reuse.
+     */
+    public ByteBufferPool(final int capacity, final int maxIdle) {
+        if (capacity <= 0 || maxIdle < 0) {
+            throw new IllegalArgumentException("Capacity must be positive and maxIdle must not be negative");
+        }
+        this.bufferCapacity = capacity;
+        this.maxPooled = maxIdle;
+    }
+
+    /**
+     * Borrows a cleared buffer from the pool, allocating a new one if the pool is empty.
+     * @return A direct buffer with position 0 and limit equal to its capacity.
+     */
+    public ByteBuffer acquire() {
+        final ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferCapacity);
+        }
+        pooledCount.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers beyond the idle limit are left to the garbage collector.
+     * @param buffer The buffer to return; must have been obtained from this pool.
+     */
+    public void release(final ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferCapacity) {
+            return;
+        }
+        if (pooledCount.incrementAndGet() <= maxPooled) {
+            buffer.clear();
+            freeBuffers.offer(buffer);
+        } else {
+            pooledCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the capacity of the buffers handed out by this pool.
+     * @return The buffer capacity in bytes.
+     */
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    /**
+     * Gets the number of idle buffers currently held by the pool.
+     * @return The number of idle buffers.
+     */
+    public int getIdleCount() {
+        return pooledCount.get();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.distributedguidemojava.networking;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Well-known mapping between subscriber ids and the small integer channel ids carried on the wire.
+ * A message for a subscriber with a channel id is routed by indexing an array instead of decoding
+ * and hashing the subscriber id. Both peers must agree on the mapping, so custom channels have to be
+ * registered the same way in every process, before any subscriber for them is added.
+ */
+public final class ChannelIds {
+
+    /** Value returned for subscriber ids that have no channel id. */
+    public static final int UNASSIGNED = 0;
+    /** Channel id of the chat subscriber. */
+    public static final int CHAT = 1;
+    /** Channel id of the image subscriber. */
+    public static final int IMAGE = 2;
+    /** Largest channel id; channel ids are carried on the wire as one unsigned byte. */
+    public static final int MAX_CHANNEL_ID = 255;
+    /** Map of subscriber ids to their channel ids. */
+    private static final Map<String, Integer> CHANNELS = new ConcurrentHashMap<>();
+
+    static {
+        CHANNELS.put("chat", CHAT);
+        CHANNELS.put("image", IMAGE);
+    }
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private ChannelIds() {
+    }
+
+    /**
+     * Gets the channel id of a subscriber id.
+     * @param subscriberId The subscriber id.
+     * @return The channel id, or {@link #UNASSIGNED} if the subscriber id has none.
+     */
+    public static int forName(final String subscriberId) {
+        return CHANNELS.getOrDefault(subscriberId, UNASSIGNED);
+    }
+
+    /**
+     * Registers a channel id for a custom subscriber id.
+     * @param subscriberId The subscriber id.
+     * @param channelId The channel id, between 1 and {@link #MAX_CHANNEL_ID}.
+     * @throws IllegalArgumentException If the channel id is out of range or already used by another subscriber id.
+     */
+    public static void register(final String subscriberId, final int channelId) {
+        if (subscriberId == null || subscriberId.isEmpty()) {
+            throw new IllegalArgumentException("Subscriber ID must not be null or empty");
+        }
+        if (channelId <= UNASSIGNED || channelId > MAX_CHANNEL_ID) {
+            throw new IllegalArgumentException("Channel ID must be between 1 and " + MAX_CHANNEL_ID);
+        }
+        synchronized (CHANNELS) {
+            for (final Map.Entry<String, Integer> entry : CHANNELS.entrySet()) {
+                if (entry.getValue() == channelId && !entry.getKey().equals(subscriberId)) {
+                    throw new IllegalArgumentException("Channel ID " + channelId + " is used by " + entry.getKey());
+                }
+            }
+            CHANNELS.put(subscriberId, channelId);
+        }
+    }
+}
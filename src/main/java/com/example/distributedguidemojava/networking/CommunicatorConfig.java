@@ -0,0 +1,491 @@
+package com.example.distributedguidemojava.networking;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Settings used to create a communicator.
+ * Instances are immutable and created through a {@link Builder}, which starts from the defaults and
+ * validates the settings when {@link Builder#build()} is called:
+ * <pre>
+ * CommunicatorConfig config = CommunicatorConfig.builder()
+ *     .transportType(TransportType.NIO_UDP)
+ *     .port(5000)
+ *     .receiveThreads(4)
+ *     .build();
+ * </pre>
+ */
+public final class CommunicatorConfig {
+
+    /** Port value that asks the OS to pick a free port. */
+    public static final int EPHEMERAL_PORT = 0;
+    /** Socket buffer size value that keeps the OS default. */
+    public static final int OS_DEFAULT = 0;
+    /** Default size of the buffer each datagram is received into; large enough for any UDP datagram. */
+    public static final int DEFAULT_RECEIVE_BUFFER_SIZE = 65536;
+    /** Default number of messages that may wait in a subscriber's dispatch queue. */
+    public static final int DEFAULT_DISPATCH_QUEUE_CAPACITY = 1024;
+    /** Default number of frames that may wait for the sender thread in asynchronous send mode. */
+    public static final int DEFAULT_SEND_QUEUE_CAPACITY = 8192;
+    /** Default number of frames per peer sent but not yet acknowledged with reliable delivery. */
+    public static final int DEFAULT_RELIABLE_WINDOW = 256;
+    /** Pacing rate value that sends as fast as the caller does. */
+    public static final long UNPACED = 0;
+    /** Largest port number. */
+    private static final int MAX_PORT = 65535;
+    /** Memory-backed file system used for shared-memory rings where it exists. */
+    private static final Path DEV_SHM = Path.of("/dev/shm");
+    /** The transport the communicator uses. */
+    private final TransportType transportType;
+    /** The port to listen on, or {@link #EPHEMERAL_PORT}. */
+    private final int port;
+    /** The SO_RCVBUF size of the sockets, or {@link #OS_DEFAULT}. */
+    private final int socketReceiveBufferSize;
+    /** The SO_SNDBUF size of the sockets, or {@link #OS_DEFAULT}. */
+    private final int socketSendBufferSize;
+    /** Size of the buffer each datagram is received into. */
+    private final int receiveBufferSize;
+    /** Number of receive sockets and threads sharing the port. */
+    private final int receiveThreads;
+    /** Maximum number of messages waiting in each subscriber's dispatch queue. */
+    private final int dispatchQueueCapacity;
+    /** What a full dispatch queue does with a newly received message. */
+    private final OverflowPolicy overflowPolicy;
+    /** Whether messages are sent on the caller's thread or on a dedicated sender thread. */
+    private final SendMode sendMode;
+    /** Maximum number of frames waiting for the sender thread in asynchronous send mode. */
+    private final int sendQueueCapacity;
+    /** Directory holding the descriptor and ring files of the shared-memory transport. */
+    private final Path sharedMemoryDirectory;
+    /** Name of the network interface multicast groups are joined and sent on, or null for the default. */
+    private final String multicastInterface;
+    /** Whether frames to unicast peers are acknowledged and retransmitted by datagram transports. */
+    private final boolean reliable;
+    /** Maximum number of frames per peer sent but not yet acknowledged with reliable delivery. */
+    private final int reliableWindow;
+    /** Highest rate frames are sent to each peer at, in bytes per second, or {@link #UNPACED}. */
+    private final long pacingRate;
+
+    /**
+     * Constructs a configuration from a validated builder.
+     * @param builder The builder holding the settings.
+     */
+    private CommunicatorConfig(final Builder builder) {
+        this.transportType = builder.transportType;
+        this.port = builder.port;
+        this.socketReceiveBufferSize = builder.socketReceiveBufferSize;
+        this.socketSendBufferSize = builder.socketSendBufferSize;
+        this.receiveBufferSize = builder.receiveBufferSize;
+        this.receiveThreads = builder.receiveThreads;
+        this.dispatchQueueCapacity = builder.dispatchQueueCapacity;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.sendMode = builder.sendMode;
+        this.sendQueueCapacity = builder.sendQueueCapacity;
+        this.sharedMemoryDirectory = builder.sharedMemoryDirectory;
+        this.multicastInterface = builder.multicastInterface;
+        this.reliable = builder.reliable;
+        this.reliableWindow = builder.reliableWindow;
+        this.pacingRate = builder.pacingRate;
+    }
+
+    /**
+     * Creates a builder holding the default settings.
+     * @return A new builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the default configuration.
+     * @return A configuration holding the default settings.
+     */
+    public static CommunicatorConfig defaults() {
+        return builder().build();
+    }
+
+    /**
+     * Gets the transport the communicator uses.
+     * @return The transport type.
+     */
+    public TransportType getTransportType() {
+        return transportType;
+    }
+
+    /**
+     * Gets the port to listen on.
+     * @return The port, or {@link #EPHEMERAL_PORT} to let the OS pick one.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Gets the SO_RCVBUF size of the sockets.
+     * @return The size in bytes, or {@link #OS_DEFAULT}.
+     */
+    public int getSocketReceiveBufferSize() {
+        return socketReceiveBufferSize;
+    }
+
+    /**
+     * Gets the SO_SNDBUF size of the sockets.
+     * @return The size in bytes, or {@link #OS_DEFAULT}.
+     */
+    public int getSocketSendBufferSize() {
+        return socketSendBufferSize;
+    }
+
+    /**
+     * Gets the size of the buffer each datagram is received into; longer datagrams are dropped.
+     * @return The size in bytes.
+     */
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * Gets the number of receive sockets and threads sharing the port.
+     * @return The number of receive threads.
+     */
+    public int getReceiveThreads() {
+        return receiveThreads;
+    }
+
+    /**
+     * Gets the maximum number of messages waiting in each subscriber's dispatch queue.
+     * @return The dispatch queue capacity.
+     */
+    public int getDispatchQueueCapacity() {
+        return dispatchQueueCapacity;
+    }
+
+    /**
+     * Gets what a full dispatch queue does with a newly received message.
+     * @return The overflow policy.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Gets whether messages are sent on the caller's thread or on a dedicated sender thread.
+     * @return The send mode.
+     */
+    public SendMode getSendMode() {
+        return sendMode;
+    }
+
+    /**
+     * Gets the maximum number of frames waiting for the sender thread in asynchronous send mode.
+     * @return The send queue capacity.
+     */
+    public int getSendQueueCapacity() {
+        return sendQueueCapacity;
+    }
+
+    /**
+     * Gets the directory holding the descriptor and ring files of the shared-memory transport.
+     * @return The directory; /dev/shm where it exists, the temporary directory otherwise.
+     */
+    public Path getSharedMemoryDirectory() {
+        return sharedMemoryDirectory;
+    }
+
+    /**
+     * Gets the name of the network interface multicast groups are joined and sent on.
+     * @return The interface name, such as "eth0" or "lo", or null to use the first multicast-capable interface.
+     */
+    public String getMulticastInterface() {
+        return multicastInterface;
+    }
+
+    /**
+     * Gets whether frames to unicast peers are acknowledged and retransmitted by datagram transports.
+     * @return True if reliable delivery is on.
+     */
+    public boolean isReliable() {
+        return reliable;
+    }
+
+    /**
+     * Gets the maximum number of frames per peer sent but not yet acknowledged with reliable delivery.
+     * @return The window size in frames.
+     */
+    public int getReliableWindow() {
+        return reliableWindow;
+    }
+
+    /**
+     * Gets the highest rate frames are sent to each peer at.
+     * @return The rate in bytes per second, or {@link #UNPACED}.
+     */
+    public long getPacingRate() {
+        return pacingRate;
+    }
+
+    /**
+     * Gets the default directory of the shared-memory transport.
+     * @return /dev/shm if it is a writable directory, the temporary directory otherwise.
+     */
+    private static Path defaultSharedMemoryDirectory() {
+        if (Files.isDirectory(DEV_SHM) && Files.isWritable(DEV_SHM)) {
+            return DEV_SHM;
+        }
+        return Path.of(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Builder of {@link CommunicatorConfig} instances.
+     */
+    public static final class Builder {
+
+        /** The transport the communicator uses. */
+        private TransportType transportType = TransportType.UDP;
+        /** The port to listen on. */
+        private int port = EPHEMERAL_PORT;
+        /** The SO_RCVBUF size of the sockets. */
+        private int socketReceiveBufferSize = OS_DEFAULT;
+        /** The SO_SNDBUF size of the sockets. */
+        private int socketSendBufferSize = OS_DEFAULT;
+        /** Size of the buffer each datagram is received into. */
+        private int receiveBufferSize = DEFAULT_RECEIVE_BUFFER_SIZE;
+        /** Number of receive sockets and threads sharing the port. */
+        private int receiveThreads = 1;
+        /** Maximum number of messages waiting in each subscriber's dispatch queue. */
+        private int dispatchQueueCapacity = DEFAULT_DISPATCH_QUEUE_CAPACITY;
+        /** What a full dispatch queue does with a newly received message. */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+        /** Whether messages are sent on the caller's thread or on a dedicated sender thread. */
+        private SendMode sendMode = SendMode.SYNC;
+        /** Maximum number of frames waiting for the sender thread in asynchronous send mode. */
+        private int sendQueueCapacity = DEFAULT_SEND_QUEUE_CAPACITY;
+        /** Directory holding the descriptor and ring files of the shared-memory transport. */
+        private Path sharedMemoryDirectory = defaultSharedMemoryDirectory();
+        /** Name of the network interface multicast groups are joined and sent on. */
+        private String multicastInterface;
+        /** Whether frames to unicast peers are acknowledged and retransmitted by datagram transports. */
+        private boolean reliable;
+        /** Maximum number of frames per peer sent but not yet acknowledged with reliable delivery. */
+        private int reliableWindow = DEFAULT_RELIABLE_WINDOW;
+        /** Highest rate frames are sent to each peer at. */
+        private long pacingRate = UNPACED;
+
+        /**
+         * Constructs a builder holding the default settings.
+         */
+        private Builder() {
+        }
+
+        /**
+         * Sets the transport the communicator uses.
+         * @param value The transport type.
+         * @return This builder.
+         */
+        public Builder transportType(final TransportType value) {
+            this.transportType = value;
+            return this;
+        }
+
+        /**
+         * Sets the port to listen on; the port is bound when the communicator is created.
+         * @param value The port, or {@link #EPHEMERAL_PORT} to let the OS pick one.
+         * @return This builder.
+         */
+        public Builder port(final int value) {
+            this.port = value;
+            return this;
+        }
+
+        /**
+         * Sets the SO_RCVBUF size of the sockets.
+         * @param value The size in bytes, or {@link #OS_DEFAULT}.
+         * @return This builder.
+         */
+        public Builder socketReceiveBufferSize(final int value) {
+            this.socketReceiveBufferSize = value;
+            return this;
+        }
+
+        /**
+         * Sets the SO_SNDBUF size of the sockets.
+         * @param value The size in bytes, or {@link #OS_DEFAULT}.
+         * @return This builder.
+         */
+        public Builder socketSendBufferSize(final int value) {
+            this.socketSendBufferSize = value;
+            return this;
+        }
+
+        /**
+         * Sets the size of the buffer each datagram is received into.
+         * @param value The size in bytes; at least a frame header and at most {@link #DEFAULT_RECEIVE_BUFFER_SIZE}.
+         * @return This builder.
+         */
+        public Builder receiveBufferSize(final int value) {
+            this.receiveBufferSize = value;
+            return this;
+        }
+
+        /**
+         * Sets the number of receive sockets and threads sharing the port.
+         * @param value The number of receive threads.
+         * @return This builder.
+         */
+        public Builder receiveThreads(final int value) {
+            this.receiveThreads = value;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of messages waiting in each subscriber's dispatch queue.
+         * @param value The dispatch queue capacity.
+         * @return This builder.
+         */
+        public Builder dispatchQueueCapacity(final int value) {
+            this.dispatchQueueCapacity = value;
+            return this;
+        }
+
+        /**
+         * Sets what a full dispatch queue does with a newly received message.
+         * @param value The overflow policy.
+         * @return This builder.
+         */
+        public Builder overflowPolicy(final OverflowPolicy value) {
+            this.overflowPolicy = value;
+            return this;
+        }
+
+        /**
+         * Sets whether messages are sent on the caller's thread or on a dedicated sender thread.
+         * @param value The send mode.
+         * @return This builder.
+         */
+        public Builder sendMode(final SendMode value) {
+            this.sendMode = value;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of frames waiting for the sender thread in asynchronous send mode.
+         * @param value The send queue capacity.
+         * @return This builder.
+         */
+        public Builder sendQueueCapacity(final int value) {
+            this.sendQueueCapacity = value;
+            return this;
+        }
+
+        /**
+         * Sets the directory holding the descriptor and ring files of the shared-memory transport.
+         * All peers on the host that should reach each other must use the same directory.
+         * @param value The directory; it must exist.
+         * @return This builder.
+         */
+        public Builder sharedMemoryDirectory(final Path value) {
+            this.sharedMemoryDirectory = value;
+            return this;
+        }
+
+        /**
+         * Sets the network interface multicast groups are joined and sent on; "lo" keeps group traffic on
+         * the host, which is useful for tests.
+         * @param value The interface name, or null to use the first multicast-capable interface.
+         * @return This builder.
+         */
+        public Builder multicastInterface(final String value) {
+            this.multicastInterface = value;
+            return this;
+        }
+
+        /**
+         * Sets whether frames to unicast peers are acknowledged and retransmitted by the UDP transports.
+         * With reliable delivery the future of every send completes when the peer acknowledges the frame,
+         * and fails when the frame is given up. The other transports are reliable already and ignore it.
+         * It needs {@link SendMode#SYNC}: frames are sent on the caller's thread, which waits only while
+         * the peer's window is full.
+         * @param value True to turn reliable delivery on.
+         * @return This builder.
+         */
+        public Builder reliable(final boolean value) {
+            this.reliable = value;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of frames per peer sent but not yet acknowledged with reliable delivery.
+         * @param value The window size in frames.
+         * @return This builder.
+         */
+        public Builder reliableWindow(final int value) {
+            this.reliableWindow = value;
+            return this;
+        }
+
+        /**
+         * Sets the highest rate frames are sent to each peer at, so bursts such as the chunks of a large
+         * image do not overflow the peer's socket buffer. With reliable delivery the rate towards a peer
+         * is cut when frames are lost and grows back while they are acknowledged. Without it, only frames
+         * the local transport refuses cut the rate; losses at the receiver go unnoticed.
+         * @param value The rate in bytes per second, or {@link #UNPACED}.
+         * @return This builder.
+         */
+        public Builder pacingRate(final long value) {
+            this.pacingRate = value;
+            return this;
+        }
+
+        /**
+         * Validates the settings and creates the configuration.
+         * @return The configuration.
+         * @throws IllegalArgumentException If a setting is out of range or missing.
+         */
+        public CommunicatorConfig build() {
+            if (transportType == null || overflowPolicy == null || sendMode == null || sharedMemoryDirectory == null) {
+                throw new IllegalArgumentException(
+                    "Transport type, overflow policy, send mode and shared-memory directory must not be null");
+            }
+            validateSocketSettings();
+            validateReliability();
+            if (receiveThreads <= 0 || dispatchQueueCapacity <= 0 || sendQueueCapacity <= 0) {
+                throw new IllegalArgumentException("Thread count and queue capacities must be positive");
+            }
+            return new CommunicatorConfig(this);
+        }
+
+        /**
+         * Validates the port and buffer size settings.
+         * @throws IllegalArgumentException If a setting is out of range.
+         */
+        private void validateSocketSettings() {
+            if (port < 0 || port > MAX_PORT) {
+                throw new IllegalArgumentException("Port must be between 0 and " + MAX_PORT + ": " + port);
+            }
+            if (socketReceiveBufferSize < 0 || socketSendBufferSize < 0) {
+                throw new IllegalArgumentException("Socket buffer sizes must not be negative");
+            }
+            if (receiveBufferSize < FrameCodec.HEADER_SIZE || receiveBufferSize > DEFAULT_RECEIVE_BUFFER_SIZE) {
+                throw new IllegalArgumentException("Receive buffer size must be between " + FrameCodec.HEADER_SIZE
+                    + " and " + DEFAULT_RECEIVE_BUFFER_SIZE + ": " + receiveBufferSize);
+            }
+        }
+
+        /**
+         * Validates the reliable delivery and pacing settings.
+         * @throws IllegalArgumentException If the window is not positive, the pacing rate is negative, or
+         *         reliable delivery is combined with the asynchronous send mode.
+         */
+        private void validateReliability() {
+            if (reliableWindow <= 0) {
+                throw new IllegalArgumentException("Reliable window must be positive: " + reliableWindow);
+            }
+            if (pacingRate < 0) {
+                throw new IllegalArgumentException("Pacing rate must not be negative: " + pacingRate);
+            }
+            if (reliable && sendMode == SendMode.ASYNC) {
+                throw new IllegalArgumentException("Reliable delivery needs the synchronous send mode");
+            }
+        }
+    }
+}
@@ -6,10 +6,56 @@ package com.example.distributedguidemojava.networking;
 public class CommunicatorFactory {
 
     /**
-     * Creates a new communicator instance.
+     * Creates a new communicator instance that uses UDP and sends messages on the caller's thread.
      * @return A new ICommunicator instance.
      */
     public static ICommunicator createCommunicator() {
-        return new UdpCommunicator();
+        return createCommunicator(TransportType.UDP);
+    }
+
+    /**
+     * Creates a new communicator instance that uses the given transport and sends messages on the caller's thread.
+     * @param transportType The transport the communicator should use.
+     * @return A new ICommunicator instance.
+     */
+    public static ICommunicator createCommunicator(final TransportType transportType) {
+        return createCommunicator(transportType, SendMode.SYNC);
+    }
+
+    /**
+     * Creates a new communicator instance that uses the given transport and send mode.
+     * @param transportType The transport the communicator should use.
+     * @param sendMode Whether messages are sent on the caller's thread or on a dedicated sender thread.
+     * @return A new ICommunicator instance.
+     */
+    public static ICommunicator createCommunicator(final TransportType transportType, final SendMode sendMode) {
+        return createCommunicator(CommunicatorConfig.builder()
+            .transportType(transportType)
+            .sendMode(sendMode)
+            .build());
+    }
+
+    /**
+     * Creates a new communicator instance from a configuration.
+     * @param config Settings of the communicator, including the transport it should use.
+     * @return A new ICommunicator instance.
+     */
+    public static ICommunicator createCommunicator(final CommunicatorConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("Config must not be null");
+        }
+        switch (config.getTransportType()) {
+            case NIO_UDP:
+                return new NioUdpCommunicator(config);
+            case TCP:
+                return new TcpCommunicator(config);
+            case LOOPBACK:
+                return new LoopbackCommunicator(config);
+            case SHARED_MEMORY:
+                return new SharedMemoryCommunicator(config);
+            case UDP:
+            default:
+                return new UdpCommunicator(config);
+        }
     }
 }
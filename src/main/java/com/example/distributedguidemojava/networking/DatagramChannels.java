@@ -0,0 +1,168 @@
+package com.example.distributedguidemojava.networking;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.MembershipKey;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Opens and binds the datagram channels a communicator receives on.
+ * The listen port is bound atomically: either the configured port, or port 0 so the OS picks a free one.
+ * When more than one receive thread is configured, the channels share the port through SO_REUSEPORT and
+ * the kernel spreads incoming datagrams across them by source address.
+ *
+ * <p>Also opens the channels that receive the traffic of a multicast group, and picks the network
+ * interface multicast is joined and sent on.
+ */
+final class DatagramChannels {
+
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(DatagramChannels.class.getName());
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private DatagramChannels() {
+    }
+
+    /**
+     * Opens the receive channels described by a configuration.
+     * @param config The communicator settings.
+     * @return The bound channels, all on the same port; a single channel if SO_REUSEPORT is not supported.
+     * @throws IOException If a channel cannot be opened or bound.
+     */
+    static DatagramChannel[] openBound(final CommunicatorConfig config) throws IOException {
+        final DatagramChannel[] channels = new DatagramChannel[config.getReceiveThreads()];
+        try {
+            channels[0] = open(config);
+            final boolean shared = channels.length > 1
+                && channels[0].supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+            if (channels.length > 1 && !shared) {
+                LOGGER.log(Level.WARNING, "SO_REUSEPORT is not supported; receiving on a single socket");
+            }
+            if (shared) {
+                channels[0].setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            channels[0].bind(new InetSocketAddress(config.getPort()));
+            if (!shared) {
+                return new DatagramChannel[]{channels[0]};
+            }
+            final int port = ((InetSocketAddress) channels[0].getLocalAddress()).getPort();
+            for (int i = 1; i < channels.length; i++) {
+                channels[i] = open(config);
+                channels[i].setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                channels[i].bind(new InetSocketAddress(port));
+            }
+            return channels;
+        } catch (IOException e) {
+            closeAll(channels);
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a channel bound to a multicast group's port and joined to the group.
+     * The port is bound with SO_REUSEADDR, so several members on one host all receive the group's datagrams.
+     * @param group Address and port of the group.
+     * @param config The communicator settings.
+     * @return The membership; its channel is the joined channel.
+     * @throws IOException If the channel cannot be opened, bound or joined.
+     */
+    static MembershipKey openGroupMember(final InetSocketAddress group, final CommunicatorConfig config)
+        throws IOException {
+        final DatagramChannel channel = open(config);
+        try {
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(new InetSocketAddress(group.getPort()));
+            return channel.join(group.getAddress(), joinInterface(config));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the network interface configured for multicast.
+     * @param config The communicator settings.
+     * @return The interface, or null if none is configured and the OS default applies.
+     * @throws SocketException If the configured interface does not exist.
+     */
+    static NetworkInterface multicastInterface(final CommunicatorConfig config) throws SocketException {
+        if (config.getMulticastInterface() == null) {
+            return null;
+        }
+        final NetworkInterface networkInterface = NetworkInterface.getByName(config.getMulticastInterface());
+        if (networkInterface == null) {
+            throw new SocketException("No network interface named " + config.getMulticastInterface());
+        }
+        return networkInterface;
+    }
+
+    /**
+     * Gets the network interface to join multicast groups on: the configured one, or else the first
+     * interface that is up and capable of multicast.
+     * @param config The communicator settings.
+     * @return The interface.
+     * @throws SocketException If no suitable interface exists.
+     */
+    private static NetworkInterface joinInterface(final CommunicatorConfig config) throws SocketException {
+        final NetworkInterface configured = multicastInterface(config);
+        if (configured != null) {
+            return configured;
+        }
+        for (final NetworkInterface candidate : NetworkInterface.networkInterfaces().toList()) {
+            if (candidate.isUp() && candidate.supportsMulticast() && !candidate.isLoopback()) {
+                return candidate;
+            }
+        }
+        throw new SocketException("No multicast-capable network interface; configure one explicitly");
+    }
+
+    /**
+     * Opens one unbound channel with the configured socket buffer sizes and multicast interface.
+     * @param config The communicator settings.
+     * @return The channel.
+     * @throws IOException If the channel cannot be opened or configured.
+     */
+    private static DatagramChannel open(final CommunicatorConfig config) throws IOException {
+        final DatagramChannel channel = DatagramChannel.open();
+        try {
+            if (config.getSocketReceiveBufferSize() != CommunicatorConfig.OS_DEFAULT) {
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, config.getSocketReceiveBufferSize());
+            }
+            if (config.getSocketSendBufferSize() != CommunicatorConfig.OS_DEFAULT) {
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, config.getSocketSendBufferSize());
+            }
+            final NetworkInterface networkInterface = multicastInterface(config);
+            if (networkInterface != null) {
+                channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+            }
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes every channel that was opened, ignoring errors.
+     * @param channels The channels; entries may be null.
+     */
+    private static void closeAll(final DatagramChannel[] channels) {
+        for (final DatagramChannel channel : channels) {
+            if (channel == null) {
+                continue;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Error closing channel: {0}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.distributedguidemojava.networking;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Objects;
+
+/**
+ * A resolved destination that messages can be sent to repeatedly.
+ * The host is resolved once when the endpoint is created, so sending through an endpoint skips the
+ * name lookup that sending to an IP address string performs. An endpoint may also ask the transport
+ * for a channel connected to the destination; transports that have no such channel ignore the request.
+ */
+public final class Endpoint {
+
+    /** The resolved address and port of the destination. */
+    private final InetSocketAddress address;
+    /** Whether sends to this endpoint should use a channel connected to the destination. */
+    private final boolean connected;
+
+    /**
+     * Constructs an endpoint for an already resolved address.
+     * @param destination The resolved address and port of the destination.
+     * @param useConnectedChannel Whether sends should use a channel connected to the destination.
+     */
+    public Endpoint(final InetSocketAddress destination, final boolean useConnectedChannel) {
+        if (destination == null || destination.isUnresolved()) {
+            throw new IllegalArgumentException("Destination must be a resolved address");
+        }
+        this.address = destination;
+        this.connected = useConnectedChannel;
+    }
+
+    /**
+     * Resolves a host and port into an endpoint.
+     * @param ipAddress IP address or host name of the destination.
+     * @param port Port of the destination.
+     * @param useConnectedChannel Whether sends should use a channel connected to the destination.
+     * @return The resolved endpoint.
+     * @throws UnknownHostException If the host cannot be resolved.
+     */
+    public static Endpoint resolve(final String ipAddress, final int port, final boolean useConnectedChannel)
+        throws UnknownHostException {
+        return new Endpoint(new InetSocketAddress(InetAddress.getByName(ipAddress), port), useConnectedChannel);
+    }
+
+    /**
+     * Gets the resolved address and port of the destination.
+     * @return The socket address.
+     */
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Checks whether sends to this endpoint should use a channel connected to the destination.
+     * @return True if a connected channel is requested.
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Endpoint)) {
+            return false;
+        }
+        final Endpoint endpoint = (Endpoint) other;
+        return connected == endpoint.connected && address.equals(endpoint.address);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(address, connected);
+    }
+
+    @Override
+    public String toString() {
+        return address.toString();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.distributedguidemojava.networking;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoder and decoder of the binary frame header.
+ * All fields are big-endian and sit at fixed offsets, so decoding is a handful of absolute reads:
+ * <pre>
+ *  0  magic        u16
+ *  2  version      u8
+ *  3  channel id   u8
+ *  4  flags        u16
+ *  6  transfer id  i64
+ * 14  sequence     u32
+ * 18  total        u32
+ * 22  length       u32
+ * 26  [u8 name length, name bytes]  only when {@link FrameHeader#FLAG_NAMED} is set
+ *     payload      length bytes
+ * </pre>
+ */
+public final class FrameCodec {
+
+    /** Magic number at the start of every frame ("DG"). */
+    public static final int MAGIC = 0x4447;
+    /** Current protocol version. */
+    public static final int VERSION = 1;
+    /** Size of the fixed header in bytes. */
+    public static final int HEADER_SIZE = 26;
+    /** Maximum length in bytes of a subscriber name carried in a named frame. */
+    public static final int MAX_NAME_LENGTH = 255;
+    /** Offset of the version field. */
+    private static final int VERSION_OFFSET = 2;
+    /** Offset of the channel id field. */
+    private static final int CHANNEL_OFFSET = 3;
+    /** Offset of the flags field. */
+    private static final int FLAGS_OFFSET = 4;
+    /** Offset of the transfer id field. */
+    private static final int TRANSFER_ID_OFFSET = 6;
+    /** Offset of the sequence field. */
+    private static final int SEQUENCE_OFFSET = 14;
+    /** Offset of the total field. */
+    private static final int TOTAL_OFFSET = 18;
+    /** Offset of the length field. */
+    private static final int LENGTH_OFFSET = 22;
+    /** Mask of an unsigned 16-bit field. */
+    private static final int U16_MASK = 0xFFFF;
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private FrameCodec() {
+    }
+
+    /**
+     * Writes a header at the target's position and advances the position past it.
+     * @param header The header to write.
+     * @param target Buffer with at least {@link #HEADER_SIZE} bytes remaining.
+     */
+    public static void encode(final FrameHeader header, final ByteBuffer target) {
+        final int base = target.position();
+        target.putShort(base, (short) MAGIC);
+        target.put(base + VERSION_OFFSET, (byte) header.getVersion());
+        target.put(base + CHANNEL_OFFSET, (byte) header.getChannelId());
+        target.putShort(base + FLAGS_OFFSET, (short) header.getFlags());
+        target.putLong(base + TRANSFER_ID_OFFSET, header.getTransferId());
+        target.putInt(base + SEQUENCE_OFFSET, header.getSequence());
+        target.putInt(base + TOTAL_OFFSET, header.getTotal());
+        target.putInt(base + LENGTH_OFFSET, header.getLength());
+        target.position(base + HEADER_SIZE);
+    }
+
+    /**
+     * Writes the name section of a named frame.
+     * @param name UTF-8 bytes of the subscriber name, at most {@link #MAX_NAME_LENGTH} bytes.
+     * @param target Buffer to write into.
+     */
+    public static void encodeName(final byte[] name, final ByteBuffer target) {
+        target.put((byte) name.length);
+        target.put(name);
+    }
+
+    /**
+     * Reads a header at the source's position.
+     * On success the position is advanced past the header; on failure it is left unchanged.
+     * @param source Buffer holding a frame between its position and limit.
+     * @param header Header to fill in.
+     * @return True if a header with the expected magic number and version was read.
+     */
+    public static boolean decode(final ByteBuffer source, final FrameHeader header) {
+        final int base = source.position();
+        if (source.remaining() < HEADER_SIZE
+            || (source.getShort(base) & U16_MASK) != MAGIC
+            || Byte.toUnsignedInt(source.get(base + VERSION_OFFSET)) != VERSION) {
+            return false;
+        }
+        header.setVersion(VERSION);
+        header.setChannelId(Byte.toUnsignedInt(source.get(base + CHANNEL_OFFSET)));
+        header.setFlags(source.getShort(base + FLAGS_OFFSET) & U16_MASK);
+        header.setTransferId(source.getLong(base + TRANSFER_ID_OFFSET));
+        header.setSequence(source.getInt(base + SEQUENCE_OFFSET));
+        header.setTotal(source.getInt(base + TOTAL_OFFSET));
+        header.setLength(source.getInt(base + LENGTH_OFFSET));
+        source.position(base + HEADER_SIZE);
+        return true;
+    }
+
+    /**
+     * Reads the name section of a named frame and advances the position past it.
+     * @param source Buffer positioned at the name section.
+     * @return The subscriber name, or null if the section is truncated.
+     */
+    public static String decodeName(final ByteBuffer source) {
+        if (!source.hasRemaining()) {
+            return null;
+        }
+        final int nameLength = Byte.toUnsignedInt(source.get(source.position()));
+        if (source.remaining() < nameLength + 1) {
+            return null;
+        }
+        source.position(source.position() + 1);
+        final byte[] name = new byte[nameLength];
+        source.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.distributedguidemojava.networking;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Fixed-layout header of every frame sent by a communicator.
+ * A plain message is a transfer of its own: its transfer id is 0, its sequence is 0 and its
+ * total equals its length. Subsystems that split a larger transfer into several frames set the
+ * transfer id, and use the sequence as the byte offset of each frame's payload within the transfer.
+ * Instances are mutable so that senders can reuse one header for every frame of a transfer.
+ * The source of a received frame is set by the communicator that received it; it is not sent.
+ */
+public final class FrameHeader {
+
+    /** Flag set by the communicator when the subscriber is named after the header instead of by channel id. */
+    public static final int FLAG_NAMED = 0x8000;
+    /** Protocol version of the header. */
+    private int version = FrameCodec.VERSION;
+    /** Channel id of the subscriber the frame is meant for, or 0 for a named subscriber. */
+    private int channelId;
+    /** Flags qualifying the frame. */
+    private int flags;
+    /** Identifier of the transfer the frame belongs to, or 0 for a plain message. */
+    private long transferId;
+    /** Byte offset of the frame's payload within its transfer. */
+    private int sequence;
+    /** Total length of the transfer in bytes. */
+    private int total;
+    /** Length of the frame's payload in bytes. */
+    private int length;
+    /** Address a received frame came from, or null if the transport does not tell. */
+    private InetSocketAddress source;
+
+    /**
+     * Gets the protocol version of the header.
+     * @return The version.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the protocol version of the header.
+     * @param value The version.
+     */
+    public void setVersion(final int value) {
+        this.version = value;
+    }
+
+    /**
+     * Gets the channel id of the subscriber the frame is meant for.
+     * @return The channel id, or 0 for a named subscriber.
+     */
+    public int getChannelId() {
+        return channelId;
+    }
+
+    /**
+     * Sets the channel id of the subscriber the frame is meant for.
+     * @param value The channel id, or 0 for a named subscriber.
+     */
+    public void setChannelId(final int value) {
+        this.channelId = value;
+    }
+
+    /**
+     * Gets the flags qualifying the frame.
+     * @return The flags.
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Sets the flags qualifying the frame.
+     * @param value The flags.
+     */
+    public void setFlags(final int value) {
+        this.flags = value;
+    }
+
+    /**
+     * Checks whether a flag is set.
+     * @param flag The flag to check.
+     * @return True if every bit of the flag is set.
+     */
+    public boolean hasFlag(final int flag) {
+        return (flags & flag) == flag;
+    }
+
+    /**
+     * Gets the identifier of the transfer the frame belongs to.
+     * @return The transfer id, or 0 for a plain message.
+     */
+    public long getTransferId() {
+        return transferId;
+    }
+
+    /**
+     * Sets the identifier of the transfer the frame belongs to.
+     * @param value The transfer id, or 0 for a plain message.
+     */
+    public void setTransferId(final long value) {
+        this.transferId = value;
+    }
+
+    /**
+     * Gets the byte offset of the frame's payload within its transfer.
+     * @return The sequence.
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Sets the byte offset of the frame's payload within its transfer.
+     * @param value The sequence.
+     */
+    public void setSequence(final int value) {
+        this.sequence = value;
+    }
+
+    /**
+     * Gets the total length of the transfer in bytes.
+     * @return The total.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Sets the total length of the transfer in bytes.
+     * @param value The total.
+     */
+    public void setTotal(final int value) {
+        this.total = value;
+    }
+
+    /**
+     * Gets the length of the frame's payload in bytes.
+     * @return The length.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Sets the length of the frame's payload in bytes.
+     * @param value The length.
+     */
+    public void setLength(final int value) {
+        this.length = value;
+    }
+
+    /**
+     * Gets the address a received frame came from, as the transport saw it. For UDP that is the sending
+     * socket, whose port need not be the sender's listen port.
+     * @return The address, or null for a frame being sent or a transport that does not tell.
+     */
+    public InetSocketAddress getSource() {
+        return source;
+    }
+
+    /**
+     * Sets the address a received frame came from.
+     * @param value The address, or null if it is not known.
+     */
+    public void setSource(final InetSocketAddress value) {
+        this.source = value;
+    }
+
+    /**
+     * Copies every field of another header into this one.
+     * @param other The header to copy.
+     * @return This header.
+     */
+    public FrameHeader copyFrom(final FrameHeader other) {
+        this.version = other.version;
+        this.channelId = other.channelId;
+        this.flags = other.flags;
+        this.transferId = other.transferId;
+        this.sequence = other.sequence;
+        this.total = other.total;
+        this.length = other.length;
+        this.source = other.source;
+        return this;
+    }
+}
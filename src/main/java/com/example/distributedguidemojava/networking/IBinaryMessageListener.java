@@ -0,0 +1,40 @@
+package com.example.distributedguidemojava.networking;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Interface for listening to received messages as raw bytes.
+ * Communicators hand binary listeners a view of the received payload instead of decoding it
+ * into a string, so subscribers that carry binary data avoid a charset decode and a copy.
+ */
+public interface IBinaryMessageListener extends IMessageListener {
+
+    /**
+     * Called when a message is received as text, for example by code that only knows the string API.
+     * The text is encoded as UTF-8 and passed on to {@link #onMessageReceived(ByteBuffer)}.
+     * @param message The received message.
+     */
+    @Override
+    default void onMessageReceived(final String message) {
+        onMessageReceived(ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Called when a message is received.
+     * The buffer is only valid for the duration of the call; copy any bytes that must outlive it.
+     * @param message Buffer positioned at the first payload byte, with its limit at the end of the payload.
+     */
+    void onMessageReceived(ByteBuffer message);
+
+    /**
+     * Called when a frame is received, with the header it was sent with.
+     * Subscribers that split transfers into several frames override this to read the transfer fields;
+     * by default the payload is passed on to {@link #onMessageReceived(ByteBuffer)}.
+     * @param header Header of the received frame.
+     * @param payload Buffer positioned at the first payload byte, with its limit at the end of the payload.
+     */
+    default void onFrameReceived(final FrameHeader header, final ByteBuffer payload) {
+        onMessageReceived(payload);
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.distributedguidemojava.networking;
 
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Interface for communication over the network.
  */
@@ -7,6 +10,7 @@ public interface ICommunicator {
 
     /**
      * Adds a subscriber to listen for messages.
+     * Subscribers implementing {@link IBinaryMessageListener} receive the payload as bytes.
      * @param id Unique identifier for the subscriber.
      * @param subscriber The subscriber to add.
      */
@@ -27,6 +31,105 @@ public interface ICommunicator {
      */
     void sendMessage(String ipAddress, int port, String senderId, String message);
 
+    /**
+     * Sends a range of a byte array to the specified IP address and port.
+     * @param ipAddress IP address of the destination.
+     * @param port Port of the destination.
+     * @param senderId Identifier of the sender.
+     * @param data Array holding the payload.
+     * @param offset Offset of the first payload byte in the array.
+     * @param length Number of payload bytes.
+     */
+    void sendMessage(String ipAddress, int port, String senderId, byte[] data, int offset, int length);
+
+    /**
+     * Sends the remaining bytes of a buffer to the specified IP address and port.
+     * The buffer's position is advanced past the bytes that were sent.
+     * @param ipAddress IP address of the destination.
+     * @param port Port of the destination.
+     * @param senderId Identifier of the sender.
+     * @param data Buffer holding the payload between its position and limit.
+     */
+    void sendMessage(String ipAddress, int port, String senderId, ByteBuffer data);
+
+    /**
+     * Sends the remaining bytes of a buffer to a resolved endpoint.
+     * The buffer's position is advanced past the bytes that were sent.
+     * @param endpoint The destination, as returned by {@link #getEndpoint}.
+     * @param senderId Identifier of the sender.
+     * @param data Buffer holding the payload between its position and limit.
+     */
+    void sendMessage(Endpoint endpoint, String senderId, ByteBuffer data);
+
+    /**
+     * Sends one frame of a transfer to the specified IP address and port.
+     * The caller sets the flags, transfer id, sequence and total of the header; the communicator
+     * fills in the version, channel id and length before sending.
+     * @param ipAddress IP address of the destination.
+     * @param port Port of the destination.
+     * @param senderId Identifier of the sender.
+     * @param header Header of the frame.
+     * @param payload Buffer holding the frame's payload between its position and limit.
+     */
+    void sendFrame(String ipAddress, int port, String senderId, FrameHeader header, ByteBuffer payload);
+
+    /**
+     * Sends one frame of a transfer to a resolved endpoint.
+     * Senders of many frames to the same peer should use this overload, which skips resolving the address.
+     * In {@link SendMode#ASYNC} mode the call waits while the send queue is full, so no frame is dropped
+     * for want of room.
+     * @param endpoint The destination, as returned by {@link #getEndpoint}.
+     * @param senderId Identifier of the sender.
+     * @param header Header of the frame.
+     * @param payload Buffer holding the frame's payload between its position and limit.
+     */
+    void sendFrame(Endpoint endpoint, String senderId, FrameHeader header, ByteBuffer payload);
+
+    /**
+     * Sends one frame of a transfer to a resolved endpoint and reports when it has been sent.
+     * In {@link SendMode#ASYNC} mode the frame is queued and the call returns at once; the header and
+     * payload are copied, so the caller may reuse both as soon as this returns. A frame that finds the
+     * send queue full is failed with a {@link java.util.concurrent.RejectedExecutionException}; callers
+     * sending many frames should bound the frames they have in flight.
+     * @param endpoint The destination, as returned by {@link #getEndpoint}.
+     * @param senderId Identifier of the sender.
+     * @param header Header of the frame.
+     * @param payload Buffer holding the frame's payload between its position and limit.
+     * @return A future completed once the frame has been handed to the socket, or completed
+     *         exceptionally if it could not be sent.
+     */
+    CompletableFuture<Void> sendFrameAsync(Endpoint endpoint, String senderId, FrameHeader header,
+        ByteBuffer payload);
+
+    /**
+     * Gets an endpoint for the specified IP address and port, resolving the address only on first use.
+     * @param ipAddress IP address of the destination.
+     * @param port Port of the destination.
+     * @param connected Whether sends should use a channel connected to the destination, where the transport has one.
+     * @return The endpoint, or null if the address cannot be resolved.
+     */
+    Endpoint getEndpoint(String ipAddress, int port, boolean connected);
+
+    /**
+     * Joins an IP multicast group, so frames sent once to the group reach the subscribers of every member.
+     * Members receive the group's frames on the group port, in addition to their own listen port, and
+     * hand them to the subscriber named in each frame. A member also receives the frames it sends itself.
+     * Frames are sent to a group with the usual send methods, using the group address and port.
+     * @param groupAddress Multicast address of the group, such as "239.1.2.3".
+     * @param port Port of the group.
+     * @throws IllegalArgumentException If the address is not a multicast address or the port is out of range.
+     * @throws java.io.UncheckedIOException If the group cannot be joined.
+     * @throws UnsupportedOperationException If the transport has no multicast.
+     */
+    void joinGroup(String groupAddress, int port);
+
+    /**
+     * Leaves an IP multicast group joined with {@link #joinGroup(String, int)}; does nothing if it was not joined.
+     * @param groupAddress Multicast address of the group.
+     * @param port Port of the group.
+     */
+    void leaveGroup(String groupAddress, int port);
+
     /**
      * Gets the port on which this communicator is listening for messages.
      * @return The listening port.
@@ -0,0 +1,11 @@
+package com.example.distributedguidemojava.networking;
+
+/**
+ * A binary listener that may be called from several threads at once.
+ * Communicators deliver the messages of such a subscriber on as many dispatch threads as they have
+ * receive threads, instead of one, so a subscriber that reassembles many transfers side by side can
+ * keep up with parallel receive threads. Messages are then no longer delivered in the order they
+ * arrived, and the listener must guard its own state.
+ */
+public interface IConcurrentMessageListener extends IBinaryMessageListener {
+}
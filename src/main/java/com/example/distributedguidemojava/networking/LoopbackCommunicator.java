@@ -0,0 +1,152 @@
+package com.example.distributedguidemojava.networking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Communicator that connects instances inside one JVM, without sockets.
+ * Every instance is registered under a port number of its own and has a lock-free ring buffer as its
+ * inbox; sending copies the frame once into the destination's ring, and a receive thread hands the
+ * subscribers a view of that copy. Only the port of a destination is used for routing, so any address works, and
+ * senders wait while a destination's ring is full rather than dropping frames.
+ *
+ * <p>This lets the messaging layers be tested and benchmarked on their own, and lets large simulated
+ * topologies run inside one process.
+ */
+public class LoopbackCommunicator extends AbstractCommunicator implements AutoCloseable {
+
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(LoopbackCommunicator.class.getName());
+    /** Number of frames each inbox can hold. */
+    private static final int RING_CAPACITY = 8192;
+    /** First port handed out to instances created with an ephemeral port. */
+    private static final int FIRST_EPHEMERAL_PORT = 49152;
+    /** Number of ports handed out to instances created with an ephemeral port, before wrapping around. */
+    private static final int EPHEMERAL_PORT_COUNT = 65536 - FIRST_EPHEMERAL_PORT;
+    /** How long a sender waits before retrying a full inbox, in nanoseconds. */
+    private static final long FULL_RING_BACKOFF_NANOS = 10_000L;
+    /** Open instances, keyed by their port. */
+    private static final Map<Integer, LoopbackCommunicator> INSTANCES = new ConcurrentHashMap<>();
+    /** Counter picking the next port to try for an instance created with an ephemeral port. */
+    private static final AtomicInteger NEXT_PORT = new AtomicInteger();
+    /** Frames sent to this instance, waiting for the receive thread. */
+    private final MpscRingBuffer<ByteBuffer> inbox = new MpscRingBuffer<>(RING_CAPACITY);
+    /** The port this instance is registered under. */
+    private final int listenPort;
+    /** The thread that hands received frames to the subscribers. */
+    private final Thread receiveThread;
+    /** Whether the receive thread is parked, or about to park, waiting for frames. */
+    private volatile boolean idle;
+    /** Whether the instance has been closed. */
+    private volatile boolean closed;
+
+    /**
+     * Constructs a LoopbackCommunicator registered under a free port.
+     */
+    public LoopbackCommunicator() {
+        this(CommunicatorConfig.builder().transportType(TransportType.LOOPBACK).build());
+    }
+
+    /**
+     * Constructs a LoopbackCommunicator from a configuration and starts its receive thread.
+     * @param config Settings of the communicator; the port, dispatch and send settings are used.
+     */
+    public LoopbackCommunicator(final CommunicatorConfig config) {
+        super(config);
+        listenPort = register(config.getPort());
+        receiveThread = new Thread(this::receiveThreadProc, "loopback-receive-" + listenPort);
+        receiveThread.setDaemon(true); // Stop the thread when the application exits
+        receiveThread.start();
+        LOGGER.log(Level.INFO, "Loopback Communicator registered on port {0}", listenPort);
+    }
+
+    @Override
+    protected void transmit(final Endpoint destination, final ByteBuffer header, final ByteBuffer payload)
+        throws IOException {
+        final LoopbackCommunicator target = INSTANCES.get(destination.getAddress().getPort());
+        if (target == null) {
+            throw new IOException("No loopback communicator on port " + destination.getAddress().getPort());
+        }
+        final ByteBuffer frame = ByteBuffer.allocate(header.remaining() + payload.remaining());
+        writeFrame(frame, header, payload);
+        target.accept(frame.flip());
+    }
+
+    @Override
+    public int getListenPort() {
+        return listenPort;
+    }
+
+    /**
+     * Unregisters this instance and stops its receive thread; frames still in its inbox are discarded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        INSTANCES.remove(listenPort, this);
+        LockSupport.unpark(receiveThread);
+    }
+
+    /**
+     * Registers this instance under a port.
+     * @param requestedPort The configured port, or {@link CommunicatorConfig#EPHEMERAL_PORT} for any free port.
+     * @return The port the instance is registered under.
+     */
+    private int register(final int requestedPort) {
+        if (requestedPort != CommunicatorConfig.EPHEMERAL_PORT) {
+            if (INSTANCES.putIfAbsent(requestedPort, this) != null) {
+                throw new IllegalStateException("Loopback port already in use: " + requestedPort);
+            }
+            return requestedPort;
+        }
+        while (true) {
+            final int candidate = FIRST_EPHEMERAL_PORT
+                + Math.floorMod(NEXT_PORT.getAndIncrement(), EPHEMERAL_PORT_COUNT);
+            if (INSTANCES.putIfAbsent(candidate, this) == null) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * Puts a frame into this instance's inbox, waiting while the inbox is full.
+     * @param frame The frame, owned by the inbox from now on.
+     * @throws IOException If this instance is closed.
+     */
+    private void accept(final ByteBuffer frame) throws IOException {
+        while (!inbox.offer(frame)) {
+            if (closed) {
+                throw new IOException("Loopback communicator on port " + listenPort + " is closed");
+            }
+            LockSupport.parkNanos(FULL_RING_BACKOFF_NANOS);
+        }
+        if (idle) {
+            LockSupport.unpark(receiveThread);
+        }
+    }
+
+    /**
+     * Hands frames from the inbox to the subscribers, parking while the inbox is empty.
+     */
+    private void receiveThreadProc() {
+        while (!closed) {
+            final ByteBuffer frame = inbox.poll();
+            if (frame != null) {
+                // The frame was copied for this inbox, so subscribers can be given a view of it
+                deliver(frame, true);
+                continue;
+            }
+            idle = true;
+            if (inbox.isEmpty() && !closed) {
+                LockSupport.park(this);
+            }
+            idle = false;
+        }
+    }
+}
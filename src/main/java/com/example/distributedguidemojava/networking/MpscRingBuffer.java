@@ -0,0 +1,89 @@
+package com.example.distributedguidemojava.networking;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded lock-free ring buffer for many producers and a single consumer.
+ * Every slot carries a sequence number: producers claim a position with a compare-and-set on the tail
+ * and publish the element by advancing the slot's sequence, and the consumer frees the slot by
+ * advancing it again by the capacity. Neither side ever takes a lock or allocates.
+ * @param <E> Type of the elements.
+ */
+final class MpscRingBuffer<E> {
+
+    /** The elements, indexed by position modulo the capacity. */
+    private final Object[] slots;
+    /** Per-slot sequence: equal to the position when free, position + 1 when holding an element. */
+    private final AtomicLongArray sequences;
+    /** Mask turning a position into a slot index. */
+    private final int mask;
+    /** Next position to be claimed by a producer. */
+    private final AtomicLong tail = new AtomicLong();
+    /** Next position to be read by the consumer; only the consumer thread touches it. */
+    private long head;
+
+    /**
+     * Constructs an empty ring buffer.
+     * @param capacity Number of slots; must be a power of two.
+     */
+    MpscRingBuffer(final int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two: " + capacity);
+        }
+        this.slots = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds an element; safe to call from any number of threads.
+     * @param element The element to add.
+     * @return True if the element was added, false if the buffer is full.
+     */
+    boolean offer(final E element) {
+        long position = tail.get();
+        while (true) {
+            final int index = (int) position & mask;
+            final long sequence = sequences.get(index);
+            if (sequence < position) {
+                // The consumer has not freed this slot yet
+                return false;
+            }
+            if (sequence == position && tail.compareAndSet(position, position + 1)) {
+                slots[index] = element;
+                sequences.set(index, position + 1);
+                return true;
+            }
+            position = tail.get();
+        }
+    }
+
+    /**
+     * Removes the oldest element; must only be called from the consumer thread.
+     * @return The element, or null if the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        final int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        final E element = (E) slots[index];
+        slots[index] = null;
+        sequences.set(index, head + slots.length);
+        head++;
+        return element;
+    }
+
+    /**
+     * Checks whether the buffer holds no published elements; must only be called from the consumer thread.
+     * @return True if the next poll would return null.
+     */
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.distributedguidemojava.networking;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.MembershipKey;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The multicast groups a datagram communicator has joined.
+ * Every group gets a channel bound to the group port and joined to the group, with a receive thread
+ * that hands each datagram to the communicator's sink, which dispatches it by subscriber id like any
+ * other frame. A frame sent once to the group address reaches every member.
+ */
+final class MulticastGroups {
+
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(MulticastGroups.class.getName());
+    /** Largest port number. */
+    private static final int MAX_PORT = 65535;
+    /** Settings of the owning communicator. */
+    private final CommunicatorConfig config;
+    /** Receiver of every datagram from every group; the buffer is only valid during the call. */
+    private final Consumer<ByteBuffer> sink;
+    /** Memberships of the joined groups, keyed by the group's address and port. */
+    private final Map<InetSocketAddress, MembershipKey> members = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an empty set of groups.
+     * @param settings Settings of the owning communicator; the buffer sizes and multicast interface are used.
+     * @param datagramSink Receiver of every datagram from every group.
+     */
+    MulticastGroups(final CommunicatorConfig settings, final Consumer<ByteBuffer> datagramSink) {
+        this.config = settings;
+        this.sink = datagramSink;
+    }
+
+    /**
+     * Joins a group and starts receiving its datagrams; does nothing if it was already joined.
+     * @param groupAddress Multicast address of the group.
+     * @param port Port of the group.
+     * @throws UncheckedIOException If the group cannot be joined.
+     */
+    void join(final String groupAddress, final int port) {
+        final InetSocketAddress group = group(groupAddress, port);
+        try {
+            members.computeIfAbsent(group, this::openMember);
+        } catch (UncheckedIOException e) {
+            LOGGER.log(Level.SEVERE, "Cannot join multicast group {0}: {1}", new Object[]{group, e.getMessage()});
+            throw e;
+        }
+    }
+
+    /**
+     * Leaves a group and stops its receive thread; does nothing if it was not joined.
+     * @param groupAddress Multicast address of the group.
+     * @param port Port of the group.
+     */
+    void leave(final String groupAddress, final int port) {
+        final MembershipKey membership = members.remove(group(groupAddress, port));
+        if (membership == null) {
+            return;
+        }
+        // Drop the membership first: a channel blocked in receive is only closed once its thread wakes up
+        membership.drop();
+        try {
+            membership.channel().close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error closing channel: {0}", e.getMessage());
+        }
+    }
+
+    /**
+     * Opens the channel of a group and starts its receive thread.
+     * @param group Address and port of the group.
+     * @return The membership.
+     * @throws UncheckedIOException If the group cannot be joined.
+     */
+    private MembershipKey openMember(final InetSocketAddress group) {
+        final MembershipKey membership;
+        try {
+            membership = DatagramChannels.openGroupMember(group, config);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final DatagramChannel channel = (DatagramChannel) membership.channel();
+        final Thread thread = new Thread(() -> receive(channel, group), "multicast-receive-" + group.getPort());
+        thread.setDaemon(true); // Stop the thread when the application exits
+        thread.start();
+        LOGGER.log(Level.INFO, "Joined multicast group {0}", group);
+        return membership;
+    }
+
+    /**
+     * Receives a group's datagrams until its channel is closed.
+     * @param channel The joined channel.
+     * @param group Address and port of the group.
+     */
+    private void receive(final DatagramChannel channel, final InetSocketAddress group) {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(config.getReceiveBufferSize());
+        while (channel.isOpen()) {
+            try {
+                buffer.clear();
+                channel.receive(buffer);
+                sink.accept(buffer.flip());
+            } catch (ClosedChannelException e) {
+                LOGGER.log(Level.INFO, "Left multicast group {0}", group);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error receiving from multicast group {0}: {1}",
+                    new Object[]{group, e.getMessage()});
+            }
+        }
+    }
+
+    /**
+     * Checks and resolves the address of a group.
+     * @param groupAddress Multicast address of the group.
+     * @param port Port of the group.
+     * @return The group's socket address.
+     * @throws IllegalArgumentException If the address is not a multicast address or the port is out of range.
+     */
+    private static InetSocketAddress group(final String groupAddress, final int port) {
+        if (port <= 0 || port > MAX_PORT) {
+            throw new IllegalArgumentException("Group port must be between 1 and " + MAX_PORT + ": " + port);
+        }
+        final InetAddress address;
+        try {
+            address = InetAddress.getByName(groupAddress);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Cannot resolve group address " + groupAddress, e);
+        }
+        if (!address.isMulticastAddress()) {
+            throw new IllegalArgumentException("Not a multicast address: " + groupAddress);
+        }
+        return new InetSocketAddress(address, port);
+    }
+}
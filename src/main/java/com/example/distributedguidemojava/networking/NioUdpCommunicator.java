@@ -0,0 +1,233 @@
+package com.example.distributedguidemojava.networking;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Communicator implementation using a NIO datagram channel and pooled direct buffers.
+ * Datagrams are received straight into a direct buffer borrowed from a pool, so the receive
+ * loop does not allocate a packet or a heap array for every datagram.
+ *
+ * <p>Sends to an {@link Endpoint} that asks for a connected channel go through a channel connected to
+ * that destination, opened on first use, so the address is not checked again on every send.
+ */
+public class NioUdpCommunicator extends AbstractCommunicator {
+
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(NioUdpCommunicator.class.getName());
+    /** Size of each pooled send buffer; large enough for any UDP datagram. */
+    private static final int SEND_BUFFER_SIZE = 65536;
+    /** Maximum number of idle buffers kept in the pool. */
+    private static final int MAX_POOLED_BUFFERS = 16;
+    /** The datagram channel used for communication. */
+    private final DatagramChannel channel;
+    /** The channels bound to the listen port, each with its own receive thread; the first is {@link #channel}. */
+    private final DatagramChannel[] receiveChannels;
+    /** The port on which the communicator listens for incoming messages. */
+    private final int listenPort;
+    /** The threads that listen for incoming messages, one per receive channel. */
+    private final Thread[] listenThreads;
+    /** Pool of direct buffers for the send path. */
+    private final ByteBufferPool sendBufferPool;
+    /** Pool of direct buffers, of the configured receive buffer size, for the receive path. */
+    private final ByteBufferPool receiveBufferPool;
+    /** Channels connected to a single destination, keyed by the destination address. */
+    private final Map<InetSocketAddress, DatagramChannel> connectedChannels = new ConcurrentHashMap<>();
+    /** The multicast groups this communicator has joined. */
+    private final MulticastGroups groups;
+    /** Interface multicast is sent on, or null for the OS default. */
+    private final NetworkInterface multicastInterface;
+
+    /**
+     * Constructs a NioUdpCommunicator bound to an ephemeral port, and starts a listener thread.
+     */
+    public NioUdpCommunicator() {
+        this(CommunicatorConfig.defaults());
+    }
+
+    /**
+     * Constructs a NioUdpCommunicator bound to an ephemeral port, and starts a listener thread.
+     * @param dispatchQueueCapacity Maximum number of messages waiting in each subscriber's dispatch queue.
+     * @param overflowPolicy What a full dispatch queue does with a newly received message.
+     */
+    public NioUdpCommunicator(final int dispatchQueueCapacity, final OverflowPolicy overflowPolicy) {
+        this(dispatchQueueCapacity, overflowPolicy, SendMode.SYNC);
+    }
+
+    /**
+     * Constructs a NioUdpCommunicator, initializing the socket and starting a listener thread.
+     * @param dispatchQueueCapacity Maximum number of messages waiting in each subscriber's dispatch queue.
+     * @param overflowPolicy What a full dispatch queue does with a newly received message.
+     * @param sendMode Whether messages are sent on the caller's thread or on a dedicated sender thread.
+     */
+    public NioUdpCommunicator(final int dispatchQueueCapacity, final OverflowPolicy overflowPolicy,
+        final SendMode sendMode) {
+        this(CommunicatorConfig.builder()
+            .dispatchQueueCapacity(dispatchQueueCapacity)
+            .overflowPolicy(overflowPolicy)
+            .sendMode(sendMode)
+            .build());
+    }
+
+    /**
+     * Constructs a NioUdpCommunicator from a configuration, binding its channels and starting the listener threads.
+     * With more than one receive thread the channels share the port through SO_REUSEPORT, as in
+     * {@link UdpCommunicator#UdpCommunicator(CommunicatorConfig)}.
+     * @param config Settings of the communicator.
+     */
+    public NioUdpCommunicator(final CommunicatorConfig config) {
+        super(config, true);
+        groups = new MulticastGroups(config, this::deliver);
+        sendBufferPool = new ByteBufferPool(SEND_BUFFER_SIZE, MAX_POOLED_BUFFERS);
+        receiveBufferPool = new ByteBufferPool(config.getReceiveBufferSize(), MAX_POOLED_BUFFERS);
+        try {
+            receiveChannels = DatagramChannels.openBound(config);
+            channel = receiveChannels[0];
+            listenPort = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+            multicastInterface = DatagramChannels.multicastInterface(config);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create UDP datagram channel on port " + config.getPort(), e);
+        }
+
+        listenThreads = new Thread[receiveChannels.length];
+        for (int i = 0; i < receiveChannels.length; i++) {
+            final DatagramChannel receiveChannel = receiveChannels[i];
+            listenThreads[i] = new Thread(() -> listenerThreadProc(receiveChannel), "nio-receive-" + i);
+            listenThreads[i].setDaemon(true); // Stop the thread when the application exits
+            listenThreads[i].start();
+        }
+        LOGGER.log(Level.INFO, "NIO UDP Communicator listening on port {0} with {1} receive threads",
+            new Object[]{listenPort, receiveChannels.length});
+    }
+
+    @Override
+    protected void transmit(final Endpoint destination, final ByteBuffer header, final ByteBuffer payload)
+        throws IOException {
+        final ByteBuffer buffer = sendBufferPool.acquire();
+        try {
+            writeFrame(buffer, header, payload);
+            buffer.flip();
+            if (destination.isConnected()) {
+                connectedChannel(destination.getAddress()).write(buffer);
+            } else {
+                channel.send(buffer, destination.getAddress());
+            }
+        } finally {
+            sendBufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Gets the channel connected to a destination, opening and connecting it on first use.
+     * @param destination Address of the destination.
+     * @return The connected channel.
+     * @throws IOException If the channel cannot be opened or connected.
+     */
+    private DatagramChannel connectedChannel(final InetSocketAddress destination) throws IOException {
+        final DatagramChannel cached = connectedChannels.get(destination);
+        if (cached != null && cached.isOpen()) {
+            return cached;
+        }
+        try {
+            // compute() keeps concurrent senders from each opening a channel to the same destination
+            return connectedChannels.compute(destination, (address, existing) -> {
+                if (existing != null && existing.isOpen()) {
+                    return existing;
+                }
+                return openConnectedChannel(address);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Opens a channel connected to a destination.
+     * @param destination Address of the destination.
+     * @return The connected channel.
+     * @throws UncheckedIOException If the channel cannot be opened or connected.
+     */
+    private DatagramChannel openConnectedChannel(final InetSocketAddress destination) {
+        DatagramChannel connected = null;
+        try {
+            connected = DatagramChannel.open();
+            if (multicastInterface != null && destination.getAddress().isMulticastAddress()) {
+                connected.setOption(StandardSocketOptions.IP_MULTICAST_IF, multicastInterface);
+            }
+            return connected.connect(destination);
+        } catch (IOException e) {
+            closeQuietly(connected);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes a channel, ignoring errors.
+     * @param toClose The channel to close; may be null.
+     */
+    private static void closeQuietly(final DatagramChannel toClose) {
+        if (toClose == null) {
+            return;
+        }
+        try {
+            toClose.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error closing channel: {0}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void joinGroup(final String groupAddress, final int port) {
+        groups.join(groupAddress, port);
+    }
+
+    @Override
+    public void leaveGroup(final String groupAddress, final int port) {
+        groups.leave(groupAddress, port);
+    }
+
+    @Override
+    public int getListenPort() {
+        return listenPort;
+    }
+
+    /**
+     * Gets the number of channels, and threads, receiving on the listen port.
+     * @return The number of receive threads.
+     */
+    public int getReceiveThreadCount() {
+        return receiveChannels.length;
+    }
+
+    /**
+     * Listens for incoming messages on one of the receive channels.
+     * @param receiveChannel The channel to receive from.
+     */
+    private void listenerThreadProc(final DatagramChannel receiveChannel) {
+        while (receiveChannel.isOpen()) {
+            final ByteBuffer buffer = receiveBufferPool.acquire();
+            try {
+                final SocketAddress source = receiveChannel.receive(buffer);
+                buffer.flip();
+                deliver(buffer, (InetSocketAddress) source);
+            } catch (ClosedChannelException e) {
+                LOGGER.log(Level.INFO, "Datagram channel closed on port {0}", listenPort);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error receiving message: {0}", e.getMessage());
+            } finally {
+                receiveBufferPool.release(buffer);
+            }
+        }
+    }
+}
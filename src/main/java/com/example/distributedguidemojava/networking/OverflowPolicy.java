@@ -0,0 +1,16 @@
+package com.example.distributedguidemojava.networking;
+
+/**
+ * What a subscriber's dispatch queue does with a message that arrives while the queue is full.
+ */
+public enum OverflowPolicy {
+
+    /** Drop the message that just arrived and keep the queued ones. */
+    DROP_NEWEST,
+
+    /** Drop the oldest queued message to make room for the one that just arrived. */
+    DROP_OLDEST,
+
+    /** Make the receive thread wait for room in the queue; this applies backpressure to the socket. */
+    BLOCK
+}
@@ -0,0 +1,331 @@
+package com.example.distributedguidemojava.networking;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reliable delivery of frames over a datagram transport.
+ * Every frame sent to a peer is wrapped in a data packet carrying a per-peer sequence number; the
+ * peer answers each data packet with an acknowledgement holding the next sequence number it expects
+ * in order and up to {@link #MAX_SACK_RANGES} selective ranges received beyond it. Frames are sent
+ * through a sliding window per peer ({@link ReliableSender}) and retransmitted when their timer,
+ * derived from the measured round-trip time, expires, or at once when a later acknowledgement shows
+ * a gap where they should be. The future of a frame completes when it is acknowledged, and fails
+ * when the frame has been sent {@link #DEFAULT_MAX_TRANSMISSIONS} times without an acknowledgement.
+ *
+ * <p>Packets start with a u16 magic that differs from the frame magic, then a u8 type, a u8 reserved
+ * byte, a u32 session, a u32 sequence and the u16 port replies go to. A data packet goes on with the
+ * sender's lowest pending u32 sequence, below which the receiver stops waiting for frames the sender
+ * gave up, and then the frame; an acknowledgement with the body written by
+ * {@link ReliableReceiver#writeAcknowledgement}.
+ * The session is random per instance, so a restarted peer starts its streams over.
+ */
+final class ReliableDelivery {
+
+    /** Magic number of reliable packets, "DR" in ASCII. */
+    static final int MAGIC = 0x4452;
+    /** Size of the prefix every packet starts with. */
+    private static final int PREFIX_SIZE = 14;
+    /** Size of the prefix in front of the frame in a data packet: the lowest pending sequence follows. */
+    static final int DATA_PREFIX_SIZE = PREFIX_SIZE + Integer.BYTES;
+    /** How often a frame is sent before it is given up, by default. */
+    static final int DEFAULT_MAX_TRANSMISSIONS = 10;
+    /** Most selective ranges carried by one acknowledgement. */
+    static final int MAX_SACK_RANGES = 32;
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(ReliableDelivery.class.getName());
+    /** Packet type of data packets. */
+    private static final byte TYPE_DATA = 1;
+    /** Packet type of acknowledgements. */
+    private static final byte TYPE_ACK = 2;
+    /** Size of the magic, type and reserved byte every packet starts with. */
+    private static final int TYPE_PREFIX_SIZE = 4;
+    /** Size of one selective range in an acknowledgement. */
+    private static final int SACK_RANGE_SIZE = 8;
+    /** Largest acknowledgement packet. */
+    private static final int MAX_ACK_SIZE = PREFIX_SIZE + 2 + MAX_SACK_RANGES * SACK_RANGE_SIZE;
+    /** Mask of an unsigned 16-bit field. */
+    private static final int U16_MASK = 0xFFFF;
+    /** How far ahead the timer thread's wake-up is set while no frame is pending, in nanoseconds. */
+    private static final long IDLE_NANOS = TimeUnit.DAYS.toNanos(1);
+    /** Empty payload sent after a packet that already holds everything. */
+    private static final ByteBuffer NO_PAYLOAD = ByteBuffer.allocate(0);
+    /** Random session of this instance. */
+    private final int session = ThreadLocalRandom.current().nextInt();
+    /** Maximum number of unacknowledged frames per peer. */
+    private final int windowSize;
+    /** How often a frame is sent before it is given up. */
+    private final int maxTransmissions;
+    /** Sends packets over the transport. */
+    private final AsyncSender.Transmitter transmitter;
+    /** Gives the port acknowledgements should be sent to: the communicator's listen port. */
+    private final IntSupplier replyPort;
+    /** Paces the data packets and learns from their fate; null when sending unpaced. */
+    private final SendPacing pacing;
+    /** Sending halves of the streams, keyed by the peer's address. */
+    private final Map<InetSocketAddress, ReliableSender> senders = new ConcurrentHashMap<>();
+    /** Receiving halves of the streams, keyed by the peer's reply address. */
+    private final Map<InetSocketAddress, ReliableReceiver> receivers = new ConcurrentHashMap<>();
+    /** Checks the retransmit timers; parks until the earliest one expires. */
+    private final Thread timerThread;
+    /** When the timer thread wakes up next, in nanoseconds; a sooner timer must unpark it. */
+    private volatile long timerWakeAt = System.nanoTime() + IDLE_NANOS;
+
+    /**
+     * Constructs the reliable delivery state and starts the retransmit timer thread.
+     * @param window Maximum number of unacknowledged frames per peer.
+     * @param transmissions How often a frame is sent before it is given up.
+     * @param packetTransmitter Sends packets over the transport.
+     * @param listenPort Gives the port acknowledgements should be sent to.
+     * @param sendPacing Pacing of the data packets, told about every loss and delivery; null to send unpaced.
+     */
+    ReliableDelivery(final int window, final int transmissions, final AsyncSender.Transmitter packetTransmitter,
+        final IntSupplier listenPort, final SendPacing sendPacing) {
+        this.windowSize = window;
+        this.maxTransmissions = transmissions;
+        this.transmitter = packetTransmitter;
+        this.replyPort = listenPort;
+        this.pacing = sendPacing;
+        this.timerThread = new Thread(this::timerThreadProc, "reliable-retransmit");
+        timerThread.setDaemon(true); // Stop the thread when the application exits
+        timerThread.start();
+    }
+
+    /**
+     * Checks whether a received datagram is a reliable packet rather than a plain frame.
+     * @param datagram The datagram between its position and limit.
+     * @return True if it starts with the reliable magic number.
+     */
+    static boolean isPacket(final ByteBuffer datagram) {
+        return datagram.remaining() >= TYPE_PREFIX_SIZE
+            && (datagram.getShort(datagram.position()) & U16_MASK) == MAGIC;
+    }
+
+    /**
+     * Sends a frame reliably, waiting while the peer's window is full and, when paced, until the frame is due.
+     * @param destination The peer.
+     * @param header Encoded frame header; copied before this method returns.
+     * @param payload The payload; copied before this method returns.
+     * @return A future completed when the peer acknowledges the frame, or failed when it is given up.
+     */
+    CompletableFuture<Void> send(final Endpoint destination, final ByteBuffer header, final ByteBuffer payload) {
+        final ReliableSender sender = senders.computeIfAbsent(destination.getAddress(),
+            address -> new ReliableSender(windowSize, maxTransmissions));
+        try {
+            sender.acquireSlot();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        final long now;
+        final ReliableSender.Pending frame;
+        try {
+            if (pacing != null) {
+                // Wait before registering, so the retransmit timer only runs once the packet is out
+                pacing.acquire(destination.getAddress(), DATA_PREFIX_SIZE + header.remaining() + payload.remaining());
+            }
+            now = System.nanoTime();
+            frame = sender.register(destination, (sequence, lowest) -> dataPacket(sequence, lowest, header, payload),
+                now);
+        } catch (RuntimeException e) {
+            // The frame never entered the window, so nothing else gives its slot back
+            sender.releaseSlot();
+            return CompletableFuture.failedFuture(e);
+        }
+        if (now + sender.getRetransmitTimeout() - timerWakeAt < 0) {
+            // The frame's timer expires before the timer thread would wake up
+            LockSupport.unpark(timerThread);
+        }
+        try {
+            transmitter.transmit(destination, frame.getPacket(), NO_PAYLOAD);
+        } catch (IOException | RuntimeException e) {
+            if (sender.remove(frame)) {
+                frame.getCompletion().completeExceptionally(e);
+            }
+        }
+        return frame.getCompletion();
+    }
+
+    /**
+     * Handles a received reliable packet.
+     * Data packets are acknowledged, and their frame is returned the first time it arrives;
+     * acknowledgements are applied to the matching stream.
+     * @param packet The packet between its position and limit; see {@link #isPacket}.
+     * @param source Address the packet came from.
+     * @return A view of the frame to deliver, or null if there is nothing to deliver.
+     */
+    ByteBuffer receive(final ByteBuffer packet, final InetSocketAddress source) {
+        if (packet.remaining() < PREFIX_SIZE) {
+            LOGGER.log(Level.WARNING, "Dropped short reliable packet from {0}", source);
+            return null;
+        }
+        final int start = packet.position();
+        final byte type = packet.get(start + 2);
+        final int packetSession = packet.getInt(start + TYPE_PREFIX_SIZE);
+        final long sequence = Integer.toUnsignedLong(packet.getInt(start + TYPE_PREFIX_SIZE + Integer.BYTES));
+        final int port = packet.getShort(start + PREFIX_SIZE - Short.BYTES) & U16_MASK;
+        final InetSocketAddress peer = new InetSocketAddress(source.getAddress(), port);
+        if (type == TYPE_DATA && packet.remaining() >= DATA_PREFIX_SIZE) {
+            final long lowest = Integer.toUnsignedLong(packet.getInt(start + PREFIX_SIZE));
+            return receiveData(packet.position(start + DATA_PREFIX_SIZE), peer, packetSession, sequence, lowest);
+        }
+        if (type == TYPE_ACK) {
+            receiveAcknowledgement(packet.position(start + PREFIX_SIZE), peer, packetSession, sequence);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of frames sent again because they were not acknowledged in time.
+     * @return The number of retransmissions.
+     */
+    long getRetransmissionCount() {
+        long count = 0;
+        for (ReliableSender sender : senders.values()) {
+            count += sender.getRetransmissionCount();
+        }
+        return count;
+    }
+
+    /**
+     * Records a data packet, acknowledges it and decides whether its frame is delivered.
+     * @param frame The frame after the packet prefix.
+     * @param peer Address acknowledgements go to.
+     * @param packetSession Session of the sender.
+     * @param sequence Sequence number of the packet.
+     * @param lowestPending The sender's lowest pending sequence number when it built the packet.
+     * @return The frame if it arrived for the first time, otherwise null.
+     */
+    private ByteBuffer receiveData(final ByteBuffer frame, final InetSocketAddress peer, final int packetSession,
+        final long sequence, final long lowestPending) {
+        final ReliableReceiver receiver = receivers.computeIfAbsent(peer, key -> new ReliableReceiver(packetSession));
+        final boolean fresh = receiver.accept(packetSession, sequence, lowestPending);
+        final ByteBuffer ack = ByteBuffer.allocate(MAX_ACK_SIZE);
+        ack.putShort((short) MAGIC).put(TYPE_ACK).put((byte) 0);
+        receiver.writeAcknowledgement(ack, replyPort.getAsInt(), MAX_SACK_RANGES);
+        try {
+            transmitter.transmit(new Endpoint(peer, false), ack.flip(), NO_PAYLOAD);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Cannot acknowledge frame to {0}: {1}", new Object[]{peer, e.getMessage()});
+        }
+        if (fresh) {
+            return frame;
+        }
+        return null;
+    }
+
+    /**
+     * Applies an acknowledgement to the stream it belongs to, completing and retransmitting frames.
+     * @param body The range count and ranges after the packet prefix.
+     * @param peer Address of the peer that sent it.
+     * @param packetSession Session the acknowledgement is meant for.
+     * @param cumulative Every frame below this sequence number has arrived.
+     */
+    private void receiveAcknowledgement(final ByteBuffer body, final InetSocketAddress peer,
+        final int packetSession, final long cumulative) {
+        final ReliableSender sender = senders.get(peer);
+        if (sender == null || packetSession != session || body.remaining() < Short.BYTES) {
+            return;
+        }
+        final int count = Math.min(body.getShort() & U16_MASK, body.remaining() / SACK_RANGE_SIZE);
+        final long[] ranges = new long[count * 2];
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = Integer.toUnsignedLong(body.getInt());
+        }
+        final List<ReliableSender.Pending> acknowledged = new ArrayList<>();
+        final List<ReliableSender.Pending> retransmit = new ArrayList<>();
+        sender.acknowledge(cumulative, ranges, System.nanoTime(), acknowledged, retransmit);
+        for (ReliableSender.Pending frame : acknowledged) {
+            frame.getCompletion().complete(null);
+        }
+        if (pacing != null && !acknowledged.isEmpty()) {
+            pacing.onDelivered(peer);
+        }
+        retransmit(retransmit);
+    }
+
+    /**
+     * Checks the retransmit timers of every stream, then parks until the earliest of them expires, or
+     * while no frame is pending until a send unparks it. The wake-up time is published before the
+     * timers are checked, so a frame registered meanwhile either is seen or unparks the thread.
+     */
+    private void timerThreadProc() {
+        final List<ReliableSender.Pending> retransmit = new ArrayList<>();
+        final List<ReliableSender.Pending> expired = new ArrayList<>();
+        while (true) {
+            final long now = System.nanoTime();
+            timerWakeAt = now + IDLE_NANOS;
+            long delay = ReliableSender.NO_TIMER;
+            for (ReliableSender sender : senders.values()) {
+                delay = Math.min(delay, sender.collectDue(now, retransmit, expired));
+            }
+            retransmit(retransmit);
+            for (ReliableSender.Pending frame : expired) {
+                frame.getCompletion().completeExceptionally(new IOException("Frame " + frame.getSequence()
+                    + " to " + frame.getDestination() + " not acknowledged after " + maxTransmissions + " sends"));
+            }
+            retransmit.clear();
+            expired.clear();
+            if (delay == ReliableSender.NO_TIMER) {
+                LockSupport.park(this);
+            } else {
+                timerWakeAt = now + delay;
+                LockSupport.parkNanos(this, delay);
+            }
+        }
+    }
+
+    /**
+     * Sends frames again. When paced, every retransmission reports a loss to the peer's pacing and is
+     * charged against its rate, but goes out at once rather than queueing behind new frames.
+     * @param frames The frames to send.
+     */
+    private void retransmit(final List<ReliableSender.Pending> frames) {
+        for (ReliableSender.Pending frame : frames) {
+            final ByteBuffer packet = frame.getPacket();
+            if (pacing != null) {
+                pacing.onLoss(frame.getDestination().getAddress());
+                pacing.charge(frame.getDestination().getAddress(), packet.remaining());
+            }
+            try {
+                transmitter.transmit(frame.getDestination(), packet, NO_PAYLOAD);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.FINE, "Retransmission to {0} failed: {1}",
+                    new Object[]{frame.getDestination(), e.getMessage()});
+            }
+        }
+    }
+
+    /**
+     * Builds the data packet of a frame.
+     * @param sequence Sequence number of the frame.
+     * @param lowestPending The sender's lowest pending sequence number.
+     * @param header Encoded frame header.
+     * @param payload The payload.
+     * @return The packet, ready to read.
+     */
+    private ByteBuffer dataPacket(final long sequence, final long lowestPending, final ByteBuffer header,
+        final ByteBuffer payload) {
+        final ByteBuffer packet = ByteBuffer.allocate(DATA_PREFIX_SIZE + header.remaining() + payload.remaining());
+        packet.putShort((short) MAGIC).put(TYPE_DATA).put((byte) 0)
+            .putInt(session)
+            .putInt((int) sequence)
+            .putShort((short) replyPort.getAsInt())
+            .putInt((int) lowestPending)
+            .put(header.duplicate())
+            .put(payload.duplicate());
+        return packet.flip();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.distributedguidemojava.networking;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * The receiving half of a reliable stream from one peer.
+ * Tracks the next sequence number expected in order, and which later frames have already arrived,
+ * so duplicates are recognised and acknowledgements can name every range received. Frames are
+ * passed on as soon as they first arrive; the messengers above put chunks back in place themselves.
+ */
+final class ReliableReceiver {
+
+    /** How far beyond the next expected frame a sequence number may be; later frames are dropped. */
+    static final int MAX_SEQUENCE_AHEAD = 65536;
+    /** Session of the sender this state belongs to. */
+    private int session;
+    /** Sequence number of the next frame expected in order; every earlier frame has arrived. */
+    private long nextExpected;
+    /** Frames received beyond {@link #nextExpected}; bit i stands for sequence nextExpected + 1 + i. */
+    private final BitSet receivedAhead = new BitSet();
+
+    /**
+     * Constructs the receiving half of a stream.
+     * @param senderSession Session of the sender.
+     */
+    ReliableReceiver(final int senderSession) {
+        this.session = senderSession;
+    }
+
+    /**
+     * Records a received frame.
+     * A frame from a new session of the sender, after a restart, starts the stream over. Frames below
+     * the sender's lowest pending sequence number will never come, as the sender gave them up, so the
+     * stream moves past them instead of waiting for them forever.
+     * @param senderSession Session of the sender.
+     * @param sequence Sequence number of the frame.
+     * @param lowestPending The lowest sequence number the sender still has pending.
+     * @return True if the frame arrived for the first time and should be delivered.
+     */
+    synchronized boolean accept(final int senderSession, final long sequence, final long lowestPending) {
+        if (senderSession != session) {
+            session = senderSession;
+            nextExpected = 0;
+            receivedAhead.clear();
+        }
+        if (lowestPending > nextExpected) {
+            skipTo(lowestPending);
+        }
+        if (sequence < nextExpected || sequence - nextExpected > MAX_SEQUENCE_AHEAD) {
+            return false;
+        }
+        if (sequence > nextExpected) {
+            final int bit = (int) (sequence - nextExpected - 1);
+            final boolean fresh = !receivedAhead.get(bit);
+            receivedAhead.set(bit);
+            return fresh;
+        }
+        // The expected frame: advance past it and every frame already received after it
+        advance(receivedAhead.nextClearBit(0) + 1);
+        return true;
+    }
+
+    /**
+     * Treats every frame below a sequence number as arrived, advancing past it and every frame
+     * already received after it.
+     * @param sequence The sequence number, above {@link #nextExpected}.
+     */
+    private void skipTo(final long sequence) {
+        final long gap = sequence - nextExpected;
+        if (gap > MAX_SEQUENCE_AHEAD) {
+            // Nothing received so far ahead is tracked
+            receivedAhead.clear();
+            nextExpected = sequence;
+            return;
+        }
+        receivedAhead.set(0, (int) gap - 1);
+        advance(receivedAhead.nextClearBit(0) + 1);
+    }
+
+    /**
+     * Moves the next expected sequence number forward, forgetting the frames passed.
+     * @param count How many sequence numbers to move forward by.
+     */
+    private void advance(final int count) {
+        nextExpected += count;
+        final BitSet remaining = receivedAhead.get(count, Math.max(count, receivedAhead.length()));
+        receivedAhead.clear();
+        receivedAhead.or(remaining);
+    }
+
+    /**
+     * Writes the acknowledgement fields: the session, the cumulative sequence number and the selective ranges.
+     * @param target Buffer to write into; receives a u32 session, u32 cumulative sequence, u16 reply port,
+     *        u16 range count and that many pairs of u32 start and exclusive end.
+     * @param replyPort The port the sender should address further frames to.
+     * @param maxRanges Maximum number of ranges to write; the lowest ranges are kept.
+     */
+    synchronized void writeAcknowledgement(final ByteBuffer target, final int replyPort, final int maxRanges) {
+        target.putInt(session);
+        target.putInt((int) nextExpected);
+        target.putShort((short) replyPort);
+        final int countPosition = target.position();
+        target.putShort((short) 0);
+        int count = 0;
+        int start = receivedAhead.nextSetBit(0);
+        while (start >= 0 && count < maxRanges) {
+            final int end = receivedAhead.nextClearBit(start);
+            target.putInt((int) (nextExpected + 1 + start));
+            target.putInt((int) (nextExpected + 1 + end));
+            count++;
+            start = receivedAhead.nextSetBit(end);
+        }
+        target.putShort(countPosition, (short) count);
+    }
+}
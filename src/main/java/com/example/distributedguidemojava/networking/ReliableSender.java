@@ -0,0 +1,329 @@
+package com.example.distributedguidemojava.networking;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The sending half of a reliable stream to one peer: a sliding window of frames sent but not yet
+ * acknowledged, and the round-trip time estimate their retransmit timers are based on.
+ * The window is a semaphore of free slots, so a sender blocks only while the window is full. The
+ * retransmit timeout follows RFC 6298: a smoothed round-trip time plus four times its variance,
+ * sampled only from frames sent once, and doubled for every retransmission of a frame.
+ */
+final class ReliableSender {
+
+    /** Retransmit timeout used before the first round-trip sample, in nanoseconds. */
+    private static final long INITIAL_RTO_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    /** Smallest retransmit timeout, in nanoseconds; LAN round trips are far below the RFC's one second. */
+    private static final long MIN_RTO_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    /** Largest retransmit timeout, in nanoseconds. */
+    private static final long MAX_RTO_NANOS = TimeUnit.SECONDS.toNanos(1);
+    /** The smoothed round-trip time moves by 1/8 of every sample's difference. */
+    private static final int RTT_GAIN_SHIFT = 3;
+    /** The round-trip variance moves by 1/4 of every sample's difference. */
+    private static final int RTT_VARIANCE_GAIN_SHIFT = 2;
+    /** The timeout allows for four times the round-trip variance. */
+    private static final int RTT_VARIANCE_MULTIPLIER = 4;
+    /** Largest power of two a timeout is multiplied by when backing off. */
+    private static final int MAX_BACKOFF_SHIFT = 6;
+    /** Returned by {@link #collectDue} when no frame is pending, so no timer runs. */
+    static final long NO_TIMER = Long.MAX_VALUE;
+    /** Free slots of the window. */
+    private final Semaphore window;
+    /** Frames sent but not yet acknowledged, keyed by sequence number. */
+    private final NavigableMap<Long, Pending> pending = new TreeMap<>();
+    /** How often a frame is sent before it is given up. */
+    private final int maxTransmissions;
+    /** Sequence number of the next frame. */
+    private long nextSequence;
+    /** Smoothed round-trip time in nanoseconds, or -1 before the first sample. */
+    private long smoothedRtt = -1;
+    /** Round-trip time variance in nanoseconds. */
+    private long rttVariance;
+    /** Current retransmit timeout in nanoseconds. */
+    private long retransmitTimeout = INITIAL_RTO_NANOS;
+    /** Number of frames sent again. */
+    private long retransmissions;
+
+    /**
+     * Constructs the sending half of a stream.
+     * @param windowSize Maximum number of frames sent but not yet acknowledged.
+     * @param transmissions How often a frame is sent before it is given up.
+     */
+    ReliableSender(final int windowSize, final int transmissions) {
+        this.window = new Semaphore(windowSize);
+        this.maxTransmissions = transmissions;
+    }
+
+    /**
+     * Waits for a free slot in the window.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    void acquireSlot() throws InterruptedException {
+        window.acquire();
+    }
+
+    /**
+     * Gives back a slot taken with {@link #acquireSlot()} for a frame that was not registered.
+     */
+    void releaseSlot() {
+        window.release();
+    }
+
+    /**
+     * Numbers a frame and records it as sent; a window slot must have been acquired.
+     * @param destination Where the frame goes.
+     * @param packetWriter Writes the complete packet, given the sequence number.
+     * @param now The current time in nanoseconds.
+     * @return The pending frame.
+     */
+    synchronized Pending register(final Endpoint destination, final PacketWriter packetWriter, final long now) {
+        final long lowest = lowestPending();
+        final long sequence = nextSequence++;
+        final Pending frame = new Pending(sequence, destination, packetWriter.write(sequence, lowest), now);
+        pending.put(sequence, frame);
+        return frame;
+    }
+
+    /**
+     * Removes a frame that could not be sent at all.
+     * @param frame The frame.
+     * @return True if the frame was still pending and its slot was released.
+     */
+    synchronized boolean remove(final Pending frame) {
+        if (pending.remove(frame.sequence, frame)) {
+            window.release();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Applies an acknowledgement from the peer.
+     * Frames below the cumulative sequence or inside a selective range are acknowledged; frames in
+     * the gaps below the highest acknowledged one were most likely lost and are retransmitted at once,
+     * once per frame, rather than waiting for their timers.
+     * @param cumulative Every frame below this sequence number has arrived.
+     * @param ranges Further ranges that have arrived, as start and exclusive end pairs.
+     * @param now The current time in nanoseconds.
+     * @param acknowledged Receives the frames acknowledged now.
+     * @param retransmit Receives the frames to retransmit now.
+     */
+    synchronized void acknowledge(final long cumulative, final long[] ranges, final long now,
+        final List<Pending> acknowledged, final List<Pending> retransmit) {
+        final Map<Long, Pending> below = pending.headMap(cumulative);
+        collectAcknowledged(below, now, acknowledged);
+        long highest = cumulative - 1;
+        for (int i = 0; i + 1 < ranges.length; i += 2) {
+            collectAcknowledged(pending.subMap(ranges[i], ranges[i + 1]), now, acknowledged);
+            highest = Math.max(highest, ranges[i + 1] - 1);
+        }
+        final long threshold = Math.max(smoothedRtt, 0);
+        for (Pending frame : pending.headMap(highest).values()) {
+            if (!frame.fastRetransmitted && now - frame.sentAt > threshold) {
+                frame.fastRetransmitted = true;
+                markSent(frame, now);
+                retransmit.add(frame);
+            }
+        }
+    }
+
+    /**
+     * Finds the frames whose retransmit timer has expired, giving up those sent too often already.
+     * @param now The current time in nanoseconds.
+     * @param retransmit Receives the frames to retransmit now.
+     * @param expired Receives the frames given up, which are removed from the window.
+     * @return Nanoseconds until the next timer of a frame still pending expires, or {@link #NO_TIMER}.
+     */
+    synchronized long collectDue(final long now, final List<Pending> retransmit, final List<Pending> expired) {
+        long next = NO_TIMER;
+        final Iterator<Pending> frames = pending.values().iterator();
+        while (frames.hasNext()) {
+            final Pending frame = frames.next();
+            final long elapsed = now - frame.sentAt;
+            if (elapsed < timeoutOf(frame)) {
+                next = Math.min(next, timeoutOf(frame) - elapsed);
+            } else if (frame.transmissions >= maxTransmissions) {
+                frames.remove();
+                window.release();
+                expired.add(frame);
+            } else {
+                markSent(frame, now);
+                retransmit.add(frame);
+                next = Math.min(next, timeoutOf(frame));
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Gets the lowest sequence number still pending; every frame below it was acknowledged or given up.
+     * @return The sequence number, or the next one to be assigned when no frame is pending.
+     */
+    private long lowestPending() {
+        if (pending.isEmpty()) {
+            return nextSequence;
+        }
+        return pending.firstKey();
+    }
+
+    /**
+     * Gets the retransmit timeout of a frame, backed off for every time it has been sent again.
+     * @param frame The frame.
+     * @return The timeout in nanoseconds.
+     */
+    private long timeoutOf(final Pending frame) {
+        return Math.min(retransmitTimeout << Math.min(frame.transmissions - 1, MAX_BACKOFF_SHIFT), MAX_RTO_NANOS);
+    }
+
+    /**
+     * Gets the current retransmit timeout.
+     * @return The timeout in nanoseconds.
+     */
+    synchronized long getRetransmitTimeout() {
+        return retransmitTimeout;
+    }
+
+    /**
+     * Gets the number of frames sent again.
+     * @return The number of retransmissions.
+     */
+    synchronized long getRetransmissionCount() {
+        return retransmissions;
+    }
+
+    /**
+     * Removes acknowledged frames, releasing their slots and sampling the round-trip time.
+     * @param frames The acknowledged frames; a view of {@link #pending}.
+     * @param now The current time in nanoseconds.
+     * @param acknowledged Receives the removed frames.
+     */
+    private void collectAcknowledged(final Map<Long, Pending> frames, final long now,
+        final List<Pending> acknowledged) {
+        for (Pending frame : frames.values()) {
+            if (frame.transmissions == 1) {
+                // Karn's algorithm: the round trip of a retransmitted frame is ambiguous
+                sampleRtt(now - frame.sentAt);
+            }
+            window.release();
+            acknowledged.add(frame);
+        }
+        frames.clear();
+    }
+
+    /**
+     * Updates the round-trip estimate and the retransmit timeout with a sample.
+     * @param sample The measured round-trip time in nanoseconds.
+     */
+    private void sampleRtt(final long sample) {
+        if (smoothedRtt < 0) {
+            smoothedRtt = sample;
+            rttVariance = sample / 2;
+        } else {
+            rttVariance += (Math.abs(smoothedRtt - sample) - rttVariance) >> RTT_VARIANCE_GAIN_SHIFT;
+            smoothedRtt += (sample - smoothedRtt) >> RTT_GAIN_SHIFT;
+        }
+        retransmitTimeout = Math.max(MIN_RTO_NANOS,
+            Math.min(MAX_RTO_NANOS, smoothedRtt + RTT_VARIANCE_MULTIPLIER * rttVariance));
+    }
+
+    /**
+     * Records that a frame is being sent again.
+     * @param frame The frame.
+     * @param now The current time in nanoseconds.
+     */
+    private void markSent(final Pending frame, final long now) {
+        retransmissions++;
+        frame.transmissions++;
+        frame.sentAt = now;
+    }
+
+    /**
+     * Writes the packet of a frame once its sequence number is known.
+     */
+    @FunctionalInterface
+    interface PacketWriter {
+
+        /**
+         * Writes the packet.
+         * @param sequence The frame's sequence number.
+         * @param lowestPending The lowest sequence number still pending, the frame's own included.
+         * @return The packet, between its position and limit.
+         */
+        ByteBuffer write(long sequence, long lowestPending);
+    }
+
+    /**
+     * A frame sent but not yet acknowledged.
+     */
+    static final class Pending {
+
+        /** Sequence number of the frame. */
+        private final long sequence;
+        /** Where the frame goes. */
+        private final Endpoint destination;
+        /** The complete packet, kept for retransmission. */
+        private final ByteBuffer packet;
+        /** Completed when the frame is acknowledged, or failed when it is given up. */
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        /** When the frame was last sent, in nanoseconds. */
+        private long sentAt;
+        /** How often the frame has been sent. */
+        private int transmissions = 1;
+        /** Whether the frame has already been retransmitted because of a gap in an acknowledgement. */
+        private boolean fastRetransmitted;
+
+        /**
+         * Constructs a pending frame.
+         * @param number Sequence number of the frame.
+         * @param target Where the frame goes.
+         * @param bytes The complete packet.
+         * @param now When the frame is first sent, in nanoseconds.
+         */
+        Pending(final long number, final Endpoint target, final ByteBuffer bytes, final long now) {
+            this.sequence = number;
+            this.destination = target;
+            this.packet = bytes;
+            this.sentAt = now;
+        }
+
+        /**
+         * Gets the sequence number of the frame.
+         * @return The sequence number.
+         */
+        long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Gets where the frame goes.
+         * @return The destination.
+         */
+        Endpoint getDestination() {
+            return destination;
+        }
+
+        /**
+         * Gets a fresh view of the packet, for sending it.
+         * @return The packet between its position and limit.
+         */
+        ByteBuffer getPacket() {
+            return packet.duplicate();
+        }
+
+        /**
+         * Gets the future completed when the frame is acknowledged, or failed when it is given up.
+         * @return The future.
+         */
+        CompletableFuture<Void> getCompletion() {
+            return completion;
+        }
+    }
+}
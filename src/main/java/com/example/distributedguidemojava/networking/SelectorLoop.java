@@ -0,0 +1,126 @@
+package com.example.distributedguidemojava.networking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A selector thread that reads length-prefixed frames from the connections assigned to it.
+ * Each connection has its own {@link StreamFrameReader}, so frames from one peer reach the sink in the
+ * order they were written. Connections are handed over from other threads through a queue and
+ * registered by the selector thread itself.
+ */
+final class SelectorLoop {
+
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(SelectorLoop.class.getName());
+    /** The selector watching this loop's connections. */
+    private final Selector selector;
+    /** Connections waiting to be registered with the selector. */
+    private final Queue<SocketChannel> pendingRegistrations = new ConcurrentLinkedQueue<>();
+    /** Largest frame accepted on a connection. */
+    private final int maxFrameSize;
+    /** Receiver of every complete frame. */
+    private final Consumer<ByteBuffer> sink;
+    /** The selector thread. */
+    private final Thread thread;
+
+    /**
+     * Constructs a selector loop and starts its thread.
+     * @param name Name of the selector thread.
+     * @param maxFrame Largest frame accepted on a connection, in bytes.
+     * @param frameSink Receiver of every complete frame; the buffer is only valid during the call.
+     * @throws IOException If the selector cannot be opened.
+     */
+    SelectorLoop(final String name, final int maxFrame, final Consumer<ByteBuffer> frameSink) throws IOException {
+        this.selector = Selector.open();
+        this.maxFrameSize = maxFrame;
+        this.sink = frameSink;
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true); // Stop the thread when the application exits
+        this.thread.start();
+    }
+
+    /**
+     * Hands a connection to this loop, which reads frames from it until the peer closes it.
+     * @param channel A connected channel.
+     */
+    void register(final SocketChannel channel) {
+        pendingRegistrations.offer(channel);
+        selector.wakeup();
+    }
+
+    /**
+     * Selects ready connections and reads from them.
+     */
+    private void run() {
+        while (selector.isOpen()) {
+            try {
+                selector.select();
+                registerPending();
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    readFrom(key);
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Selector failed: {0}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Registers the connections handed over since the last selection.
+     */
+    private void registerPending() {
+        SocketChannel channel = pendingRegistrations.poll();
+        while (channel != null) {
+            try {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, new StreamFrameReader(maxFrameSize, sink));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not register connection: {0}", e.getMessage());
+                close(channel);
+            }
+            channel = pendingRegistrations.poll();
+        }
+    }
+
+    /**
+     * Reads from a ready connection, closing it at the end of the stream or on error.
+     * @param key The selection key of the connection.
+     */
+    private void readFrom(final SelectionKey key) {
+        final SocketChannel channel = (SocketChannel) key.channel();
+        try {
+            if (key.isReadable() && ((StreamFrameReader) key.attachment()).read(channel) < 0) {
+                close(channel);
+            }
+        } catch (IOException | CancelledKeyException e) {
+            LOGGER.log(Level.WARNING, "Closing connection after read error: {0}", e.getMessage());
+            close(channel);
+        }
+    }
+
+    /**
+     * Closes a connection, ignoring errors.
+     * @param channel The connection to close.
+     */
+    private static void close(final SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error closing connection: {0}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.distributedguidemojava.networking;
+
+/**
+ * How a communicator sends the messages handed to it.
+ */
+public enum SendMode {
+
+    /** Send on the caller's thread; the call returns once the datagram has been handed to the socket. */
+    SYNC,
+
+    /** Queue the message for a dedicated sender thread; the call returns without waiting for the socket. */
+    ASYNC
+}
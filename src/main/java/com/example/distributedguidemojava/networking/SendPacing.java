@@ -0,0 +1,87 @@
+package com.example.distributedguidemojava.networking;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces the frames a communicator sends, with one {@link TokenBucket} per peer.
+ * Bursts such as the chunks of a large image are spread out at the configured rate instead of
+ * overflowing the peer's socket buffer. With reliable delivery the rate adapts: retransmissions
+ * report a loss and acknowledgements a delivery to the peer's bucket.
+ */
+final class SendPacing {
+
+    /** Smallest burst allowance: one datagram of the largest size. */
+    private static final long MIN_BURST_BYTES = 65536;
+    /** The burst allowance covers this much time at the configured rate. */
+    private static final long BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    /** Highest rate of every peer, in bytes per second. */
+    private final long rate;
+    /** Most bytes sent back to back to a peer without waiting. */
+    private final long burst;
+    /** Buckets of the peers, keyed by address. */
+    private final Map<InetSocketAddress, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs the pacing state.
+     * @param bytesPerSecond Highest rate of every peer, in bytes per second.
+     */
+    SendPacing(final long bytesPerSecond) {
+        this.rate = bytesPerSecond;
+        this.burst = Math.max(MIN_BURST_BYTES, bytesPerSecond * BURST_NANOS / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Waits until a send to a peer is due.
+     * @param peer Address of the peer.
+     * @param bytes Size of the send.
+     */
+    void acquire(final InetSocketAddress peer, final int bytes) {
+        bucket(peer).acquire(bytes);
+    }
+
+    /**
+     * Counts a send to a peer that must go out at once, such as a retransmission, against its rate.
+     * @param peer Address of the peer.
+     * @param bytes Size of the send.
+     */
+    void charge(final InetSocketAddress peer, final int bytes) {
+        bucket(peer).reserve(bytes, System.nanoTime());
+    }
+
+    /**
+     * Reports a send to a peer that was lost.
+     * @param peer Address of the peer.
+     */
+    void onLoss(final InetSocketAddress peer) {
+        bucket(peer).onLoss(System.nanoTime());
+    }
+
+    /**
+     * Reports a send to a peer that was confirmed.
+     * @param peer Address of the peer.
+     */
+    void onDelivered(final InetSocketAddress peer) {
+        bucket(peer).onDelivered(System.nanoTime());
+    }
+
+    /**
+     * Gets the current rate towards a peer.
+     * @param peer Address of the peer.
+     * @return The rate in bytes per second.
+     */
+    long getRate(final InetSocketAddress peer) {
+        return bucket(peer).getRate();
+    }
+
+    /**
+     * Gets the bucket of a peer, creating it on first use.
+     * @param peer Address of the peer.
+     * @return The bucket.
+     */
+    private TokenBucket bucket(final InetSocketAddress peer) {
+        return buckets.computeIfAbsent(peer, key -> new TokenBucket(rate, burst, System.nanoTime()));
+    }
+}
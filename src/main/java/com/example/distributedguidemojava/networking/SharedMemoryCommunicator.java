@@ -0,0 +1,388 @@
+package com.example.distributedguidemojava.networking;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Communicator connecting processes on the same host through memory-mapped files.
+ * Every instance announces itself with a small descriptor file named after its port, holding its
+ * process id. A sender that finds a peer's descriptor creates a ring file of its own for that peer, a
+ * {@link SharedMemoryRing} with the sender as the only producer and the peer as the only consumer, so
+ * every direction between two instances has a ring of its own. The receive thread of each instance
+ * discovers the rings addressed to it by scanning the directory, spins over them while frames keep
+ * arriving, and backs off to sleeps that double up to {@link #MAX_IDLE_PARK_NANOS} when they are quiet.
+ * No frame goes through the kernel.
+ *
+ * <p>Ring files are named after their producer's process id as well. A ring whose producer died without
+ * closing is deleted by its consumer once it has read what is left in it, or by the next instance that
+ * starts if nobody consumes it any more, just as a stale descriptor is taken over.
+ *
+ * <p>Only the port of a destination is used for routing; the files live in
+ * {@link CommunicatorConfig#getSharedMemoryDirectory()}, /dev/shm by default.
+ */
+public class SharedMemoryCommunicator extends AbstractCommunicator implements AutoCloseable {
+
+    /** Prefix of the descriptor and ring files. */
+    static final String FILE_PREFIX = "dgdemo-";
+    /** Suffix of the descriptor files. */
+    static final String DESCRIPTOR_SUFFIX = ".peer";
+    /** Suffix of the ring files. */
+    static final String RING_SUFFIX = ".ring";
+    /** Size of the data region of every ring. */
+    static final int RING_CAPACITY = 2 * 1024 * 1024;
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(SharedMemoryCommunicator.class.getName());
+    /** First port tried for an instance created with an ephemeral port. */
+    private static final int FIRST_EPHEMERAL_PORT = 49152;
+    /** Number of ports tried for an instance created with an ephemeral port. */
+    private static final int EPHEMERAL_PORT_COUNT = 65536 - FIRST_EPHEMERAL_PORT;
+    /** How long a sender waits for room in a full ring, in nanoseconds. */
+    private static final long SEND_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+    /** Number of empty polls the receive thread spins through before it starts sleeping. */
+    private static final int IDLE_SPINS = 1_000;
+    /** How long the receive thread first sleeps between polls once the rings are quiet, in nanoseconds. */
+    private static final long MIN_IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    /** Longest sleep between polls the receive thread backs off to, in nanoseconds. */
+    private static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    /** Index of the producer's process id among the dash-separated parts of a ring file name. */
+    private static final int RING_PID_PART = 3;
+    /** How often the receive thread looks for new and removed rings, in nanoseconds. */
+    private static final long SCAN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    /** Directory holding the descriptor and ring files. */
+    private final Path directory;
+    /** The port this instance is registered under. */
+    private final int listenPort;
+    /** Descriptor file announcing this instance. */
+    private final Path descriptor;
+    /** Random id naming the ring files this instance produces, unique across restarts. */
+    private final String sessionId = Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 1);
+    /** Rings this instance writes to, keyed by the destination port. */
+    private final Map<Integer, SharedMemoryRing> outgoingRings = new ConcurrentHashMap<>();
+    /** Rings addressed to this instance, keyed by their file; only the receive thread touches it. */
+    private final Map<Path, SharedMemoryRing> incomingRings = new ConcurrentHashMap<>();
+    /** The thread that reads the incoming rings and hands the frames to the subscribers. */
+    private final Thread receiveThread;
+    /** Whether the instance has been closed. */
+    private volatile boolean closed;
+
+    /**
+     * Constructs a SharedMemoryCommunicator registered under a free port in the default directory.
+     */
+    public SharedMemoryCommunicator() {
+        this(CommunicatorConfig.builder().transportType(TransportType.SHARED_MEMORY).build());
+    }
+
+    /**
+     * Constructs a SharedMemoryCommunicator from a configuration and starts its receive thread.
+     * @param config Settings of the communicator; the port, directory, dispatch and send settings are used.
+     */
+    public SharedMemoryCommunicator(final CommunicatorConfig config) {
+        super(config);
+        directory = config.getSharedMemoryDirectory();
+        // Before registering, so rings left for a dead instance are not delivered to its successor
+        deleteOrphanRings();
+        listenPort = register(config.getPort());
+        descriptor = descriptorPath(listenPort);
+        receiveThread = new Thread(this::receiveThreadProc, "shm-receive-" + listenPort);
+        receiveThread.setDaemon(true); // Stop the thread when the application exits
+        receiveThread.start();
+        LOGGER.log(Level.INFO, "Shared-memory Communicator registered on port {0} in {1}",
+            new Object[]{listenPort, directory});
+    }
+
+    @Override
+    protected void transmit(final Endpoint destination, final ByteBuffer header, final ByteBuffer payload)
+        throws IOException {
+        final SharedMemoryRing ring = outgoingRing(destination.getAddress().getPort());
+        // The ring has a single producer, so senders on this instance take turns
+        synchronized (ring) {
+            ring.write(header, payload, SEND_TIMEOUT_NANOS);
+        }
+    }
+
+    @Override
+    public int getListenPort() {
+        return listenPort;
+    }
+
+    /**
+     * Unregisters this instance, deletes the rings it produced and stops its receive thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        deleteQuietly(descriptor);
+        for (Integer port : outgoingRings.keySet()) {
+            deleteQuietly(ringPath(port));
+        }
+        outgoingRings.clear();
+        LockSupport.unpark(receiveThread);
+    }
+
+    /**
+     * Registers this instance under a port by creating its descriptor file.
+     * @param requestedPort The configured port, or {@link CommunicatorConfig#EPHEMERAL_PORT} for any free port.
+     * @return The port the instance is registered under.
+     */
+    private int register(final int requestedPort) {
+        if (requestedPort != CommunicatorConfig.EPHEMERAL_PORT) {
+            if (!createDescriptor(requestedPort)) {
+                throw new IllegalStateException("Shared-memory port already in use: " + requestedPort);
+            }
+            return requestedPort;
+        }
+        final int first = ThreadLocalRandom.current().nextInt(EPHEMERAL_PORT_COUNT);
+        for (int i = 0; i < EPHEMERAL_PORT_COUNT; i++) {
+            final int candidate = FIRST_EPHEMERAL_PORT + (first + i) % EPHEMERAL_PORT_COUNT;
+            if (createDescriptor(candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("No free shared-memory port in " + directory);
+    }
+
+    /**
+     * Creates the descriptor file of a port, taking over descriptors left behind by dead processes.
+     * @param port The port.
+     * @return True if the descriptor was created, false if a live instance holds the port.
+     */
+    private boolean createDescriptor(final int port) {
+        final Path path = descriptorPath(port);
+        final byte[] content = Long.toString(ProcessHandle.current().pid()).getBytes(StandardCharsets.US_ASCII);
+        try {
+            Files.write(path, content, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            if (!isStale(path)) {
+                return false;
+            }
+            LOGGER.log(Level.INFO, "Removing stale shared-memory descriptor {0}", path);
+            deleteQuietly(path);
+            return createDescriptor(port);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create shared-memory descriptor " + path, e);
+        }
+    }
+
+    /**
+     * Checks whether a descriptor file was left behind by a process that no longer runs.
+     * @param path Path of the descriptor.
+     * @return True if the owning process is gone.
+     */
+    private static boolean isStale(final Path path) {
+        try {
+            final long pid = Long.parseLong(Files.readString(path, StandardCharsets.US_ASCII).trim());
+            return !isAlive(pid);
+        } catch (IOException | NumberFormatException e) {
+            // Being written right now, or already removed; treat the port as taken
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether a process runs.
+     * @param pid The process id.
+     * @return True if the process is alive.
+     */
+    private static boolean isAlive(final long pid) {
+        return ProcessHandle.of(pid).filter(ProcessHandle::isAlive).isPresent();
+    }
+
+    /**
+     * Checks whether the producer of a ring died without deleting it.
+     * @param path Path of the ring file.
+     * @return True if the producer is gone; false if it runs or the name does not tell.
+     */
+    private static boolean isProducerGone(final Path path) {
+        final String[] parts = path.getFileName().toString().split("-");
+        try {
+            return parts.length > RING_PID_PART && !isAlive(Long.parseLong(parts[RING_PID_PART]));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the rings whose producer and consumer are both gone, so nobody would ever delete them.
+     */
+    private void deleteOrphanRings() {
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + RING_SUFFIX)) {
+            for (Path path : paths) {
+                final String port = path.getFileName().toString().split("-")[1];
+                final Path consumer = directory.resolve(FILE_PREFIX + port + DESCRIPTOR_SUFFIX);
+                if (isProducerGone(path) && (!Files.exists(consumer) || isStale(consumer))) {
+                    LOGGER.log(Level.INFO, "Removing orphaned shared-memory ring {0}", path);
+                    deleteQuietly(path);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot scan {0} for rings: {1}", new Object[]{directory, e.getMessage()});
+        }
+    }
+
+    /**
+     * Gets the ring this instance writes to for a destination, creating it on first use.
+     * @param port Port of the destination.
+     * @return The ring.
+     * @throws IOException If no instance is registered under the port or the ring cannot be created.
+     */
+    private SharedMemoryRing outgoingRing(final int port) throws IOException {
+        final SharedMemoryRing cached = outgoingRings.get(port);
+        if (cached != null) {
+            return cached;
+        }
+        if (closed) {
+            throw new IOException("Shared-memory communicator on port " + listenPort + " is closed");
+        }
+        if (!Files.exists(descriptorPath(port))) {
+            throw new IOException("No shared-memory communicator on port " + port);
+        }
+        try {
+            return outgoingRings.computeIfAbsent(port, key -> {
+                try {
+                    return SharedMemoryRing.create(ringPath(key), RING_CAPACITY);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Reads the incoming rings and hands the frames to the subscribers. While they are quiet, the thread
+     * spins briefly, then sleeps for twice as long after every empty poll, up to
+     * {@link #MAX_IDLE_PARK_NANOS}; a frame arriving starts it over.
+     */
+    private void receiveThreadProc() {
+        long nextScan = System.nanoTime();
+        int idleSpins = 0;
+        long idlePark = MIN_IDLE_PARK_NANOS;
+        while (!closed) {
+            if (System.nanoTime() - nextScan >= 0) {
+                scanRings();
+                nextScan = System.nanoTime() + SCAN_INTERVAL_NANOS;
+            }
+            if (readRings() > 0) {
+                idleSpins = 0;
+                idlePark = MIN_IDLE_PARK_NANOS;
+            } else if (idleSpins < IDLE_SPINS) {
+                idleSpins++;
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(this, idlePark);
+                idlePark = Math.min(idlePark * 2, MAX_IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Reads every frame waiting in the incoming rings.
+     * @return The number of frames read.
+     */
+    private int readRings() {
+        int count = 0;
+        for (Map.Entry<Path, SharedMemoryRing> entry : incomingRings.entrySet()) {
+            try {
+                // The ring memory is reused once read, so deliver copies the payload
+                count += entry.getValue().read(this::deliver);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Dropping corrupt ring {0}: {1}",
+                    new Object[]{entry.getKey(), e.getMessage()});
+                incomingRings.remove(entry.getKey());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Opens the rings that peers created for this instance since the last scan, and forgets the rings
+     * whose producers have deleted them or died, after reading what is left in them; the rings of dead
+     * producers are deleted.
+     */
+    private void scanRings() {
+        for (Path path : incomingRings.keySet()) {
+            final boolean producerGone = isProducerGone(path);
+            if (producerGone || !Files.exists(path)) {
+                readRings();
+                incomingRings.remove(path);
+            }
+            if (producerGone) {
+                LOGGER.log(Level.INFO, "Removing shared-memory ring {0} of a dead producer", path);
+                deleteQuietly(path);
+            }
+        }
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory,
+            FILE_PREFIX + listenPort + "-*" + RING_SUFFIX)) {
+            for (Path path : paths) {
+                if (!incomingRings.containsKey(path)) {
+                    openRing(path);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot scan {0} for rings: {1}", new Object[]{directory, e.getMessage()});
+        }
+    }
+
+    /**
+     * Opens a ring addressed to this instance, if its producer has finished creating it.
+     * @param path Path of the ring file.
+     */
+    private void openRing(final Path path) {
+        try {
+            final SharedMemoryRing ring = SharedMemoryRing.open(path);
+            if (ring != null) {
+                incomingRings.put(path, ring);
+                LOGGER.log(Level.INFO, "Opened shared-memory ring {0}", path);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Cannot open ring {0}: {1}", new Object[]{path, e.getMessage()});
+        }
+    }
+
+    /**
+     * Gets the path of the descriptor file of a port.
+     * @param port The port.
+     * @return The path.
+     */
+    private Path descriptorPath(final int port) {
+        return directory.resolve(FILE_PREFIX + port + DESCRIPTOR_SUFFIX);
+    }
+
+    /**
+     * Gets the path of the ring file this instance produces for a destination port.
+     * @param port The destination port.
+     * @return The path.
+     */
+    private Path ringPath(final int port) {
+        return directory.resolve(FILE_PREFIX + port + "-" + listenPort + "-" + ProcessHandle.current().pid() + "-"
+            + sessionId + RING_SUFFIX);
+    }
+
+    /**
+     * Deletes a file, ignoring errors.
+     * @param path The file to delete.
+     */
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error deleting {0}: {1}", new Object[]{path, e.getMessage()});
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.distributedguidemojava.networking;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A single-producer, single-consumer ring of frames in a memory-mapped file, shared by two processes.
+ * The file starts with a small header: a magic number written last by the producer once the ring is
+ * ready, the capacity of the data region, the producer's tail and the consumer's head, each on a cache
+ * line of its own. The data region holds records of a native-order i32 length followed by the frame,
+ * padded to 8 bytes; a record that would cross the end of the region is preceded by a padding marker
+ * and written at the start instead. Positions only grow, and are published with release stores and
+ * read with acquire loads, so neither side takes a lock or makes a system call.
+ *
+ * <p>The mapping stays valid after the file is deleted and is released when the ring is garbage collected.
+ */
+final class SharedMemoryRing {
+
+    /** Offset of the magic number. */
+    private static final int MAGIC_OFFSET = 0;
+    /** Offset of the capacity of the data region. */
+    private static final int CAPACITY_OFFSET = 8;
+    /** Offset of the producer's tail position, on a cache line of its own. */
+    private static final int TAIL_OFFSET = 64;
+    /** Offset of the consumer's head position, on a cache line of its own. */
+    private static final int HEAD_OFFSET = 128;
+    /** Offset of the data region. */
+    private static final int DATA_OFFSET = 192;
+    /** Value of the magic number once the ring is ready; "DGRING01" in ASCII. */
+    private static final long MAGIC = 0x4447_5249_4E47_3031L;
+    /** Size of the length in front of every record. */
+    private static final int LENGTH_SIZE = 4;
+    /** Alignment of every record, so the length and positions are never torn. */
+    private static final int RECORD_ALIGNMENT = 8;
+    /** Length written in place of a record to say the rest of the region is unused. */
+    private static final int PADDING_MARKER = -1;
+    /** How long the producer waits before checking a full ring again, in nanoseconds. */
+    private static final long FULL_RING_BACKOFF_NANOS = 1_000L;
+    /** Access to the longs of the header with memory ordering across processes. */
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    /** The whole mapped file. */
+    private final MappedByteBuffer mapping;
+    /** The data region of the mapping. */
+    private final ByteBuffer data;
+    /** Size of the data region; a power of two. */
+    private final int capacity;
+    /** The position this side advances: the tail for the producer, the head for the consumer. */
+    private long position;
+
+    /**
+     * Constructs a ring over a mapped file.
+     * @param mapped The mapped file.
+     * @param size Size of the data region.
+     * @param start The current position of this side.
+     */
+    private SharedMemoryRing(final MappedByteBuffer mapped, final int size, final long start) {
+        this.mapping = mapped;
+        this.capacity = size;
+        this.position = start;
+        this.data = mapped.slice(DATA_OFFSET, size).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Creates the file of a new ring, as its producer.
+     * @param path Path of the file; it must not exist yet.
+     * @param capacity Size of the data region; a power of two.
+     * @return The ring, ready for {@link #write}.
+     * @throws IOException If the file cannot be created or mapped.
+     */
+    static SharedMemoryRing create(final Path path, final int capacity) throws IOException {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two: " + capacity);
+        }
+        final MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET + capacity);
+        }
+        LONGS.set(mapped, CAPACITY_OFFSET, (long) capacity);
+        // Publishing the magic number last tells the consumer the header is complete
+        LONGS.setRelease(mapped, MAGIC_OFFSET, MAGIC);
+        return new SharedMemoryRing(mapped, capacity, 0);
+    }
+
+    /**
+     * Opens the file of a ring created by another process, as its consumer.
+     * @param path Path of the file.
+     * @return The ring, ready for {@link #read}, or null if the producer has not finished creating it.
+     * @throws IOException If the file cannot be mapped or is not a valid ring.
+     */
+    static SharedMemoryRing open(final Path path) throws IOException {
+        final MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < DATA_OFFSET) {
+                return null;
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        if ((long) LONGS.getAcquire(mapped, MAGIC_OFFSET) != MAGIC) {
+            return null;
+        }
+        final long capacity = (long) LONGS.get(mapped, CAPACITY_OFFSET);
+        if (capacity <= 0 || Long.bitCount(capacity) != 1 || DATA_OFFSET + capacity != mapped.capacity()) {
+            throw new IOException("Invalid shared-memory ring: " + path);
+        }
+        return new SharedMemoryRing(mapped, (int) capacity, (long) LONGS.getAcquire(mapped, HEAD_OFFSET));
+    }
+
+    /**
+     * Gets the largest frame the ring accepts.
+     * @return The size in bytes.
+     */
+    int getMaxFrameSize() {
+        return capacity / 2 - LENGTH_SIZE - RECORD_ALIGNMENT;
+    }
+
+    /**
+     * Writes a frame made of a header and a payload, waiting while the ring is full; producer only.
+     * @param header Buffer holding the encoded frame header.
+     * @param payload Buffer holding the payload.
+     * @param timeoutNanos How long to wait for free space before giving up.
+     * @throws IOException If the frame is too large or the consumer does not make room in time.
+     */
+    void write(final ByteBuffer header, final ByteBuffer payload, final long timeoutNanos) throws IOException {
+        final int length = header.remaining() + payload.remaining();
+        if (length > getMaxFrameSize()) {
+            throw new IOException("Frame of " + length + " bytes exceeds the ring's limit of " + getMaxFrameSize());
+        }
+        final int recordSize = align(LENGTH_SIZE + length);
+        int index = (int) position & (capacity - 1);
+        final int untilEnd = capacity - index;
+        int required = recordSize;
+        if (recordSize > untilEnd) {
+            required += untilEnd;
+        }
+        awaitSpace(required, timeoutNanos);
+        if (recordSize > untilEnd) {
+            data.putInt(index, PADDING_MARKER);
+            position += untilEnd;
+            index = 0;
+        }
+        data.putInt(index, length);
+        data.put(index + LENGTH_SIZE, header, header.position(), header.remaining());
+        data.put(index + LENGTH_SIZE + header.remaining(), payload, payload.position(), payload.remaining());
+        position += recordSize;
+        LONGS.setRelease(mapping, TAIL_OFFSET, position);
+    }
+
+    /**
+     * Hands every frame published so far to a sink and frees its space; consumer only.
+     * @param sink Receiver of the frames; the buffer it gets is only valid during the call.
+     * @return The number of frames handed to the sink.
+     * @throws IOException If a record length is out of range.
+     */
+    int read(final Consumer<ByteBuffer> sink) throws IOException {
+        final long tail = (long) LONGS.getAcquire(mapping, TAIL_OFFSET);
+        int count = 0;
+        while (position < tail) {
+            final int index = (int) position & (capacity - 1);
+            final int length = data.getInt(index);
+            if (length == PADDING_MARKER) {
+                position += capacity - index;
+                continue;
+            }
+            if (length < 0 || length > capacity - index - LENGTH_SIZE) {
+                throw new IOException("Invalid record length in shared-memory ring: " + length);
+            }
+            sink.accept(data.slice(index + LENGTH_SIZE, length));
+            position += align(LENGTH_SIZE + length);
+            LONGS.setRelease(mapping, HEAD_OFFSET, position);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Waits until the consumer has freed enough space; producer only.
+     * @param required Number of bytes needed.
+     * @param timeoutNanos How long to wait before giving up.
+     * @throws IOException If the space is not freed in time.
+     */
+    private void awaitSpace(final int required, final long timeoutNanos) throws IOException {
+        final long deadline = System.nanoTime() + timeoutNanos;
+        while (position + required - (long) LONGS.getAcquire(mapping, HEAD_OFFSET) > capacity) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IOException("Shared-memory ring stayed full for " + timeoutNanos + " ns");
+            }
+            LockSupport.parkNanos(FULL_RING_BACKOFF_NANOS);
+        }
+    }
+
+    /**
+     * Rounds a size up to the record alignment.
+     * @param size The size in bytes.
+     * @return The aligned size.
+     */
+    private static int align(final int size) {
+        return (size + RECORD_ALIGNMENT - 1) & -RECORD_ALIGNMENT;
+    }
+}
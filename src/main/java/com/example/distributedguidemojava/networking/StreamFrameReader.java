@@ -0,0 +1,80 @@
+package com.example.distributedguidemojava.networking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.function.Consumer;
+
+/**
+ * Splits a byte stream into length-prefixed frames.
+ * Each frame on the stream is a big-endian u32 length followed by that many bytes. Bytes are read into
+ * one buffer per connection, which grows only when a single frame does not fit, and every complete
+ * frame is handed to the sink as a view of that buffer.
+ */
+final class StreamFrameReader {
+
+    /** Size of the length prefix in front of every frame. */
+    static final int LENGTH_PREFIX_SIZE = 4;
+    /** Initial size of the read buffer. */
+    private static final int INITIAL_BUFFER_SIZE = 65536;
+    /** Largest frame accepted; longer lengths mean a corrupt or hostile stream. */
+    private final int maxFrameSize;
+    /** Receiver of the complete frames; the view it gets is only valid during the call. */
+    private final Consumer<ByteBuffer> sink;
+    /** Buffer holding bytes read but not yet handed out, in write mode. */
+    private ByteBuffer buffer;
+
+    /**
+     * Constructs a reader for one stream.
+     * @param maxFrame Largest frame accepted, in bytes.
+     * @param frameSink Receiver of the complete frames.
+     */
+    StreamFrameReader(final int maxFrame, final Consumer<ByteBuffer> frameSink) {
+        this.maxFrameSize = maxFrame;
+        this.sink = frameSink;
+        this.buffer = ByteBuffer.allocate(Math.min(INITIAL_BUFFER_SIZE, maxFrame + LENGTH_PREFIX_SIZE));
+    }
+
+    /**
+     * Reads what is available from a channel and hands every complete frame to the sink.
+     * @param channel The channel to read from.
+     * @return The number of bytes read, or -1 at the end of the stream.
+     * @throws IOException If reading fails or a frame length is out of range.
+     */
+    int read(final ReadableByteChannel channel) throws IOException {
+        final int count = channel.read(buffer);
+        if (count > 0) {
+            drain();
+        }
+        return count;
+    }
+
+    /**
+     * Hands every complete frame in the buffer to the sink and keeps the remaining bytes.
+     * @throws IOException If a frame length is out of range.
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        int needed = 0;
+        while (buffer.remaining() >= LENGTH_PREFIX_SIZE) {
+            final int length = buffer.getInt(buffer.position());
+            if (length < 0 || length > maxFrameSize) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            if (buffer.remaining() < LENGTH_PREFIX_SIZE + length) {
+                needed = LENGTH_PREFIX_SIZE + length;
+                break;
+            }
+            final int start = buffer.position() + LENGTH_PREFIX_SIZE;
+            sink.accept(buffer.slice(start, length));
+            buffer.position(start + length);
+        }
+        buffer.compact();
+        if (needed > buffer.capacity()) {
+            final ByteBuffer larger = ByteBuffer.allocate(Math.max(needed, buffer.capacity() * 2));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+}
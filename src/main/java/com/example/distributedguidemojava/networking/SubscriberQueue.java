@@ -0,0 +1,200 @@
+package com.example.distributedguidemojava.networking;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded dispatch queue and single-thread executor for one subscriber.
+ * The receive thread only enqueues; the subscriber's own thread runs the listener, so a slow
+ * subscriber neither stalls the socket nor delays other subscribers. Messages for a subscriber
+ * are delivered in the order they were enqueued, except for an {@link IConcurrentMessageListener},
+ * which may be given several threads that deliver side by side.
+ */
+final class SubscriberQueue {
+
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(SubscriberQueue.class.getName());
+    /** How long a blocked receive thread waits for room before checking again for a shutdown, in milliseconds. */
+    private static final long BLOCK_RECHECK_MILLIS = 50;
+    /** Identifier of the subscriber this queue delivers to. */
+    private final String subscriberId;
+    /** The listener that receives the messages. */
+    private final IMessageListener listener;
+    /** Executor with a bounded queue that runs the listener. */
+    private final ThreadPoolExecutor executor;
+    /** Counter of messages dropped because the queue was full, shared with the communicator. */
+    private final AtomicLong droppedMessages;
+
+    /**
+     * Constructs a dispatch queue and starts its thread.
+     * @param id Identifier of the subscriber.
+     * @param subscriber The listener that receives the messages.
+     * @param capacity Maximum number of messages waiting to be delivered.
+     * @param policy What to do with a message that arrives while the queue is full.
+     * @param droppedCounter Counter to increment for every dropped message.
+     */
+    SubscriberQueue(final String id, final IMessageListener subscriber, final int capacity,
+        final OverflowPolicy policy, final AtomicLong droppedCounter) {
+        this(id, subscriber, capacity, policy, droppedCounter, 1);
+    }
+
+    /**
+     * Constructs a dispatch queue and starts its threads.
+     * @param id Identifier of the subscriber.
+     * @param subscriber The listener that receives the messages.
+     * @param capacity Maximum number of messages waiting to be delivered.
+     * @param policy What to do with a message that arrives while the queue is full.
+     * @param droppedCounter Counter to increment for every dropped message.
+     * @param concurrency Number of threads delivering to an {@link IConcurrentMessageListener}; any
+     *        other listener gets one.
+     */
+    SubscriberQueue(final String id, final IMessageListener subscriber, final int capacity,
+        final OverflowPolicy policy, final AtomicLong droppedCounter, final int concurrency) {
+        this.subscriberId = id;
+        this.listener = subscriber;
+        this.droppedMessages = droppedCounter;
+        final int threads = threadCount(subscriber, concurrency);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(capacity), runnable -> {
+                final Thread thread = new Thread(runnable, "dispatch-" + id);
+                thread.setDaemon(true); // Stop the thread when the application exits
+                return thread;
+            }, createOverflowHandler(policy));
+        this.executor.prestartAllCoreThreads();
+    }
+
+    /**
+     * Queues a message for delivery to the subscriber.
+     * @param header Header of the received frame, which the queue now owns.
+     * @param payload Buffer that the queue now owns, holding the message between its position and limit.
+     */
+    void enqueue(final FrameHeader header, final ByteBuffer payload) {
+        executor.execute(new Delivery(header, payload));
+    }
+
+    /**
+     * Stops accepting messages; messages already queued are still delivered.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Gets the number of threads delivering to a listener.
+     * @param subscriber The listener.
+     * @param concurrency Number of threads an {@link IConcurrentMessageListener} may be given.
+     * @return The thread count.
+     */
+    private static int threadCount(final IMessageListener subscriber, final int concurrency) {
+        if (subscriber instanceof IConcurrentMessageListener) {
+            return Math.max(1, concurrency);
+        }
+        return 1;
+    }
+
+    /**
+     * Creates the handler that applies the overflow policy when the executor's queue is full.
+     * @param policy The overflow policy.
+     * @return The rejection handler implementing the policy.
+     */
+    private RejectedExecutionHandler createOverflowHandler(final OverflowPolicy policy) {
+        switch (policy) {
+            case DROP_OLDEST:
+                return this::replaceOldest;
+            case BLOCK:
+                return this::waitForRoom;
+            case DROP_NEWEST:
+            default:
+                return (delivery, pool) -> onDropped();
+        }
+    }
+
+    /**
+     * Queues a delivery in place of the oldest queued one. The delivery goes straight into the queue,
+     * where the threads started with the executor pick it up, so the handler is never re-entered.
+     * @param delivery The delivery that did not fit.
+     * @param pool The executor.
+     */
+    private void replaceOldest(final Runnable delivery, final ThreadPoolExecutor pool) {
+        final BlockingQueue<Runnable> queue = pool.getQueue();
+        while (!pool.isShutdown()) {
+            if (queue.offer(delivery)) {
+                return;
+            }
+            if (queue.poll() != null) {
+                onDropped();
+            }
+        }
+    }
+
+    /**
+     * Waits for room in the queue for a delivery. The receive thread waits a bounded time at once and
+     * checks for a shutdown in between, so it never waits on a queue that nobody drains any more.
+     * @param delivery The delivery that did not fit.
+     * @param pool The executor.
+     */
+    private void waitForRoom(final Runnable delivery, final ThreadPoolExecutor pool) {
+        final BlockingQueue<Runnable> queue = pool.getQueue();
+        try {
+            while (!pool.isShutdown()) {
+                if (queue.offer(delivery, BLOCK_RECHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            onDropped();
+        }
+    }
+
+    /**
+     * Records a message dropped because the queue was full.
+     */
+    private void onDropped() {
+        final long dropped = droppedMessages.incrementAndGet();
+        LOGGER.log(Level.FINE, "Dispatch queue full for subscriber {0}, {1} messages dropped so far",
+            new Object[]{subscriberId, dropped});
+    }
+
+    /**
+     * A queued message, delivered to the listener on the subscriber's thread.
+     */
+    private final class Delivery implements Runnable {
+
+        /** Header of the received frame. */
+        private final FrameHeader header;
+        /** The message payload. */
+        private final ByteBuffer payload;
+
+        /**
+         * Constructs a delivery for a message.
+         * @param frameHeader Header of the received frame.
+         * @param message Buffer holding the message between its position and limit.
+         */
+        Delivery(final FrameHeader frameHeader, final ByteBuffer message) {
+            this.header = frameHeader;
+            this.payload = message;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (listener instanceof IBinaryMessageListener) {
+                    ((IBinaryMessageListener) listener).onFrameReceived(header, payload);
+                } else {
+                    listener.onMessageReceived(StandardCharsets.UTF_8.decode(payload).toString());
+                }
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Subscriber " + subscriberId + " failed to handle a message", e);
+            }
+        }
+    }
+}
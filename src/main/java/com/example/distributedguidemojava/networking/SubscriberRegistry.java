@@ -0,0 +1,108 @@
+package com.example.distributedguidemojava.networking;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry of subscriber dispatch queues, readable without locks.
+ * Lookups by subscriber id go through a concurrent map; lookups by channel id read a volatile
+ * snapshot array that writers replace with a modified copy. Adding or removing subscribers is
+ * therefore safe while the receive threads are routing traffic.
+ */
+final class SubscriberRegistry {
+
+    /** Dispatch queues keyed by subscriber id. */
+    private final Map<String, SubscriberQueue> byName = new ConcurrentHashMap<>();
+    /** Lock serializing writers; readers never take it. */
+    private final Object writeLock = new Object();
+    /** Snapshot of the dispatch queues indexed by channel id. */
+    private volatile SubscriberQueue[] byChannel = new SubscriberQueue[ChannelIds.MAX_CHANNEL_ID + 1];
+    /** Number of received messages dropped because a dispatch queue was full, across all queues. */
+    private final AtomicLong droppedMessages = new AtomicLong();
+
+    /**
+     * Creates a dispatch queue for a subscriber, counting its drops with the registry's, and adds it.
+     * @param id The subscriber id.
+     * @param listener The subscriber.
+     * @param capacity Maximum number of messages waiting in the queue.
+     * @param policy What a full queue does with a newly received message.
+     * @param concurrency Number of threads delivering to an {@link IConcurrentMessageListener}.
+     * @return The queue that was replaced, or null if there was none.
+     */
+    SubscriberQueue subscribe(final String id, final IMessageListener listener, final int capacity,
+        final OverflowPolicy policy, final int concurrency) {
+        return put(id, new SubscriberQueue(id, listener, capacity, policy, droppedMessages, concurrency));
+    }
+
+    /**
+     * Adds or replaces the dispatch queue of a subscriber.
+     * @param id The subscriber id.
+     * @param queue The subscriber's dispatch queue.
+     * @return The queue that was replaced, or null if there was none.
+     */
+    SubscriberQueue put(final String id, final SubscriberQueue queue) {
+        synchronized (writeLock) {
+            final SubscriberQueue previous = byName.put(id, queue);
+            updateChannel(id, queue);
+            return previous;
+        }
+    }
+
+    /**
+     * Removes the dispatch queue of a subscriber.
+     * @param id The subscriber id.
+     * @return The queue that was removed, or null if there was none.
+     */
+    SubscriberQueue remove(final String id) {
+        synchronized (writeLock) {
+            final SubscriberQueue removed = byName.remove(id);
+            updateChannel(id, null);
+            return removed;
+        }
+    }
+
+    /**
+     * Gets the dispatch queue of a subscriber by id.
+     * @param id The subscriber id.
+     * @return The dispatch queue, or null if there is no such subscriber.
+     */
+    SubscriberQueue get(final String id) {
+        return byName.get(id);
+    }
+
+    /**
+     * Gets the dispatch queue of a subscriber by channel id.
+     * @param channelId The channel id.
+     * @return The dispatch queue, or null if no subscriber is registered on the channel.
+     */
+    SubscriberQueue get(final int channelId) {
+        final SubscriberQueue[] snapshot = byChannel;
+        if (channelId <= ChannelIds.UNASSIGNED || channelId >= snapshot.length) {
+            return null;
+        }
+        return snapshot[channelId];
+    }
+
+    /**
+     * Gets the number of received messages dropped because a dispatch queue was full.
+     * @return The count since the registry was created, including queues since removed.
+     */
+    long getDroppedCount() {
+        return droppedMessages.get();
+    }
+
+    /**
+     * Publishes a new channel snapshot if the subscriber id has a channel id. Called with the write lock held.
+     * @param id The subscriber id.
+     * @param queue The queue to store for the channel, or null to clear it.
+     */
+    private void updateChannel(final String id, final SubscriberQueue queue) {
+        final int channelId = ChannelIds.forName(id);
+        if (channelId != ChannelIds.UNASSIGNED) {
+            final SubscriberQueue[] snapshot = byChannel.clone();
+            snapshot[channelId] = queue;
+            byChannel = snapshot;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.distributedguidemojava.networking;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Communicator implementation using TCP streams.
+ * Every frame is written to the stream behind a big-endian u32 length, so payloads are not limited to
+ * the size of a datagram and arrive complete and in order. Outgoing frames go over one persistent
+ * connection per peer, opened on first use; a connection that fails is dropped and the next send
+ * opens a new one. Incoming connections are accepted on the listen port and spread across a small
+ * pool of selector threads, one per configured receive thread.
+ *
+ * <p>Subscribers are addressed exactly as with {@link UdpCommunicator}; the frame layout is the same.
+ */
+public class TcpCommunicator extends AbstractCommunicator {
+
+    /** Largest frame accepted on a connection. */
+    static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+    /** Logger for logging information and errors. */
+    private static final Logger LOGGER = Logger.getLogger(TcpCommunicator.class.getName());
+    /** How long to wait for a connection to a peer, in milliseconds. */
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    /** The channel accepting connections on the listen port. */
+    private final ServerSocketChannel serverChannel;
+    /** The port on which the communicator listens for incoming connections. */
+    private final int listenPort;
+    /** Selector threads reading frames from accepted connections. */
+    private final SelectorLoop[] selectorLoops;
+    /** The thread that accepts incoming connections. */
+    private final Thread acceptThread;
+    /** Outgoing connections, one per peer, keyed by the peer's address. */
+    private final Map<InetSocketAddress, SocketChannel> connections = new ConcurrentHashMap<>();
+    /** SO_SNDBUF size of outgoing connections, or {@link CommunicatorConfig#OS_DEFAULT}. */
+    private final int socketSendBufferSize;
+
+    /**
+     * Constructs a TcpCommunicator listening on an ephemeral port.
+     */
+    public TcpCommunicator() {
+        this(CommunicatorConfig.builder().transportType(TransportType.TCP).build());
+    }
+
+    /**
+     * Constructs a TcpCommunicator from a configuration, binding the listen port and starting the
+     * accept and selector threads.
+     * @param config Settings of the communicator; the receive thread count sets the number of selector threads.
+     */
+    public TcpCommunicator(final CommunicatorConfig config) {
+        super(config);
+        socketSendBufferSize = config.getSocketSendBufferSize();
+        try {
+            serverChannel = ServerSocketChannel.open();
+            if (config.getSocketReceiveBufferSize() != CommunicatorConfig.OS_DEFAULT) {
+                // Set on the listening socket so accepted connections inherit it
+                serverChannel.setOption(StandardSocketOptions.SO_RCVBUF, config.getSocketReceiveBufferSize());
+            }
+            serverChannel.bind(new InetSocketAddress(config.getPort()));
+            listenPort = ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+            selectorLoops = new SelectorLoop[config.getReceiveThreads()];
+            for (int i = 0; i < selectorLoops.length; i++) {
+                selectorLoops[i] = new SelectorLoop("tcp-selector-" + i, MAX_FRAME_SIZE, this::deliver);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create TCP server channel on port " + config.getPort(), e);
+        }
+
+        acceptThread = new Thread(this::acceptThreadProc, "tcp-accept");
+        acceptThread.setDaemon(true); // Stop the thread when the application exits
+        acceptThread.start();
+        LOGGER.log(Level.INFO, "TCP Communicator listening on port {0} with {1} selector threads",
+            new Object[]{listenPort, selectorLoops.length});
+    }
+
+    @Override
+    protected void transmit(final Endpoint destination, final ByteBuffer header, final ByteBuffer payload)
+        throws IOException {
+        final ByteBuffer lengthPrefix = ByteBuffer.allocate(StreamFrameReader.LENGTH_PREFIX_SIZE);
+        lengthPrefix.putInt(header.remaining() + payload.remaining()).flip();
+        final ByteBuffer[] frame = {lengthPrefix, header, payload};
+        final SocketChannel connection = connection(destination.getAddress());
+        try {
+            // Frames from concurrent senders must not interleave on the stream
+            synchronized (connection) {
+                while (lengthPrefix.hasRemaining() || header.hasRemaining() || payload.hasRemaining()) {
+                    connection.write(frame);
+                }
+            }
+        } catch (IOException e) {
+            drop(destination.getAddress(), connection);
+            throw e;
+        }
+    }
+
+    @Override
+    public int getListenPort() {
+        return listenPort;
+    }
+
+    /**
+     * Gets the number of outgoing connections currently open.
+     * @return The number of pooled connections.
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Gets the pooled connection to a peer, opening it on first use.
+     * @param destination Address of the peer.
+     * @return The open connection.
+     * @throws IOException If the connection cannot be opened.
+     */
+    private SocketChannel connection(final InetSocketAddress destination) throws IOException {
+        final SocketChannel cached = connections.get(destination);
+        if (cached != null && cached.isOpen()) {
+            return cached;
+        }
+        final SocketChannel opened = SocketChannel.open();
+        try {
+            opened.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            if (socketSendBufferSize != CommunicatorConfig.OS_DEFAULT) {
+                opened.setOption(StandardSocketOptions.SO_SNDBUF, socketSendBufferSize);
+            }
+            opened.socket().connect(destination, CONNECT_TIMEOUT_MILLIS);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        final SocketChannel raced = connections.putIfAbsent(destination, opened);
+        if (raced == null) {
+            return opened;
+        }
+        if (raced.isOpen()) {
+            // Another sender connected first; use its connection
+            opened.close();
+            return raced;
+        }
+        connections.replace(destination, raced, opened);
+        return opened;
+    }
+
+    /**
+     * Closes a failed connection and removes it from the pool.
+     * @param destination Address of the peer.
+     * @param connection The failed connection.
+     */
+    private void drop(final InetSocketAddress destination, final SocketChannel connection) {
+        connections.remove(destination, connection);
+        try {
+            connection.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Error closing connection: {0}", e.getMessage());
+        }
+    }
+
+    /**
+     * Accepts incoming connections and hands them to the selector threads in turn.
+     */
+    private void acceptThreadProc() {
+        int next = 0;
+        while (serverChannel.isOpen()) {
+            try {
+                final SocketChannel accepted = serverChannel.accept();
+                selectorLoops[next].register(accepted);
+                next = (next + 1) % selectorLoops.length;
+            } catch (ClosedChannelException e) {
+                LOGGER.log(Level.INFO, "Server channel closed on port {0}", listenPort);
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Error accepting connection: {0}", e.getMessage());
+            }
+        }
+    }
+}
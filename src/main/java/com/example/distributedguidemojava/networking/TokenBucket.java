@@ -0,0 +1,127 @@
+package com.example.distributedguidemojava.networking;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A token bucket pacing the bytes sent to one peer, with a rate that adapts to loss.
+ * Tokens accrue at the current rate up to a burst allowance; a send takes as many tokens as it has
+ * bytes and, when the bucket runs into debt, waits until the debt is paid off, so callers are spread
+ * out in the order they arrived. The rate starts at the configured maximum, is cut by 30% when a loss
+ * is reported (at most once per {@link #LOSS_HOLDOFF_NANOS}) and grows back by 1/32 of the maximum
+ * every {@link #INCREASE_INTERVAL_NANOS} while deliveries are confirmed: additive increase,
+ * multiplicative decrease, as in TCP.
+ */
+final class TokenBucket {
+
+    /** Shortest time between two rate cuts, so one burst of losses counts once. */
+    static final long LOSS_HOLDOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    /** Shortest time between two rate increases. */
+    static final long INCREASE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    /** The rate never drops below the maximum divided by this. */
+    private static final int MIN_RATE_DIVISOR = 16;
+    /** Each increase adds the maximum divided by this. */
+    private static final int INCREASE_DIVISOR = 32;
+    /** A cut keeps this many tenths of the rate. */
+    private static final int DECREASE_TENTHS = 7;
+    /** Tenths in a whole. */
+    private static final int TENTHS = 10;
+    /** Nanoseconds in a second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+    /** Highest rate, in bytes per second. */
+    private final long maxRate;
+    /** Lowest rate, in bytes per second. */
+    private final long minRate;
+    /** Most tokens the bucket holds, in bytes. */
+    private final long burst;
+    /** Current rate, in bytes per second. */
+    private long rate;
+    /** Tokens available, in bytes; negative while senders are waiting. */
+    private double tokens;
+    /** When tokens were last added, in nanoseconds. */
+    private long lastRefill;
+    /** When the rate was last cut, in nanoseconds. */
+    private long lastDecrease;
+    /** When the rate was last raised, in nanoseconds. */
+    private long lastIncrease;
+
+    /**
+     * Constructs a full bucket sending at the maximum rate.
+     * @param bytesPerSecond Highest rate, in bytes per second.
+     * @param burstBytes Most bytes sent back to back without waiting.
+     * @param now The current time in nanoseconds.
+     */
+    TokenBucket(final long bytesPerSecond, final long burstBytes, final long now) {
+        this.maxRate = bytesPerSecond;
+        this.minRate = Math.max(1, bytesPerSecond / MIN_RATE_DIVISOR);
+        this.burst = burstBytes;
+        this.rate = bytesPerSecond;
+        this.tokens = burstBytes;
+        this.lastRefill = now;
+        this.lastDecrease = now - LOSS_HOLDOFF_NANOS;
+        this.lastIncrease = now;
+    }
+
+    /**
+     * Takes tokens for a send, waiting until the bucket is out of debt.
+     * @param bytes Size of the send.
+     */
+    void acquire(final int bytes) {
+        final long now = System.nanoTime();
+        final long deadline = now + reserve(bytes, now);
+        long remaining = deadline - System.nanoTime();
+        while (remaining > 0) {
+            LockSupport.parkNanos(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Takes tokens for a send, without waiting.
+     * @param bytes Size of the send.
+     * @param now The current time in nanoseconds.
+     * @return How long the sender should wait before sending, in nanoseconds.
+     */
+    synchronized long reserve(final int bytes, final long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefill) * rate / NANOS_PER_SECOND);
+        lastRefill = now;
+        tokens -= bytes;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) (-tokens * NANOS_PER_SECOND / rate);
+    }
+
+    /**
+     * Reports a lost send, cutting the rate.
+     * @param now The current time in nanoseconds.
+     */
+    synchronized void onLoss(final long now) {
+        if (now - lastDecrease < LOSS_HOLDOFF_NANOS) {
+            return;
+        }
+        lastDecrease = now;
+        lastIncrease = now;
+        rate = Math.max(minRate, rate * DECREASE_TENTHS / TENTHS);
+    }
+
+    /**
+     * Reports a confirmed delivery, raising the rate back towards the maximum.
+     * @param now The current time in nanoseconds.
+     */
+    synchronized void onDelivered(final long now) {
+        if (now - lastIncrease < INCREASE_INTERVAL_NANOS) {
+            return;
+        }
+        lastIncrease = now;
+        rate = Math.min(maxRate, rate + maxRate / INCREASE_DIVISOR);
+    }
+
+    /**
+     * Gets the current rate.
+     * @return The rate in bytes per second.
+     */
+    synchronized long getRate() {
+        return rate;
+    }
+}
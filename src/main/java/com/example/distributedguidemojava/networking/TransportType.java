@@ -0,0 +1,22 @@
+package com.example.distributedguidemojava.networking;
+
+/**
+ * Transports that the communicator factory can create.
+ */
+public enum TransportType {
+
+    /** Blocking datagram socket transport. */
+    UDP,
+
+    /** NIO datagram channel transport with pooled direct buffers. */
+    NIO_UDP,
+
+    /** TCP stream transport with length-prefixed frames over pooled connections. */
+    TCP,
+
+    /** In-process transport connecting instances in the same JVM through lock-free ring buffers. */
+    LOOPBACK,
+
+    /** Transport connecting processes on the same host through memory-mapped ring files. */
+    SHARED_MEMORY
+}
@@ -3,82 +3,130 @@ package com.example.distributedguidemojava.networking;
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
-import java.net.InetAddress;
-import java.net.SocketException;
-import java.net.UnknownHostException;
-import java.net.ServerSocket;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Communicator implementation using UDP for network communication.
  */
-public class UdpCommunicator implements ICommunicator {
+public class UdpCommunicator extends AbstractCommunicator {
 
     /** Logger for logging information and errors. */
     private static final Logger LOGGER = Logger.getLogger(UdpCommunicator.class.getName());
+    /** Largest payload a UDP datagram can carry. */
+    private static final int MAX_DATAGRAM_SIZE = 65507;
     /** The UDP socket used for communication. */
     private final DatagramSocket socket;
+    /** The sockets bound to the listen port, each with its own receive thread; the first is {@link #socket}. */
+    private final DatagramSocket[] receiveSockets;
     /** The port on which the communicator listens for incoming messages. */
     private final int listenPort;
-    /** The thread that listens for incoming messages. */
-    private final Thread listenThread;
-    /** Map of subscribers to their respective message listeners. */
-    private final Map<String, IMessageListener> subscribers;
+    /** Size of the buffer each datagram is received into. */
+    private final int receiveBufferSize;
+    /** The threads that listen for incoming messages, one per receive socket. */
+    private final Thread[] listenThreads;
+    /** The multicast groups this communicator has joined. */
+    private final MulticastGroups groups;
 
     /**
      * Constructs a UdpCommunicator, initializing the socket and starting a listener thread.
      */
     public UdpCommunicator() {
-        subscribers = new HashMap<>();
-        listenPort = getRandomAvailablePort();
+        this(CommunicatorConfig.defaults());
+    }
+
+    /**
+     * Constructs a UdpCommunicator, initializing the socket and starting a listener thread.
+     * @param dispatchQueueCapacity Maximum number of messages waiting in each subscriber's dispatch queue.
+     * @param overflowPolicy What a full dispatch queue does with a newly received message.
+     */
+    public UdpCommunicator(final int dispatchQueueCapacity, final OverflowPolicy overflowPolicy) {
+        this(dispatchQueueCapacity, overflowPolicy, SendMode.SYNC);
+    }
+
+    /**
+     * Constructs a UdpCommunicator, initializing the socket and starting a listener thread.
+     * @param dispatchQueueCapacity Maximum number of messages waiting in each subscriber's dispatch queue.
+     * @param overflowPolicy What a full dispatch queue does with a newly received message.
+     * @param sendMode Whether messages are sent on the caller's thread or on a dedicated sender thread.
+     */
+    public UdpCommunicator(final int dispatchQueueCapacity, final OverflowPolicy overflowPolicy,
+        final SendMode sendMode) {
+        this(dispatchQueueCapacity, overflowPolicy, sendMode, 1);
+    }
+
+    /**
+     * Constructs a UdpCommunicator that receives on several sockets bound to the same port.
+     * @param dispatchQueueCapacity Maximum number of messages waiting in each subscriber's dispatch queue.
+     * @param overflowPolicy What a full dispatch queue does with a newly received message.
+     * @param sendMode Whether messages are sent on the caller's thread or on a dedicated sender thread.
+     * @param receiveThreads Number of receive sockets and threads.
+     */
+    public UdpCommunicator(final int dispatchQueueCapacity, final OverflowPolicy overflowPolicy,
+        final SendMode sendMode, final int receiveThreads) {
+        this(CommunicatorConfig.builder()
+            .dispatchQueueCapacity(dispatchQueueCapacity)
+            .overflowPolicy(overflowPolicy)
+            .sendMode(sendMode)
+            .receiveThreads(receiveThreads)
+            .build());
+    }
+
+    /**
+     * Constructs a UdpCommunicator from a configuration, binding its sockets and starting the listener threads.
+     * With more than one receive thread, the sockets are bound with SO_REUSEPORT and the kernel spreads
+     * incoming datagrams across them by source address, so each sender's datagrams are always read by the
+     * same thread and reach subscribers in order. Where SO_REUSEPORT is not supported a single socket is used.
+     * @param config Settings of the communicator.
+     */
+    public UdpCommunicator(final CommunicatorConfig config) {
+        super(config, true);
+        groups = new MulticastGroups(config, this::deliver);
         try {
-            socket = new DatagramSocket(listenPort);
-        } catch (SocketException e) {
-            throw new RuntimeException("Failed to create UDP socket on port " + listenPort, e);
+            final DatagramChannel[] channels = DatagramChannels.openBound(config);
+            receiveSockets = new DatagramSocket[channels.length];
+            for (int i = 0; i < channels.length; i++) {
+                receiveSockets[i] = channels[i].socket();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create UDP socket on port " + config.getPort(), e);
         }
+        socket = receiveSockets[0];
+        listenPort = socket.getLocalPort();
+        receiveBufferSize = config.getReceiveBufferSize();
 
-        listenThread = new Thread(this::listenerThreadProc);
-        listenThread.setDaemon(true); // Stop the thread when the application exits
-        listenThread.start();
-        LOGGER.log(Level.INFO, "UDP Communicator listening on port {0}", listenPort);
+        listenThreads = new Thread[receiveSockets.length];
+        for (int i = 0; i < receiveSockets.length; i++) {
+            final DatagramSocket receiveSocket = receiveSockets[i];
+            listenThreads[i] = new Thread(() -> listenerThreadProc(receiveSocket), "udp-receive-" + i);
+            listenThreads[i].setDaemon(true); // Stop the thread when the application exits
+            listenThreads[i].start();
+        }
+        LOGGER.log(Level.INFO, "UDP Communicator listening on port {0} with {1} receive threads",
+            new Object[]{listenPort, receiveSockets.length});
     }
 
     @Override
-    public void addSubscriber(final String id, final IMessageListener subscriber) {
-        if (id == null || id.isEmpty() || subscriber == null) {
-            throw new IllegalArgumentException("ID and subscriber must not be null or empty");
-        }
-        synchronized (this) {
-            subscribers.put(id, subscriber);
-        }
+    protected void transmit(final Endpoint destination, final ByteBuffer header, final ByteBuffer payload)
+        throws IOException {
+        final ByteBuffer frame = ByteBuffer.allocate(Math.min(header.remaining() + payload.remaining(),
+            MAX_DATAGRAM_SIZE));
+        writeFrame(frame, header, payload);
+        final DatagramPacket packet = new DatagramPacket(frame.array(), frame.position(), destination.getAddress());
+        socket.send(packet);
     }
 
     @Override
-    public void removeSubscriber(final String id) {
-        if (id == null || id.isEmpty()) {
-            throw new IllegalArgumentException("ID must not be null or empty");
-        }
-        synchronized (this) {
-            subscribers.remove(id);
-        }
+    public void joinGroup(final String groupAddress, final int port) {
+        groups.join(groupAddress, port);
     }
 
     @Override
-    public void sendMessage(final String ipAddress, final int port, final String senderId, final String message) {
-        try {
-            final InetAddress address = InetAddress.getByName(ipAddress);
-            final String payload = senderId + ":" + message;
-            final byte[] sendData = payload.getBytes();
-            final DatagramPacket packet = new DatagramPacket(sendData, sendData.length, address, port);
-            socket.send(packet);
-        } catch (UnknownHostException e) {
-            LOGGER.log(Level.WARNING, "Unknown host: {0}", ipAddress);
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Error sending message: {0}", e.getMessage());
-        }
+    public void leaveGroup(final String groupAddress, final int port) {
+        groups.leave(groupAddress, port);
     }
 
     @Override
@@ -87,45 +135,26 @@ public class UdpCommunicator implements ICommunicator {
     }
 
     /**
-     * Gets a random available port for listening.
-     * @return An available port number.
+     * Gets the number of sockets, and threads, receiving on the listen port.
+     * @return The number of receive threads.
      */
-    private static int getRandomAvailablePort() {
-        try (ServerSocket serverSocket = new ServerSocket(0)) {
-            return serverSocket.getLocalPort();
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to find an available port", e);
-        }
+    public int getReceiveThreadCount() {
+        return receiveSockets.length;
     }
 
     /**
-     * Listens for incoming messages on the UDP socket.
+     * Listens for incoming messages on one of the receive sockets.
+     * @param receiveSocket The socket to receive from.
      */
-    private void listenerThreadProc() {
-        // Buffer size for UDP: handles image chunks + large test messages
-        final int bufferSize = 65536; // 64KB buffer - handles chunks and large test cases
-        final byte[] receiveData = new byte[bufferSize];
+    private void listenerThreadProc(final DatagramSocket receiveSocket) {
+        final byte[] receiveData = new byte[receiveBufferSize];
         while (true) {
             try {
                 final DatagramPacket packet = new DatagramPacket(receiveData, receiveData.length);
-                socket.receive(packet);
-                final String payload = new String(packet.getData(), 0, packet.getLength());
-                LOGGER.log(Level.FINE, "Received payload: {0}", payload);
-
-                // Expected format: senderId:message
-                final String[] tokens = payload.split(":", 2);
-                if (tokens.length == 2) {
-                    final String id = tokens[0];
-                    final String message = tokens[1];
-                    synchronized (this) {
-                        final IMessageListener listener = subscribers.get(id);
-                        if (listener != null) {
-                            listener.onMessageReceived(message);
-                        } else {
-                            LOGGER.log(Level.WARNING, "Received message for unknown subscriber: {0}", id);
-                        }
-                    }
-                }
+                receiveSocket.receive(packet);
+                LOGGER.log(Level.FINE, "Received {0} bytes", packet.getLength());
+                deliver(ByteBuffer.wrap(packet.getData(), 0, packet.getLength()),
+                    (InetSocketAddress) packet.getSocketAddress());
             } catch (IOException e) {
                 LOGGER.log(Level.SEVERE, "Error receiving message: {0}", e.getMessage());
             }
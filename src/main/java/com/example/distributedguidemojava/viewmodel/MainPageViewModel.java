@@ -2,15 +2,27 @@ package com.example.distributedguidemojava.viewmodel;
 
 import com.example.distributedguidemojava.chatmessaging.ChatMessenger;
 import com.example.distributedguidemojava.imagemessaging.ImageMessenger;
+import com.example.distributedguidemojava.imagemessaging.ImageMessengerConfig;
+import com.example.distributedguidemojava.networking.CommunicatorConfig;
 import com.example.distributedguidemojava.networking.CommunicatorFactory;
 import com.example.distributedguidemojava.networking.ICommunicator;
+import com.example.distributedguidemojava.networking.SendMode;
+import com.example.distributedguidemojava.networking.TransportType;
 import javafx.application.Platform;
+import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.scene.image.Image;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,6 +33,14 @@ public class MainPageViewModel {
 
     /** Logger for logging information and errors. */
     private static final Logger LOGGER = Logger.getLogger(MainPageViewModel.class.getName());
+    /** Size above which received images are reassembled on disk rather than on the heap. */
+    private static final long IMAGE_SPILL_THRESHOLD = 8L * 1024 * 1024;
+    /** Most memory received images are kept in, so images sent again are not transferred again. */
+    private static final long IMAGE_CONTENT_STORE_BYTES = 64L * 1024 * 1024;
+    /** Least time between two progress updates, and previews, of an image being received. */
+    private static final long IMAGE_PROGRESS_INTERVAL_MILLIS = 250;
+    /** Highest rate frames are sent to each peer at, so image chunks do not overflow its socket buffer. */
+    private static final long PACING_BYTES_PER_SECOND = 50L * 1024 * 1024;
     /** Messenger for handling chat messages. */
     private final ChatMessenger chatMessenger;
     /** Messenger for handling image messages. */
@@ -33,6 +53,14 @@ public class MainPageViewModel {
     private final StringProperty receivedMessage = new SimpleStringProperty();
     /** Property for received image data. */
     private final ObjectProperty<Image> receivedImage = new SimpleObjectProperty<>();
+    /** Property for the part received of the image being received, from 0 to 1. */
+    private final DoubleProperty imageProgress = new SimpleDoubleProperty();
+    /** Sends images one at a time off the UI thread, since hashing and announcing an image takes a while. */
+    private final ExecutorService imageSendExecutor = Executors.newSingleThreadExecutor(task -> {
+        final Thread thread = Executors.defaultThreadFactory().newThread(task);
+        thread.setDaemon(true); // Stop the thread when the application exits
+        return thread;
+    });
 
     /**
      * Constructs a MainPageViewModel with an optional communicator.
@@ -49,14 +77,32 @@ public class MainPageViewModel {
             Platform.runLater(() -> receivedMessage.set(message));
         });
 
-        imageMessenger = new ImageMessenger(this.communicator);
-        imageMessenger.setOnImageMessageReceived(base64Image -> {
+        imageMessenger = new ImageMessenger(this.communicator, ImageMessengerConfig.builder()
+            .spillThreshold(IMAGE_SPILL_THRESHOLD)
+            .progressIntervalMillis(IMAGE_PROGRESS_INTERVAL_MILLIS)
+            .contentStoreBytes(IMAGE_CONTENT_STORE_BYTES)
+            .build());
+        imageMessenger.setOnImageProgress(progress ->
+            Platform.runLater(() -> imageProgress.set(progress.getFraction())));
+        imageMessenger.setOnImagePreview(partialBytes -> {
+            // Show what has arrived of a large image; decoded here, so the UI thread only sets the result
+            final Image preview = decodePreview(partialBytes);
+            if (preview != null) {
+                Platform.runLater(() -> receivedImage.set(preview));
+            }
+        });
+        imageMessenger.setOnImageBytesReceived(imageBytes -> {
             // Update on UI thread
             Platform.runLater(() -> {
-                final Image decodedImage = decodeBase64ToImage(base64Image);
+                final Image decodedImage = decodeImage(imageBytes);
                 receivedImage.set(decodedImage);
             });
         });
+        imageMessenger.setOnImageFileReceived(imageFile -> {
+            // Decode large images here, so the UI thread only sets the result
+            final Image decodedImage = decodeImage(imageFile);
+            Platform.runLater(() -> receivedImage.set(decodedImage));
+        });
     }
 
     /**
@@ -71,12 +117,13 @@ public class MainPageViewModel {
 
     /**
      * Sends an image message to the specified IP address and port.
+     * The image is sent on a background thread, so the call returns at once.
      * @param ipAddress IP address of the destination.
      * @param port Port of the destination.
      * @param imagePath Path to the image file.
      */
     public void sendImageMessage(final String ipAddress, final int port, final String imagePath) {
-        imageMessenger.sendMessage(ipAddress, port, imagePath);
+        imageSendExecutor.execute(() -> imageMessenger.sendMessage(ipAddress, port, imagePath));
     }
 
     /**
@@ -104,33 +151,42 @@ public class MainPageViewModel {
     }
 
     /**
-     * Decodes a base64 string to an Image.
-     * @param base64Image Base64 encoded image string.
-     * @return Decoded Image.
+     * Gets the property for the progress of the image being received.
+     * @return DoubleProperty for the received part of the image, from 0 to 1.
      */
-    private Image decodeBase64ToImage(final String base64Image) {
-        return getDecodedImage(base64Image);
+    public DoubleProperty imageProgressProperty() {
+        return imageProgress;
     }
-    
+
+    /**
+     * Creates the communicator the application uses. Messages are sent on a dedicated sender thread, so
+     * the UI thread does not block on the socket; it only waits when the send queue is full, and no
+     * message is dropped for want of room. Frames are paced, so the chunks of a large image are spread
+     * out rather than sent in one burst the receiver cannot take in.
+     * @return A new ICommunicator instance.
+     */
+    public static ICommunicator createCommunicator() {
+        return CommunicatorFactory.createCommunicator(CommunicatorConfig.builder()
+            .transportType(TransportType.UDP)
+            .sendMode(SendMode.ASYNC)
+            .pacingRate(PACING_BYTES_PER_SECOND)
+            .build());
+    }
+
     private ICommunicator getCommunicator(final ICommunicator communicatorInstance) {
         if (communicatorInstance != null) {
             return communicatorInstance;
         }
-        return CommunicatorFactory.createCommunicator();
+        return createCommunicator();
     }
     
-    private Image getDecodedImage(final String base64Image) {
+    /**
+     * Decodes the bytes of an image file to an Image.
+     * @param imageBytes The image file's bytes.
+     * @return Decoded Image, or null if the bytes are not a supported image.
+     */
+    private Image decodeImage(final byte[] imageBytes) {
         try {
-            // Remove data URI prefix if present (e.g., "data:image/jpeg;base64,")
-            String base64Data = base64Image;
-            if (base64Image.contains(",")) {
-                final String[] parts = base64Image.split(",");
-                base64Data = parts[1];
-            }
-            
-            // Decode base64 string to byte array
-            final byte[] imageBytes = java.util.Base64.getDecoder().decode(base64Data);
-            
             // Convert byte array to Image
             final Image image = new Image(new java.io.ByteArrayInputStream(imageBytes));
             
@@ -149,4 +205,45 @@ public class MainPageViewModel {
             return null;
         }
     }
+
+    /**
+     * Decodes an image file that a large image was received into, streaming it from disk, and deletes it.
+     * @param imageFile The received image file.
+     * @return Decoded Image, or null if the file is not a supported image.
+     */
+    private Image decodeImage(final Path imageFile) {
+        try (InputStream input = Files.newInputStream(imageFile)) {
+            final Image image = new Image(input);
+            if (image.isError()) {
+                LOGGER.log(Level.SEVERE, "Failed to decode received image: {0}", image.getException());
+                return null;
+            }
+            LOGGER.log(Level.INFO, "Successfully received and decoded spilled image: {0}x{1}",
+                new Object[]{(int) image.getWidth(), (int) image.getHeight()});
+            return image;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Exception reading received image file: {0}", e.getMessage());
+            return null;
+        } finally {
+            try {
+                Files.deleteIfExists(imageFile);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not delete received image file: {0}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Decodes the start of an image file that is still being received.
+     * @param partialBytes The bytes received so far from the start of the image file.
+     * @return Decoded partial Image, or null if too little has arrived to show anything.
+     */
+    private Image decodePreview(final byte[] partialBytes) {
+        final Image image = new Image(new java.io.ByteArrayInputStream(partialBytes));
+        if (image.isError() || image.getWidth() == 0) {
+            LOGGER.log(Level.FINE, "Cannot preview image from {0} bytes yet", partialBytes.length);
+            return null;
+        }
+        return image;
+    }
 }
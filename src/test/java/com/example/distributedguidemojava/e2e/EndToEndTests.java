@@ -62,7 +62,7 @@ public class EndToEndTests {
             viewModel.sendImageMessage(ipAddress, port, imagePath);
             
             // Assert
-            verify(mockCommunicator, times(1)).sendMessage(eq(ipAddress), eq(port), eq("image"), anyString());
+            verify(mockCommunicator, timeout(1000).times(1)).sendMessage(eq(ipAddress), eq(port), eq("image"), anyString());
         });
     }
     
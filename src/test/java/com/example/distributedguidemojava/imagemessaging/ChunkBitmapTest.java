@@ -0,0 +1,46 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ChunkBitmap class.
+ */
+public class ChunkBitmapTest {
+
+    @Test
+    public void testCompleteOnceEveryChunkIsMarked() {
+        ChunkBitmap bitmap = new ChunkBitmap(130);
+        for (int i = 129; i >= 0; i--) {
+            assertFalse(bitmap.isComplete());
+            assertTrue(bitmap.mark(i));
+        }
+        assertTrue(bitmap.isComplete());
+        assertEquals(130, bitmap.getMarkedCount());
+    }
+
+    @Test
+    public void testDuplicateIsNotCountedTwice() {
+        ChunkBitmap bitmap = new ChunkBitmap(2);
+        assertTrue(bitmap.mark(1));
+        assertFalse(bitmap.mark(1));
+        assertEquals(1, bitmap.getMarkedCount());
+        assertTrue(bitmap.isMarked(1));
+        assertFalse(bitmap.isMarked(0));
+    }
+
+    @Test
+    public void testOutOfRangeIndexIsRejected() {
+        ChunkBitmap bitmap = new ChunkBitmap(64);
+        assertFalse(bitmap.mark(-1));
+        assertFalse(bitmap.mark(64));
+        assertFalse(bitmap.isMarked(64));
+        assertEquals(0, bitmap.getMarkedCount());
+    }
+
+    @Test
+    public void testInvalidCount() {
+        assertThrows(IllegalArgumentException.class, () -> new ChunkBitmap(0));
+    }
+}
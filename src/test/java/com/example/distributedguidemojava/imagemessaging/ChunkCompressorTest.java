@@ -0,0 +1,64 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ChunkCompressor class.
+ */
+public class ChunkCompressorTest {
+
+    @Test
+    public void testCompressedChunkInflatesBack() {
+        byte[] chunk = new byte[1400];
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = (byte) (i / 100);
+        }
+        try (ChunkCompressor compressor = new ChunkCompressor(6, 1400)) {
+            ByteBuffer source = ByteBuffer.wrap(chunk);
+            ByteBuffer compressed = compressor.compress(source);
+
+            assertNotNull(compressed);
+            assertTrue(compressed.remaining() < chunk.length);
+            assertEquals(chunk.length, source.remaining(), "The chunk should not be consumed");
+            ByteBuffer inflated = ChunkInflater.inflate(compressed);
+            byte[] restored = new byte[inflated.remaining()];
+            inflated.get(restored);
+            assertArrayEquals(chunk, restored);
+        }
+    }
+
+    @Test
+    public void testIncompressibleChunkIsLeftAlone() {
+        byte[] chunk = new byte[1400];
+        new Random(3).nextBytes(chunk);
+        try (ChunkCompressor compressor = new ChunkCompressor(9, 1400)) {
+            assertNull(compressor.compress(ByteBuffer.wrap(chunk)));
+        }
+    }
+
+    @Test
+    public void testCompressorIsReusedAcrossChunks() {
+        try (ChunkCompressor compressor = new ChunkCompressor(1, 1000)) {
+            ByteBuffer first = compressor.compress(ByteBuffer.wrap(new byte[1000]));
+            int firstLength = first.remaining();
+            ByteBuffer second = compressor.compress(ByteBuffer.wrap(new byte[1000]));
+            assertEquals(firstLength, second.remaining());
+        }
+    }
+
+    @Test
+    public void testAlreadyCompressedFormatsAreRecognized() {
+        assertFalse(ChunkCompressor.isWorthCompressing(ByteBuffer.wrap(new byte[] {(byte) 0xFF, (byte) 0xD8,
+            (byte) 0xFF, (byte) 0xE0})));
+        assertFalse(ChunkCompressor.isWorthCompressing(ByteBuffer.wrap("GIF89a".getBytes())));
+        assertFalse(ChunkCompressor.isWorthCompressing(ByteBuffer.wrap("RIFF\0\0\0\0WEBPVP8 ".getBytes())));
+        assertTrue(ChunkCompressor.isWorthCompressing(ByteBuffer.wrap("BM\0\0\0\0".getBytes())));
+        assertTrue(ChunkCompressor.isWorthCompressing(ByteBuffer.wrap("RIFF\0\0\0\0WAVE".getBytes())));
+        assertTrue(ChunkCompressor.isWorthCompressing(ByteBuffer.wrap(new byte[1])));
+    }
+}
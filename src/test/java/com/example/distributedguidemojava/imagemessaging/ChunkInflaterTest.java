@@ -0,0 +1,50 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ChunkInflater class.
+ */
+public class ChunkInflaterTest {
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (DeflaterOutputStream output = new DeflaterOutputStream(compressed)) {
+            output.write(data);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Test
+    public void testInflatesChunk() throws IOException {
+        ByteBuffer inflated = ChunkInflater.inflate(ByteBuffer.wrap(deflate("hello hello hello".getBytes())));
+
+        assertEquals("hello hello hello", new String(inflated.array(), 0, inflated.limit()));
+    }
+
+    @Test
+    public void testCorruptChunkIsRefused() {
+        assertNull(ChunkInflater.inflate(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5})));
+    }
+
+    @Test
+    public void testTruncatedChunkIsRefused() throws IOException {
+        byte[] compressed = deflate(new byte[500]);
+
+        assertNull(ChunkInflater.inflate(ByteBuffer.wrap(compressed, 0, compressed.length - 4)));
+    }
+
+    @Test
+    public void testChunkInflatingPastLargestChunkIsRefused() throws IOException {
+        byte[] bomb = deflate(new byte[ImageMessengerConfig.MAX_CHUNK_SIZE + 1]);
+
+        assertNull(ChunkInflater.inflate(ByteBuffer.wrap(bomb)), "A chunk larger than any real one is refused");
+    }
+}
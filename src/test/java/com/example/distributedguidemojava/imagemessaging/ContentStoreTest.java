@@ -0,0 +1,99 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ContentStore class.
+ */
+public class ContentStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] image(int size, int seed) {
+        byte[] image = new byte[size];
+        for (int i = 0; i < size; i++) {
+            image[i] = (byte) (i + seed);
+        }
+        return image;
+    }
+
+    @Test
+    public void testImagesAreKeptByDigestAsCopies() {
+        ContentStore store = new ContentStore(1000);
+        byte[] image = image(100, 1);
+        byte[] digest = ContentStore.digestOf(image);
+
+        store.put(digest, image);
+        image[0] = 42;
+
+        byte[] kept = store.get(digest);
+        assertArrayEquals(image(100, 1), kept, "The store should keep its own copy");
+        kept[1] = 42;
+        assertArrayEquals(image(100, 1), store.get(digest), "The store should hand out copies");
+        assertNull(store.get(ContentStore.digestOf(image(100, 2))));
+        assertEquals(ContentStore.DIGEST_SIZE, digest.length);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedImagesAreEvicted() {
+        ContentStore store = new ContentStore(250);
+        byte[] first = image(100, 1);
+        byte[] second = image(100, 2);
+        byte[] third = image(100, 3);
+        store.put(ContentStore.digestOf(first), first);
+        store.put(ContentStore.digestOf(second), second);
+        store.get(ContentStore.digestOf(first));
+
+        store.put(ContentStore.digestOf(third), third);
+
+        assertNotNull(store.get(ContentStore.digestOf(first)), "A looked up image is recently used");
+        assertNull(store.get(ContentStore.digestOf(second)));
+        assertNotNull(store.get(ContentStore.digestOf(third)));
+        assertEquals(2, store.size());
+        assertEquals(200, store.getStoredBytes());
+    }
+
+    @Test
+    public void testImageLargerThanBudgetIsNotKept() {
+        ContentStore store = new ContentStore(50);
+        byte[] small = image(50, 1);
+        store.put(ContentStore.digestOf(small), small);
+
+        byte[] large = image(51, 1);
+        store.put(ContentStore.digestOf(large), large);
+
+        assertNull(store.get(ContentStore.digestOf(large)));
+        assertNotNull(store.get(ContentStore.digestOf(small)), "A refused image should not evict others");
+        assertTrue(store.isEnabled());
+        assertFalse(new ContentStore(0).isEnabled());
+    }
+
+    @Test
+    public void testStoringAgainDoesNotCountTwice() {
+        ContentStore store = new ContentStore(1000);
+        byte[] image = image(100, 1);
+
+        store.put(ContentStore.digestOf(image), image);
+        store.put(ContentStore.digestOf(image), image);
+
+        assertEquals(1, store.size());
+        assertEquals(100, store.getStoredBytes());
+    }
+
+    @Test
+    public void testFileDigestMatchesBytesDigest() throws IOException {
+        byte[] image = image(200_000, 7);
+        Path file = tempDir.resolve("image.bin");
+        Files.write(file, image);
+
+        assertArrayEquals(ContentStore.digestOf(image), ContentStore.digestOf(file));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FileChunkReader class.
+ */
+public class FileChunkReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path file(int size) throws IOException {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        return Files.write(tempDir.resolve("image-" + size), data);
+    }
+
+    private static byte[] readAll(FileChunkReader reader, int maxChunk) throws IOException {
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (ByteBuffer chunk = reader.next(); chunk != null; chunk = reader.next()) {
+            assertTrue(chunk.remaining() <= maxChunk);
+            assertEquals(joined.size() + chunk.remaining(), reader.getOffset());
+            joined.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+        }
+        return joined.toByteArray();
+    }
+
+    @Test
+    public void testRawChunksJoinToTheFile() throws IOException {
+        Path image = file(5000);
+        try (FileChunkReader reader = new FileChunkReader(image, 1400, ImageEncoding.RAW)) {
+            assertEquals(5000, reader.getTotal());
+            assertEquals(4, reader.getChunkCount());
+            assertArrayEquals(Files.readAllBytes(image), readAll(reader, 1400));
+        }
+    }
+
+    @Test
+    public void testChunkBufferIsReused() throws IOException {
+        try (FileChunkReader reader = new FileChunkReader(file(3000), 1000, ImageEncoding.RAW)) {
+            ByteBuffer first = reader.next();
+            assertSame(first, reader.next(), "Memory should not grow with the number of chunks");
+        }
+    }
+
+    @Test
+    public void testBase64ChunksJoinToTheFilesBase64Text() throws IOException {
+        Path image = file(1001);
+        try (FileChunkReader reader = new FileChunkReader(image, 102, ImageEncoding.BASE64)) {
+            String expected = Base64.getEncoder().encodeToString(Files.readAllBytes(image));
+            assertEquals(expected.length(), reader.getTotal());
+            assertEquals(14, reader.getChunkCount(), "Chunks should be rounded down to 100 characters");
+            assertEquals(expected, new String(readAll(reader, 100), StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void testSmallAndEmptyFiles() throws IOException {
+        try (FileChunkReader reader = new FileChunkReader(file(10), 1400, ImageEncoding.RAW)) {
+            assertEquals(10, reader.next().remaining());
+            assertNull(reader.next());
+        }
+        try (FileChunkReader reader = new FileChunkReader(file(0), 1400, ImageEncoding.RAW)) {
+            assertEquals(0, reader.getChunkCount());
+            assertNull(reader.next());
+        }
+    }
+}
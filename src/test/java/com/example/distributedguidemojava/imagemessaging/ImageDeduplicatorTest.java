@@ -0,0 +1,119 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import com.example.distributedguidemojava.networking.Endpoint;
+import com.example.distributedguidemojava.networking.FrameHeader;
+import com.example.distributedguidemojava.networking.ICommunicator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ImageDeduplicator class.
+ */
+public class ImageDeduplicatorTest {
+
+    private static final byte[] IMAGE = {1, 2, 3, 4, 5};
+
+    @TempDir
+    Path tempDir;
+
+    private static FrameHeader header(int flags) {
+        FrameHeader header = new FrameHeader();
+        header.setTransferId(3L);
+        header.setFlags(flags);
+        return header;
+    }
+
+    private static FrameHeader announcementHeader() {
+        FrameHeader header = header(ImageMessenger.FLAG_DIGEST);
+        // The sending socket's port, not the listen port the answer goes to
+        header.setSource(new InetSocketAddress("10.0.0.7", 40000));
+        return header;
+    }
+
+    private static ByteBuffer announcement(byte[] digest) {
+        return ByteBuffer.allocate(ContentStore.DIGEST_SIZE + 2).put(digest).putShort((short) 5001).flip();
+    }
+
+    @Test
+    public void testProtocolFramesAreRecognized() {
+        assertTrue(ImageDeduplicator.isProtocolFrame(header(ImageMessenger.FLAG_DIGEST)));
+        assertTrue(ImageDeduplicator.isProtocolFrame(header(ImageMessenger.FLAG_HAVE)));
+        assertTrue(ImageDeduplicator.isProtocolFrame(header(ImageMessenger.FLAG_NEED)));
+        assertFalse(ImageDeduplicator.isProtocolFrame(header(ImageMessenger.FLAG_RAW | ImageMessenger.FLAG_PARITY)));
+    }
+
+    @Test
+    public void testKeptImageIsAnsweredHave() {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageDeduplicator deduplicator = new ImageDeduplicator(communicator, "image",
+            ImageMessengerConfig.builder().contentStoreBytes(1000).build());
+        deduplicator.remember(IMAGE);
+
+        byte[] kept = deduplicator.receive(announcementHeader(), announcement(ContentStore.digestOf(IMAGE)));
+
+        assertArrayEquals(IMAGE, kept);
+        verify(communicator).sendFrame(eq("10.0.0.7"), eq(5001), eq("image"),
+            argThat(header -> header.hasFlag(ImageMessenger.FLAG_HAVE) && header.getTransferId() == 3L),
+            any(ByteBuffer.class));
+    }
+
+    @Test
+    public void testUnknownImageIsAnsweredNeedEvenWhenDisabled() {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageDeduplicator deduplicator = new ImageDeduplicator(communicator, "image",
+            ImageMessengerConfig.defaults());
+        deduplicator.remember(IMAGE);
+
+        assertFalse(deduplicator.isEnabled());
+        assertNull(deduplicator.receive(announcementHeader(), announcement(ContentStore.digestOf(IMAGE))));
+        verify(communicator).sendFrame(eq("10.0.0.7"), eq(5001), eq("image"),
+            argThat(header -> header.hasFlag(ImageMessenger.FLAG_NEED)), any(ByteBuffer.class));
+    }
+
+    @Test
+    public void testInvalidAnnouncementIsIgnored() {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageDeduplicator deduplicator = new ImageDeduplicator(communicator, "image",
+            ImageMessengerConfig.builder().contentStoreBytes(1000).build());
+
+        assertNull(deduplicator.receive(announcementHeader(), ByteBuffer.allocate(10)));
+        verify(communicator, never()).sendFrame(anyString(), anyInt(), anyString(), any(FrameHeader.class),
+            any(ByteBuffer.class));
+    }
+
+    @Test
+    public void testAnnouncementFromUnknownSourceIsNotAnswered() {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageDeduplicator deduplicator = new ImageDeduplicator(communicator, "image",
+            ImageMessengerConfig.builder().contentStoreBytes(1000).build());
+        deduplicator.remember(IMAGE);
+
+        assertNull(deduplicator.receive(header(ImageMessenger.FLAG_DIGEST),
+            announcement(ContentStore.digestOf(IMAGE))));
+        verify(communicator, never()).sendFrame(anyString(), anyInt(), anyString(), any(FrameHeader.class),
+            any(ByteBuffer.class));
+    }
+
+    @Test
+    public void testOfferWithoutAnswerTimesOut() throws IOException {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageDeduplicator deduplicator = new ImageDeduplicator(communicator, "image",
+            ImageMessengerConfig.builder().contentStoreBytes(1000).dedupTimeoutMillis(20).build());
+        Path file = tempDir.resolve("image.bin");
+        Files.write(file, IMAGE);
+
+        assertFalse(deduplicator.offer(Endpoint.resolve("127.0.0.1", 5000, true), file, 3L));
+        verify(communicator).sendFrame(any(Endpoint.class), eq("image"),
+            argThat(header -> header.hasFlag(ImageMessenger.FLAG_DIGEST)), any(ByteBuffer.class));
+        assertEquals(0, deduplicator.getSkippedImageCount());
+    }
+}
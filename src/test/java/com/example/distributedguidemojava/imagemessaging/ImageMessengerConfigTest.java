@@ -0,0 +1,88 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ImageMessengerConfig class.
+ */
+public class ImageMessengerConfigTest {
+
+    @Test
+    public void testDefaults() {
+        ImageMessengerConfig config = ImageMessengerConfig.defaults();
+        assertEquals(ImageEncoding.RAW, config.getEncoding());
+        assertEquals(ImageMessengerConfig.DEFAULT_CHUNK_SIZE, config.getChunkSize());
+        assertEquals(ImageMessengerConfig.DEFAULT_REASSEMBLY_BUDGET, config.getReassemblyBudget());
+        assertEquals(ImageMessengerConfig.DEFAULT_TRANSFER_TIMEOUT_MILLIS, config.getTransferTimeoutMillis());
+        assertEquals(ImageMessengerConfig.NEVER_SPILL, config.getSpillThreshold());
+        assertNull(config.getSpillDirectory());
+        assertEquals(ImageMessengerConfig.NO_COMPRESSION, config.getCompressionLevel());
+        assertEquals(ImageMessengerConfig.NO_FEC, config.getFecGroupSize());
+        assertEquals(ImageMessengerConfig.DEFAULT_PROGRESS_INTERVAL_MILLIS, config.getProgressIntervalMillis());
+        assertEquals(ImageMessengerConfig.NO_DEDUP, config.getContentStoreBytes());
+        assertEquals(ImageMessengerConfig.DEFAULT_DEDUP_TIMEOUT_MILLIS, config.getDedupTimeoutMillis());
+        assertEquals(ImageMessengerConfig.DEFAULT_MAX_FRAMES_IN_FLIGHT, config.getMaxFramesInFlight());
+    }
+
+    @Test
+    public void testBuilderSetsEverySetting() {
+        ImageMessengerConfig config = ImageMessengerConfig.builder()
+            .encoding(ImageEncoding.BASE64)
+            .chunkSize(8192)
+            .reassemblyBudget(1 << 20)
+            .transferTimeoutMillis(500)
+            .spillThreshold(1 << 16)
+            .spillDirectory(Path.of("spill"))
+            .compressionLevel(9)
+            .fecGroupSize(8)
+            .progressIntervalMillis(0)
+            .contentStoreBytes(1 << 24)
+            .dedupTimeoutMillis(50)
+            .maxFramesInFlight(64)
+            .build();
+
+        assertEquals(ImageEncoding.BASE64, config.getEncoding());
+        assertEquals(8192, config.getChunkSize());
+        assertEquals(1 << 20, config.getReassemblyBudget());
+        assertEquals(500, config.getTransferTimeoutMillis());
+        assertEquals(1 << 16, config.getSpillThreshold());
+        assertEquals(Path.of("spill"), config.getSpillDirectory());
+        assertEquals(9, config.getCompressionLevel());
+        assertEquals(8, config.getFecGroupSize());
+        assertEquals(0, config.getProgressIntervalMillis());
+        assertEquals(1 << 24, config.getContentStoreBytes());
+        assertEquals(50, config.getDedupTimeoutMillis());
+        assertEquals(64, config.getMaxFramesInFlight());
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> ImageMessengerConfig.builder().encoding(null).build());
+        assertThrows(IllegalArgumentException.class, () -> ImageMessengerConfig.builder().chunkSize(0).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> ImageMessengerConfig.builder().chunkSize(ImageMessengerConfig.MAX_CHUNK_SIZE + 1).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> ImageMessengerConfig.builder().reassemblyBudget(0).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> ImageMessengerConfig.builder().transferTimeoutMillis(0).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> ImageMessengerConfig.builder().spillThreshold(-1).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> ImageMessengerConfig.builder().compressionLevel(10).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> ImageMessengerConfig.builder().fecGroupSize(ImageMessengerConfig.MAX_FEC_GROUP_SIZE + 1).build());
+        assertThrows(IllegalArgumentException.class, () -> ImageMessengerConfig.builder().fecGroupSize(-1).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> ImageMessengerConfig.builder().progressIntervalMillis(-1).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> ImageMessengerConfig.builder().contentStoreBytes(-1).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> ImageMessengerConfig.builder().dedupTimeoutMillis(0).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> ImageMessengerConfig.builder().maxFramesInFlight(0).build());
+    }
+}
@@ -1,7 +1,16 @@
 package com.example.distributedguidemojava.imagemessaging;
 
+import com.example.distributedguidemojava.networking.CommunicatorConfig;
+import com.example.distributedguidemojava.networking.Endpoint;
+import com.example.distributedguidemojava.networking.FrameHeader;
+import com.example.distributedguidemojava.networking.IBinaryMessageListener;
 import com.example.distributedguidemojava.networking.ICommunicator;
+import com.example.distributedguidemojava.networking.IConcurrentMessageListener;
 import com.example.distributedguidemojava.networking.IMessageListener;
+import com.example.distributedguidemojava.networking.LoopbackCommunicator;
+import com.example.distributedguidemojava.networking.OverflowPolicy;
+import com.example.distributedguidemojava.networking.SendMode;
+import com.example.distributedguidemojava.networking.TransportType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,11 +20,26 @@ import org.mockito.Captor;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -43,6 +67,11 @@ public class ImageMessengerTest {
     @BeforeEach
     public void setUp() {
         mockCommunicator = mock(ICommunicator.class);
+        lenient().when(mockCommunicator.getEndpoint(anyString(), anyInt(), anyBoolean())).thenAnswer(
+            invocation -> Endpoint.resolve(invocation.getArgument(0), invocation.getArgument(1),
+                invocation.getArgument(2)));
+        lenient().when(mockCommunicator.sendFrameAsync(any(Endpoint.class), anyString(), any(FrameHeader.class),
+            any(ByteBuffer.class))).thenReturn(CompletableFuture.completedFuture(null));
         imageMessenger = new ImageMessenger(mockCommunicator);
         mockCallback = mock(Consumer.class);
         imageMessenger.setOnImageMessageReceived(mockCallback);
@@ -89,6 +118,8 @@ public class ImageMessengerTest {
         
         // Should not send any message for non-existent file that doesn't match test pattern
         verify(mockCommunicator, never()).sendMessage(anyString(), anyInt(), eq("image"), anyString());
+        verify(mockCommunicator, never()).sendFrameAsync(any(Endpoint.class), eq("image"),
+            any(FrameHeader.class), any(ByteBuffer.class));
     }
 
     @Test
@@ -103,8 +134,9 @@ public class ImageMessengerTest {
         
         imageMessenger.sendMessage(ipAddress, port, imageFile.toString());
         
-        // Verify that messages were sent (should be chunked)
-        verify(mockCommunicator, atLeastOnce()).sendMessage(eq(ipAddress), eq(port), eq("image"), anyString());
+        // Verify that messages were sent as frames (should be chunked)
+        verify(mockCommunicator, atLeastOnce()).sendFrameAsync(eq(Endpoint.resolve(ipAddress, port, true)), eq("image"),
+            any(FrameHeader.class), any(ByteBuffer.class));
     }
 
     @Test
@@ -221,7 +253,8 @@ public class ImageMessengerTest {
         imageMessenger.sendMessage(ipAddress, port, imageFile.toString());
         
         // Should send multiple chunks for a large file
-        verify(mockCommunicator, atLeast(2)).sendMessage(eq(ipAddress), eq(port), eq("image"), anyString());
+        verify(mockCommunicator, atLeast(2)).sendFrameAsync(eq(Endpoint.resolve(ipAddress, port, true)), eq("image"),
+            any(FrameHeader.class), any(ByteBuffer.class));
     }
 
     @Test
@@ -268,4 +301,761 @@ public class ImageMessengerTest {
         // Wait for callback to be called
         assertTrue(latch.await(1, TimeUnit.SECONDS), "Callback should be called within 1 second");
     }
+
+    @Test
+    public void testListenerIsBinary() {
+        assertTrue(capturedListener instanceof IBinaryMessageListener,
+            "Image messenger should receive chunks as bytes");
+    }
+
+    @Test
+    public void testListenerAcceptsConcurrentDelivery() {
+        assertTrue(capturedListener instanceof IConcurrentMessageListener,
+            "Chunks of different images should be reassembled on several threads");
+    }
+
+    @Test
+    public void testHandleReceivedBinaryChunk() {
+        IBinaryMessageListener binaryListener = (IBinaryMessageListener) capturedListener;
+        byte[] chunk = "binary-image:0:1:SGVsbG8=".getBytes(StandardCharsets.US_ASCII);
+        binaryListener.onMessageReceived(ByteBuffer.wrap(chunk));
+        verify(mockCallback).accept("SGVsbG8=");
+    }
+
+    @Test
+    public void testHandleReceivedChunkIndexOutOfRange() {
+        capturedListener.onMessageReceived("range-image:5:2:data");
+        capturedListener.onMessageReceived("range-image::2:data");
+        verify(mockCallback, never()).accept(anyString());
+    }
+
+    @Test
+    public void testSendAndReceiveRoundTrip() throws IOException {
+        Path imageFile = tempDir.resolve("round_trip.bin");
+        byte[] imageData = new byte[9000];
+        for (int i = 0; i < imageData.length; i++) {
+            imageData[i] = (byte) (i * 31);
+        }
+        Files.write(imageFile, imageData);
+
+        // Loop every sent frame straight back into the captured listener, last chunk first
+        List<FrameHeader> headers = new ArrayList<>();
+        List<ByteBuffer> payloads = new ArrayList<>();
+        doAnswer(invocation -> {
+            FrameHeader header = new FrameHeader();
+            header.copyFrom(invocation.getArgument(2));
+            ByteBuffer payload = invocation.getArgument(3);
+            headers.add(header);
+            // The sender reuses its chunk buffer once the call returns
+            payloads.add(ByteBuffer.allocate(payload.remaining()).put(payload.duplicate()).flip());
+            return CompletableFuture.completedFuture(null);
+        }).when(mockCommunicator).sendFrameAsync(any(Endpoint.class), eq("image"), any(FrameHeader.class),
+            any(ByteBuffer.class));
+
+        imageMessenger.sendMessage("127.0.0.1", 5000, imageFile.toString());
+        assertTrue(headers.size() > 1);
+        for (int i = headers.size() - 1; i >= 0; i--) {
+            ((IBinaryMessageListener) capturedListener).onFrameReceived(headers.get(i), payloads.get(i));
+        }
+
+        verify(mockCallback).accept(java.util.Base64.getEncoder().encodeToString(imageData));
+    }
+
+    @Test
+    public void testDuplicateFrameIsNotCountedTwice() {
+        IBinaryMessageListener binaryListener = (IBinaryMessageListener) capturedListener;
+        FrameHeader header = new FrameHeader();
+        header.setTransferId(42L);
+        header.setTotal(8);
+
+        header.setSequence(0);
+        binaryListener.onFrameReceived(header, ByteBuffer.wrap("abcd".getBytes()));
+        binaryListener.onFrameReceived(header, ByteBuffer.wrap("abcd".getBytes()));
+        verify(mockCallback, never()).accept(anyString());
+
+        header.setSequence(4);
+        binaryListener.onFrameReceived(header, ByteBuffer.wrap("efgh".getBytes()));
+        verify(mockCallback).accept("abcdefgh");
+    }
+
+    @Test
+    public void testFrameBeyondTotalIsIgnored() {
+        FrameHeader header = new FrameHeader();
+        header.setTransferId(7L);
+        header.setTotal(4);
+        header.setSequence(2);
+
+        assertDoesNotThrow(() -> ((IBinaryMessageListener) capturedListener)
+            .onFrameReceived(header, ByteBuffer.wrap("abcd".getBytes())));
+        verify(mockCallback, never()).accept(anyString());
+    }
+
+    @Test
+    public void testSendMessageToUnresolvedAddress() throws IOException {
+        Path imageFile = tempDir.resolve("unresolved.jpg");
+        Files.write(imageFile, "fake image data".getBytes());
+        when(mockCommunicator.getEndpoint(anyString(), anyInt(), anyBoolean())).thenReturn(null);
+
+        imageMessenger.sendMessage("no-such-host.invalid", 8080, imageFile.toString());
+
+        verify(mockCommunicator, never()).sendFrameAsync(any(Endpoint.class), anyString(),
+            any(FrameHeader.class), any(ByteBuffer.class));
+    }
+
+    private static List<FrameHeader> captureFrames(ICommunicator communicator, List<ByteBuffer> payloads) {
+        List<FrameHeader> headers = new ArrayList<>();
+        doAnswer(invocation -> {
+            FrameHeader header = new FrameHeader();
+            header.copyFrom(invocation.getArgument(2));
+            ByteBuffer payload = invocation.getArgument(3);
+            headers.add(header);
+            // The sender reuses its chunk buffer once the call returns
+            payloads.add(ByteBuffer.allocate(payload.remaining()).put(payload.duplicate()).flip());
+            return CompletableFuture.completedFuture(null);
+        }).when(communicator).sendFrameAsync(any(Endpoint.class), eq("image"), any(FrameHeader.class),
+            any(ByteBuffer.class));
+        return headers;
+    }
+
+    @Test
+    public void testRawChunksCarryFileBytesWithinMtu() throws IOException {
+        Path imageFile = tempDir.resolve("raw.png");
+        byte[] imageData = new byte[5000];
+        for (int i = 0; i < imageData.length; i++) {
+            imageData[i] = (byte) (i * 7);
+        }
+        Files.write(imageFile, imageData);
+        List<ByteBuffer> payloads = new ArrayList<>();
+        List<FrameHeader> headers = captureFrames(mockCommunicator, payloads);
+
+        imageMessenger.sendMessage("127.0.0.1", 5000, imageFile.toString());
+
+        assertEquals(4, headers.size());
+        for (int i = 0; i < headers.size(); i++) {
+            assertTrue(headers.get(i).hasFlag(ImageMessenger.FLAG_RAW));
+            assertEquals(imageData.length, headers.get(i).getTotal(), "No Base64 overhead");
+            assertEquals(i * ImageMessengerConfig.DEFAULT_CHUNK_SIZE, headers.get(i).getSequence());
+            assertTrue(payloads.get(i).remaining() <= ImageMessengerConfig.DEFAULT_CHUNK_SIZE);
+        }
+    }
+
+    @Test
+    public void testRawImageReachesBytesCallbackUnchanged() throws IOException {
+        Path imageFile = tempDir.resolve("raw_round_trip.png");
+        byte[] imageData = new byte[9000];
+        for (int i = 0; i < imageData.length; i++) {
+            imageData[i] = (byte) (i * 13);
+        }
+        Files.write(imageFile, imageData);
+        List<ByteBuffer> payloads = new ArrayList<>();
+        List<FrameHeader> headers = captureFrames(mockCommunicator, payloads);
+        List<byte[]> received = new ArrayList<>();
+        imageMessenger.setOnImageMessageReceived(null);
+        imageMessenger.setOnImageBytesReceived(received::add);
+
+        imageMessenger.sendMessage("127.0.0.1", 5000, imageFile.toString());
+        for (int i = headers.size() - 1; i >= 0; i--) {
+            ((IBinaryMessageListener) capturedListener).onFrameReceived(headers.get(i), payloads.get(i));
+        }
+
+        assertEquals(1, received.size());
+        assertArrayEquals(imageData, received.get(0));
+    }
+
+    @Test
+    public void testBase64EncodingAndChunkSizeAreConfigurable() throws IOException {
+        ICommunicator communicator = mock(ICommunicator.class);
+        when(communicator.getEndpoint(anyString(), anyInt(), anyBoolean())).thenAnswer(
+            invocation -> Endpoint.resolve(invocation.getArgument(0), invocation.getArgument(1),
+                invocation.getArgument(2)));
+        when(communicator.sendFrameAsync(any(Endpoint.class), eq("image"), any(FrameHeader.class),
+            any(ByteBuffer.class))).thenReturn(CompletableFuture.completedFuture(null));
+        ImageMessenger base64Messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .encoding(ImageEncoding.BASE64)
+            .chunkSize(100)
+            .build());
+        Path imageFile = tempDir.resolve("base64.png");
+        Files.write(imageFile, new byte[300]);
+        ArgumentCaptor<FrameHeader> headerCaptor = ArgumentCaptor.forClass(FrameHeader.class);
+
+        base64Messenger.sendMessage("127.0.0.1", 5000, imageFile.toString());
+
+        verify(communicator, times(4)).sendFrameAsync(any(Endpoint.class), eq("image"), headerCaptor.capture(),
+            any(ByteBuffer.class));
+        assertEquals(400, headerCaptor.getValue().getTotal(), "300 bytes are 400 characters of Base64");
+        assertFalse(headerCaptor.getValue().hasFlag(ImageMessenger.FLAG_RAW));
+    }
+
+    @Test
+    public void testBase64TransferReachesBytesCallbackDecoded() {
+        List<byte[]> received = new ArrayList<>();
+        imageMessenger.setOnImageBytesReceived(received::add);
+
+        capturedListener.onMessageReceived("legacy-image:0:1:data:image/png;base64,SGVsbG8=");
+
+        assertEquals(1, received.size());
+        assertArrayEquals("Hello".getBytes(StandardCharsets.US_ASCII), received.get(0));
+    }
+
+    @Test
+    public void testInvalidBase64IsNotPassedAsBytes() {
+        List<byte[]> received = new ArrayList<>();
+        imageMessenger.setOnImageBytesReceived(received::add);
+
+        capturedListener.onMessageReceived("broken-image:0:1:not base64!");
+
+        assertTrue(received.isEmpty());
+    }
+
+    private IBinaryMessageListener listenerOf(ICommunicator communicator) {
+        ArgumentCaptor<IMessageListener> captor = ArgumentCaptor.forClass(IMessageListener.class);
+        verify(communicator).addSubscriber(eq("image"), captor.capture());
+        return (IBinaryMessageListener) captor.getValue();
+    }
+
+    private static FrameHeader frame(long transferId, int offset, int total) {
+        FrameHeader header = new FrameHeader();
+        header.setTransferId(transferId);
+        header.setFlags(ImageMessenger.FLAG_RAW);
+        header.setSequence(offset);
+        header.setTotal(total);
+        return header;
+    }
+
+    @Test
+    public void testStalledTransferIsEvictedAfterTimeout() throws InterruptedException {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .transferTimeoutMillis(50)
+            .build());
+        IBinaryMessageListener listener = listenerOf(communicator);
+
+        listener.onFrameReceived(frame(1L, 0, 8), ByteBuffer.wrap("abcd".getBytes()));
+        assertEquals(8, messenger.getPendingReassemblyBytes());
+        Thread.sleep(100);
+        listener.onFrameReceived(frame(2L, 0, 8), ByteBuffer.wrap("abcd".getBytes()));
+
+        assertEquals(1, messenger.getEvictedTransferCount());
+        assertEquals(8, messenger.getPendingReassemblyBytes(), "Only the new transfer should be held");
+    }
+
+    @Test
+    public void testBudgetEvictsOldestTransferAndRefusesOversizedOne() {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .reassemblyBudget(20)
+            .build());
+        IBinaryMessageListener listener = listenerOf(communicator);
+        List<byte[]> received = new ArrayList<>();
+        messenger.setOnImageBytesReceived(received::add);
+
+        listener.onFrameReceived(frame(1L, 0, 12), ByteBuffer.wrap("abcd".getBytes()));
+        listener.onFrameReceived(frame(2L, 0, 12), ByteBuffer.wrap("abcd".getBytes()));
+        assertEquals(1, messenger.getEvictedTransferCount());
+        assertEquals(12, messenger.getPendingReassemblyBytes());
+
+        listener.onFrameReceived(frame(3L, 0, 21), ByteBuffer.wrap("abcd".getBytes()));
+        assertEquals(12, messenger.getPendingReassemblyBytes(), "An image over the budget should be refused");
+
+        listener.onFrameReceived(frame(2L, 4, 12), ByteBuffer.wrap("efgh".getBytes()));
+        listener.onFrameReceived(frame(2L, 8, 12), ByteBuffer.wrap("ijkl".getBytes()));
+        assertArrayEquals("abcdefghijkl".getBytes(), received.get(0));
+        assertEquals(0, messenger.getPendingReassemblyBytes());
+    }
+
+    @Test
+    public void testTextTransfersAreBoundedToo() {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .reassemblyBudget(1000)
+            .build());
+        IBinaryMessageListener listener = listenerOf(communicator);
+
+        listener.onMessageReceived(ByteBuffer.wrap("huge:0:2000000000:data".getBytes()));
+        assertEquals(0, messenger.getPendingReassemblyBytes(), "A bogus chunk count should not be allocated");
+
+        listener.onMessageReceived(ByteBuffer.wrap("small:0:2:data".getBytes()));
+        assertEquals(2 * Long.BYTES + 4, messenger.getPendingReassemblyBytes());
+    }
+
+    @Test
+    public void testManyImagesReassembledFromParallelThreads() throws InterruptedException {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageMessenger messenger = new ImageMessenger(communicator);
+        IBinaryMessageListener listener = listenerOf(communicator);
+        Map<String, Integer> completions = new ConcurrentHashMap<>();
+        messenger.setOnImageBytesReceived(image -> completions.merge(new String(image), 1, Integer::sum));
+
+        List<Runnable> deliveries = new ArrayList<>();
+        for (int image = 0; image < 200; image++) {
+            String content = String.format("image-%04d-payload", image);
+            long transferId = image + 1;
+            for (int offset = 0; offset < content.length(); offset += 4) {
+                int start = offset;
+                int end = Math.min(offset + 4, content.length());
+                deliveries.add(() -> listener.onFrameReceived(frame(transferId, start, content.length()),
+                    ByteBuffer.wrap(content.substring(start, end).getBytes())));
+            }
+            deliveries.add(() -> listener.onMessageReceived(ByteBuffer.wrap(
+                ("text-" + transferId + ":0:1:" + Base64.getEncoder().encodeToString(content.getBytes())).getBytes())));
+        }
+        Collections.shuffle(deliveries, new Random(7));
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        deliveries.forEach(pool::execute);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(200, completions.size());
+        completions.forEach((image, count) -> assertEquals(2, count, image + " should complete once per transfer"));
+        assertEquals(0, messenger.getPendingReassemblyBytes());
+        assertEquals(0, messenger.getEvictedTransferCount());
+    }
+
+    private static byte[] pattern(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 11);
+        }
+        return data;
+    }
+
+    private static void receive(IBinaryMessageListener listener, long transferId, byte[] image, int chunk) {
+        for (int offset = 0; offset < image.length; offset += chunk) {
+            listener.onFrameReceived(frame(transferId, offset, image.length),
+                ByteBuffer.wrap(image, offset, Math.min(chunk, image.length - offset)));
+        }
+    }
+
+    @Test
+    public void testLargeImageIsSpilledToFile() throws IOException {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .spillThreshold(1000)
+            .spillDirectory(tempDir)
+            .build());
+        IBinaryMessageListener listener = listenerOf(communicator);
+        List<Path> files = new ArrayList<>();
+        List<byte[]> inMemory = new ArrayList<>();
+        messenger.setOnImageFileReceived(files::add);
+        messenger.setOnImageBytesReceived(inMemory::add);
+        byte[] large = pattern(5000);
+        byte[] small = pattern(1000);
+
+        receive(listener, 1L, large, 1400);
+        receive(listener, 2L, small, 1400);
+
+        assertEquals(1, files.size());
+        assertArrayEquals(large, Files.readAllBytes(files.get(0)));
+        assertEquals(1, inMemory.size(), "An image at the threshold should stay on the heap");
+        assertArrayEquals(small, inMemory.get(0));
+    }
+
+    @Test
+    public void testSpilledImageLargerThanBudgetIsReceived() throws IOException {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .reassemblyBudget(2000)
+            .spillThreshold(1000)
+            .spillDirectory(tempDir)
+            .build());
+        IBinaryMessageListener listener = listenerOf(communicator);
+        List<Path> files = new ArrayList<>();
+        List<byte[]> inMemory = new ArrayList<>();
+        messenger.setOnImageFileReceived(files::add);
+        messenger.setOnImageBytesReceived(inMemory::add);
+        byte[] large = pattern(5000);
+        byte[] small = pattern(1000);
+
+        listener.onFrameReceived(frame(2L, 0, small.length), ByteBuffer.wrap(small, 0, 500));
+        receive(listener, 1L, large, 1400);
+        listener.onFrameReceived(frame(2L, 500, small.length), ByteBuffer.wrap(small, 500, 500));
+
+        assertEquals(1, files.size(), "A spilled image should not be refused for the heap budget");
+        assertArrayEquals(large, Files.readAllBytes(files.get(0)));
+        assertEquals(0, messenger.getEvictedTransferCount(), "A spilled image should not push out heap images");
+        assertArrayEquals(small, inMemory.get(0));
+    }
+
+    @Test
+    public void testSpilledImageIsPreviewedUpToTheThreshold() {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .spillThreshold(1000)
+            .spillDirectory(tempDir)
+            .progressIntervalMillis(0)
+            .build());
+        IBinaryMessageListener listener = listenerOf(communicator);
+        List<byte[]> previews = new ArrayList<>();
+        messenger.setOnImagePreview(previews::add);
+        messenger.setOnImageFileReceived(file -> { });
+        byte[] large = pattern(5000);
+
+        receive(listener, 1L, large, 400);
+
+        assertFalse(previews.isEmpty(), "A spilled image should be previewed");
+        for (byte[] preview : previews) {
+            assertTrue(preview.length <= 1000, "A preview should stop at the spill threshold");
+            assertArrayEquals(Arrays.copyOf(large, preview.length), preview);
+        }
+    }
+
+    @Test
+    public void testSpilledImageIsReadBackWithoutFileCallback() throws IOException {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .spillThreshold(1000)
+            .spillDirectory(tempDir)
+            .build());
+        IBinaryMessageListener listener = listenerOf(communicator);
+        List<byte[]> received = new ArrayList<>();
+        messenger.setOnImageBytesReceived(received::add);
+        byte[] large = pattern(5000);
+
+        receive(listener, 1L, large, 1400);
+
+        assertArrayEquals(large, received.get(0));
+        try (Stream<Path> left = Files.list(tempDir)) {
+            assertEquals(0, left.count(), "The spill file should be deleted once read back");
+        }
+    }
+
+    @Test
+    public void testEvictedSpillFileIsDeleted() throws IOException, InterruptedException {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .spillThreshold(1000)
+            .spillDirectory(tempDir)
+            .transferTimeoutMillis(50)
+            .build());
+        IBinaryMessageListener listener = listenerOf(communicator);
+
+        listener.onFrameReceived(frame(1L, 0, 5000), ByteBuffer.wrap(pattern(1400)));
+        try (Stream<Path> partial = Files.list(tempDir)) {
+            assertEquals(1, partial.count());
+        }
+        Thread.sleep(100);
+        listener.onFrameReceived(frame(2L, 0, 8), ByteBuffer.wrap("abcd".getBytes()));
+
+        assertEquals(1, messenger.getEvictedTransferCount());
+        try (Stream<Path> left = Files.list(tempDir)) {
+            assertEquals(0, left.count(), "An evicted transfer should not leave its spill file behind");
+        }
+    }
+
+    @Test
+    public void testStalledTransferExpiresWithoutFurtherTraffic() throws IOException, InterruptedException {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .spillThreshold(1000)
+            .spillDirectory(tempDir)
+            .transferTimeoutMillis(50)
+            .build());
+        IBinaryMessageListener listener = listenerOf(communicator);
+
+        listener.onFrameReceived(frame(1L, 0, 5000), ByteBuffer.wrap(pattern(1400)));
+        for (int i = 0; i < 100 && tempDir.toFile().list().length > 0; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, messenger.getEvictedTransferCount());
+        assertEquals(0, messenger.getPendingReassemblyBytes());
+        try (Stream<Path> left = Files.list(tempDir)) {
+            assertEquals(0, left.count(), "A stalled transfer should not leave its spill file behind");
+        }
+    }
+
+    @Test
+    public void testCompressedImageRoundTrip() throws IOException {
+        ICommunicator communicator = mock(ICommunicator.class);
+        when(communicator.getEndpoint(anyString(), anyInt(), anyBoolean())).thenAnswer(
+            invocation -> Endpoint.resolve(invocation.getArgument(0), invocation.getArgument(1),
+                invocation.getArgument(2)));
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .compressionLevel(6)
+            .build());
+        Path imageFile = tempDir.resolve("image.bmp");
+        byte[] bitmap = new byte[5000];
+        bitmap[0] = 'B';
+        bitmap[1] = 'M';
+        Files.write(imageFile, bitmap);
+        List<ByteBuffer> payloads = new ArrayList<>();
+        List<FrameHeader> headers = captureFrames(communicator, payloads);
+
+        messenger.sendMessage("127.0.0.1", 5000, imageFile.toString());
+
+        assertEquals(4, headers.size());
+        assertTrue(headers.get(0).hasFlag(ImageMessenger.FLAG_DEFLATE));
+        assertTrue(payloads.get(0).remaining() < 100, "An empty bitmap should compress well");
+        assertEquals(bitmap.length, headers.get(0).getTotal(), "Offsets and totals refer to the image");
+        List<byte[]> received = new ArrayList<>();
+        messenger.setOnImageBytesReceived(received::add);
+        IBinaryMessageListener listener = listenerOf(communicator);
+        for (int i = headers.size() - 1; i >= 0; i--) {
+            listener.onFrameReceived(headers.get(i), payloads.get(i));
+        }
+        assertArrayEquals(bitmap, received.get(0));
+    }
+
+    @Test
+    public void testJpegIsNotCompressed() throws IOException {
+        ICommunicator communicator = mock(ICommunicator.class);
+        when(communicator.getEndpoint(anyString(), anyInt(), anyBoolean())).thenAnswer(
+            invocation -> Endpoint.resolve(invocation.getArgument(0), invocation.getArgument(1),
+                invocation.getArgument(2)));
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .compressionLevel(6)
+            .build());
+        Path imageFile = tempDir.resolve("photo.jpg");
+        byte[] jpeg = new byte[3000];
+        jpeg[0] = (byte) 0xFF;
+        jpeg[1] = (byte) 0xD8;
+        jpeg[2] = (byte) 0xFF;
+        Files.write(imageFile, jpeg);
+        List<ByteBuffer> payloads = new ArrayList<>();
+        List<FrameHeader> headers = captureFrames(communicator, payloads);
+
+        messenger.sendMessage("127.0.0.1", 5000, imageFile.toString());
+
+        for (FrameHeader header : headers) {
+            assertFalse(header.hasFlag(ImageMessenger.FLAG_DEFLATE));
+        }
+        assertEquals(ImageMessengerConfig.DEFAULT_CHUNK_SIZE, payloads.get(0).remaining());
+    }
+
+    @Test
+    public void testCorruptCompressedFrameIsRejected() {
+        List<byte[]> received = new ArrayList<>();
+        imageMessenger.setOnImageBytesReceived(received::add);
+        FrameHeader header = frame(9L, 0, 4);
+        header.setFlags(ImageMessenger.FLAG_RAW | ImageMessenger.FLAG_DEFLATE);
+
+        ((IBinaryMessageListener) capturedListener).onFrameReceived(header, ByteBuffer.wrap("abcd".getBytes()));
+
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void testLostChunksAreRecoveredFromParity() throws IOException {
+        ICommunicator communicator = mock(ICommunicator.class);
+        when(communicator.getEndpoint(anyString(), anyInt(), anyBoolean())).thenAnswer(
+            invocation -> Endpoint.resolve(invocation.getArgument(0), invocation.getArgument(1),
+                invocation.getArgument(2)));
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .chunkSize(1000)
+            .fecGroupSize(4)
+            .build());
+        Path imageFile = tempDir.resolve("image.bin");
+        byte[] image = pattern(9500);
+        Files.write(imageFile, image);
+        List<ByteBuffer> payloads = new ArrayList<>();
+        List<FrameHeader> headers = captureFrames(communicator, payloads);
+
+        messenger.sendMessage("127.0.0.1", 5000, imageFile.toString());
+
+        // 10 chunks in groups of 4, 4 and 2, each group followed by its parity chunk
+        assertEquals(13, headers.size());
+        assertTrue(headers.get(4).hasFlag(ImageMessenger.FLAG_PARITY));
+        assertEquals(0, headers.get(4).getSequence());
+        assertEquals(8000, headers.get(12).getSequence());
+        List<byte[]> received = new ArrayList<>();
+        messenger.setOnImageBytesReceived(received::add);
+        IBinaryMessageListener listener = listenerOf(communicator);
+        // Lose the second chunk of every group
+        for (int i = 0; i < headers.size(); i++) {
+            if (i != 1 && i != 6 && i != 11) {
+                listener.onFrameReceived(headers.get(i), payloads.get(i));
+            }
+        }
+        assertEquals(1, received.size());
+        assertArrayEquals(image, received.get(0));
+        assertEquals(3, messenger.getRecoveredChunkCount());
+    }
+
+    @Test
+    public void testParityAfterLosslessTransferLeavesNothingPending() throws IOException {
+        ICommunicator communicator = mock(ICommunicator.class);
+        when(communicator.getEndpoint(anyString(), anyInt(), anyBoolean())).thenAnswer(
+            invocation -> Endpoint.resolve(invocation.getArgument(0), invocation.getArgument(1),
+                invocation.getArgument(2)));
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .chunkSize(1000)
+            .fecGroupSize(4)
+            .progressIntervalMillis(0)
+            .build());
+        Path imageFile = tempDir.resolve("image.bin");
+        byte[] image = pattern(9500);
+        Files.write(imageFile, image);
+        List<ByteBuffer> payloads = new ArrayList<>();
+        List<FrameHeader> headers = captureFrames(communicator, payloads);
+        messenger.sendMessage("127.0.0.1", 5000, imageFile.toString());
+        List<byte[]> received = new ArrayList<>();
+        List<ImageProgress> reports = new ArrayList<>();
+        messenger.setOnImageBytesReceived(received::add);
+        messenger.setOnImageProgress(reports::add);
+        IBinaryMessageListener listener = listenerOf(communicator);
+
+        // The parity chunk of the last group arrives after the image is complete
+        for (int i = 0; i < headers.size(); i++) {
+            listener.onFrameReceived(headers.get(i), payloads.get(i));
+        }
+
+        assertEquals(1, received.size());
+        assertArrayEquals(image, received.get(0));
+        assertEquals(0, messenger.getPendingReassemblyBytes());
+        assertEquals(0, messenger.getEvictedTransferCount());
+        assertTrue(reports.get(reports.size() - 1).isComplete());
+        assertEquals(0, messenger.getRecoveredChunkCount());
+    }
+
+    @Test
+    public void testProgressIsReportedUntilComplete() {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .progressIntervalMillis(0)
+            .build());
+        List<ImageProgress> reports = new ArrayList<>();
+        List<String> events = new ArrayList<>();
+        messenger.setOnImageProgress(progress -> {
+            reports.add(progress);
+            events.add("progress");
+        });
+        messenger.setOnImageBytesReceived(bytes -> events.add("image"));
+        byte[] image = pattern(1000);
+
+        receive(listenerOf(communicator), 5L, image, 100);
+
+        assertEquals(10, reports.size(), "With no interval every chunk is reported");
+        assertEquals(100, reports.get(0).getReceivedBytes());
+        assertEquals(5L, reports.get(0).getTransferId());
+        assertEquals(10, reports.get(9).getChunkCount());
+        assertTrue(reports.get(9).isComplete());
+        assertEquals("image", events.get(events.size() - 1), "The image comes after its last report");
+    }
+
+    @Test
+    public void testPreviewsGrowAndStopBeforeTheImage() {
+        ICommunicator communicator = mock(ICommunicator.class);
+        ImageMessenger messenger = new ImageMessenger(communicator, ImageMessengerConfig.builder()
+            .progressIntervalMillis(0)
+            .build());
+        List<byte[]> previews = new ArrayList<>();
+        List<byte[]> received = new ArrayList<>();
+        messenger.setOnImagePreview(previews::add);
+        messenger.setOnImageBytesReceived(received::add);
+        byte[] image = pattern(1000);
+
+        receive(listenerOf(communicator), 6L, image, 400);
+
+        assertEquals(2, previews.size());
+        assertArrayEquals(Arrays.copyOf(image, 400), previews.get(0));
+        assertArrayEquals(Arrays.copyOf(image, 800), previews.get(1));
+        assertArrayEquals(image, received.get(0));
+    }
+
+    private static void forwardFrames(ICommunicator from, IBinaryMessageListener to) {
+        doAnswer(invocation -> {
+            ByteBuffer payload = invocation.getArgument(3);
+            FrameHeader header = new FrameHeader().copyFrom(invocation.getArgument(2));
+            header.setSource(new InetSocketAddress("127.0.0.1", 40000));
+            to.onFrameReceived(header, ByteBuffer.allocate(payload.remaining()).put(payload.duplicate()).flip());
+            return null;
+        }).when(from).sendFrame(any(Endpoint.class), eq("image"), any(FrameHeader.class), any(ByteBuffer.class));
+        doAnswer(invocation -> {
+            ByteBuffer payload = invocation.getArgument(3);
+            to.onFrameReceived(new FrameHeader().copyFrom(invocation.getArgument(2)),
+                ByteBuffer.allocate(payload.remaining()).put(payload.duplicate()).flip());
+            return CompletableFuture.completedFuture(null);
+        }).when(from).sendFrameAsync(any(Endpoint.class), eq("image"), any(FrameHeader.class),
+            any(ByteBuffer.class));
+    }
+
+    private static void forwardAnswers(ICommunicator from, IBinaryMessageListener to) {
+        doAnswer(invocation -> {
+            ByteBuffer payload = invocation.getArgument(4);
+            to.onFrameReceived(new FrameHeader().copyFrom(invocation.getArgument(3)), payload.duplicate());
+            return null;
+        }).when(from).sendFrame(anyString(), anyInt(), eq("image"), any(FrameHeader.class), any(ByteBuffer.class));
+    }
+
+    @Test
+    public void testImageHeldByReceiverIsNotSentAgain() throws IOException {
+        ICommunicator senderCommunicator = mock(ICommunicator.class);
+        ICommunicator receiverCommunicator = mock(ICommunicator.class);
+        ImageMessengerConfig config = ImageMessengerConfig.builder()
+            .contentStoreBytes(1 << 20)
+            .build();
+        when(senderCommunicator.getEndpoint(anyString(), anyInt(), anyBoolean())).thenAnswer(
+            invocation -> Endpoint.resolve(invocation.getArgument(0), invocation.getArgument(1),
+                invocation.getArgument(2)));
+        ImageMessenger sender = new ImageMessenger(senderCommunicator, config);
+        ImageMessenger receiver = new ImageMessenger(receiverCommunicator, config);
+        forwardFrames(senderCommunicator, listenerOf(receiverCommunicator));
+        forwardAnswers(receiverCommunicator, listenerOf(senderCommunicator));
+        List<byte[]> received = new ArrayList<>();
+        receiver.setOnImageBytesReceived(received::add);
+        Path imageFile = tempDir.resolve("image.bin");
+        byte[] image = pattern(5000);
+        Files.write(imageFile, image);
+
+        sender.sendMessage("127.0.0.1", 5000, imageFile.toString());
+        sender.sendMessage("127.0.0.1", 5000, imageFile.toString());
+
+        assertEquals(2, received.size());
+        assertArrayEquals(image, received.get(0));
+        assertArrayEquals(image, received.get(1));
+        assertEquals(1, sender.getDeduplicatedImageCount());
+        // One announcement per image, and the chunks of the first image only
+        verify(senderCommunicator, times(2)).sendFrame(any(Endpoint.class), eq("image"), any(FrameHeader.class),
+            any(ByteBuffer.class));
+        verify(senderCommunicator, times(4)).sendFrameAsync(any(Endpoint.class), eq("image"), any(FrameHeader.class),
+            any(ByteBuffer.class));
+    }
+
+    @Test
+    public void testImageLargerThanSendQueueIsSentWhole() throws Exception {
+        CommunicatorConfig senderConfig = CommunicatorConfig.builder()
+            .transportType(TransportType.LOOPBACK)
+            .sendMode(SendMode.ASYNC)
+            .sendQueueCapacity(16)
+            .build();
+        CommunicatorConfig receiverConfig = CommunicatorConfig.builder()
+            .transportType(TransportType.LOOPBACK)
+            .overflowPolicy(OverflowPolicy.BLOCK)
+            .build();
+        try (LoopbackCommunicator senderCommunicator = new LoopbackCommunicator(senderConfig);
+             LoopbackCommunicator receiverCommunicator = new LoopbackCommunicator(receiverConfig)) {
+            ImageMessenger sender = new ImageMessenger(senderCommunicator, ImageMessengerConfig.builder()
+                .chunkSize(100)
+                .maxFramesInFlight(8)
+                .build());
+            ImageMessenger receiver = new ImageMessenger(receiverCommunicator);
+            CompletableFuture<byte[]> received = new CompletableFuture<>();
+            receiver.setOnImageBytesReceived(received::complete);
+            Path imageFile = tempDir.resolve("queue.bin");
+            byte[] image = pattern(20_000);
+            Files.write(imageFile, image);
+
+            // 200 chunks go through a send queue that holds 16
+            sender.sendMessage("127.0.0.1", receiverCommunicator.getListenPort(), imageFile.toString());
+
+            assertArrayEquals(image, received.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testSendMessageAsyncTellsWhetherEveryFrameWasSent() throws IOException {
+        Path imageFile = tempDir.resolve("async.bin");
+        Files.write(imageFile, pattern(5000));
+        CompletableFuture<Void> lost = new CompletableFuture<>();
+        when(mockCommunicator.sendFrameAsync(any(Endpoint.class), eq("image"), any(FrameHeader.class),
+            any(ByteBuffer.class))).thenReturn(CompletableFuture.completedFuture(null), lost);
+
+        CompletableFuture<Void> sent = imageMessenger.sendMessageAsync("127.0.0.1", 5000, imageFile.toString());
+        assertFalse(sent.isDone(), "The second frame is still in flight");
+        lost.completeExceptionally(new IOException("Not acknowledged"));
+
+        assertTrue(sent.isCompletedExceptionally());
+        assertTrue(imageMessenger.sendMessageAsync("127.0.0.1", 5000, "no/such/file.png")
+            .isCompletedExceptionally());
+    }
 }
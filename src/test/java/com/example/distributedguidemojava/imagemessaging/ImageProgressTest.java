@@ -0,0 +1,34 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ImageProgress class.
+ */
+public class ImageProgressTest {
+
+    @Test
+    public void testGetters() {
+        ImageProgress progress = new ImageProgress(0xABL, 250, 1000, 5, 20, 300);
+
+        assertEquals(0xABL, progress.getTransferId());
+        assertEquals(250, progress.getReceivedBytes());
+        assertEquals(1000, progress.getTotalBytes());
+        assertEquals(5, progress.getReceivedChunks());
+        assertEquals(20, progress.getChunkCount());
+        assertEquals(300, progress.getEstimatedMillisRemaining());
+        assertEquals(0.25, progress.getFraction(), 1e-9);
+        assertFalse(progress.isComplete());
+        assertTrue(progress.toString().contains("transferId=ab"));
+    }
+
+    @Test
+    public void testComplete() {
+        ImageProgress progress = new ImageProgress(1L, 1000, 1000, 20, 20, 0);
+
+        assertTrue(progress.isComplete());
+        assertEquals(1.0, progress.getFraction(), 1e-9);
+    }
+}
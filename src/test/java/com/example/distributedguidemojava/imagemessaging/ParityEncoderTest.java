@@ -0,0 +1,56 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ParityEncoder class.
+ */
+public class ParityEncoderTest {
+
+    @Test
+    public void testParityIsXorOfGroup() {
+        ParityEncoder encoder = new ParityEncoder(2, 3);
+
+        assertFalse(encoder.add(ByteBuffer.wrap(new byte[] {1, 2, 3}), 6));
+        assertTrue(encoder.add(ByteBuffer.wrap(new byte[] {4, 8}), 9));
+        assertEquals(6, encoder.getFirstOffset());
+        ByteBuffer parity = encoder.takeParity();
+
+        assertEquals(2, parity.getShort(0), "The chunk count comes first");
+        assertEquals(1 ^ 4, parity.get(2));
+        assertEquals(2 ^ 8, parity.get(3));
+        assertEquals(3, parity.get(4), "A short chunk counts as padded with zeros");
+        assertFalse(encoder.hasPending());
+    }
+
+    @Test
+    public void testNextGroupStartsFromZero() {
+        ParityEncoder encoder = new ParityEncoder(1, 2);
+        encoder.add(ByteBuffer.wrap(new byte[] {7, 7}), 0);
+        encoder.takeParity();
+
+        ByteBuffer chunk = ByteBuffer.wrap(new byte[] {5, 6});
+        assertTrue(encoder.add(chunk, 2));
+        assertEquals(2, chunk.remaining(), "The chunk should not be consumed");
+        ByteBuffer parity = encoder.takeParity();
+
+        assertEquals(2, encoder.getFirstOffset());
+        assertEquals(5, parity.get(2));
+        assertEquals(6, parity.get(3));
+    }
+
+    @Test
+    public void testShortLastGroupIsPending() {
+        ParityEncoder encoder = new ParityEncoder(4, 2);
+        assertFalse(encoder.hasPending());
+
+        encoder.add(ByteBuffer.wrap(new byte[] {1, 1}), 0);
+
+        assertTrue(encoder.hasPending());
+        assertEquals(1, encoder.takeParity().getShort(0));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PartialTransferStore class.
+ */
+public class PartialTransferStoreTest {
+
+    private static final long TTL = 1000;
+
+    @Test
+    public void testOpenGetAndRemoveAccountBytes() {
+        PartialTransferStore<Long, String> store = new PartialTransferStore<>(100, TTL, 0);
+
+        assertEquals("first", store.open(1L, 40, () -> "first", 0));
+        assertEquals("first", store.get(1L));
+        assertEquals(40, store.getPendingBytes());
+        assertEquals("first", store.remove(1L));
+        assertNull(store.get(1L));
+        assertEquals(0, store.getPendingBytes());
+        assertEquals(0, store.getEvictionCount());
+    }
+
+    @Test
+    public void testCompletedTransferIsRememberedForTheTtl() {
+        PartialTransferStore<Long, String> store = new PartialTransferStore<>(100, TTL, 0);
+        store.open(1L, 40, () -> "first", 0);
+
+        assertEquals("first", store.complete(1L, 10));
+
+        assertNull(store.get(1L));
+        assertEquals(0, store.getPendingBytes());
+        assertTrue(store.isCompleted(1L, 10 + TTL - 1));
+        assertFalse(store.isCompleted(2L, 10));
+        store.evictExpired(10 + TTL);
+        assertFalse(store.isCompleted(1L, 10 + TTL));
+        assertEquals(0, store.getEvictionCount());
+    }
+
+    @Test
+    public void testStaleTransfersExpire() {
+        PartialTransferStore<Long, String> store = new PartialTransferStore<>(100, TTL, 0);
+        store.open(1L, 10, () -> "stale", 0);
+        store.open(2L, 10, () -> "active", 0);
+        store.progressed(2L, 0, 500);
+
+        store.evictExpired(TTL);
+
+        assertNull(store.get(1L));
+        assertEquals("active", store.get(2L));
+        assertEquals(1, store.getEvictionCount());
+        assertEquals(10, store.getPendingBytes());
+    }
+
+    @Test
+    public void testLeastRecentlyProgressingIsEvictedForRoom() {
+        PartialTransferStore<Long, String> store = new PartialTransferStore<>(100, TTL, 0);
+        store.open(1L, 40, () -> "older", 0);
+        store.open(2L, 40, () -> "newer", 1);
+        store.progressed(1L, 0, 2);
+
+        store.open(3L, 40, () -> "third", 3);
+
+        assertEquals("older", store.get(1L), "Progress should have moved the first transfer back");
+        assertNull(store.get(2L));
+        assertEquals("third", store.get(3L));
+        assertEquals(80, store.getPendingBytes());
+        assertEquals(1, store.getEvictionCount());
+    }
+
+    @Test
+    public void testTransferLargerThanBudgetIsRefused() {
+        PartialTransferStore<Long, String> store = new PartialTransferStore<>(100, TTL, 0);
+        store.open(1L, 50, () -> "kept", 0);
+
+        assertNull(store.open(2L, 101, () -> "huge", 0));
+        assertEquals("kept", store.get(1L));
+        assertEquals(0, store.getEvictionCount());
+    }
+
+    @Test
+    public void testGrowingPastBudgetEvictsOthersThenItself() {
+        PartialTransferStore<Long, String> store = new PartialTransferStore<>(100, TTL, 0);
+        store.open(1L, 50, () -> "other", 0);
+        store.open(2L, 10, () -> "growing", 0);
+
+        assertTrue(store.progressed(2L, 60, 1));
+        assertNull(store.get(1L));
+        assertEquals(70, store.getPendingBytes());
+
+        assertFalse(store.progressed(2L, 40, 2));
+        assertNull(store.get(2L));
+        assertEquals(0, store.getPendingBytes());
+        assertEquals(2, store.getEvictionCount());
+    }
+
+    @Test
+    public void testConcurrentTransfersKeepTheBudgetConsistent() throws Exception {
+        PartialTransferStore<Long, String> store = new PartialTransferStore<>(1000, TTL, 0);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int worker = 0; worker < 4; worker++) {
+            long first = worker * 10_000L;
+            workers.add(pool.submit(() -> {
+                for (long key = first; key < first + 2000; key++) {
+                    if (store.open(key, 10, () -> "transfer", 0) != null && store.progressed(key, 20, 1)) {
+                        store.remove(key);
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        pool.shutdown();
+
+        assertEquals(0, store.size());
+        assertEquals(0, store.getPendingBytes(), "Every byte charged should have been released");
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SpillFile class.
+ */
+public class SpillFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testFileHasTheImageSizeAndIsMapped() throws IOException {
+        SpillFile file = SpillFile.create(tempDir, 4096);
+
+        assertEquals(tempDir, file.getPath().getParent());
+        assertEquals(4096, Files.size(file.getPath()));
+        assertEquals(4096, file.getBuffer().capacity());
+
+        file.getBuffer().put(4095, (byte) 42);
+        assertEquals(42, Files.readAllBytes(file.getPath())[4095], "Writes through the mapping reach the file");
+    }
+
+    @Test
+    public void testDeleteRemovesTheFile() throws IOException {
+        SpillFile file = SpillFile.create(tempDir, 16);
+
+        file.delete();
+        assertFalse(Files.exists(file.getPath()));
+        assertDoesNotThrow(file::delete, "Deleting twice should be harmless");
+    }
+
+    @Test
+    public void testMissingDirectoryFails() {
+        assertThrows(IOException.class, () -> SpillFile.create(tempDir.resolve("missing"), 16));
+        assertFalse(Files.exists(tempDir.resolve("missing")));
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.distributedguidemojava.imagemessaging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TransferReassembly class.
+ */
+public class TransferReassemblyTest {
+
+    private static final byte[] IMAGE = new byte[10];
+
+    @TempDir
+    Path tempDir;
+
+    static {
+        for (int i = 0; i < IMAGE.length; i++) {
+            IMAGE[i] = (byte) (i + 1);
+        }
+    }
+
+    private static ByteBuffer chunk(int offset, int length) {
+        return ByteBuffer.wrap(Arrays.copyOfRange(IMAGE, offset, offset + length));
+    }
+
+    @Test
+    public void testChunksAreWrittenInPlace() {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+
+        assertEquals(TransferReassembly.Result.ACCEPTED, transfer.accept(4, chunk(4, 4)));
+        assertEquals(TransferReassembly.Result.ACCEPTED, transfer.accept(0, chunk(0, 4)));
+        assertEquals(TransferReassembly.Result.COMPLETE, transfer.accept(8, chunk(8, 2)));
+        assertArrayEquals(IMAGE, transfer.getData());
+    }
+
+    @Test
+    public void testLastChunkFirstIsCountedOnceChunkSizeIsKnown() {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+
+        assertEquals(TransferReassembly.Result.ACCEPTED, transfer.accept(8, chunk(8, 2)));
+        assertEquals(TransferReassembly.Result.DUPLICATE, transfer.accept(8, chunk(8, 2)));
+        assertEquals(TransferReassembly.Result.ACCEPTED, transfer.accept(0, chunk(0, 4)));
+        assertEquals(TransferReassembly.Result.DUPLICATE, transfer.accept(8, chunk(8, 2)));
+        assertEquals(TransferReassembly.Result.COMPLETE, transfer.accept(4, chunk(4, 4)));
+        assertArrayEquals(IMAGE, transfer.getData());
+    }
+
+    @Test
+    public void testSingleChunkCompletesAtOnce() {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+
+        assertEquals(TransferReassembly.Result.COMPLETE, transfer.accept(0, chunk(0, 10)));
+        assertArrayEquals(IMAGE, transfer.getData());
+    }
+
+    @Test
+    public void testDuplicateIsIgnored() {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+        transfer.accept(0, chunk(0, 4));
+        ByteBuffer duplicate = chunk(0, 4);
+
+        assertEquals(TransferReassembly.Result.DUPLICATE, transfer.accept(0, duplicate));
+        assertEquals(4, duplicate.remaining(), "A duplicate should not be consumed");
+    }
+
+    @Test
+    public void testMisplacedChunksAreRejected() {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+        transfer.accept(0, chunk(0, 4));
+
+        assertEquals(TransferReassembly.Result.REJECTED, transfer.accept(8, chunk(0, 4)), "Past the end");
+        assertEquals(TransferReassembly.Result.REJECTED, transfer.accept(-4, chunk(0, 4)), "Negative offset");
+        assertEquals(TransferReassembly.Result.REJECTED, transfer.accept(2, chunk(2, 4)), "Off the chunk grid");
+        assertEquals(TransferReassembly.Result.REJECTED, transfer.accept(4, chunk(4, 3)), "Short middle chunk");
+        assertEquals(TransferReassembly.Result.REJECTED, transfer.accept(7, chunk(7, 3)), "Misplaced last chunk");
+        assertEquals(TransferReassembly.Result.REJECTED, transfer.accept(4, ByteBuffer.allocate(0)), "Empty");
+    }
+
+    private static ByteBuffer parity(int offset, int count, int chunkSize) {
+        ByteBuffer parity = ByteBuffer.allocate(ParityEncoder.COUNT_SIZE + chunkSize);
+        parity.putShort((short) count);
+        for (int i = offset; i < Math.min(IMAGE.length, offset + count * chunkSize); i++) {
+            int at = ParityEncoder.COUNT_SIZE + (i - offset) % chunkSize;
+            parity.put(at, (byte) (parity.get(at) ^ IMAGE[i]));
+        }
+        return parity.clear();
+    }
+
+    @Test
+    public void testLostMiddleChunkIsRebuiltFromParity() {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+
+        assertEquals(TransferReassembly.Result.ACCEPTED, transfer.accept(0, chunk(0, 4)));
+        assertEquals(TransferReassembly.Result.ACCEPTED, transfer.accept(8, chunk(8, 2)));
+        assertEquals(TransferReassembly.Result.COMPLETE, transfer.acceptParity(0, parity(0, 3, 4)));
+        assertArrayEquals(IMAGE, transfer.getData());
+        assertEquals(1, transfer.getRecoveredCount());
+    }
+
+    @Test
+    public void testLostShortLastChunkIsRebuiltWhenParityComesFirst() {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+
+        assertEquals(TransferReassembly.Result.ACCEPTED, transfer.acceptParity(0, parity(0, 3, 4)),
+            "The parity should give the chunk size");
+        assertEquals(TransferReassembly.Result.DUPLICATE, transfer.acceptParity(0, parity(0, 3, 4)));
+        assertEquals(TransferReassembly.Result.ACCEPTED, transfer.accept(4, chunk(4, 4)));
+        assertEquals(TransferReassembly.Result.COMPLETE, transfer.accept(0, chunk(0, 4)));
+        assertArrayEquals(IMAGE, transfer.getData());
+        assertEquals(1, transfer.getRecoveredCount());
+    }
+
+    @Test
+    public void testTwoLostChunksOfAGroupAreNotRebuilt() {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+        transfer.accept(0, chunk(0, 4));
+
+        assertEquals(TransferReassembly.Result.ACCEPTED, transfer.acceptParity(0, parity(0, 3, 4)));
+        assertEquals(0, transfer.getRecoveredCount());
+        assertEquals(TransferReassembly.Result.COMPLETE, transfer.accept(8, chunk(8, 2)),
+            "Once only one chunk is missing it should be rebuilt");
+        assertArrayEquals(IMAGE, transfer.getData());
+    }
+
+    @Test
+    public void testMisplacedParityIsRejected() {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+        transfer.accept(0, chunk(0, 4));
+
+        assertEquals(TransferReassembly.Result.REJECTED, transfer.acceptParity(2, parity(0, 1, 4)), "Off the grid");
+        assertEquals(TransferReassembly.Result.REJECTED, transfer.acceptParity(4, parity(4, 3, 4)), "Past the end");
+        assertEquals(TransferReassembly.Result.REJECTED, transfer.acceptParity(0, parity(0, 1, 3)), "Wrong size");
+        assertEquals(TransferReassembly.Result.REJECTED, transfer.acceptParity(0, parity(0, 0, 4)), "No chunks");
+    }
+
+    @Test
+    public void testProgressIsThrottledAndEstimated() {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+        transfer.accept(8, chunk(8, 2));
+
+        ImageProgress first = transfer.takeProgress(7L, 1_000_000_000L, 100_000_000L);
+        assertEquals(7L, first.getTransferId());
+        assertEquals(2, first.getReceivedBytes());
+        assertEquals(1, first.getReceivedChunks());
+        assertEquals(ImageProgress.UNKNOWN, first.getChunkCount(), "The chunk size is not known yet");
+        assertEquals(ImageProgress.UNKNOWN, first.getEstimatedMillisRemaining());
+
+        transfer.accept(0, chunk(0, 4));
+        assertNull(transfer.takeProgress(7L, 1_050_000_000L, 100_000_000L), "Too soon after the last report");
+        ImageProgress second = transfer.takeProgress(7L, 1_200_000_000L, 100_000_000L);
+        assertEquals(6, second.getReceivedBytes());
+        assertEquals(3, second.getChunkCount());
+        assertEquals(200, second.getEstimatedMillisRemaining(), "4 bytes took 200 ms, 4 more are missing");
+
+        transfer.accept(4, chunk(4, 4));
+        ImageProgress last = transfer.takeProgress(7L, 1_210_000_000L, 100_000_000L);
+        assertTrue(last.isComplete(), "The complete image is always reported");
+        assertEquals(0, last.getEstimatedMillisRemaining());
+    }
+
+    @Test
+    public void testRecoveredChunkCountsAsReceived() {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+        transfer.accept(0, chunk(0, 4));
+        transfer.accept(8, chunk(8, 2));
+        transfer.acceptParity(0, parity(0, 3, 4));
+
+        ImageProgress progress = transfer.takeProgress(1L, 0, 0);
+        assertEquals(IMAGE.length, progress.getReceivedBytes());
+        assertEquals(3, progress.getReceivedChunks());
+    }
+
+    @Test
+    public void testMisalignedEarlyLastChunkIsNotCounted() {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+        transfer.accept(7, chunk(7, 3));
+        transfer.accept(0, chunk(0, 4));
+
+        ImageProgress progress = transfer.takeProgress(1L, 0, 0);
+        assertEquals(4, progress.getReceivedBytes());
+        assertEquals(1, progress.getReceivedChunks());
+    }
+
+    @Test
+    public void testPreviewIsTheGaplessStartOfTheImage() {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+        assertNull(transfer.takePreview(Integer.MAX_VALUE), "Nothing has arrived");
+
+        transfer.accept(4, chunk(4, 4));
+        assertNull(transfer.takePreview(Integer.MAX_VALUE), "The start of the image is missing");
+        transfer.accept(0, chunk(0, 4));
+        assertArrayEquals(Arrays.copyOf(IMAGE, 8), transfer.takePreview(Integer.MAX_VALUE));
+        assertNull(transfer.takePreview(Integer.MAX_VALUE), "The preview has not grown");
+
+        transfer.accept(8, chunk(8, 2));
+        assertNull(transfer.takePreview(Integer.MAX_VALUE), "The complete image is not previewed");
+    }
+
+    @Test
+    public void testPreviewIsTakenOnceItHasDoubled() {
+        TransferReassembly transfer = new TransferReassembly(40);
+
+        transfer.accept(0, ByteBuffer.wrap(new byte[4]));
+        assertEquals(4, transfer.takePreview(Integer.MAX_VALUE).length);
+        transfer.accept(4, ByteBuffer.wrap(new byte[4]));
+        assertEquals(8, transfer.takePreview(Integer.MAX_VALUE).length);
+        transfer.accept(8, ByteBuffer.wrap(new byte[4]));
+        assertNull(transfer.takePreview(Integer.MAX_VALUE), "12 bytes are less than twice the last preview");
+        transfer.accept(12, ByteBuffer.wrap(new byte[4]));
+        assertEquals(16, transfer.takePreview(Integer.MAX_VALUE).length);
+    }
+
+    @Test
+    public void testPreviewIsLimited() {
+        TransferReassembly transfer = new TransferReassembly(40);
+
+        transfer.accept(0, ByteBuffer.wrap(new byte[4]));
+        transfer.accept(4, ByteBuffer.wrap(new byte[4]));
+        assertEquals(6, transfer.takePreview(6).length);
+        transfer.accept(8, ByteBuffer.wrap(new byte[4]));
+        transfer.accept(12, ByteBuffer.wrap(new byte[4]));
+        assertNull(transfer.takePreview(6), "A preview should not grow past the limit");
+    }
+
+    @Test
+    public void testHandOverWaitsForPreviewsBeingShown() throws InterruptedException {
+        TransferReassembly transfer = new TransferReassembly(IMAGE.length);
+        transfer.accept(0, chunk(0, 4));
+        assertNotNull(transfer.takePreview(Integer.MAX_VALUE));
+        Thread handOver = new Thread(transfer::handOver);
+
+        handOver.start();
+        handOver.join(100);
+        assertTrue(handOver.isAlive(), "The image must wait for the preview being shown");
+        transfer.previewShown();
+        handOver.join(2000);
+
+        assertFalse(handOver.isAlive());
+        transfer.accept(4, chunk(4, 4));
+        assertNull(transfer.takePreview(Integer.MAX_VALUE), "No preview once the image is handed over");
+    }
+
+    @Test
+    public void testInvalidTotal() {
+        assertThrows(IllegalArgumentException.class, () -> new TransferReassembly(0));
+    }
+
+    @Test
+    public void testSpilledImageIsWrittenToItsFile() throws IOException {
+        SpillFile file = SpillFile.create(tempDir, IMAGE.length);
+        TransferReassembly transfer = new TransferReassembly(file);
+
+        assertEquals(IMAGE.length, transfer.getTotal());
+        assertEquals(TransferReassembly.Result.ACCEPTED, transfer.accept(8, chunk(8, 2)));
+        assertEquals(TransferReassembly.Result.ACCEPTED, transfer.accept(0, chunk(0, 4)));
+        assertEquals(TransferReassembly.Result.COMPLETE, transfer.accept(4, chunk(4, 4)));
+        assertSame(file, transfer.getSpillFile());
+        assertArrayEquals(IMAGE, Files.readAllBytes(file.getPath()));
+        assertThrows(UnsupportedOperationException.class, transfer::getData);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.distributedguidemojava.integration;
+
+import com.example.distributedguidemojava.chatmessaging.ChatMessenger;
+import com.example.distributedguidemojava.imagemessaging.ImageMessenger;
+import com.example.distributedguidemojava.networking.LoopbackCommunicator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration tests running the messengers against each other over the in-process loopback transport.
+ */
+public class LoopbackIntegrationTests {
+
+    private LoopbackCommunicator senderCommunicator;
+    private LoopbackCommunicator receiverCommunicator;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() {
+        senderCommunicator = new LoopbackCommunicator();
+        receiverCommunicator = new LoopbackCommunicator();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        senderCommunicator.close();
+        receiverCommunicator.close();
+    }
+
+    @Test
+    public void testChatMessageEndToEnd() throws Exception {
+        ChatMessenger sender = new ChatMessenger(senderCommunicator);
+        ChatMessenger receiver = new ChatMessenger(receiverCommunicator);
+        CompletableFuture<String> received = new CompletableFuture<>();
+        receiver.setOnChatMessageReceived(received::complete);
+
+        sender.sendMessage("127.0.0.1", receiverCommunicator.getListenPort(), "Hello over loopback");
+
+        assertEquals("Hello over loopback", received.get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testImageMessageEndToEnd() throws Exception {
+        byte[] image = new byte[200_000];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = (byte) (i * 31);
+        }
+        Path imageFile = tempDir.resolve("image.png");
+        Files.write(imageFile, image);
+        ImageMessenger sender = new ImageMessenger(senderCommunicator);
+        ImageMessenger receiver = new ImageMessenger(receiverCommunicator);
+        CompletableFuture<String> received = new CompletableFuture<>();
+        receiver.setOnImageMessageReceived(received::complete);
+
+        sender.sendMessage("127.0.0.1", receiverCommunicator.getListenPort(), imageFile.toString());
+
+        assertEquals(Base64.getEncoder().encodeToString(image), received.get(5, TimeUnit.SECONDS));
+    }
+}
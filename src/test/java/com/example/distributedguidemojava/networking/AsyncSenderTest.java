@@ -0,0 +1,147 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AsyncSender class.
+ */
+public class AsyncSenderTest {
+
+    private final Endpoint endpoint = new Endpoint(new InetSocketAddress("127.0.0.1", 4000), false);
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes());
+    }
+
+    @Test
+    public void testInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new AsyncSender("s", 0, (d, h, p) -> { }));
+        assertThrows(IllegalArgumentException.class, () -> new AsyncSender("s", 1, null));
+    }
+
+    @Test
+    public void testFramesAreSentInOrderAndFuturesComplete() throws Exception {
+        List<String> sent = new ArrayList<>();
+        AsyncSender sender = new AsyncSender("test-sender", 1000, (destination, header, payload) -> {
+            byte[] frame = new byte[header.remaining() + payload.remaining()];
+            header.get(frame, 0, header.remaining());
+            synchronized (sent) {
+                sent.add(new String(frame));
+            }
+        });
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(sender.submit(endpoint, bytes("h" + i + ":"), bytes("p" + i)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(2, TimeUnit.SECONDS);
+
+        synchronized (sent) {
+            assertEquals(200, sent.size());
+            for (int i = 0; i < 200; i++) {
+                assertEquals("h" + i + ":p" + i, sent.get(i));
+            }
+        }
+        assertEquals(0, sender.getPendingCount());
+    }
+
+    @Test
+    public void testCallerBuffersAreCopied() throws Exception {
+        CompletableFuture<String> received = new CompletableFuture<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncSender sender = new AsyncSender("test-sender", 10, (destination, header, payload) -> {
+            try {
+                release.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] frame = new byte[header.remaining()];
+            header.get(frame);
+            received.complete(new String(frame));
+        });
+
+        byte[] payload = "original".getBytes();
+        sender.submit(endpoint, bytes("h:"), ByteBuffer.wrap(payload));
+        payload[0] = 'X';
+        release.countDown();
+
+        assertEquals("h:original", received.get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailedSendCompletesExceptionally() {
+        AsyncSender sender = new AsyncSender("test-sender", 10, (destination, header, payload) -> {
+            throw new IOException("boom");
+        });
+
+        CompletableFuture<Void> future = sender.submit(endpoint, bytes("h"), bytes("p"));
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> future.get(2, TimeUnit.SECONDS));
+        assertTrue(thrown.getCause() instanceof IOException);
+    }
+
+    @Test
+    public void testFullQueueRejectsFrames() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncSender sender = new AsyncSender("test-sender", 2, (destination, header, payload) -> {
+            sending.countDown();
+            try {
+                release.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        CompletableFuture<Void> first = sender.submit(endpoint, bytes("h"), bytes("1"));
+        assertTrue(sending.await(2, TimeUnit.SECONDS));
+        CompletableFuture<Void> second = sender.submit(endpoint, bytes("h"), bytes("2"));
+        CompletableFuture<Void> third = sender.submit(endpoint, bytes("h"), bytes("3"));
+        CompletableFuture<Void> rejected = sender.submit(endpoint, bytes("h"), bytes("4"));
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertTrue(thrown.getCause() instanceof RejectedExecutionException);
+
+        release.countDown();
+        CompletableFuture.allOf(first, second, third).get(2, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testWaitingSubmitBlocksUntilRoom() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncSender sender = new AsyncSender("test-sender", 1, (destination, header, payload) -> {
+            sending.countDown();
+            try {
+                release.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CompletableFuture<Void> first = sender.submit(endpoint, bytes("h"), bytes("1"));
+        assertTrue(sending.await(2, TimeUnit.SECONDS));
+        CompletableFuture<Void> second = sender.submit(endpoint, bytes("h"), bytes("2"));
+        CompletableFuture<CompletableFuture<Void>> third = CompletableFuture.supplyAsync(
+            () -> sender.submitWaiting(endpoint, bytes("h"), bytes("3")));
+
+        Thread.sleep(100);
+        assertFalse(third.isDone(), "The caller should wait while the queue is full");
+        release.countDown();
+
+        CompletableFuture.allOf(first, second, third.get(2, TimeUnit.SECONDS)).get(2, TimeUnit.SECONDS);
+        assertEquals(0, sender.getPendingCount());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ByteBufferPool class.
+ */
+public class ByteBufferPoolTest {
+
+    @Test
+    public void testAcquireReturnsDirectBuffer() {
+        ByteBufferPool pool = new ByteBufferPool(128, 2);
+        ByteBuffer buffer = pool.acquire();
+        assertTrue(buffer.isDirect(), "Pooled buffers should be direct");
+        assertEquals(128, buffer.capacity());
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testReleasedBufferIsReused() {
+        ByteBufferPool pool = new ByteBufferPool(64, 2);
+        ByteBuffer buffer = pool.acquire();
+        buffer.put((byte) 1);
+        pool.release(buffer);
+        assertEquals(1, pool.getIdleCount());
+
+        ByteBuffer reused = pool.acquire();
+        assertSame(buffer, reused, "Released buffer should be handed out again");
+        assertEquals(0, reused.position(), "Reused buffer should be cleared");
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testIdleLimitIsRespected() {
+        ByteBufferPool pool = new ByteBufferPool(16, 1);
+        pool.release(pool.acquire());
+        pool.release(ByteBuffer.allocateDirect(16));
+        assertEquals(1, pool.getIdleCount(), "Pool should not keep more than maxIdle buffers");
+    }
+
+    @Test
+    public void testForeignBufferIsIgnored() {
+        ByteBufferPool pool = new ByteBufferPool(16, 4);
+        pool.release(ByteBuffer.allocate(32));
+        pool.release(null);
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(16, -1));
+    }
+}
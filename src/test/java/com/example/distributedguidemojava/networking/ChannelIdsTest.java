@@ -0,0 +1,38 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ChannelIds class.
+ */
+public class ChannelIdsTest {
+
+    @Test
+    public void testWellKnownChannels() {
+        assertEquals(ChannelIds.CHAT, ChannelIds.forName("chat"));
+        assertEquals(ChannelIds.IMAGE, ChannelIds.forName("image"));
+        assertEquals(ChannelIds.UNASSIGNED, ChannelIds.forName("somethingElse"));
+    }
+
+    @Test
+    public void testRegisterCustomChannel() {
+        ChannelIds.register("channelIdsTestCustom", 200);
+        assertEquals(200, ChannelIds.forName("channelIdsTestCustom"));
+        // Registering the same mapping again is allowed
+        assertDoesNotThrow(() -> ChannelIds.register("channelIdsTestCustom", 200));
+    }
+
+    @Test
+    public void testRegisterConflictingChannel() {
+        assertThrows(IllegalArgumentException.class, () -> ChannelIds.register("notChat", ChannelIds.CHAT));
+    }
+
+    @Test
+    public void testRegisterInvalidChannel() {
+        assertThrows(IllegalArgumentException.class, () -> ChannelIds.register("tooLarge", 256));
+        assertThrows(IllegalArgumentException.class, () -> ChannelIds.register("zero", ChannelIds.UNASSIGNED));
+        assertThrows(IllegalArgumentException.class, () -> ChannelIds.register("", 10));
+    }
+}
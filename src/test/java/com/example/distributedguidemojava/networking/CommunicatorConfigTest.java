@@ -0,0 +1,130 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CommunicatorConfig class.
+ */
+public class CommunicatorConfigTest {
+
+    @Test
+    public void testDefaults() {
+        CommunicatorConfig config = CommunicatorConfig.defaults();
+        assertEquals(TransportType.UDP, config.getTransportType());
+        assertEquals(CommunicatorConfig.EPHEMERAL_PORT, config.getPort());
+        assertEquals(CommunicatorConfig.OS_DEFAULT, config.getSocketReceiveBufferSize());
+        assertEquals(CommunicatorConfig.OS_DEFAULT, config.getSocketSendBufferSize());
+        assertEquals(CommunicatorConfig.DEFAULT_RECEIVE_BUFFER_SIZE, config.getReceiveBufferSize());
+        assertEquals(1, config.getReceiveThreads());
+        assertEquals(CommunicatorConfig.DEFAULT_DISPATCH_QUEUE_CAPACITY, config.getDispatchQueueCapacity());
+        assertEquals(OverflowPolicy.DROP_NEWEST, config.getOverflowPolicy());
+        assertEquals(SendMode.SYNC, config.getSendMode());
+        assertEquals(CommunicatorConfig.DEFAULT_SEND_QUEUE_CAPACITY, config.getSendQueueCapacity());
+        assertTrue(Files.isDirectory(config.getSharedMemoryDirectory()));
+        assertNull(config.getMulticastInterface());
+        assertFalse(config.isReliable());
+        assertEquals(CommunicatorConfig.DEFAULT_RELIABLE_WINDOW, config.getReliableWindow());
+        assertEquals(CommunicatorConfig.UNPACED, config.getPacingRate());
+    }
+
+    @Test
+    public void testBuilderSetsEverySetting() {
+        CommunicatorConfig config = CommunicatorConfig.builder()
+            .transportType(TransportType.NIO_UDP)
+            .port(5000)
+            .socketReceiveBufferSize(1 << 20)
+            .socketSendBufferSize(1 << 19)
+            .receiveBufferSize(1500)
+            .receiveThreads(4)
+            .dispatchQueueCapacity(64)
+            .overflowPolicy(OverflowPolicy.BLOCK)
+            .sendMode(SendMode.ASYNC)
+            .sendQueueCapacity(128)
+            .sharedMemoryDirectory(Path.of("shm"))
+            .multicastInterface("lo")
+            .reliableWindow(32)
+            .pacingRate(1_000_000)
+            .build();
+
+        assertEquals(TransportType.NIO_UDP, config.getTransportType());
+        assertEquals(5000, config.getPort());
+        assertEquals(1 << 20, config.getSocketReceiveBufferSize());
+        assertEquals(1 << 19, config.getSocketSendBufferSize());
+        assertEquals(1500, config.getReceiveBufferSize());
+        assertEquals(4, config.getReceiveThreads());
+        assertEquals(64, config.getDispatchQueueCapacity());
+        assertEquals(OverflowPolicy.BLOCK, config.getOverflowPolicy());
+        assertEquals(SendMode.ASYNC, config.getSendMode());
+        assertEquals(128, config.getSendQueueCapacity());
+        assertEquals(Path.of("shm"), config.getSharedMemoryDirectory());
+        assertEquals("lo", config.getMulticastInterface());
+        assertEquals(32, config.getReliableWindow());
+        assertEquals(1_000_000, config.getPacingRate());
+        assertFalse(config.isReliable(), "Reliable delivery needs the synchronous send mode");
+        assertTrue(CommunicatorConfig.builder().reliable(true).build().isReliable());
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> CommunicatorConfig.builder().transportType(null).build());
+        assertThrows(IllegalArgumentException.class, () -> CommunicatorConfig.builder().port(-1).build());
+        assertThrows(IllegalArgumentException.class, () -> CommunicatorConfig.builder().port(65536).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> CommunicatorConfig.builder().socketReceiveBufferSize(-1).build());
+        assertThrows(IllegalArgumentException.class, () -> CommunicatorConfig.builder().receiveBufferSize(10).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> CommunicatorConfig.builder().receiveBufferSize(70000).build());
+        assertThrows(IllegalArgumentException.class, () -> CommunicatorConfig.builder().receiveThreads(0).build());
+        assertThrows(IllegalArgumentException.class, () -> CommunicatorConfig.builder().sendQueueCapacity(0).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> CommunicatorConfig.builder().sharedMemoryDirectory(null).build());
+        assertThrows(IllegalArgumentException.class, () -> CommunicatorConfig.builder().reliableWindow(0).build());
+        assertThrows(IllegalArgumentException.class,
+            () -> CommunicatorConfig.builder().reliable(true).sendMode(SendMode.ASYNC).build());
+        assertThrows(IllegalArgumentException.class, () -> CommunicatorConfig.builder().pacingRate(-1).build());
+    }
+
+    @Test
+    public void testFixedPortIsBound() throws IOException {
+        int port;
+        try (DatagramSocket probe = new DatagramSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        UdpCommunicator communicator = new UdpCommunicator(CommunicatorConfig.builder().port(port).build());
+        assertEquals(port, communicator.getListenPort());
+    }
+
+    @Test
+    public void testSmallReceiveBufferDropsLongerDatagrams() throws InterruptedException {
+        NioUdpCommunicator receiver = new NioUdpCommunicator(CommunicatorConfig.builder()
+            .receiveBufferSize(256)
+            .socketReceiveBufferSize(1 << 16)
+            .build());
+        NioUdpCommunicator sender = new NioUdpCommunicator();
+        CountDownLatch shortReceived = new CountDownLatch(1);
+        CountDownLatch longReceived = new CountDownLatch(1);
+        receiver.addSubscriber("chat", message -> {
+            if (message.length() > 256) {
+                longReceived.countDown();
+            } else {
+                shortReceived.countDown();
+            }
+        });
+
+        sender.sendMessage("127.0.0.1", receiver.getListenPort(), "chat", ByteBuffer.wrap(new byte[1000]));
+        sender.sendMessage("127.0.0.1", receiver.getListenPort(), "chat", "short");
+
+        assertTrue(shortReceived.await(2, TimeUnit.SECONDS), "Datagrams that fit should be received");
+        assertFalse(longReceived.await(200, TimeUnit.MILLISECONDS), "Longer datagrams should be dropped");
+    }
+}
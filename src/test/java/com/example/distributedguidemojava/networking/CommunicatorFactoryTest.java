@@ -15,4 +15,57 @@ public class CommunicatorFactoryTest {
         assertNotNull(communicator, "Communicator should not be null");
         assertTrue(communicator instanceof UdpCommunicator, "Communicator should be an instance of UdpCommunicator");
     }
+
+    @Test
+    public void testCreateNioCommunicator() {
+        ICommunicator communicator = CommunicatorFactory.createCommunicator(TransportType.NIO_UDP);
+        assertTrue(communicator instanceof NioUdpCommunicator, "Communicator should be an instance of NioUdpCommunicator");
+    }
+
+    @Test
+    public void testCreateCommunicatorNullTransport() {
+        assertThrows(IllegalArgumentException.class, () -> CommunicatorFactory.createCommunicator((TransportType) null));
+    }
+
+    @Test
+    public void testCreateCommunicatorWithSendMode() {
+        ICommunicator communicator = CommunicatorFactory.createCommunicator(TransportType.NIO_UDP, SendMode.ASYNC);
+        assertTrue(communicator instanceof NioUdpCommunicator, "Communicator should be an instance of NioUdpCommunicator");
+        assertThrows(IllegalArgumentException.class,
+            () -> CommunicatorFactory.createCommunicator(TransportType.UDP, null));
+    }
+
+    @Test
+    public void testCreateCommunicatorFromConfig() {
+        CommunicatorConfig config = CommunicatorConfig.builder()
+            .transportType(TransportType.NIO_UDP)
+            .receiveThreads(2)
+            .build();
+        ICommunicator communicator = CommunicatorFactory.createCommunicator(config);
+        assertTrue(communicator instanceof NioUdpCommunicator, "Communicator should be an instance of NioUdpCommunicator");
+        assertThrows(IllegalArgumentException.class,
+            () -> CommunicatorFactory.createCommunicator((CommunicatorConfig) null));
+    }
+
+    @Test
+    public void testCreateTcpCommunicator() {
+        ICommunicator communicator = CommunicatorFactory.createCommunicator(TransportType.TCP);
+        assertTrue(communicator instanceof TcpCommunicator, "Communicator should be an instance of TcpCommunicator");
+    }
+
+    @Test
+    public void testCreateLoopbackCommunicator() {
+        ICommunicator communicator = CommunicatorFactory.createCommunicator(TransportType.LOOPBACK);
+        assertTrue(communicator instanceof LoopbackCommunicator,
+            "Communicator should be an instance of LoopbackCommunicator");
+        ((LoopbackCommunicator) communicator).close();
+    }
+
+    @Test
+    public void testCreateSharedMemoryCommunicator() {
+        ICommunicator communicator = CommunicatorFactory.createCommunicator(TransportType.SHARED_MEMORY);
+        assertTrue(communicator instanceof SharedMemoryCommunicator,
+            "Communicator should be an instance of SharedMemoryCommunicator");
+        ((SharedMemoryCommunicator) communicator).close();
+    }
 }
@@ -0,0 +1,106 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FrameCodec class.
+ */
+public class FrameCodecTest {
+
+    private FrameHeader sampleHeader() {
+        FrameHeader header = new FrameHeader();
+        header.setVersion(FrameCodec.VERSION);
+        header.setChannelId(200);
+        header.setFlags(0x0101);
+        header.setTransferId(0x0123456789ABCDEFL);
+        header.setSequence(4096);
+        header.setTotal(1 << 20);
+        header.setLength(1400);
+        return header;
+    }
+
+    @Test
+    public void testEncodeDecodeRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        FrameCodec.encode(sampleHeader(), buffer);
+        assertEquals(FrameCodec.HEADER_SIZE, buffer.position());
+
+        buffer.flip();
+        FrameHeader decoded = new FrameHeader();
+        assertTrue(FrameCodec.decode(buffer, decoded));
+        assertEquals(FrameCodec.HEADER_SIZE, buffer.position());
+        assertEquals(FrameCodec.VERSION, decoded.getVersion());
+        assertEquals(200, decoded.getChannelId());
+        assertEquals(0x0101, decoded.getFlags());
+        assertEquals(0x0123456789ABCDEFL, decoded.getTransferId());
+        assertEquals(4096, decoded.getSequence());
+        assertEquals(1 << 20, decoded.getTotal());
+        assertEquals(1400, decoded.getLength());
+    }
+
+    @Test
+    public void testDecodeAtNonZeroPosition() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.put((byte) 0x7F);
+        FrameCodec.encode(sampleHeader(), buffer);
+        buffer.flip();
+        buffer.position(1);
+
+        FrameHeader decoded = new FrameHeader();
+        assertTrue(FrameCodec.decode(buffer, decoded));
+        assertEquals(1 + FrameCodec.HEADER_SIZE, buffer.position());
+        assertEquals(0x0123456789ABCDEFL, decoded.getTransferId());
+    }
+
+    @Test
+    public void testDecodeRejectsShortInput() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        FrameCodec.encode(sampleHeader(), buffer);
+        buffer.flip();
+        buffer.limit(FrameCodec.HEADER_SIZE - 1);
+
+        assertFalse(FrameCodec.decode(buffer, new FrameHeader()));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testDecodeRejectsBadMagicAndVersion() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        FrameCodec.encode(sampleHeader(), buffer);
+        buffer.flip();
+
+        buffer.put(0, (byte) 0);
+        assertFalse(FrameCodec.decode(buffer, new FrameHeader()));
+
+        buffer.putShort(0, (short) FrameCodec.MAGIC);
+        buffer.put(2, (byte) (FrameCodec.VERSION + 1));
+        assertFalse(FrameCodec.decode(buffer, new FrameHeader()));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testNameSectionRoundTrip() {
+        byte[] name = "customSubscriber".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        FrameCodec.encodeName(name, buffer);
+        buffer.flip();
+
+        assertEquals("customSubscriber", FrameCodec.decodeName(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testDecodeNameRejectsTruncatedSection() {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.put((byte) 20).put("abc".getBytes(StandardCharsets.UTF_8));
+        buffer.flip();
+
+        assertNull(FrameCodec.decodeName(buffer));
+        assertNull(FrameCodec.decodeName(ByteBuffer.allocate(0)));
+    }
+}
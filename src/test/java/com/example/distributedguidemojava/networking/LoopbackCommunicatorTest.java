@@ -0,0 +1,114 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LoopbackCommunicator class.
+ */
+public class LoopbackCommunicatorTest {
+
+    private LoopbackCommunicator sender;
+    private LoopbackCommunicator receiver;
+
+    @BeforeEach
+    public void setUp() {
+        sender = new LoopbackCommunicator();
+        receiver = new LoopbackCommunicator();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        sender.close();
+        receiver.close();
+    }
+
+    @Test
+    public void testInstancesGetDistinctPorts() {
+        assertNotEquals(sender.getListenPort(), receiver.getListenPort());
+    }
+
+    @Test
+    public void testFixedPortInUse() {
+        CommunicatorConfig config = CommunicatorConfig.builder()
+            .transportType(TransportType.LOOPBACK)
+            .port(receiver.getListenPort())
+            .build();
+        assertThrows(IllegalStateException.class, () -> new LoopbackCommunicator(config));
+    }
+
+    @Test
+    public void testMessagesArriveInOrder() throws InterruptedException {
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(20_000);
+        receiver.addSubscriber("chat", message -> {
+            received.add(message);
+            latch.countDown();
+        });
+        CommunicatorConfig blocking = CommunicatorConfig.builder()
+            .transportType(TransportType.LOOPBACK)
+            .overflowPolicy(OverflowPolicy.BLOCK)
+            .build();
+        try (LoopbackCommunicator blockingReceiver = new LoopbackCommunicator(blocking)) {
+            CountDownLatch blockingLatch = new CountDownLatch(20_000);
+            blockingReceiver.addSubscriber("chat", message -> blockingLatch.countDown());
+            for (int i = 0; i < 20_000; i++) {
+                sender.sendMessage("127.0.0.1", blockingReceiver.getListenPort(), "chat", "message " + i);
+            }
+            assertTrue(blockingLatch.await(5, TimeUnit.SECONDS), "A burst larger than the ring should arrive");
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            sender.sendMessage("127.0.0.1", receiver.getListenPort(), "chat", "message " + i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            while (received.size() <= i) {
+                Thread.sleep(1);
+            }
+            assertEquals("message " + i, received.get(i));
+        }
+    }
+
+    @Test
+    public void testBinaryPayload() throws Exception {
+        CompletableFuture<byte[]> received = new CompletableFuture<>();
+        receiver.addSubscriber("image", new IBinaryMessageListener() {
+            @Override
+            public void onMessageReceived(ByteBuffer message) {
+                byte[] bytes = new byte[message.remaining()];
+                message.get(bytes);
+                received.complete(bytes);
+            }
+        });
+        byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        sender.sendMessage("10.1.2.3", receiver.getListenPort(), "image", data, 0, data.length);
+
+        assertArrayEquals(data, received.get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSendToClosedInstanceFails() {
+        int port = receiver.getListenPort();
+        receiver.close();
+        Endpoint endpoint = sender.getEndpoint("127.0.0.1", port, false);
+
+        CompletableFuture<Void> future = sender.sendFrameAsync(endpoint, "chat", new FrameHeader(),
+            ByteBuffer.wrap("lost".getBytes()));
+
+        assertTrue(future.isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MpscRingBuffer class.
+ */
+public class MpscRingBufferTest {
+
+    @Test
+    public void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<String>(0));
+        assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<String>(6));
+    }
+
+    @Test
+    public void testFifoAndFull() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(4);
+        assertTrue(ring.isEmpty());
+        assertNull(ring.poll());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4), "A full ring should refuse elements");
+
+        assertEquals(0, ring.poll());
+        assertTrue(ring.offer(4), "A freed slot should be reused");
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, ring.poll());
+        }
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentProducersKeepTheirOwnOrder() throws InterruptedException {
+        MpscRingBuffer<int[]> ring = new MpscRingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 20_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(new int[]{producer, i})) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        int[] next = new int[producers];
+        int received = 0;
+        while (received < producers * perProducer) {
+            int[] element = ring.poll();
+            if (element == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            assertEquals(next[element[0]], element[1], "Elements from one producer should stay in order");
+            next[element[0]]++;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(ring.poll());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for multicast group mode, run on the loopback interface.
+ */
+public class MulticastGroupsTest {
+
+    private static final String GROUP = "239.255.42.99";
+
+    private int groupPort;
+    private UdpCommunicator udpMember;
+    private NioUdpCommunicator nioMember;
+    private NioUdpCommunicator sender;
+
+    private static CommunicatorConfig loopbackConfig() {
+        return CommunicatorConfig.builder().multicastInterface("lo").build();
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        try (DatagramSocket probe = new DatagramSocket(0)) {
+            groupPort = probe.getLocalPort();
+        }
+        udpMember = new UdpCommunicator(loopbackConfig());
+        nioMember = new NioUdpCommunicator(loopbackConfig());
+        sender = new NioUdpCommunicator(loopbackConfig());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        udpMember.leaveGroup(GROUP, groupPort);
+        nioMember.leaveGroup(GROUP, groupPort);
+    }
+
+    @Test
+    public void testOneSendReachesEveryMember() throws Exception {
+        CompletableFuture<String> udpReceived = new CompletableFuture<>();
+        CompletableFuture<String> nioReceived = new CompletableFuture<>();
+        udpMember.addSubscriber("chat", udpReceived::complete);
+        nioMember.addSubscriber("chat", nioReceived::complete);
+        udpMember.joinGroup(GROUP, groupPort);
+        nioMember.joinGroup(GROUP, groupPort);
+
+        sender.sendMessage(GROUP, groupPort, "chat", "Hello room");
+
+        assertEquals("Hello room", udpReceived.get(2, TimeUnit.SECONDS));
+        assertEquals("Hello room", nioReceived.get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testMembersFilterBySubscriberId() throws Exception {
+        List<String> chat = new CopyOnWriteArrayList<>();
+        CompletableFuture<String> image = new CompletableFuture<>();
+        nioMember.addSubscriber("chat", chat::add);
+        nioMember.addSubscriber("image", image::complete);
+        nioMember.joinGroup(GROUP, groupPort);
+
+        sender.sendMessage(GROUP, groupPort, "image", "image data");
+        // Connected endpoints, as used for image chunks, also reach the group
+        Endpoint endpoint = sender.getEndpoint(GROUP, groupPort, true);
+        sender.sendMessage(endpoint, "unknown", ByteBuffer.wrap("ignored".getBytes()));
+
+        assertEquals("image data", image.get(2, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertTrue(chat.isEmpty(), "Frames for other subscribers should not reach the chat subscriber");
+    }
+
+    @Test
+    public void testLeaveStopsDelivery() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        udpMember.addSubscriber("chat", received::add);
+        udpMember.joinGroup(GROUP, groupPort);
+        udpMember.joinGroup(GROUP, groupPort);
+        sender.sendMessage(GROUP, groupPort, "chat", "before");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (received.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("before"), received, "Joining twice should not duplicate delivery");
+
+        udpMember.leaveGroup(GROUP, groupPort);
+        sender.sendMessage(GROUP, groupPort, "chat", "after");
+        Thread.sleep(200);
+
+        assertEquals(List.of("before"), received);
+    }
+
+    @Test
+    public void testInvalidGroups() {
+        assertThrows(IllegalArgumentException.class, () -> udpMember.joinGroup("127.0.0.1", groupPort));
+        assertThrows(IllegalArgumentException.class, () -> udpMember.joinGroup(GROUP, 0));
+        assertThrows(RuntimeException.class,
+            () -> new UdpCommunicator(CommunicatorConfig.builder().multicastInterface("no-such-interface").build()),
+            "An unknown interface should fail");
+    }
+
+    @Test
+    public void testUnsupportedTransport() {
+        TcpCommunicator tcp = new TcpCommunicator();
+        assertThrows(UnsupportedOperationException.class, () -> tcp.joinGroup(GROUP, groupPort));
+    }
+}
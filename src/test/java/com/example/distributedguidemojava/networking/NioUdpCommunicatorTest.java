@@ -0,0 +1,169 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for NioUdpCommunicator class.
+ */
+public class NioUdpCommunicatorTest {
+
+    private NioUdpCommunicator communicator;
+    private IMessageListener mockListener;
+
+    @BeforeEach
+    public void setUp() {
+        communicator = new NioUdpCommunicator();
+        mockListener = mock(IMessageListener.class);
+    }
+
+    @Test
+    public void testAddSubscriberNullId() {
+        assertThrows(IllegalArgumentException.class,
+            () -> communicator.addSubscriber(null, mockListener));
+    }
+
+    @Test
+    public void testAddSubscriberNullListener() {
+        assertThrows(IllegalArgumentException.class,
+            () -> communicator.addSubscriber("testId", null));
+    }
+
+    @Test
+    public void testRemoveSubscriberEmptyId() {
+        assertThrows(IllegalArgumentException.class,
+            () -> communicator.removeSubscriber(""));
+    }
+
+    @Test
+    public void testGetListenPort() {
+        int port = communicator.getListenPort();
+        assertTrue(port > 0, "Listen port should be greater than 0");
+        assertTrue(port <= 65535, "Listen port should be valid");
+    }
+
+    @Test
+    public void testSendMessageToLocalhost() throws InterruptedException {
+        NioUdpCommunicator receiver = new NioUdpCommunicator();
+        CountDownLatch latch = new CountDownLatch(1);
+        String expectedMessage = "Hello, NIO!";
+
+        receiver.addSubscriber("nioSender", message -> {
+            assertEquals(expectedMessage, message);
+            latch.countDown();
+        });
+
+        communicator.sendMessage("127.0.0.1", receiver.getListenPort(), "nioSender", expectedMessage);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "Message should be received within 2 seconds");
+    }
+
+    @Test
+    public void testInteroperatesWithUdpCommunicator() throws InterruptedException {
+        UdpCommunicator receiver = new UdpCommunicator();
+        CountDownLatch latch = new CountDownLatch(1);
+        String messageWithColons = "a:b:c";
+
+        receiver.addSubscriber("chat", message -> {
+            assertEquals(messageWithColons, message);
+            latch.countDown();
+        });
+
+        communicator.sendMessage("127.0.0.1", receiver.getListenPort(), "chat", messageWithColons);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "UdpCommunicator should understand NIO datagrams");
+    }
+
+    @Test
+    public void testManyMessagesReuseBuffers() throws InterruptedException {
+        NioUdpCommunicator receiver = new NioUdpCommunicator();
+        int messageCount = 50;
+        CountDownLatch latch = new CountDownLatch(messageCount);
+        receiver.addSubscriber("burst", message -> latch.countDown());
+
+        for (int i = 0; i < messageCount; i++) {
+            communicator.sendMessage("127.0.0.1", receiver.getListenPort(), "burst", "message " + i);
+        }
+
+        assertTrue(latch.await(3, TimeUnit.SECONDS), "All burst messages should be received");
+    }
+
+    @Test
+    public void testSendMessageToInvalidHost() {
+        assertDoesNotThrow(() ->
+            communicator.sendMessage("invalid.host.name.that.does.not.exist", 12345, "test", "message"));
+    }
+
+    @Test
+    public void testSendMessageTooLarge() {
+        String tooLarge = "x".repeat(70000);
+        assertDoesNotThrow(() -> communicator.sendMessage("127.0.0.1", 12345, "test", tooLarge));
+    }
+
+    @Test
+    public void testSendThroughConnectedEndpoint() throws InterruptedException {
+        NioUdpCommunicator receiver = new NioUdpCommunicator();
+        CountDownLatch latch = new CountDownLatch(3);
+        receiver.addSubscriber("chat", message -> latch.countDown());
+
+        Endpoint endpoint = communicator.getEndpoint("127.0.0.1", receiver.getListenPort(), true);
+        assertNotNull(endpoint);
+        assertTrue(endpoint.isConnected());
+        for (int i = 0; i < 3; i++) {
+            communicator.sendMessage(endpoint, "chat", ByteBuffer.wrap(("connected " + i).getBytes()));
+        }
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "Messages sent over a connected channel should arrive");
+    }
+
+    @Test
+    public void testGetEndpointIsCached() {
+        Endpoint first = communicator.getEndpoint("127.0.0.1", 4000, false);
+        Endpoint second = communicator.getEndpoint("127.0.0.1", 4000, false);
+        assertSame(first, second);
+        assertNotEquals(first, communicator.getEndpoint("127.0.0.1", 4000, true));
+        assertEquals(4000, first.getAddress().getPort());
+    }
+
+    @Test
+    public void testGetEndpointUnresolvable() {
+        assertNull(communicator.getEndpoint("no-such-host.invalid", 4000, false));
+        assertNull(communicator.getEndpoint("127.0.0.1", -1, false));
+    }
+
+    @Test
+    public void testReliableSendThroughConnectedEndpoint() throws Exception {
+        CommunicatorConfig reliable = CommunicatorConfig.builder().reliable(true).build();
+        NioUdpCommunicator sender = new NioUdpCommunicator(reliable);
+        NioUdpCommunicator receiver = new NioUdpCommunicator(reliable);
+        List<String> received = new CopyOnWriteArrayList<>();
+        receiver.addSubscriber("image", received::add);
+
+        // Connected channels send from their own port; acknowledgements must still find the sender
+        Endpoint endpoint = sender.getEndpoint("127.0.0.1", receiver.getListenPort(), true);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(sender.sendFrameAsync(endpoint, "image", new FrameHeader(),
+                ByteBuffer.wrap(("chunk " + i).getBytes())));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (received.size() < 100 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(100, received.size());
+    }
+}
+
@@ -0,0 +1,217 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReliableDelivery class, run over a simulated lossy link.
+ */
+public class ReliableDeliveryTest {
+
+    private static final InetSocketAddress ADDRESS_A = new InetSocketAddress("127.0.0.1", 1000);
+    private static final InetSocketAddress ADDRESS_B = new InetSocketAddress("127.0.0.1", 2000);
+    private static final byte TYPE_DATA = 1;
+    private static final byte TYPE_ACK = 2;
+
+    private final List<ExecutorService> executors = new ArrayList<>();
+
+    /**
+     * One direction of the simulated link: drops a share of the packets and hands the rest to the
+     * peer on a thread of its own, as a receive thread would.
+     */
+    private final class LossyLink implements AsyncSender.Transmitter {
+        private final InetSocketAddress source;
+        private final double loss;
+        private final ExecutorService executor = Executors.newSingleThreadExecutor();
+        private final Set<Integer> delivered = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger deliveries = new AtomicInteger();
+        private final AtomicLong highestCumulative = new AtomicLong(-1);
+        private long droppedSequence = -1;
+        private ReliableDelivery target;
+
+        LossyLink(InetSocketAddress source, double loss) {
+            this.source = source;
+            this.loss = loss;
+            executors.add(executor);
+        }
+
+        @Override
+        public void transmit(Endpoint destination, ByteBuffer header, ByteBuffer payload) {
+            ByteBuffer packet = ByteBuffer.allocate(header.remaining() + payload.remaining());
+            packet.put(header).put(payload).flip();
+            if (ThreadLocalRandom.current().nextDouble() < loss
+                || packet.get(2) == TYPE_DATA && Integer.toUnsignedLong(packet.getInt(8)) == droppedSequence) {
+                return;
+            }
+            if (packet.get(2) == TYPE_ACK) {
+                highestCumulative.accumulateAndGet(Integer.toUnsignedLong(packet.getInt(8)), Math::max);
+            }
+            executor.execute(() -> {
+                ByteBuffer frame = target.receive(packet, source);
+                if (frame != null) {
+                    delivered.add(frame.getInt());
+                    deliveries.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executors.forEach(ExecutorService::shutdownNow);
+    }
+
+    private static ByteBuffer number(int value) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(0, value);
+    }
+
+    @Test
+    public void testEveryFrameArrivesOnceDespiteLoss() throws Exception {
+        LossyLink toB = new LossyLink(ADDRESS_A, 0.2);
+        LossyLink toA = new LossyLink(ADDRESS_B, 0.2);
+        ReliableDelivery a = new ReliableDelivery(64, 50, toB, ADDRESS_A::getPort, null);
+        ReliableDelivery b = new ReliableDelivery(64, 50, toA, ADDRESS_B::getPort, null);
+        toB.target = b;
+        toA.target = a;
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            futures.add(a.send(new Endpoint(ADDRESS_B, false), ByteBuffer.allocate(0), number(i)));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        // The last frames are acknowledged just before the link thread records them
+        toB.executor.submit(() -> { }).get(1, TimeUnit.SECONDS);
+        assertEquals(2000, toB.delivered.size(), "Every frame should arrive");
+        assertEquals(2000, toB.deliveries.get(), "No frame should be delivered twice");
+        assertTrue(a.getRetransmissionCount() > 0, "Lost frames should have been retransmitted");
+    }
+
+    @Test
+    public void testUnacknowledgedFrameFails() {
+        LossyLink toB = new LossyLink(ADDRESS_A, 1.0);
+        ReliableDelivery a = new ReliableDelivery(4, 3, toB, ADDRESS_A::getPort, null);
+
+        CompletableFuture<Void> future = a.send(new Endpoint(ADDRESS_B, false), ByteBuffer.allocate(0), number(1));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof IOException);
+        assertEquals(2, a.getRetransmissionCount());
+    }
+
+    @Test
+    public void testStreamMovesPastGivenUpFrame() throws Exception {
+        LossyLink toB = new LossyLink(ADDRESS_A, 0.0);
+        LossyLink toA = new LossyLink(ADDRESS_B, 0.0);
+        // Every one of the three sends of frame 1 is lost
+        toB.droppedSequence = 1;
+        ReliableDelivery a = new ReliableDelivery(64, 3, toB, ADDRESS_A::getPort, null);
+        ReliableDelivery b = new ReliableDelivery(64, 3, toA, ADDRESS_B::getPort, null);
+        toB.target = b;
+        toA.target = a;
+        Endpoint destination = new Endpoint(ADDRESS_B, false);
+        a.send(destination, ByteBuffer.allocate(0), number(0)).get(5, TimeUnit.SECONDS);
+        CompletableFuture<Void> lost = a.send(destination, ByteBuffer.allocate(0), number(1));
+        assertThrows(ExecutionException.class, () -> lost.get(5, TimeUnit.SECONDS));
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 2; i < 100; i++) {
+            futures.add(a.send(destination, ByteBuffer.allocate(0), number(i)));
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        toB.executor.submit(() -> { }).get(1, TimeUnit.SECONDS);
+        assertEquals(99, toB.delivered.size(), "Every frame but the given-up one should arrive");
+        assertFalse(toB.delivered.contains(1));
+        toA.executor.submit(() -> { }).get(1, TimeUnit.SECONDS);
+        assertEquals(100, toA.highestCumulative.get(), "The peer should stop waiting for the given-up frame");
+    }
+
+    @Test
+    public void testFrameSentAfterIdleTimeIsRetransmitted() throws Exception {
+        AtomicInteger transmissions = new AtomicInteger();
+        ReliableDelivery a = new ReliableDelivery(4, 3, (destination, header, payload) ->
+            transmissions.incrementAndGet(), ADDRESS_A::getPort, null);
+        // Let the timer thread park with nothing to time
+        Thread.sleep(50);
+
+        CompletableFuture<Void> future = a.send(new Endpoint(ADDRESS_B, false), number(1), number(2));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, error.getCause());
+        assertEquals(3, transmissions.get());
+    }
+
+    @Test
+    public void testFullWindowWaitsForSlot() throws Exception {
+        LossyLink toB = new LossyLink(ADDRESS_A, 1.0);
+        ReliableDelivery a = new ReliableDelivery(1, 2, toB, ADDRESS_A::getPort, null);
+        Endpoint destination = new Endpoint(ADDRESS_B, false);
+        CompletableFuture<Void> first = a.send(destination, ByteBuffer.allocate(0), number(1));
+
+        // The second send can only start once the first frame is given up and frees the window
+        CompletableFuture<Void> second = a.send(destination, ByteBuffer.allocate(0), number(2));
+
+        assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        assertFalse(second.isDone());
+    }
+
+    @Test
+    public void testTransmitFailureFailsFrame() {
+        ReliableDelivery a = new ReliableDelivery(4, 3, (destination, header, payload) -> {
+            throw new IOException("Network unreachable");
+        }, ADDRESS_A::getPort, null);
+
+        CompletableFuture<Void> future = a.send(new Endpoint(ADDRESS_B, false), ByteBuffer.allocate(0), number(1));
+
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testFailedRegistrationGivesSlotBack() {
+        AtomicInteger portLookups = new AtomicInteger();
+        ReliableDelivery a = new ReliableDelivery(1, 3, (destination, header, payload) -> { }, () -> {
+            if (portLookups.incrementAndGet() == 1) {
+                throw new IllegalStateException("Not bound yet");
+            }
+            return ADDRESS_A.getPort();
+        }, null);
+        Endpoint destination = new Endpoint(ADDRESS_B, false);
+
+        assertTrue(a.send(destination, ByteBuffer.allocate(0), number(1)).isCompletedExceptionally());
+
+        // With the only slot leaked, this send would wait forever
+        CompletableFuture<Void> second = assertTimeoutPreemptively(Duration.ofSeconds(2),
+            () -> a.send(destination, ByteBuffer.allocate(0), number(2)));
+        assertFalse(second.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testIsPacket() {
+        ByteBuffer packet = ByteBuffer.allocate(8).putShort(0, (short) ReliableDelivery.MAGIC);
+        ByteBuffer frame = ByteBuffer.allocate(8).putShort(0, (short) FrameCodec.MAGIC);
+
+        assertTrue(ReliableDelivery.isPacket(packet));
+        assertFalse(ReliableDelivery.isPacket(frame));
+        assertFalse(ReliableDelivery.isPacket(ByteBuffer.allocate(1)));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReliableReceiver class.
+ */
+public class ReliableReceiverTest {
+
+    private static ByteBuffer acknowledgement(ReliableReceiver receiver) {
+        ByteBuffer ack = ByteBuffer.allocate(256);
+        receiver.writeAcknowledgement(ack, 4000, 8);
+        return ack.flip();
+    }
+
+    @Test
+    public void testDuplicatesAreRecognised() {
+        ReliableReceiver receiver = new ReliableReceiver(7);
+
+        assertTrue(receiver.accept(7, 0, 0));
+        assertFalse(receiver.accept(7, 0, 0));
+        assertTrue(receiver.accept(7, 2, 0));
+        assertFalse(receiver.accept(7, 2, 0));
+        assertTrue(receiver.accept(7, 1, 0));
+        assertFalse(receiver.accept(7, 1, 0));
+    }
+
+    @Test
+    public void testAcknowledgementNamesGaps() {
+        ReliableReceiver receiver = new ReliableReceiver(7);
+        receiver.accept(7, 0, 0);
+        receiver.accept(7, 1, 0);
+        receiver.accept(7, 3, 0);
+        receiver.accept(7, 4, 0);
+        receiver.accept(7, 7, 0);
+
+        ByteBuffer ack = acknowledgement(receiver);
+
+        assertEquals(7, ack.getInt(), "Session");
+        assertEquals(2, ack.getInt(), "Cumulative sequence");
+        assertEquals(4000, ack.getShort(), "Reply port");
+        assertEquals(2, ack.getShort(), "Range count");
+        assertEquals(3, ack.getInt());
+        assertEquals(5, ack.getInt());
+        assertEquals(7, ack.getInt());
+        assertEquals(8, ack.getInt());
+
+        receiver.accept(7, 2, 0);
+        ack = acknowledgement(receiver);
+        ack.getInt();
+        assertEquals(5, ack.getInt(), "Filling the gap should advance past the received run");
+    }
+
+    @Test
+    public void testNewSessionStartsOver() {
+        ReliableReceiver receiver = new ReliableReceiver(7);
+        receiver.accept(7, 0, 0);
+        receiver.accept(7, 1, 0);
+
+        assertTrue(receiver.accept(8, 0, 0), "A restarted sender should be accepted from the start");
+        ByteBuffer ack = acknowledgement(receiver);
+        assertEquals(8, ack.getInt());
+        assertEquals(1, ack.getInt());
+    }
+
+    @Test
+    public void testGivenUpFramesAreSkipped() {
+        ReliableReceiver receiver = new ReliableReceiver(7);
+        receiver.accept(7, 2, 0);
+        receiver.accept(7, 3, 0);
+
+        // The sender gave up frames 0 and 1
+        assertTrue(receiver.accept(7, 5, 2), "Frames after given-up ones should still be delivered");
+        assertEquals(4, acknowledgement(receiver).getInt(4), "The stream should move past them and the run after them");
+
+        long far = ReliableReceiver.MAX_SEQUENCE_AHEAD + 10L;
+        assertTrue(receiver.accept(7, far, far), "A frame beyond a long run of given-up ones should be delivered");
+        assertEquals(far + 1, acknowledgement(receiver).getInt(4));
+    }
+
+    @Test
+    public void testFarAheadIsDropped() {
+        ReliableReceiver receiver = new ReliableReceiver(7);
+
+        assertFalse(receiver.accept(7, ReliableReceiver.MAX_SEQUENCE_AHEAD + 1L, 0));
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SharedMemoryCommunicator class.
+ */
+public class SharedMemoryCommunicatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SharedMemoryCommunicator sender;
+    private SharedMemoryCommunicator receiver;
+
+    private CommunicatorConfig.Builder config() {
+        return CommunicatorConfig.builder()
+            .transportType(TransportType.SHARED_MEMORY)
+            .sharedMemoryDirectory(tempDir);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        sender = new SharedMemoryCommunicator(config().build());
+        receiver = new SharedMemoryCommunicator(config().overflowPolicy(OverflowPolicy.BLOCK).build());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        sender.close();
+        receiver.close();
+    }
+
+    @Test
+    public void testDescriptorAnnouncesInstance() throws IOException {
+        Path descriptor = tempDir.resolve("dgdemo-" + receiver.getListenPort() + ".peer");
+        assertTrue(Files.exists(descriptor));
+        assertEquals(Long.toString(ProcessHandle.current().pid()), Files.readString(descriptor));
+        assertNotEquals(sender.getListenPort(), receiver.getListenPort());
+    }
+
+    @Test
+    public void testMessagesArriveInOrder() throws InterruptedException {
+        int count = 20_000;
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(count);
+        receiver.addSubscriber("chat", message -> {
+            received.add(message);
+            latch.countDown();
+        });
+
+        for (int i = 0; i < count; i++) {
+            sender.sendMessage("127.0.0.1", receiver.getListenPort(), "chat", "message " + i);
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS), "Every message should arrive");
+        for (int i = 0; i < count; i++) {
+            assertEquals("message " + i, received.get(i));
+        }
+    }
+
+    @Test
+    public void testLargeBinaryPayload() throws Exception {
+        CompletableFuture<byte[]> received = new CompletableFuture<>();
+        receiver.addSubscriber("image", new IBinaryMessageListener() {
+            @Override
+            public void onMessageReceived(ByteBuffer message) {
+                byte[] bytes = new byte[message.remaining()];
+                message.get(bytes);
+                received.complete(bytes);
+            }
+        });
+        byte[] data = new byte[500_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 7);
+        }
+
+        sender.sendMessage("127.0.0.1", receiver.getListenPort(), "image", data, 0, data.length);
+
+        assertArrayEquals(data, received.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFixedPortInUse() {
+        assertThrows(IllegalStateException.class,
+            () -> new SharedMemoryCommunicator(config().port(receiver.getListenPort()).build()));
+    }
+
+    @Test
+    public void testStaleDescriptorIsTakenOver() throws IOException {
+        Files.writeString(tempDir.resolve("dgdemo-40000.peer"), "999999999");
+
+        try (SharedMemoryCommunicator communicator = new SharedMemoryCommunicator(config().port(40000).build())) {
+            assertEquals(40000, communicator.getListenPort());
+        }
+    }
+
+    @Test
+    public void testRingOfDeadProducerIsDeleted() throws Exception {
+        Path ring = tempDir.resolve("dgdemo-" + receiver.getListenPort() + "-40002-999999999-1.ring");
+        SharedMemoryRing.create(ring, 4096);
+
+        for (int i = 0; i < 200 && Files.exists(ring); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(Files.exists(ring), "The consumer should delete the ring of a dead producer");
+    }
+
+    @Test
+    public void testOrphanedRingIsDeletedOnStart() throws IOException {
+        Path ring = tempDir.resolve("dgdemo-40003-40002-999999999-1.ring");
+        SharedMemoryRing.create(ring, 4096);
+
+        try (SharedMemoryCommunicator communicator = new SharedMemoryCommunicator(config().build())) {
+            assertFalse(Files.exists(ring), "A ring nobody produces or consumes should be deleted");
+        }
+    }
+
+    @Test
+    public void testSendToUnknownPortFails() {
+        Endpoint endpoint = sender.getEndpoint("127.0.0.1", 40001, false);
+
+        CompletableFuture<Void> future = sender.sendFrameAsync(endpoint, "chat", new FrameHeader(),
+            ByteBuffer.wrap("lost".getBytes()));
+
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testCloseRemovesFiles() throws Exception {
+        CompletableFuture<String> received = new CompletableFuture<>();
+        receiver.addSubscriber("chat", received::complete);
+        sender.sendMessage("127.0.0.1", receiver.getListenPort(), "chat", "hello");
+        assertEquals("hello", received.get(2, TimeUnit.SECONDS));
+
+        sender.close();
+        receiver.close();
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count(), "Descriptors and rings should be deleted on close");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SharedMemoryRing class.
+ */
+public class SharedMemoryRingTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> readAll(SharedMemoryRing ring) throws IOException {
+        List<String> frames = new ArrayList<>();
+        ring.read(frame -> frames.add(StandardCharsets.UTF_8.decode(frame).toString()));
+        return frames;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Path path = tempDir.resolve("test.ring");
+        SharedMemoryRing producer = SharedMemoryRing.create(path, 1024);
+        SharedMemoryRing consumer = SharedMemoryRing.open(path);
+        assertNotNull(consumer);
+        assertTrue(readAll(consumer).isEmpty());
+
+        producer.write(bytes("head-"), bytes("first"), 0);
+        producer.write(bytes(""), bytes("second"), 0);
+
+        assertEquals(List.of("head-first", "second"), readAll(consumer));
+        assertTrue(readAll(consumer).isEmpty());
+    }
+
+    @Test
+    public void testWrapAroundKeepsFramesWhole() throws IOException {
+        Path path = tempDir.resolve("wrap.ring");
+        SharedMemoryRing producer = SharedMemoryRing.create(path, 256);
+        SharedMemoryRing consumer = SharedMemoryRing.open(path);
+        for (int i = 0; i < 100; i++) {
+            String frame = "frame-" + i + "-" + "x".repeat(i % 50);
+            producer.write(bytes(""), bytes(frame), TimeUnit.SECONDS.toNanos(1));
+            assertEquals(List.of(frame), readAll(consumer));
+        }
+    }
+
+    @Test
+    public void testFullRingTimesOut() throws IOException {
+        SharedMemoryRing producer = SharedMemoryRing.create(tempDir.resolve("full.ring"), 256);
+        ByteBuffer frame = ByteBuffer.allocate(producer.getMaxFrameSize());
+        producer.write(ByteBuffer.allocate(0), frame.duplicate(), 0);
+        producer.write(ByteBuffer.allocate(0), frame.duplicate(), 0);
+
+        assertThrows(IOException.class, () -> producer.write(ByteBuffer.allocate(0), frame.duplicate(), 0));
+        assertThrows(IOException.class,
+            () -> producer.write(ByteBuffer.allocate(0), ByteBuffer.allocate(producer.getMaxFrameSize() + 1), 0));
+    }
+
+    @Test
+    public void testConsumerResumesFromHead() throws IOException {
+        Path path = tempDir.resolve("resume.ring");
+        SharedMemoryRing producer = SharedMemoryRing.create(path, 1024);
+        SharedMemoryRing consumer = SharedMemoryRing.open(path);
+        producer.write(bytes(""), bytes("read"), 0);
+        readAll(consumer);
+        producer.write(bytes(""), bytes("unread"), 0);
+
+        assertEquals(List.of("unread"), readAll(SharedMemoryRing.open(path)));
+    }
+
+    @Test
+    public void testUnfinishedAndInvalidFiles() throws IOException {
+        Path empty = Files.createFile(tempDir.resolve("empty.ring"));
+        assertNull(SharedMemoryRing.open(empty), "A file still being created should not be opened");
+        Path zeroes = Files.write(tempDir.resolve("zeroes.ring"), new byte[4096]);
+        assertNull(SharedMemoryRing.open(zeroes), "A ring without its magic number should not be opened");
+        assertThrows(IllegalArgumentException.class, () -> SharedMemoryRing.create(tempDir.resolve("bad.ring"), 100));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StreamFrameReader class.
+ */
+public class StreamFrameReaderTest {
+
+    private final List<byte[]> frames = new ArrayList<>();
+
+    private void collect(ByteBuffer frame) {
+        byte[] bytes = new byte[frame.remaining()];
+        frame.get(bytes);
+        frames.add(bytes);
+    }
+
+    private static byte[] stream(byte[]... payloads) {
+        int size = 0;
+        for (byte[] payload : payloads) {
+            size += StreamFrameReader.LENGTH_PREFIX_SIZE + payload.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] payload : payloads) {
+            buffer.putInt(payload.length).put(payload);
+        }
+        return buffer.array();
+    }
+
+    /** Channel that hands out at most a few bytes per read, like a slow socket. */
+    private static ReadableByteChannel trickle(byte[] data, int bytesPerRead) {
+        ReadableByteChannel source = Channels.newChannel(new ByteArrayInputStream(data));
+        return new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                ByteBuffer limited = dst.slice();
+                limited.limit(Math.min(bytesPerRead, limited.remaining()));
+                int count = source.read(limited);
+                if (count > 0) {
+                    dst.position(dst.position() + count);
+                }
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return source.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        };
+    }
+
+    private void readAll(StreamFrameReader reader, ReadableByteChannel channel) throws IOException {
+        while (reader.read(channel) >= 0) {
+            // Keep reading until the end of the stream
+        }
+    }
+
+    @Test
+    public void testSeveralFramesInOneRead() throws IOException {
+        StreamFrameReader reader = new StreamFrameReader(1024, this::collect);
+        readAll(reader, Channels.newChannel(new ByteArrayInputStream(stream("one".getBytes(), "two".getBytes(),
+            new byte[0]))));
+
+        assertEquals(3, frames.size());
+        assertArrayEquals("one".getBytes(), frames.get(0));
+        assertArrayEquals("two".getBytes(), frames.get(1));
+        assertEquals(0, frames.get(2).length);
+    }
+
+    @Test
+    public void testFramesSplitAcrossReads() throws IOException {
+        StreamFrameReader reader = new StreamFrameReader(1024, this::collect);
+        readAll(reader, trickle(stream("hello".getBytes(), "world!".getBytes()), 3));
+
+        assertEquals(2, frames.size());
+        assertArrayEquals("hello".getBytes(), frames.get(0));
+        assertArrayEquals("world!".getBytes(), frames.get(1));
+    }
+
+    @Test
+    public void testFrameLargerThanInitialBuffer() throws IOException {
+        byte[] large = new byte[200_000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+        StreamFrameReader reader = new StreamFrameReader(1 << 20, this::collect);
+        readAll(reader, trickle(stream(large, "tail".getBytes()), 50_000));
+
+        assertEquals(2, frames.size());
+        assertArrayEquals(large, frames.get(0));
+        assertArrayEquals("tail".getBytes(), frames.get(1));
+    }
+
+    @Test
+    public void testInvalidLengthIsRejected() {
+        StreamFrameReader reader = new StreamFrameReader(16, this::collect);
+        byte[] data = stream(new byte[17]);
+
+        assertThrows(IOException.class, () -> readAll(reader, Channels.newChannel(new ByteArrayInputStream(data))));
+        assertTrue(frames.isEmpty());
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SubscriberQueue class.
+ */
+public class SubscriberQueueTest {
+
+    private static ByteBuffer text(String message) {
+        return ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testDeliversInOrderOnOwnThread() throws InterruptedException {
+        List<String> received = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        SubscriberQueue queue = new SubscriberQueue("ordered", message -> {
+            received.add(message);
+            threads.add(Thread.currentThread().getName());
+            latch.countDown();
+        }, 8, OverflowPolicy.DROP_NEWEST, new AtomicLong());
+
+        queue.enqueue(new FrameHeader(), text("one"));
+        queue.enqueue(new FrameHeader(), text("two"));
+        queue.enqueue(new FrameHeader(), text("three"));
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("one", "two", "three"), received);
+        assertEquals("dispatch-ordered", threads.get(0));
+        queue.shutdown();
+    }
+
+    @Test
+    public void testDropNewestWhenFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        AtomicLong dropped = new AtomicLong();
+        SubscriberQueue queue = new SubscriberQueue("slow", message -> {
+            started.countDown();
+            awaitQuietly(release);
+            received.add(message);
+        }, 1, OverflowPolicy.DROP_NEWEST, dropped);
+
+        queue.enqueue(new FrameHeader(), text("busy"));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        queue.enqueue(new FrameHeader(), text("queued"));
+        queue.enqueue(new FrameHeader(), text("dropped"));
+        assertEquals(1, dropped.get(), "Message arriving at a full queue should be dropped");
+
+        release.countDown();
+        queue.shutdown();
+        Thread.sleep(200);
+        assertEquals(List.of("busy", "queued"), received);
+    }
+
+    @Test
+    public void testDropOldestWhenFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        AtomicLong dropped = new AtomicLong();
+        SubscriberQueue queue = new SubscriberQueue("slow", message -> {
+            started.countDown();
+            awaitQuietly(release);
+            received.add(message);
+        }, 1, OverflowPolicy.DROP_OLDEST, dropped);
+
+        queue.enqueue(new FrameHeader(), text("busy"));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        queue.enqueue(new FrameHeader(), text("stale"));
+        queue.enqueue(new FrameHeader(), text("fresh"));
+        assertEquals(1, dropped.get(), "Oldest queued message should be dropped");
+
+        release.countDown();
+        queue.shutdown();
+        Thread.sleep(200);
+        assertEquals(List.of("busy", "fresh"), received);
+    }
+
+    @Test
+    public void testBlockedEnqueueReturnsOnShutdown() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        SubscriberQueue queue = new SubscriberQueue("stuck", message -> {
+            started.countDown();
+            awaitQuietly(release);
+        }, 1, OverflowPolicy.BLOCK, new AtomicLong());
+        queue.enqueue(new FrameHeader(), text("busy"));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        queue.enqueue(new FrameHeader(), text("queued"));
+        Thread receiver = new Thread(() -> queue.enqueue(new FrameHeader(), text("blocked")));
+        receiver.start();
+        Thread.sleep(100);
+        assertTrue(receiver.isAlive(), "The receive thread should wait while the queue is full");
+
+        queue.shutdown();
+        receiver.join(2000);
+
+        assertFalse(receiver.isAlive(), "The receive thread should not wait on a shut down queue");
+        release.countDown();
+    }
+
+    @Test
+    public void testBinaryListenerReceivesBytes() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        SubscriberQueue queue = new SubscriberQueue("binary", (IBinaryMessageListener) message -> {
+            assertEquals(3, message.remaining());
+            latch.countDown();
+        }, 4, OverflowPolicy.BLOCK, new AtomicLong());
+
+        queue.enqueue(new FrameHeader(), ByteBuffer.wrap(new byte[] {1, 2, 3}));
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        queue.shutdown();
+    }
+
+    @Test
+    public void testConcurrentListenerIsGivenSeveralThreads() throws InterruptedException {
+        CountDownLatch allInside = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        SubscriberQueue queue = new SubscriberQueue("parallel", (IConcurrentMessageListener) message -> {
+            threads.add(Thread.currentThread().getName());
+            allInside.countDown();
+            awaitQuietly(release);
+        }, 8, OverflowPolicy.BLOCK, new AtomicLong(), 3);
+
+        queue.enqueue(new FrameHeader(), ByteBuffer.wrap(new byte[] {1}));
+        queue.enqueue(new FrameHeader(), ByteBuffer.wrap(new byte[] {2}));
+        queue.enqueue(new FrameHeader(), ByteBuffer.wrap(new byte[] {3}));
+
+        assertTrue(allInside.await(2, TimeUnit.SECONDS), "Three messages should be delivered side by side");
+        assertEquals("dispatch-parallel", threads.get(0));
+        release.countDown();
+        queue.shutdown();
+    }
+
+    @Test
+    public void testOrdinaryListenerKeepsOneThread() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicLong inside = new AtomicLong();
+        AtomicLong mostInside = new AtomicLong();
+        SubscriberQueue queue = new SubscriberQueue("serial", (IBinaryMessageListener) message -> {
+            mostInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+            started.countDown();
+            awaitQuietly(release);
+            inside.decrementAndGet();
+        }, 8, OverflowPolicy.BLOCK, new AtomicLong(), 3);
+
+        queue.enqueue(new FrameHeader(), ByteBuffer.wrap(new byte[] {1}));
+        queue.enqueue(new FrameHeader(), ByteBuffer.wrap(new byte[] {2}));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        release.countDown();
+        queue.shutdown();
+        Thread.sleep(100);
+        assertEquals(1, mostInside.get(), "A listener that is not concurrent should only see one thread");
+    }
+
+    @Test
+    public void testFailingListenerKeepsQueueAlive() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        SubscriberQueue queue = new SubscriberQueue("failing", message -> {
+            if ("boom".equals(message)) {
+                throw new IllegalStateException("listener failure");
+            }
+            latch.countDown();
+        }, 4, OverflowPolicy.DROP_NEWEST, new AtomicLong());
+
+        queue.enqueue(new FrameHeader(), text("boom"));
+        queue.enqueue(new FrameHeader(), text("ok"));
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "Messages after a failure should still be delivered");
+        queue.shutdown();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
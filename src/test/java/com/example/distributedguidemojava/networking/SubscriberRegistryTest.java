@@ -0,0 +1,112 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SubscriberRegistry class.
+ */
+public class SubscriberRegistryTest {
+
+    private static SubscriberQueue queue(String id) {
+        return new SubscriberQueue(id, message -> { }, 4, OverflowPolicy.DROP_NEWEST, new AtomicLong());
+    }
+
+    @Test
+    public void testWellKnownSubscriberIsRoutedByChannel() {
+        SubscriberRegistry registry = new SubscriberRegistry();
+        SubscriberQueue chat = queue("chat");
+        assertNull(registry.put("chat", chat));
+
+        assertSame(chat, registry.get("chat"));
+        assertSame(chat, registry.get(ChannelIds.CHAT));
+        assertNull(registry.get(ChannelIds.IMAGE));
+    }
+
+    @Test
+    public void testCustomSubscriberHasNoChannel() {
+        SubscriberRegistry registry = new SubscriberRegistry();
+        SubscriberQueue custom = queue("custom");
+        registry.put("custom", custom);
+
+        assertSame(custom, registry.get("custom"));
+        assertNull(registry.get(ChannelIds.UNASSIGNED));
+    }
+
+    @Test
+    public void testReplaceAndRemove() {
+        SubscriberRegistry registry = new SubscriberRegistry();
+        SubscriberQueue first = queue("image");
+        SubscriberQueue second = queue("image");
+        registry.put("image", first);
+
+        assertSame(first, registry.put("image", second));
+        assertSame(second, registry.get(ChannelIds.IMAGE));
+        assertSame(second, registry.remove("image"));
+        assertNull(registry.get("image"));
+        assertNull(registry.get(ChannelIds.IMAGE));
+    }
+
+    @Test
+    public void testOutOfRangeChannel() {
+        SubscriberRegistry registry = new SubscriberRegistry();
+        assertNull(registry.get(-1));
+        assertNull(registry.get(ChannelIds.MAX_CHANNEL_ID + 1));
+    }
+
+    @Test
+    public void testConcurrentReadersDuringUpdates() throws InterruptedException {
+        SubscriberRegistry registry = new SubscriberRegistry();
+        SubscriberQueue chat = queue("chat");
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean sawInconsistentValue = new AtomicBoolean(false);
+        Thread reader = new Thread(() -> {
+            while (running.get()) {
+                SubscriberQueue found = registry.get(ChannelIds.CHAT);
+                if (found != null && found != chat) {
+                    sawInconsistentValue.set(true);
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 1000; i++) {
+            registry.put("chat", chat);
+            registry.remove("chat");
+        }
+        running.set(false);
+        reader.join();
+        assertFalse(sawInconsistentValue.get());
+    }
+
+    @Test
+    public void testSubscribedQueuesCountDropsInRegistry() throws InterruptedException {
+        SubscriberRegistry registry = new SubscriberRegistry();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        assertNull(registry.subscribe("slow", message -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 1, OverflowPolicy.DROP_NEWEST, 1));
+        SubscriberQueue slow = registry.get("slow");
+
+        slow.enqueue(new FrameHeader(), ByteBuffer.wrap("busy".getBytes()));
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        slow.enqueue(new FrameHeader(), ByteBuffer.wrap("queued".getBytes()));
+        slow.enqueue(new FrameHeader(), ByteBuffer.wrap("dropped".getBytes()));
+
+        assertEquals(1, registry.getDroppedCount());
+        release.countDown();
+        slow.shutdown();
+    }
+}
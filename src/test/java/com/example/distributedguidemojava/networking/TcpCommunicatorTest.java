@@ -0,0 +1,112 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TcpCommunicator class.
+ */
+public class TcpCommunicatorTest {
+
+    private TcpCommunicator sender;
+    private TcpCommunicator receiver;
+
+    @BeforeEach
+    public void setUp() {
+        sender = new TcpCommunicator();
+        receiver = new TcpCommunicator();
+    }
+
+    @Test
+    public void testSendMessageToLocalhost() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        receiver.addSubscriber("chat", message -> {
+            assertEquals("Hello, TCP!", message);
+            latch.countDown();
+        });
+
+        sender.sendMessage("127.0.0.1", receiver.getListenPort(), "chat", "Hello, TCP!");
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "Message should be received within 2 seconds");
+    }
+
+    @Test
+    public void testNamedSubscriber() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        receiver.addSubscriber("tcpCustomSubscriber", message -> latch.countDown());
+
+        sender.sendMessage("127.0.0.1", receiver.getListenPort(), "tcpCustomSubscriber", "named");
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "Named subscribers should be routed as over UDP");
+    }
+
+    @Test
+    public void testLargePayloadArrivesWhole() throws Exception {
+        byte[] large = new byte[3 * 1024 * 1024];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) (i * 7);
+        }
+        CompletableFuture<byte[]> received = new CompletableFuture<>();
+        receiver.addSubscriber("image", new IBinaryMessageListener() {
+            @Override
+            public void onMessageReceived(ByteBuffer message) {
+                byte[] bytes = new byte[message.remaining()];
+                message.get(bytes);
+                received.complete(bytes);
+            }
+        });
+
+        sender.sendMessage("127.0.0.1", receiver.getListenPort(), "image", large, 0, large.length);
+
+        assertArrayEquals(large, received.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testMessagesArriveInOrderOverOnePooledConnection() throws InterruptedException {
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(500);
+        receiver.addSubscriber("chat", message -> {
+            received.add(message);
+            latch.countDown();
+        });
+
+        for (int i = 0; i < 500; i++) {
+            sender.sendMessage("127.0.0.1", receiver.getListenPort(), "chat", "message " + i);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS), "Every message should arrive");
+        for (int i = 0; i < 500; i++) {
+            assertEquals("message " + i, received.get(i));
+        }
+        assertEquals(1, sender.getConnectionCount());
+    }
+
+    @Test
+    public void testAsyncSendToUnreachablePeerFails() throws Exception {
+        TcpCommunicator asyncSender = new TcpCommunicator(CommunicatorConfig.builder()
+            .transportType(TransportType.TCP)
+            .sendMode(SendMode.ASYNC)
+            .build());
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        // Nothing listens on the port any more, so the connection is refused
+        Endpoint endpoint = asyncSender.getEndpoint("127.0.0.1", port, false);
+
+        CompletableFuture<Void> future = asyncSender.sendFrameAsync(endpoint, "chat", new FrameHeader(),
+            ByteBuffer.wrap("lost".getBytes()));
+
+        assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.distributedguidemojava.networking;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TokenBucket class.
+ */
+public class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void testBurstGoesOutWithoutWaiting() {
+        TokenBucket bucket = new TokenBucket(1000, 500, 0);
+
+        assertEquals(0, bucket.reserve(300, 0));
+        assertEquals(0, bucket.reserve(200, 0));
+    }
+
+    @Test
+    public void testDebtIsPaidOffAtTheRate() {
+        TokenBucket bucket = new TokenBucket(1000, 500, 0);
+        bucket.reserve(500, 0);
+
+        assertEquals(SECOND / 10, bucket.reserve(100, 0));
+        // Every sender waits behind the ones before it
+        assertEquals(SECOND / 5, bucket.reserve(100, 0));
+        assertEquals(0, bucket.reserve(100, SECOND / 2));
+    }
+
+    @Test
+    public void testTokensAreCappedAtTheBurst() {
+        TokenBucket bucket = new TokenBucket(1000, 500, 0);
+
+        assertEquals(SECOND / 2, bucket.reserve(1000, 10 * SECOND));
+    }
+
+    @Test
+    public void testLossCutsTheRateOncePerHoldoff() {
+        TokenBucket bucket = new TokenBucket(1000, 500, 0);
+
+        bucket.onLoss(0);
+        bucket.onLoss(TokenBucket.LOSS_HOLDOFF_NANOS / 2);
+        assertEquals(700, bucket.getRate());
+        bucket.onLoss(TokenBucket.LOSS_HOLDOFF_NANOS);
+        assertEquals(490, bucket.getRate());
+    }
+
+    @Test
+    public void testRateNeverDropsBelowFloor() {
+        TokenBucket bucket = new TokenBucket(1600, 500, 0);
+
+        for (int i = 0; i < 100; i++) {
+            bucket.onLoss(i * TokenBucket.LOSS_HOLDOFF_NANOS);
+        }
+        assertEquals(100, bucket.getRate());
+    }
+
+    @Test
+    public void testDeliveriesRaiseTheRateBackToMaximum() {
+        TokenBucket bucket = new TokenBucket(3200, 500, 0);
+        bucket.onLoss(0);
+        assertEquals(2240, bucket.getRate());
+
+        bucket.onDelivered(TokenBucket.INCREASE_INTERVAL_NANOS);
+        assertEquals(2340, bucket.getRate());
+        bucket.onDelivered(TokenBucket.INCREASE_INTERVAL_NANOS + 1);
+        assertEquals(2340, bucket.getRate(), "Increases are spaced out");
+        for (int i = 2; i < 100; i++) {
+            bucket.onDelivered(i * TokenBucket.INCREASE_INTERVAL_NANOS);
+        }
+        assertEquals(3200, bucket.getRate());
+    }
+
+    @Test
+    public void testAcquireWaitsForTheDebt() {
+        TokenBucket bucket = new TokenBucket(100_000, 1000, System.nanoTime());
+        long start = System.nanoTime();
+
+        // 1000 bytes of burst, then 5000 bytes at 100 KB/s
+        for (int i = 0; i < 6; i++) {
+            bucket.acquire(1000);
+        }
+        assertTrue(System.nanoTime() - start >= 45_000_000L, "Sends past the burst should be spread out");
+    }
+}
@@ -6,6 +6,14 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -252,4 +260,275 @@ public class UdpCommunicatorTest {
         assertTrue(latch.await(2, TimeUnit.SECONDS), "Message should be received by new listener");
         verify(oldListener, never()).onMessageReceived(anyString());
     }
+
+    @Test
+    public void testSendBinaryToBinaryListener() throws InterruptedException {
+        receiverCommunicator = new UdpCommunicator();
+        CountDownLatch latch = new CountDownLatch(1);
+        byte[] payload = {0, 1, (byte) 0xFF, ':', 42};
+
+        receiverCommunicator.addSubscriber("binary", (IBinaryMessageListener) message -> {
+            byte[] received = new byte[message.remaining()];
+            message.get(received);
+            assertArrayEquals(payload, received);
+            latch.countDown();
+        });
+
+        communicator.sendMessage("127.0.0.1", receiverCommunicator.getListenPort(), "binary", payload, 0, payload.length);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "Binary message should be received intact");
+    }
+
+    @Test
+    public void testSendByteBufferRangeToStringListener() throws InterruptedException {
+        receiverCommunicator = new UdpCommunicator();
+        CountDownLatch latch = new CountDownLatch(1);
+        ByteBuffer buffer = ByteBuffer.wrap("xxhello".getBytes());
+        buffer.position(2);
+
+        receiverCommunicator.addSubscriber("text", message -> {
+            assertEquals("hello", message);
+            latch.countDown();
+        });
+
+        communicator.sendMessage("127.0.0.1", receiverCommunicator.getListenPort(), "text", buffer);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "Buffer payload should be decoded for string listeners");
+        assertFalse(buffer.hasRemaining(), "Sending should consume the buffer");
+    }
+
+    @Test
+    public void testSlowSubscriberDoesNotDelayOthers() throws InterruptedException {
+        receiverCommunicator = new UdpCommunicator();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch chatReceived = new CountDownLatch(1);
+
+        receiverCommunicator.addSubscriber("image", message -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        receiverCommunicator.addSubscriber("chat", message -> chatReceived.countDown());
+
+        communicator.sendMessage("127.0.0.1", receiverCommunicator.getListenPort(), "image", "slow chunk");
+        communicator.sendMessage("127.0.0.1", receiverCommunicator.getListenPort(), "chat", "hello");
+
+        assertTrue(chatReceived.await(2, TimeUnit.SECONDS), "Chat should not wait behind a slow image subscriber");
+        release.countDown();
+    }
+
+    @Test
+    public void testInvalidDispatchConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new UdpCommunicator(0, OverflowPolicy.DROP_NEWEST));
+        assertThrows(IllegalArgumentException.class, () -> new UdpCommunicator(16, null));
+    }
+
+    @Test
+    public void testSubscribersChangeWhileTrafficFlows() throws InterruptedException {
+        receiverCommunicator = new UdpCommunicator();
+        CountDownLatch latch = new CountDownLatch(1);
+        receiverCommunicator.addSubscriber("chat", message -> latch.countDown());
+
+        Thread churn = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                receiverCommunicator.addSubscriber("image", message -> { });
+                receiverCommunicator.removeSubscriber("image");
+            }
+        });
+        churn.start();
+        for (int i = 0; i < 20; i++) {
+            communicator.sendMessage("127.0.0.1", receiverCommunicator.getListenPort(), "image", "chunk " + i);
+        }
+        communicator.sendMessage("127.0.0.1", receiverCommunicator.getListenPort(), "chat", "still routed");
+        churn.join();
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "Chat channel should keep working while subscribers change");
+    }
+
+    @Test
+    public void testAsyncSendModeDeliversInOrder() throws Exception {
+        UdpCommunicator asyncSender = new UdpCommunicator(16, OverflowPolicy.DROP_NEWEST, SendMode.ASYNC);
+        receiverCommunicator = new UdpCommunicator();
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(20);
+        receiverCommunicator.addSubscriber("chat", message -> {
+            received.add(message);
+            latch.countDown();
+        });
+
+        Endpoint endpoint = asyncSender.getEndpoint("127.0.0.1", receiverCommunicator.getListenPort(), false);
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < 20; i++) {
+            last = asyncSender.sendFrameAsync(endpoint, "chat", new FrameHeader(),
+                ByteBuffer.wrap(("async " + i).getBytes()));
+        }
+        last.get(2, TimeUnit.SECONDS);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS), "Queued messages should all be sent");
+        for (int i = 0; i < 20; i++) {
+            assertEquals("async " + i, received.get(i));
+        }
+    }
+
+    @Test
+    public void testReceivedFrameTellsItsSource() throws Exception {
+        receiverCommunicator = new UdpCommunicator();
+        CompletableFuture<InetSocketAddress> source = new CompletableFuture<>();
+        receiverCommunicator.addSubscriber("chat", new IBinaryMessageListener() {
+            @Override
+            public void onMessageReceived(ByteBuffer message) {
+            }
+
+            @Override
+            public void onFrameReceived(FrameHeader header, ByteBuffer payload) {
+                source.complete(header.getSource());
+            }
+        });
+
+        communicator.sendFrame(communicator.getEndpoint("127.0.0.1", receiverCommunicator.getListenPort(), false),
+            "chat", new FrameHeader(), ByteBuffer.wrap("hello".getBytes()));
+
+        InetSocketAddress address = source.get(2, TimeUnit.SECONDS);
+        assertNotNull(address);
+        assertTrue(address.getAddress().isLoopbackAddress());
+    }
+
+    @Test
+    public void testSyncSendFrameAsyncReportsOversizedFrame() {
+        Endpoint endpoint = communicator.getEndpoint("127.0.0.1", 9, false);
+        CompletableFuture<Void> future = communicator.sendFrameAsync(endpoint, "chat", new FrameHeader(),
+            ByteBuffer.allocate(70000));
+
+        assertTrue(future.isCompletedExceptionally(), "A frame larger than a datagram should fail");
+    }
+
+    @Test
+    public void testInvalidSendMode() {
+        assertThrows(IllegalArgumentException.class, () -> new UdpCommunicator(16, OverflowPolicy.DROP_NEWEST, null));
+    }
+
+    @Test
+    public void testReusePortPreservesPerSenderOrder() throws InterruptedException {
+        receiverCommunicator = new UdpCommunicator(1024, OverflowPolicy.BLOCK, SendMode.SYNC, 4);
+        assertTrue(receiverCommunicator.getReceiveThreadCount() >= 1);
+        int senders = 4;
+        int messagesPerSender = 50;
+        Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(senders * messagesPerSender);
+        receiverCommunicator.addSubscriber("chat", message -> {
+            String[] parts = message.split(":");
+            received.computeIfAbsent(parts[0], k -> new CopyOnWriteArrayList<>()).add(Integer.parseInt(parts[1]));
+            latch.countDown();
+        });
+
+        List<Thread> threads = new ArrayList<>();
+        for (int s = 0; s < senders; s++) {
+            String name = "sender" + s;
+            UdpCommunicator sender = new UdpCommunicator();
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < messagesPerSender; i++) {
+                    sender.sendMessage("127.0.0.1", receiverCommunicator.getListenPort(), "chat", name + ":" + i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS), "All messages should be received");
+        for (List<Integer> sequence : received.values()) {
+            for (int i = 0; i < sequence.size(); i++) {
+                assertEquals(i, sequence.get(i), "Messages from one sender should stay in order");
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidReceiveThreadCount() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new UdpCommunicator(16, OverflowPolicy.DROP_NEWEST, SendMode.SYNC, 0));
+    }
+
+    @Test
+    public void testReliableSendCompletesOnAcknowledgement() throws Exception {
+        CommunicatorConfig reliable = CommunicatorConfig.builder().reliable(true).build();
+        UdpCommunicator sender = new UdpCommunicator(reliable);
+        receiverCommunicator = new UdpCommunicator(reliable);
+        CompletableFuture<String> received = new CompletableFuture<>();
+        receiverCommunicator.addSubscriber("chat", received::complete);
+        Endpoint endpoint = sender.getEndpoint("127.0.0.1", receiverCommunicator.getListenPort(), false);
+
+        CompletableFuture<Void> acknowledged = sender.sendFrameAsync(endpoint, "chat", new FrameHeader(),
+            ByteBuffer.wrap("Hello reliably".getBytes()));
+
+        acknowledged.get(2, TimeUnit.SECONDS);
+        assertEquals("Hello reliably", received.get(2, TimeUnit.SECONDS));
+        assertEquals(0, receiverCommunicator.getRetransmittedFrameCount());
+    }
+
+    @Test
+    public void testReliableSendToSilentPeerIsRetransmitted() throws Exception {
+        UdpCommunicator sender = new UdpCommunicator(CommunicatorConfig.builder().reliable(true).build());
+        // A peer without reliable delivery never acknowledges, but still gets the frames
+        receiverCommunicator = new UdpCommunicator();
+        Endpoint endpoint = sender.getEndpoint("127.0.0.1", receiverCommunicator.getListenPort(), false);
+
+        CompletableFuture<Void> acknowledged = sender.sendFrameAsync(endpoint, "chat", new FrameHeader(),
+            ByteBuffer.wrap("Anyone there?".getBytes()));
+
+        Thread.sleep(500);
+        assertFalse(acknowledged.isDone());
+        assertTrue(sender.getRetransmittedFrameCount() > 0);
+    }
+
+    @Test
+    public void testPacedBurstIsSpreadOut() throws Exception {
+        // 64 KiB of burst, then the remaining 256 KiB at 1 MB/s
+        UdpCommunicator sender = new UdpCommunicator(CommunicatorConfig.builder().pacingRate(1_000_000).build());
+        receiverCommunicator = new UdpCommunicator();
+        CountDownLatch received = new CountDownLatch(320);
+        receiverCommunicator.addSubscriber("chat", message -> received.countDown());
+        Endpoint endpoint = sender.getEndpoint("127.0.0.1", receiverCommunicator.getListenPort(), false);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 320; i++) {
+            sender.sendFrameAsync(endpoint, "chat", new FrameHeader(), ByteBuffer.allocate(1024)).get();
+        }
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200),
+            "Frames past the burst should go out at the pacing rate");
+        assertTrue(received.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRetransmissionsSlowThePacing() throws Exception {
+        UdpCommunicator sender = new UdpCommunicator(CommunicatorConfig.builder()
+            .reliable(true)
+            .pacingRate(10_000_000)
+            .build());
+        // A peer without reliable delivery never acknowledges, so every frame is retransmitted
+        receiverCommunicator = new UdpCommunicator();
+        Endpoint endpoint = sender.getEndpoint("127.0.0.1", receiverCommunicator.getListenPort(), false);
+
+        sender.sendFrameAsync(endpoint, "chat", new FrameHeader(), ByteBuffer.wrap("Anyone there?".getBytes()));
+
+        Thread.sleep(500);
+        assertTrue(sender.getPacingRate(endpoint.getAddress()) < 10_000_000);
+    }
+
+    @Test
+    public void testRefusedSendsSlowThePacingWithoutReliableDelivery() {
+        UdpCommunicator sender = new UdpCommunicator(CommunicatorConfig.builder().pacingRate(10_000_000).build());
+        // Broadcasting without the broadcast option is refused by the socket
+        Endpoint endpoint = sender.getEndpoint("255.255.255.255", 40004, false);
+
+        CompletableFuture<Void> future = sender.sendFrameAsync(endpoint, "chat", new FrameHeader(),
+            ByteBuffer.wrap("Anyone there?".getBytes()));
+
+        assertTrue(future.isCompletedExceptionally());
+        assertTrue(sender.getPacingRate(endpoint.getAddress()) < 10_000_000);
+    }
 }
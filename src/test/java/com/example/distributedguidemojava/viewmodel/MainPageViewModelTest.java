@@ -3,6 +3,7 @@ package com.example.distributedguidemojava.viewmodel;
 import com.example.distributedguidemojava.networking.ICommunicator;
 import com.example.distributedguidemojava.networking.IMessageListener;
 import javafx.application.Platform;
+import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.StringProperty;
 import javafx.embed.swing.JFXPanel;
@@ -84,6 +85,13 @@ public class MainPageViewModelTest {
         assertNull(receivedImageProperty.get(), "Initial received image should be null");
     }
 
+    @Test
+    public void testImageProgressProperty() {
+        DoubleProperty imageProgressProperty = viewModel.imageProgressProperty();
+        assertNotNull(imageProgressProperty, "Image progress property should not be null");
+        assertEquals(0.0, imageProgressProperty.get(), "Initial image progress should be 0");
+    }
+
     @Test
     public void testSendChatMessage() {
         String ipAddress = "127.0.0.1";
@@ -105,7 +113,8 @@ public class MainPageViewModelTest {
         assertDoesNotThrow(() -> viewModel.sendImageMessage(ipAddress, port, imagePath));
         
         // Verify that the communicator was called to send an image message (dummy data)
-        verify(mockCommunicator, atLeastOnce()).sendMessage(eq(ipAddress), eq(port), eq("image"), anyString());
+        verify(mockCommunicator, timeout(1000).atLeastOnce()).sendMessage(eq(ipAddress), eq(port), eq("image"),
+            anyString());
     }
 
     @Test
@@ -165,7 +174,8 @@ public class MainPageViewModelTest {
         viewModel.sendImageMessage(ipAddress2, port2, imagePath);
         
         verify(mockCommunicator).sendMessage(eq(ipAddress1), eq(port1), eq("chat"), eq(chatMessage));
-        verify(mockCommunicator, atLeastOnce()).sendMessage(eq(ipAddress2), eq(port2), eq("image"), anyString());
+        verify(mockCommunicator, timeout(1000).atLeastOnce()).sendMessage(eq(ipAddress2), eq(port2), eq("image"),
+            anyString());
     }
 
     @Test
@@ -178,7 +188,7 @@ public class MainPageViewModelTest {
         
         verify(mockCommunicator).sendMessage(eq(ipAddress), eq(port), eq("chat"), eq(""));
         // Empty image path should not send a message (file doesn't exist and doesn't match test pattern)
-        verify(mockCommunicator, never()).sendMessage(eq(ipAddress), eq(port), eq("image"), anyString());
+        verify(mockCommunicator, after(200).never()).sendMessage(eq(ipAddress), eq(port), eq("image"), anyString());
     }
 
     @Test